@@ -0,0 +1,27 @@
+package io.airlift.http.client;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The request was not sent because its destination is at its adaptive concurrency limit.
+ * The request may be retried against another server.
+ */
+public class DestinationOverloadedException
+        extends RejectedExecutionException
+{
+    private final URI uri;
+
+    public DestinationOverloadedException(URI uri, int limit)
+    {
+        super("Concurrency limit of %s requests reached for %s".formatted(limit, uri));
+        this.uri = requireNonNull(uri, "uri is null");
+    }
+
+    public URI getUri()
+    {
+        return uri;
+    }
+}
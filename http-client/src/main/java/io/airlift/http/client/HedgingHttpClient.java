@@ -0,0 +1,490 @@
+package io.airlift.http.client;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeDistribution;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.util.concurrent.Futures.addCallback;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.Math.clamp;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * An {@link HttpClient} that reduces tail latency by hedging and retrying idempotent requests.
+ * <p>
+ * If a request has not completed after a high percentile of the client's recent request time,
+ * a hedge request is sent to an alternate URI. The first response wins and the other requests
+ * are canceled. Requests that fail before reaching the server (connection refused, unknown host,
+ * or an overloaded destination) are retried against the next alternate URI, subject to a retry
+ * budget that is replenished by a fraction of every call.
+ * <p>
+ * Only requests with an idempotent method and a body that can be sent more than once are hedged
+ * or retried. Note that the response handler may be invoked for more than one response, and
+ * must not have side effects beyond producing its result. {@link #executeStreaming} is not hedged.
+ * <p>
+ * Hedged requests are sent with {@link HttpClient#executeAsync}, including those passed to
+ * {@link #execute}. The response body is therefore buffered in memory before the response
+ * handler is invoked, and a response larger than {@link #getMaxContentLength()} fails with
+ * {@link ResponseTooLargeException}, where the delegate would stream it. Requests with large
+ * responses should not be sent through this client with a hedgeable method.
+ */
+@ThreadSafe
+public class HedgingHttpClient
+        implements HttpClient
+{
+    private static final Set<String> IDEMPOTENT_METHODS = ImmutableSet.of("GET", "HEAD", "OPTIONS", "TRACE", "PUT", "DELETE");
+    private static final long HEDGE_DELAY_REFRESH_NANOS = SECONDS.toNanos(1);
+    // below this, the percentile of the recent request time is not a meaningful estimate
+    private static final int MIN_SAMPLES_FOR_HEDGE_DELAY = 100;
+
+    private final HttpClient delegate;
+    private final AlternateUris alternateUris;
+    private final HedgingPolicy policy;
+    private final ScheduledExecutorService scheduler;
+    private final RetryBudget retryBudget;
+
+    private final CounterStat hedgesSent = new CounterStat();
+    private final CounterStat hedgesWon = new CounterStat();
+    private final CounterStat retries = new CounterStat();
+    private final CounterStat retryBudgetExhausted = new CounterStat();
+
+    @GuardedBy("this")
+    private long hedgeDelayNanos;
+    @GuardedBy("this")
+    private long hedgeDelayUpdatedNanos;
+
+    /**
+     * @param alternateUris provides the URIs that can serve a request in place of the original one
+     * @param scheduler used to send hedge requests; it is not shut down when this client is closed
+     */
+    public HedgingHttpClient(HttpClient delegate, AlternateUris alternateUris, HedgingPolicy policy, ScheduledExecutorService scheduler)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.alternateUris = requireNonNull(alternateUris, "alternateUris is null");
+        this.policy = requireNonNull(policy, "policy is null");
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+        this.retryBudget = new RetryBudget(policy.getRetryBudgetRatio(), policy.getMaxRetryTokens());
+        this.hedgeDelayNanos = policy.getMaxHedgeDelay().roundTo(NANOSECONDS);
+        this.hedgeDelayUpdatedNanos = System.nanoTime();
+    }
+
+    /**
+     * Executes the request, hedging it if it is hedgeable. Hedged requests are buffered and
+     * limited to {@link #getMaxContentLength()}, as with {@link #executeAsync}.
+     */
+    @Override
+    public <T, E extends Exception> T execute(Request request, ResponseHandler<T, E> responseHandler)
+            throws E
+    {
+        if (!isHedgeable(request)) {
+            return delegate.execute(request, responseHandler);
+        }
+
+        HttpResponseFuture<T> future = executeAsync(request, responseHandler);
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throwIfUnchecked(cause);
+            if (cause instanceof Exception) {
+                // the response handler only throws instances of E
+                throw HedgingHttpClient.<E>castException(cause);
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    @Override
+    public <T, E extends Exception> HttpResponseFuture<T> executeAsync(Request request, ResponseHandler<T, E> responseHandler)
+    {
+        requireNonNull(request, "request is null");
+        requireNonNull(responseHandler, "responseHandler is null");
+
+        if (!isHedgeable(request)) {
+            return delegate.executeAsync(request, responseHandler);
+        }
+
+        retryBudget.deposit();
+        HedgedExecution<T, E> execution = new HedgedExecution<>(request, responseHandler);
+        execution.start();
+        return execution;
+    }
+
+    @Override
+    public <T, E extends Exception> HttpResponseFuture<T> executeStreaming(Request request, StreamingResponseHandler<T, E> responseHandler)
+    {
+        return delegate.executeStreaming(request, responseHandler);
+    }
+
+    @Override
+    public RequestStats getStats()
+    {
+        return delegate.getStats();
+    }
+
+    @Override
+    public long getMaxContentLength()
+    {
+        return delegate.getMaxContentLength();
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return delegate.isClosed();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHedgesSent()
+    {
+        return hedgesSent;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHedgesWon()
+    {
+        return hedgesWon;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRetries()
+    {
+        return retries;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRetryBudgetExhausted()
+    {
+        return retryBudgetExhausted;
+    }
+
+    @Managed
+    public double getRetryTokens()
+    {
+        return retryBudget.getTokens();
+    }
+
+    @VisibleForTesting
+    synchronized long getHedgeDelayNanos()
+    {
+        long now = System.nanoTime();
+        if (now - hedgeDelayUpdatedNanos >= HEDGE_DELAY_REFRESH_NANOS) {
+            hedgeDelayNanos = computeHedgeDelayNanos();
+            hedgeDelayUpdatedNanos = now;
+        }
+        return hedgeDelayNanos;
+    }
+
+    @VisibleForTesting
+    long computeHedgeDelayNanos()
+    {
+        long minNanos = policy.getMinHedgeDelay().roundTo(NANOSECONDS);
+        long maxNanos = policy.getMaxHedgeDelay().roundTo(NANOSECONDS);
+
+        TimeDistribution recent = delegate.getStats().getRequestTime().getFiveMinutes();
+        if (recent.getCount() < MIN_SAMPLES_FOR_HEDGE_DELAY) {
+            return maxNanos;
+        }
+        Map<Double, Double> percentiles = recent.getPercentiles();
+        Double value = percentiles.get(Math.round(policy.getHedgeDelayPercentile() * 100) / 100.0);
+        if (value == null || value.isNaN()) {
+            return maxNanos;
+        }
+        // percentiles are reported in the unit of the recorded values, which is nanoseconds
+        return clamp(value.longValue(), minNanos, maxNanos);
+    }
+
+    private static boolean isHedgeable(Request request)
+    {
+        if (!IDEMPOTENT_METHODS.contains(request.getMethod().toUpperCase(ENGLISH))) {
+            return false;
+        }
+        BodyGenerator bodyGenerator = request.getBodyGenerator();
+        return bodyGenerator == null || bodyGenerator instanceof StaticBodyGenerator || bodyGenerator instanceof FileBodyGenerator;
+    }
+
+    private static boolean isRetryable(Throwable failure)
+    {
+        // failures that happen before the request reaches the server
+        return failure instanceof ConnectException ||
+                failure instanceof NoRouteToHostException ||
+                failure instanceof UnknownHostException ||
+                failure instanceof DestinationOverloadedException;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> E castException(Throwable throwable)
+    {
+        return (E) throwable;
+    }
+
+    public interface AlternateUris
+    {
+        /**
+         * Returns the URIs that can serve the request in place of the given one, in order of preference.
+         */
+        List<URI> getAlternates(URI uri);
+    }
+
+    /**
+     * Thrown by the attempt handler in place of calling the response handler for failures
+     * that can be retried, so that the execution can decide whether to retry.
+     */
+    private static class RetryableFailure
+            extends RuntimeException
+    {
+        private final Exception failure;
+
+        public RetryableFailure(Exception failure)
+        {
+            super(failure);
+            this.failure = failure;
+        }
+
+        public Exception getFailure()
+        {
+            return failure;
+        }
+    }
+
+    private record AttemptHandler<T, E extends Exception>(ResponseHandler<T, E> delegate)
+            implements ResponseHandler<T, E>
+    {
+        @Override
+        public T handleException(Request request, Exception exception)
+                throws E
+        {
+            if (isRetryable(exception)) {
+                throw new RetryableFailure(exception);
+            }
+            return delegate.handleException(request, exception);
+        }
+
+        @Override
+        public T handle(Request request, Response response)
+                throws E
+        {
+            return delegate.handle(request, response);
+        }
+    }
+
+    private class HedgedExecution<T, E extends Exception>
+            extends AbstractFuture<T>
+            implements HttpResponseFuture<T>
+    {
+        private final Request request;
+        private final ResponseHandler<T, E> responseHandler;
+        private final List<URI> uris;
+
+        @GuardedBy("this")
+        private final List<HttpResponseFuture<T>> attempts = new ArrayList<>();
+        @GuardedBy("this")
+        private int outstanding;
+        @GuardedBy("this")
+        private int hedgeAttempt = -1;
+        @GuardedBy("this")
+        private ScheduledFuture<?> hedgeTimer;
+
+        public HedgedExecution(Request request, ResponseHandler<T, E> responseHandler)
+        {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.uris = ImmutableList.<URI>builder()
+                    .add(request.getUri())
+                    .addAll(alternateUris.getAlternates(request.getUri()))
+                    .build();
+        }
+
+        public void start()
+        {
+            synchronized (this) {
+                sendAttempt();
+                if (!isDone() && uris.size() > 1 && policy.getMaxAttempts() > 1) {
+                    hedgeTimer = scheduler.schedule(this::hedge, getHedgeDelayNanos(), NANOSECONDS);
+                }
+            }
+        }
+
+        @Override
+        public synchronized String getState()
+        {
+            if (attempts.isEmpty()) {
+                return "NOT_STARTED";
+            }
+            return attempts.get(attempts.size() - 1).getState();
+        }
+
+        @Override
+        protected void afterDone()
+        {
+            List<HttpResponseFuture<T>> toCancel;
+            synchronized (this) {
+                if (hedgeTimer != null) {
+                    hedgeTimer.cancel(false);
+                }
+                toCancel = ImmutableList.copyOf(attempts);
+            }
+            // cancel the losers, or every attempt if this future was canceled
+            toCancel.forEach(attempt -> attempt.cancel(true));
+        }
+
+        private synchronized void hedge()
+        {
+            if (isDone() || outstanding == 0 || attempts.size() >= policy.getMaxAttempts()) {
+                return;
+            }
+            hedgesSent.update(1);
+            hedgeAttempt = attempts.size();
+            sendAttempt();
+        }
+
+        @GuardedBy("this")
+        private void sendAttempt()
+        {
+            int attempt = attempts.size();
+            URI uri = uris.get(attempt % uris.size());
+            Request attemptRequest = attempt == 0 ? request : Request.Builder.fromRequest(request).setUri(uri).build();
+
+            HttpResponseFuture<T> future = delegate.executeAsync(attemptRequest, new AttemptHandler<>(responseHandler));
+            attempts.add(future);
+            outstanding++;
+            addCallback(future, new FutureCallback<>()
+            {
+                @Override
+                public void onSuccess(T result)
+                {
+                    attemptSucceeded(attempt, result);
+                }
+
+                @Override
+                public void onFailure(Throwable failure)
+                {
+                    attemptFailed(attemptRequest, failure);
+                }
+            }, directExecutor());
+        }
+
+        private void attemptSucceeded(int attempt, T result)
+        {
+            synchronized (this) {
+                outstanding--;
+                if (isDone()) {
+                    return;
+                }
+                if (attempt == hedgeAttempt) {
+                    hedgesWon.update(1);
+                }
+            }
+            set(result);
+        }
+
+        private void attemptFailed(Request attemptRequest, Throwable failure)
+        {
+            synchronized (this) {
+                outstanding--;
+                if (isDone()) {
+                    return;
+                }
+                if (failure instanceof RetryableFailure && attempts.size() < policy.getMaxAttempts()) {
+                    if (retryBudget.tryWithdraw()) {
+                        retries.update(1);
+                        sendAttempt();
+                        return;
+                    }
+                    retryBudgetExhausted.update(1);
+                }
+                if (outstanding > 0) {
+                    // another attempt may still succeed
+                    return;
+                }
+            }
+
+            if (failure instanceof RetryableFailure retryable) {
+                // not retried, so let the response handler see the original failure
+                try {
+                    set(responseHandler.handleException(attemptRequest, retryable.getFailure()));
+                }
+                catch (Throwable e) {
+                    setException(e);
+                }
+                return;
+            }
+            setException(failure);
+        }
+    }
+
+    @ThreadSafe
+    private static class RetryBudget
+    {
+        private final double ratio;
+        private final int maxTokens;
+        @GuardedBy("this")
+        private double tokens;
+
+        public RetryBudget(double ratio, int maxTokens)
+        {
+            this.ratio = ratio;
+            this.maxTokens = maxTokens;
+            this.tokens = maxTokens;
+        }
+
+        public synchronized void deposit()
+        {
+            tokens = Math.min(maxTokens, tokens + ratio);
+        }
+
+        public synchronized boolean tryWithdraw()
+        {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        public synchronized double getTokens()
+        {
+            return tokens;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package io.airlift.http.client;
+
+import io.airlift.units.Duration;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Settings for {@link HedgingHttpClient}.
+ */
+public final class HedgingPolicy
+{
+    private final double hedgeDelayPercentile;
+    private final Duration minHedgeDelay;
+    private final Duration maxHedgeDelay;
+    private final int maxAttempts;
+    private final double retryBudgetRatio;
+    private final int maxRetryTokens;
+
+    private HedgingPolicy(
+            double hedgeDelayPercentile,
+            Duration minHedgeDelay,
+            Duration maxHedgeDelay,
+            int maxAttempts,
+            double retryBudgetRatio,
+            int maxRetryTokens)
+    {
+        checkArgument(hedgeDelayPercentile >= 0.5 && hedgeDelayPercentile <= 0.99, "hedgeDelayPercentile must be between 0.5 and 0.99");
+        requireNonNull(minHedgeDelay, "minHedgeDelay is null");
+        requireNonNull(maxHedgeDelay, "maxHedgeDelay is null");
+        checkArgument(minHedgeDelay.compareTo(maxHedgeDelay) <= 0, "minHedgeDelay must not be greater than maxHedgeDelay");
+        checkArgument(maxAttempts >= 1, "maxAttempts must be at least 1");
+        checkArgument(retryBudgetRatio >= 0, "retryBudgetRatio is negative");
+        checkArgument(maxRetryTokens >= 0, "maxRetryTokens is negative");
+        this.hedgeDelayPercentile = hedgeDelayPercentile;
+        this.minHedgeDelay = minHedgeDelay;
+        this.maxHedgeDelay = maxHedgeDelay;
+        this.maxAttempts = maxAttempts;
+        this.retryBudgetRatio = retryBudgetRatio;
+        this.maxRetryTokens = maxRetryTokens;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * The percentile of the client's recent request time after which a hedge request is sent.
+     */
+    public double getHedgeDelayPercentile()
+    {
+        return hedgeDelayPercentile;
+    }
+
+    /**
+     * Lower bound of the hedge delay, so that fast destinations are not hedged on noise.
+     */
+    public Duration getMinHedgeDelay()
+    {
+        return minHedgeDelay;
+    }
+
+    /**
+     * Upper bound of the hedge delay. Also used until the client has recorded enough requests
+     * to estimate the percentile.
+     */
+    public Duration getMaxHedgeDelay()
+    {
+        return maxHedgeDelay;
+    }
+
+    /**
+     * The maximum number of requests sent for a single call, including hedges and retries.
+     */
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    /**
+     * The number of retries earned by each call. A ratio of 0.1 allows one retry per ten calls
+     * on average, so that retries cannot multiply the load on a failing cluster.
+     */
+    public double getRetryBudgetRatio()
+    {
+        return retryBudgetRatio;
+    }
+
+    /**
+     * The maximum number of retries that can be saved up while calls succeed.
+     */
+    public int getMaxRetryTokens()
+    {
+        return maxRetryTokens;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("hedgeDelayPercentile", hedgeDelayPercentile)
+                .add("minHedgeDelay", minHedgeDelay)
+                .add("maxHedgeDelay", maxHedgeDelay)
+                .add("maxAttempts", maxAttempts)
+                .add("retryBudgetRatio", retryBudgetRatio)
+                .add("maxRetryTokens", maxRetryTokens)
+                .toString();
+    }
+
+    public static final class Builder
+    {
+        private double hedgeDelayPercentile = 0.95;
+        private Duration minHedgeDelay = new Duration(5, MILLISECONDS);
+        private Duration maxHedgeDelay = new Duration(1, SECONDS);
+        private int maxAttempts = 2;
+        private double retryBudgetRatio = 0.1;
+        private int maxRetryTokens = 10;
+
+        private Builder() {}
+
+        public Builder setHedgeDelayPercentile(double hedgeDelayPercentile)
+        {
+            this.hedgeDelayPercentile = hedgeDelayPercentile;
+            return this;
+        }
+
+        public Builder setMinHedgeDelay(Duration minHedgeDelay)
+        {
+            this.minHedgeDelay = minHedgeDelay;
+            return this;
+        }
+
+        public Builder setMaxHedgeDelay(Duration maxHedgeDelay)
+        {
+            this.maxHedgeDelay = maxHedgeDelay;
+            return this;
+        }
+
+        public Builder setMaxAttempts(int maxAttempts)
+        {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder setRetryBudgetRatio(double retryBudgetRatio)
+        {
+            this.retryBudgetRatio = retryBudgetRatio;
+            return this;
+        }
+
+        public Builder setMaxRetryTokens(int maxRetryTokens)
+        {
+            this.maxRetryTokens = maxRetryTokens;
+            return this;
+        }
+
+        public HedgingPolicy build()
+        {
+            return new HedgingPolicy(hedgeDelayPercentile, minHedgeDelay, maxHedgeDelay, maxAttempts, retryBudgetRatio, maxRetryTokens);
+        }
+    }
+}
@@ -27,6 +27,19 @@ public interface HttpClient
 
     <T, E extends Exception> HttpResponseFuture<T> executeAsync(Request request, ResponseHandler<T, E> responseHandler);
 
+    /**
+     * Executes the request asynchronously and delivers the response body to the handler as it
+     * is read, without buffering it.
+     * <p>
+     * The default implementation reads the body through {@link #executeAsync}, copying it into
+     * new buffers. Implementations should override it to pass the buffers of the connection
+     * to the handler directly.
+     */
+    default <T, E extends Exception> HttpResponseFuture<T> executeStreaming(Request request, StreamingResponseHandler<T, E> responseHandler)
+    {
+        return executeAsync(request, new InputStreamStreamingResponseHandler<>(responseHandler));
+    }
+
     RequestStats getStats();
 
     long getMaxContentLength();
@@ -31,6 +31,8 @@ import io.airlift.units.MaxDataSize;
 import io.airlift.units.MinDataSize;
 import io.airlift.units.MinDuration;
 import jakarta.annotation.PostConstruct;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
@@ -69,6 +71,10 @@ public class HttpClientConfig
     private Duration keepAliveInterval;
     private int maxConnectionsPerServer = 20;
     private int maxRequestsQueuedPerDestination = 1024;
+    private boolean adaptiveConcurrencyLimitEnabled;
+    private int adaptiveConcurrencyInitialLimit = 20;
+    private int adaptiveConcurrencyMaxLimit = 1000;
+    private double adaptiveConcurrencyLatencyTolerance = 2.0;
     private DataSize maxContentLength = DataSize.of(16, MEGABYTE);
     private DataSize requestBufferSize = DataSize.of(4, KILOBYTE);
     private DataSize responseBufferSize = DataSize.of(16, KILOBYTE);
@@ -104,6 +110,8 @@ public class HttpClientConfig
     private DataSize http2InitialSessionReceiveWindowSize = DataSize.of(16, MEGABYTE);
     private DataSize http2InitialStreamReceiveWindowSize = DataSize.of(16, MEGABYTE);
     private DataSize http2InputBufferSize = DataSize.of(8, KILOBYTE);
+    private int http2MaxConcurrentStreams = 100;
+    private Optional<Duration> http2PingInterval = Optional.empty();
 
     private String logPath = "var/log/";
     private boolean logEnabled;
@@ -224,6 +232,65 @@ public class HttpClientConfig
         return this;
     }
 
+    public boolean isAdaptiveConcurrencyLimitEnabled()
+    {
+        return adaptiveConcurrencyLimitEnabled;
+    }
+
+    @Config("http-client.adaptive-concurrency-limit.enabled")
+    @ConfigDescription("Limit concurrent requests per destination based on observed latency, failing requests that exceed the limit")
+    public HttpClientConfig setAdaptiveConcurrencyLimitEnabled(boolean adaptiveConcurrencyLimitEnabled)
+    {
+        this.adaptiveConcurrencyLimitEnabled = adaptiveConcurrencyLimitEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getAdaptiveConcurrencyInitialLimit()
+    {
+        return adaptiveConcurrencyInitialLimit;
+    }
+
+    @Config("http-client.adaptive-concurrency-limit.initial-limit")
+    public HttpClientConfig setAdaptiveConcurrencyInitialLimit(int adaptiveConcurrencyInitialLimit)
+    {
+        this.adaptiveConcurrencyInitialLimit = adaptiveConcurrencyInitialLimit;
+        return this;
+    }
+
+    @Min(1)
+    public int getAdaptiveConcurrencyMaxLimit()
+    {
+        return adaptiveConcurrencyMaxLimit;
+    }
+
+    @Config("http-client.adaptive-concurrency-limit.max-limit")
+    public HttpClientConfig setAdaptiveConcurrencyMaxLimit(int adaptiveConcurrencyMaxLimit)
+    {
+        this.adaptiveConcurrencyMaxLimit = adaptiveConcurrencyMaxLimit;
+        return this;
+    }
+
+    @DecimalMin(value = "1.0", message = "must be at least 1.0")
+    public double getAdaptiveConcurrencyLatencyTolerance()
+    {
+        return adaptiveConcurrencyLatencyTolerance;
+    }
+
+    @Config("http-client.adaptive-concurrency-limit.latency-tolerance")
+    @ConfigDescription("Ratio of request latency to the minimum observed latency above which the limit is reduced")
+    public HttpClientConfig setAdaptiveConcurrencyLatencyTolerance(double adaptiveConcurrencyLatencyTolerance)
+    {
+        this.adaptiveConcurrencyLatencyTolerance = adaptiveConcurrencyLatencyTolerance;
+        return this;
+    }
+
+    @AssertTrue(message = "http-client.adaptive-concurrency-limit.max-limit must be at least http-client.adaptive-concurrency-limit.initial-limit")
+    public boolean isAdaptiveConcurrencyMaxLimitValid()
+    {
+        return adaptiveConcurrencyMaxLimit >= adaptiveConcurrencyInitialLimit;
+    }
+
     @NotNull
     public DataSize getMaxContentLength()
     {
@@ -457,6 +524,33 @@ public class HttpClientConfig
         return this;
     }
 
+    @Min(1)
+    public int getHttp2MaxConcurrentStreams()
+    {
+        return http2MaxConcurrentStreams;
+    }
+
+    @Config("http-client.http2.max-concurrent-streams")
+    @ConfigDescription("Maximum number of concurrent requests multiplexed on each HTTP/2 connection; new connections are opened only when all connections are at this limit")
+    public HttpClientConfig setHttp2MaxConcurrentStreams(int http2MaxConcurrentStreams)
+    {
+        this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+        return this;
+    }
+
+    public Optional<Duration> getHttp2PingInterval()
+    {
+        return http2PingInterval;
+    }
+
+    @Config("http-client.http2.ping-interval")
+    @ConfigDescription("Interval at which quiet HTTP/2 connections are checked with a PING; connections that do not answer within an interval are closed")
+    public HttpClientConfig setHttp2PingInterval(Duration http2PingInterval)
+    {
+        this.http2PingInterval = Optional.ofNullable(http2PingInterval);
+        return this;
+    }
+
     @Min(1)
     public int getSelectorCount()
     {
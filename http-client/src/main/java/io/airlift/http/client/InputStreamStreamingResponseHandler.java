@@ -0,0 +1,56 @@
+package io.airlift.http.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Adapts a {@link StreamingResponseHandler} to a {@link ResponseHandler} by reading the
+ * response body stream in chunks. Used by clients that cannot expose the buffers of the
+ * underlying connection.
+ */
+final class InputStreamStreamingResponseHandler<T, E extends Exception>
+        implements ResponseHandler<T, E>
+{
+    private static final int CHUNK_SIZE = 8192;
+
+    private final StreamingResponseHandler<T, E> handler;
+
+    InputStreamStreamingResponseHandler(StreamingResponseHandler<T, E> handler)
+    {
+        this.handler = requireNonNull(handler, "handler is null");
+    }
+
+    @Override
+    public T handleException(Request request, Exception exception)
+            throws E
+    {
+        return handler.handleException(request, exception);
+    }
+
+    @Override
+    public T handle(Request request, Response response)
+            throws E
+    {
+        StreamingResponseHandler.ContentConsumer<T, E> consumer = handler.handleHeaders(request, response.getStatusCode(), response.getHeaders());
+        try {
+            InputStream input = response.getInputStream();
+            while (true) {
+                // a fresh buffer for every chunk, since the consumer may release it at any later time
+                byte[] buffer = new byte[CHUNK_SIZE];
+                int length = input.read(buffer);
+                if (length < 0) {
+                    break;
+                }
+                consumer.onContent(ByteBuffer.wrap(buffer, 0, length), () -> {});
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return consumer.onComplete();
+    }
+}
@@ -0,0 +1,116 @@
+package io.airlift.http.client;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.net.MediaType;
+import com.google.common.primitives.Ints;
+import io.airlift.json.JsonCodec;
+import io.airlift.json.NonBlockingJsonDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decodes a JSON response body as it is received, using {@link HttpClient#executeStreaming}.
+ * Each buffer read from the connection is parsed and released immediately, so no thread
+ * blocks waiting for the body and the raw response is never accumulated in memory.
+ * <p>
+ * The handler created by {@link #createJsonArrayStreamingResponseHandler} passes the elements
+ * of a top-level array to a consumer as they are parsed, so memory use is bounded by the
+ * largest element rather than by the size of the response. The consumer is called from the
+ * client's I/O threads, and must not block.
+ */
+public class JsonStreamingResponseHandler<T>
+        implements StreamingResponseHandler<T, RuntimeException>
+{
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.create("application", "json");
+    private static final Set<Integer> DEFAULT_SUCCESSFUL_RESPONSE_CODES = ImmutableSet.of(200, 201, 202, 203, 204, 205, 206);
+
+    public static <T> JsonStreamingResponseHandler<T> createJsonStreamingResponseHandler(JsonCodec<T> jsonCodec)
+    {
+        return new JsonStreamingResponseHandler<>(jsonCodec::nonBlockingDecoder, DEFAULT_SUCCESSFUL_RESPONSE_CODES);
+    }
+
+    public static <T> JsonStreamingResponseHandler<T> createJsonStreamingResponseHandler(JsonCodec<T> jsonCodec, int firstSuccessfulResponseCode, int... otherSuccessfulResponseCodes)
+    {
+        return new JsonStreamingResponseHandler<>(jsonCodec::nonBlockingDecoder, successfulResponseCodes(firstSuccessfulResponseCode, otherSuccessfulResponseCodes));
+    }
+
+    /**
+     * Creates a handler for a response containing a JSON array of elements decoded by the codec.
+     * The handler's result is the number of elements passed to the consumer.
+     */
+    public static <T> JsonStreamingResponseHandler<Long> createJsonArrayStreamingResponseHandler(JsonCodec<T> elementCodec, Consumer<? super T> elementConsumer)
+    {
+        requireNonNull(elementConsumer, "elementConsumer is null");
+        return new JsonStreamingResponseHandler<>(() -> elementCodec.nonBlockingArrayDecoder(elementConsumer), DEFAULT_SUCCESSFUL_RESPONSE_CODES);
+    }
+
+    private final Supplier<NonBlockingJsonDecoder<T>> decoderFactory;
+    private final Set<Integer> successfulResponseCodes;
+
+    private JsonStreamingResponseHandler(Supplier<NonBlockingJsonDecoder<T>> decoderFactory, Set<Integer> successfulResponseCodes)
+    {
+        this.decoderFactory = requireNonNull(decoderFactory, "decoderFactory is null");
+        this.successfulResponseCodes = successfulResponseCodes;
+    }
+
+    @Override
+    public T handleException(Request request, Exception exception)
+    {
+        throw propagate(request, exception);
+    }
+
+    @Override
+    public ContentConsumer<T, RuntimeException> handleHeaders(Request request, int statusCode, ListMultimap<HeaderName, String> headers)
+    {
+        if (!successfulResponseCodes.contains(statusCode)) {
+            throw new UnexpectedResponseException(
+                    String.format("Expected response code to be %s, but was %d", successfulResponseCodes, statusCode),
+                    request,
+                    statusCode,
+                    headers);
+        }
+
+        List<String> contentType = headers.get(HeaderName.of(CONTENT_TYPE));
+        if (contentType.isEmpty()) {
+            throw new UnexpectedResponseException("Content-Type is not set for response", request, statusCode, headers);
+        }
+        if (!MediaType.parse(contentType.get(0)).is(MEDIA_TYPE_JSON)) {
+            throw new UnexpectedResponseException("Expected application/json response from server but got " + contentType.get(0), request, statusCode, headers);
+        }
+
+        NonBlockingJsonDecoder<T> decoder = decoderFactory.get();
+        return new ContentConsumer<>()
+        {
+            @Override
+            public void onContent(ByteBuffer content, Runnable release)
+            {
+                try {
+                    decoder.feed(content);
+                }
+                finally {
+                    release.run();
+                }
+            }
+
+            @Override
+            public T onComplete()
+            {
+                return decoder.finish();
+            }
+        };
+    }
+
+    private static Set<Integer> successfulResponseCodes(int firstSuccessfulResponseCode, int... otherSuccessfulResponseCodes)
+    {
+        return ImmutableSet.<Integer>builder().add(firstSuccessfulResponseCode).addAll(Ints.asList(otherSuccessfulResponseCodes)).build();
+    }
+}
@@ -16,6 +16,7 @@
 package io.airlift.http.client;
 
 import com.google.inject.Inject;
+import io.airlift.http.client.HttpStatus.Family;
 import io.airlift.stats.CounterStat;
 import io.airlift.stats.DistributionStat;
 import io.airlift.stats.TimeStat;
@@ -23,10 +24,23 @@ import io.airlift.units.Duration;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import static io.airlift.http.client.HttpStatus.familyForStatusCode;
 
+/**
+ * Statistics for the responses received by an HTTP client.
+ * <p>
+ * Responses are counted by status family with adders, and the counts are added to the response
+ * counters when they are read through this class or {@link #flush()} is called, so recording a
+ * response does not contend on the decay counters. Monitoring systems may read the nested
+ * counters without going through this class, so owners should call {@link #flush()} periodically.
+ * The time and size distributions record into lock-free buffers, and are always current.
+ */
 public class RequestStats
 {
+    private static final Family[] FAMILIES = Family.values();
+
     private final CounterStat allResponse = new CounterStat();
     private final CounterStat informationalResponse = new CounterStat();
     private final CounterStat successfulResponse = new CounterStat();
@@ -42,9 +56,15 @@ public class RequestStats
     private final DistributionStat readBytes = new DistributionStat();
     private final DistributionStat writtenBytes = new DistributionStat();
 
+    // responses not yet added to the response counters, indexed by the ordinal of their family
+    private final LongAdder[] pendingResponses = new LongAdder[FAMILIES.length];
+
     @Inject
     public RequestStats()
     {
+        for (int i = 0; i < pendingResponses.length; i++) {
+            pendingResponses[i] = new LongAdder();
+        }
     }
 
     public void recordResponseReceived(String method,
@@ -58,24 +78,44 @@ public class RequestStats
         responseTime.add(responseProcessingTime);
         readBytes.add(responseSizeInBytes);
         writtenBytes.add(requestSizeInBytes);
-
-        allResponse.update(1);
-        switch (familyForStatusCode(responseCode)) {
-            case INFORMATIONAL:
-                informationalResponse.update(1);
-                break;
-            case SUCCESSFUL:
-                successfulResponse.update(1);
-                break;
-            case REDIRECTION:
-                redirectionResponse.update(1);
-                break;
-            case CLIENT_ERROR:
-                clientErrorResponse.update(1);
-                break;
-            case SERVER_ERROR:
-                serverErrorResponse.update(1);
-                break;
+        pendingResponses[familyForStatusCode(responseCode).ordinal()].increment();
+    }
+
+    /**
+     * Adds the responses recorded since the last flush to the response counters.
+     */
+    public void flush()
+    {
+        long all = 0;
+        for (Family family : FAMILIES) {
+            // responses recorded concurrently are either included, or left for the next flush
+            long count = pendingResponses[family.ordinal()].sumThenReset();
+            if (count == 0) {
+                continue;
+            }
+            all += count;
+            switch (family) {
+                case INFORMATIONAL:
+                    informationalResponse.update(count);
+                    break;
+                case SUCCESSFUL:
+                    successfulResponse.update(count);
+                    break;
+                case REDIRECTION:
+                    redirectionResponse.update(count);
+                    break;
+                case CLIENT_ERROR:
+                    clientErrorResponse.update(count);
+                    break;
+                case SERVER_ERROR:
+                    serverErrorResponse.update(count);
+                    break;
+                case OTHER:
+                    break;
+            }
+        }
+        if (all > 0) {
+            allResponse.update(all);
         }
     }
 
@@ -93,6 +133,7 @@ public class RequestStats
     @Nested
     public CounterStat getAllResponse()
     {
+        flush();
         return allResponse;
     }
 
@@ -100,6 +141,7 @@ public class RequestStats
     @Nested
     public CounterStat get1xxResponse()
     {
+        flush();
         return informationalResponse;
     }
 
@@ -107,6 +149,7 @@ public class RequestStats
     @Nested
     public CounterStat get2xxResponse()
     {
+        flush();
         return successfulResponse;
     }
 
@@ -114,6 +157,7 @@ public class RequestStats
     @Nested
     public CounterStat get3xxResponse()
     {
+        flush();
         return redirectionResponse;
     }
 
@@ -121,6 +165,7 @@ public class RequestStats
     @Nested
     public CounterStat get4xxResponse()
     {
+        flush();
         return clientErrorResponse;
     }
 
@@ -128,6 +173,7 @@ public class RequestStats
     @Nested
     public CounterStat get5xxResponse()
     {
+        flush();
         return serverErrorResponse;
     }
 
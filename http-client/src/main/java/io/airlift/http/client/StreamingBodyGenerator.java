@@ -0,0 +1,61 @@
+package io.airlift.http.client;
+
+import io.airlift.json.JsonCodec;
+
+import java.io.OutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A body generator that writes the request body while the request is being sent, rather
+ * than materializing it up front. The writer is handed a stream whose writes block until the
+ * connection has consumed the previous ones, so bodies of any size are sent in constant memory.
+ * <p>
+ * The writer is invoked once per request. The body can not be replayed, so a request using
+ * this generator fails if the server responds with a redirect that requires resending it.
+ */
+public final class StreamingBodyGenerator
+        implements BodyGenerator
+{
+    public static StreamingBodyGenerator streamingBodyGenerator(BodyWriter writer)
+    {
+        return new StreamingBodyGenerator(writer);
+    }
+
+    public static <T> StreamingBodyGenerator streamingJsonBodyGenerator(JsonCodec<T> jsonCodec, T instance)
+    {
+        requireNonNull(jsonCodec, "jsonCodec is null");
+        requireNonNull(instance, "instance is null");
+        return new StreamingBodyGenerator(out -> jsonCodec.writeJson(instance, out));
+    }
+
+    private final BodyWriter writer;
+
+    private StreamingBodyGenerator(BodyWriter writer)
+    {
+        this.writer = requireNonNull(writer, "writer is null");
+    }
+
+    public BodyWriter getWriter()
+    {
+        return writer;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void write(OutputStream out)
+            throws Exception
+    {
+        writer.write(out);
+    }
+
+    @FunctionalInterface
+    public interface BodyWriter
+    {
+        /**
+         * Writes the complete body to the stream. The stream is closed by the client once this returns.
+         */
+        void write(OutputStream out)
+                throws Exception;
+    }
+}
@@ -0,0 +1,45 @@
+package io.airlift.http.client;
+
+import com.google.common.collect.ListMultimap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Handles a response whose body is delivered as the buffers read from the connection,
+ * rather than through an {@link java.io.InputStream}.
+ * <p>
+ * If {@link #handleHeaders} or {@link ContentConsumer#onContent} throws, the request is
+ * aborted and the exception is passed to {@link #handleException}.
+ */
+public interface StreamingResponseHandler<T, E extends Exception>
+{
+    T handleException(Request request, Exception exception)
+            throws E;
+
+    /**
+     * Called once the status and headers have been received.
+     *
+     * @return the consumer for the response body
+     */
+    ContentConsumer<T, E> handleHeaders(Request request, int statusCode, ListMultimap<HeaderName, String> headers)
+            throws E;
+
+    interface ContentConsumer<T, E extends Exception>
+    {
+        /**
+         * Called for each chunk of the response body, in order. The buffer is owned by the
+         * client and must not be accessed after {@code release} is run. No more content is
+         * delivered until then, so a consumer that holds on to a buffer applies backpressure
+         * to the connection. {@code release} may be run from any thread; running it more than
+         * once has no effect.
+         */
+        void onContent(ByteBuffer content, Runnable release)
+                throws E;
+
+        /**
+         * Called after every chunk of the response body has been delivered and released.
+         */
+        T onComplete()
+                throws E;
+    }
+}
@@ -0,0 +1,279 @@
+package io.airlift.http.client.jetty;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import io.airlift.stats.Distribution;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.eclipse.jetty.client.HttpClient.normalizePort;
+
+/**
+ * Limits the number of concurrent requests to each destination, adjusting the limit with an
+ * additive-increase/multiplicative-decrease scheme driven by the observed latency. The limit
+ * grows by one for every successful request completed while the destination is at least half
+ * utilized, and shrinks by {@link #BACKOFF_RATIO} when a request fails or takes longer than
+ * the latency tolerance times the recent minimum latency of the destination. Destinations
+ * without requests in flight are forgotten after {@link #IDLE_TIMEOUT_NANOS}.
+ */
+@ThreadSafe
+final class AdaptiveConcurrencyLimiter
+{
+    @VisibleForTesting
+    static final double BACKOFF_RATIO = 0.9;
+    // number of samples after which the minimum latency is re-measured, so the baseline follows changes in the destination
+    @VisibleForTesting
+    static final int LATENCY_WINDOW = 100;
+    // latencies below this are never treated as a sign of overload, since they are dominated by noise
+    @VisibleForTesting
+    static final long LATENCY_FLOOR_NANOS = MILLISECONDS.toNanos(1);
+    // destinations idle for longer than this are removed, and start again from the initial limit
+    @VisibleForTesting
+    static final long IDLE_TIMEOUT_NANOS = MINUTES.toNanos(5);
+
+    private final int initialLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final Ticker ticker;
+    private final Map<Destination, DestinationLimit> limits = new ConcurrentHashMap<>();
+    private final AtomicLong nextEvictionNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit, double latencyTolerance)
+    {
+        this(initialLimit, maxLimit, latencyTolerance, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit, double latencyTolerance, Ticker ticker)
+    {
+        checkArgument(initialLimit >= 1, "initialLimit must be at least 1");
+        checkArgument(maxLimit >= initialLimit, "maxLimit must be at least initialLimit");
+        checkArgument(latencyTolerance >= 1, "latencyTolerance must be at least 1");
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        this.nextEvictionNanos = new AtomicLong(ticker.read() + IDLE_TIMEOUT_NANOS);
+    }
+
+    /**
+     * Admits a request to the destination of the URI if it is below its limit. The returned
+     * permit must be completed exactly once, when the request finishes.
+     */
+    public Optional<Permit> tryAcquire(URI uri)
+    {
+        long now = ticker.read();
+        evictIdleDestinations(now);
+
+        Destination destination = Destination.of(uri);
+        while (true) {
+            DestinationLimit limit = limits.computeIfAbsent(destination, ignored -> new DestinationLimit());
+            if (!limit.tryAcquire()) {
+                return Optional.empty();
+            }
+            if (limits.get(destination) == limit) {
+                return Optional.of(new Permit(limit, now));
+            }
+            // the limit was evicted before the request was counted
+            limit.release();
+        }
+    }
+
+    private void evictIdleDestinations(long now)
+    {
+        long next = nextEvictionNanos.get();
+        if (now - next < 0 || !nextEvictionNanos.compareAndSet(next, now + IDLE_TIMEOUT_NANOS)) {
+            return;
+        }
+        // conditional removal, so a limit that is acquired concurrently is either kept or not used
+        limits.values().removeIf(limit -> limit.isIdle(now));
+    }
+
+    /**
+     * Returns whether a request to the destination of the URI would currently be admitted.
+     */
+    public boolean hasCapacity(URI uri)
+    {
+        DestinationLimit limit = limits.get(Destination.of(uri));
+        return limit == null || limit.getInFlight() < limit.getLimit();
+    }
+
+    public int getLimit(URI uri)
+    {
+        DestinationLimit limit = limits.get(Destination.of(uri));
+        return limit == null ? initialLimit : limit.getLimit();
+    }
+
+    public Distribution getLimitDistribution()
+    {
+        Distribution distribution = new Distribution();
+        limits.values().forEach(limit -> distribution.add(limit.getLimit()));
+        return distribution;
+    }
+
+    private record Destination(String scheme, String host, int port)
+    {
+        static Destination of(URI uri)
+        {
+            String scheme = uri.getScheme().toLowerCase(ENGLISH);
+            return new Destination(scheme, uri.getHost().toLowerCase(ENGLISH), normalizePort(scheme, uri.getPort()));
+        }
+    }
+
+    @VisibleForTesting
+    int getDestinationCount()
+    {
+        return limits.size();
+    }
+
+    public final class Permit
+    {
+        private final DestinationLimit limit;
+        private final long startNanos;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Permit(DestinationLimit limit, long startNanos)
+        {
+            this.limit = limit;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * The request completed, and its latency is a sample of the destination's health.
+         */
+        public void succeeded()
+        {
+            if (completed.compareAndSet(false, true)) {
+                limit.release(ticker.read() - startNanos, false);
+            }
+        }
+
+        /**
+         * The request failed in a way that indicates the destination is overloaded.
+         */
+        public void dropped()
+        {
+            if (completed.compareAndSet(false, true)) {
+                limit.release(ticker.read() - startNanos, true);
+            }
+        }
+
+        /**
+         * The request finished without saying anything about the destination, for example because it was canceled.
+         */
+        public void ignored()
+        {
+            if (completed.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    DestinationLimit newDestinationLimit()
+    {
+        return new DestinationLimit();
+    }
+
+    @ThreadSafe
+    @VisibleForTesting
+    final class DestinationLimit
+    {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile int limit = initialLimit;
+        private volatile long lastUsedNanos = ticker.read();
+
+        @GuardedBy("this")
+        private double estimatedLimit = initialLimit;
+        @GuardedBy("this")
+        private long minLatencyNanos = Long.MAX_VALUE;
+        @GuardedBy("this")
+        private long windowMinLatencyNanos = Long.MAX_VALUE;
+        @GuardedBy("this")
+        private int windowSamples;
+
+        public boolean tryAcquire()
+        {
+            lastUsedNanos = ticker.read();
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        public void release()
+        {
+            lastUsedNanos = ticker.read();
+            inFlight.decrementAndGet();
+        }
+
+        public void release(long latencyNanos, boolean dropped)
+        {
+            lastUsedNanos = ticker.read();
+            // in-flight count including the request being released
+            int utilization = inFlight.getAndDecrement();
+            synchronized (this) {
+                if (dropped) {
+                    // failures often complete quickly, so their latency is not a sample of the destination's health
+                    estimatedLimit = max(1, estimatedLimit * BACKOFF_RATIO);
+                }
+                else if (latencyNanos > max(updateBaseline(latencyNanos) * latencyTolerance, LATENCY_FLOOR_NANOS)) {
+                    estimatedLimit = max(1, estimatedLimit * BACKOFF_RATIO);
+                }
+                else if (utilization * 2 >= estimatedLimit) {
+                    estimatedLimit = min(maxLimit, estimatedLimit + 1);
+                }
+                limit = (int) estimatedLimit;
+            }
+        }
+
+        @GuardedBy("this")
+        private long updateBaseline(long latencyNanos)
+        {
+            windowMinLatencyNanos = min(windowMinLatencyNanos, latencyNanos);
+            long baseline = min(minLatencyNanos, windowMinLatencyNanos);
+            windowSamples++;
+            if (windowSamples >= LATENCY_WINDOW) {
+                minLatencyNanos = windowMinLatencyNanos;
+                windowMinLatencyNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            return baseline;
+        }
+
+        private boolean isIdle(long now)
+        {
+            return inFlight.get() == 0 && now - lastUsedNanos >= IDLE_TIMEOUT_NANOS;
+        }
+
+        public int getInFlight()
+        {
+            return inFlight.get();
+        }
+
+        public int getLimit()
+        {
+            return limit;
+        }
+    }
+}
@@ -1,18 +1,16 @@
 package io.airlift.http.client.jetty;
 
 import io.airlift.stats.Distribution;
-import org.eclipse.jetty.client.DuplexConnectionPool;
+import org.eclipse.jetty.client.AbstractConnectionPool;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.transport.HttpDestination;
 
-import java.util.Objects;
-
 class ConnectionPoolDistribution
         extends CachedDistribution
 {
     interface Processor
     {
-        void process(Distribution distribution, DuplexConnectionPool pool);
+        void process(Distribution distribution, AbstractConnectionPool pool);
     }
 
     public ConnectionPoolDistribution(HttpClient httpClient, Processor processor)
@@ -23,8 +21,9 @@ class ConnectionPoolDistribution
                     .filter(HttpDestination.class::isInstance)
                     .map(HttpDestination.class::cast)
                     .map(HttpDestination::getConnectionPool)
-                    .filter(Objects::nonNull)
-                    .map(DuplexConnectionPool.class::cast)
+                    // HTTP/1 destinations use a duplex pool, and HTTP/2 destinations a multiplexed pool
+                    .filter(AbstractConnectionPool.class::isInstance)
+                    .map(AbstractConnectionPool.class::cast)
                     .forEach(pool -> processor.process(distribution, pool));
             return distribution;
         });
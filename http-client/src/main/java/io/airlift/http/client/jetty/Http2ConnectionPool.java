@@ -0,0 +1,35 @@
+package io.airlift.http.client.jetty;
+
+import org.eclipse.jetty.client.Connection;
+import org.eclipse.jetty.client.Destination;
+import org.eclipse.jetty.client.MultiplexConnectionPool;
+import org.eclipse.jetty.util.ConcurrentPool;
+
+import java.util.function.ToIntFunction;
+
+import static java.lang.Math.min;
+
+/**
+ * Connection pool for HTTP/2 destinations that multiplexes up to a fixed number of streams on each
+ * connection. Jetty's default pool assumes one stream per connection until the server's settings
+ * arrive, so it opens a new connection for almost every concurrent request. This pool only opens
+ * a connection when the existing ones cannot carry the pending requests.
+ */
+class Http2ConnectionPool
+        extends MultiplexConnectionPool
+{
+    public Http2ConnectionPool(Destination destination, int maxConnections, int maxConcurrentStreams)
+    {
+        super(destination, () -> new ConcurrentPool<>(ConcurrentPool.StrategyType.FIRST, maxConnections, maxMultiplexer(maxConcurrentStreams)), maxConcurrentStreams);
+    }
+
+    private static ToIntFunction<Connection> maxMultiplexer(int maxConcurrentStreams)
+    {
+        // the server may allow fewer concurrent streams than configured, but never more are used
+        ToIntFunction<Connection> serverMaxMultiplex = newMaxMultiplexer(maxConcurrentStreams);
+        return connection -> {
+            int serverMax = serverMaxMultiplex.applyAsInt(connection);
+            return serverMax > 0 ? min(serverMax, maxConcurrentStreams) : maxConcurrentStreams;
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package io.airlift.http.client.jetty;
+
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.http2.HTTP2Session;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.util.Callback;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static io.airlift.http.client.jetty.Http2SessionDistribution.getHttp2Connections;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Detects dead HTTP/2 connections. A connection with streams in flight that has not received
+ * any bytes since the previous check is sent a PING, and if it still has not received any bytes
+ * (including the PING reply) by the next check, it is disconnected so that its requests fail
+ * instead of waiting for their timeout, and the pool replaces it. Connections that are receiving
+ * data are never pinged, and neither are connections without streams, so that they are still
+ * closed by the idle timeout.
+ */
+@ThreadSafe
+class Http2PingMonitor
+{
+    private static final Logger log = Logger.get(Http2PingMonitor.class);
+
+    private final HttpClient httpClient;
+    private final CounterStat pingsSent = new CounterStat();
+    private final CounterStat pingTimeouts = new CounterStat();
+
+    @GuardedBy("this")
+    private Map<HTTP2Session, SessionState> sessions = new IdentityHashMap<>();
+
+    public Http2PingMonitor(HttpClient httpClient)
+    {
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+    }
+
+    public synchronized void check()
+    {
+        Map<HTTP2Session, SessionState> current = new IdentityHashMap<>();
+        getHttp2Connections(httpClient).forEach(connection -> {
+            HTTP2Session session = (HTTP2Session) connection.getSession();
+            if (session.isClosed() || session.getStreamCount() == 0) {
+                return;
+            }
+            long bytesIn = session.getEndPoint().getConnection().getBytesIn();
+            SessionState previous = sessions.get(session);
+            if (previous == null || previous.bytesIn() != bytesIn) {
+                current.put(session, new SessionState(bytesIn, false));
+                return;
+            }
+            if (previous.pingSent()) {
+                log.warn("HTTP/2 connection to %s did not answer a PING, closing it", session.getRemoteSocketAddress());
+                pingTimeouts.update(1);
+                session.disconnect();
+                return;
+            }
+            session.ping(new PingFrame(System.nanoTime(), false), Callback.NOOP);
+            pingsSent.update(1);
+            current.put(session, new SessionState(bytesIn, true));
+        });
+        sessions = current;
+    }
+
+    public CounterStat getPingsSent()
+    {
+        return pingsSent;
+    }
+
+    public CounterStat getPingTimeouts()
+    {
+        return pingTimeouts;
+    }
+
+    private record SessionState(long bytesIn, boolean pingSent) {}
+}
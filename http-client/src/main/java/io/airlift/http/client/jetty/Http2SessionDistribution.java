@@ -0,0 +1,44 @@
+package io.airlift.http.client.jetty;
+
+import io.airlift.stats.Distribution;
+import org.eclipse.jetty.client.AbstractConnectionPool;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.transport.HttpDestination;
+import org.eclipse.jetty.http2.client.transport.internal.HttpConnectionOverHTTP2;
+
+import java.util.stream.Stream;
+
+import static org.eclipse.jetty.client.ConnectionPoolAccessor.getActiveConnections;
+import static org.eclipse.jetty.client.ConnectionPoolAccessor.getIdleConnections;
+
+class Http2SessionDistribution
+        extends CachedDistribution
+{
+    interface Processor
+    {
+        void process(Distribution distribution, HttpConnectionOverHTTP2 connection);
+    }
+
+    public Http2SessionDistribution(HttpClient httpClient, Processor processor)
+    {
+        super(() -> {
+            Distribution distribution = new Distribution();
+            getHttp2Connections(httpClient)
+                    .forEach(connection -> processor.process(distribution, connection));
+            return distribution;
+        });
+    }
+
+    static Stream<HttpConnectionOverHTTP2> getHttp2Connections(HttpClient httpClient)
+    {
+        return httpClient.getDestinations().stream()
+                .filter(HttpDestination.class::isInstance)
+                .map(HttpDestination.class::cast)
+                .map(HttpDestination::getConnectionPool)
+                .filter(AbstractConnectionPool.class::isInstance)
+                .map(AbstractConnectionPool.class::cast)
+                .flatMap(pool -> Stream.concat(getActiveConnections(pool).stream(), getIdleConnections(pool).stream()))
+                .filter(HttpConnectionOverHTTP2.class::isInstance)
+                .map(HttpConnectionOverHTTP2.class::cast);
+    }
+}
@@ -5,6 +5,7 @@ import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
 import io.airlift.http.client.BodyGenerator;
 import io.airlift.http.client.ByteBufferBodyGenerator;
+import io.airlift.http.client.DestinationOverloadedException;
 import io.airlift.http.client.FileBodyGenerator;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.HttpRequestFilter;
@@ -13,9 +14,14 @@ import io.airlift.http.client.Request;
 import io.airlift.http.client.RequestStats;
 import io.airlift.http.client.ResponseHandler;
 import io.airlift.http.client.StaticBodyGenerator;
+import io.airlift.http.client.StreamingBodyGenerator;
+import io.airlift.http.client.StreamingResponseHandler;
+import io.airlift.http.client.jetty.AdaptiveConcurrencyLimiter.Permit;
 import io.airlift.http.client.jetty.HttpClientLogger.RequestInfo;
 import io.airlift.http.client.jetty.HttpClientLogger.ResponseInfo;
 import io.airlift.security.pem.PemReader;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.Distribution;
 import io.airlift.units.Duration;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
@@ -28,6 +34,7 @@ import io.opentelemetry.api.trace.TracerProvider;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.context.propagation.TextMapPropagator;
 import io.opentelemetry.semconv.SemanticAttributes;
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PreDestroy;
 import jdk.net.ExtendedSocketOptions;
 import org.eclipse.jetty.client.AbstractConnectionPool;
@@ -48,6 +55,7 @@ import org.eclipse.jetty.client.transport.HttpExchange;
 import org.eclipse.jetty.client.transport.HttpRequest;
 import org.eclipse.jetty.client.transport.internal.HttpConnectionOverHTTP;
 import org.eclipse.jetty.http.HttpCookieStore;
+import org.eclipse.jetty.http2.HTTP2Session;
 import org.eclipse.jetty.http2.client.HTTP2Client;
 import org.eclipse.jetty.http2.client.transport.HttpClientTransportOverHTTP2;
 import org.eclipse.jetty.io.ArrayByteBufferPool;
@@ -94,6 +102,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
@@ -111,6 +120,7 @@ import static io.airlift.node.AddressToHostname.tryDecodeHostnameToAddress;
 import static io.airlift.security.cert.CertificateBuilder.certificateBuilder;
 import static io.opentelemetry.api.common.AttributeKey.stringKey;
 import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -129,6 +139,7 @@ public class JettyHttpClient
 {
     private static final String STATS_KEY = "airlift_stats";
     private static final long SWEEP_PERIOD_MILLIS = 5000;
+    private static final long STATS_FLUSH_PERIOD_MILLIS = 1000;
 
     private static final AtomicLong NAME_COUNTER = new AtomicLong();
 
@@ -149,6 +160,13 @@ public class JettyHttpClient
     private final CachedDistribution queuedRequestsPerDestination;
     private final CachedDistribution activeConnectionsPerDestination;
     private final CachedDistribution idleConnectionsPerDestination;
+    private final CachedDistribution streamsPerHttp2Session;
+    private final CachedDistribution http2SessionSaturation;
+    private final Http2PingMonitor http2PingMonitor;
+    @Nullable
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CachedDistribution concurrencyLimitPerDestination;
+    private final CounterStat concurrencyLimitRejections = new CounterStat();
 
     private final CachedDistribution currentQueuedTime;
     private final CachedDistribution currentRequestTime;
@@ -269,6 +287,7 @@ public class JettyHttpClient
             client.setInputBufferSize(toIntExact(config.getHttp2InputBufferSize().toBytes()));
             client.setSelectors(config.getSelectorCount());
             transport = new HttpClientTransportOverHTTP2(client);
+            transport.setConnectionPoolFactory(destination -> new Http2ConnectionPool(destination, config.getMaxConnectionsPerServer(), config.getHttp2MaxConcurrentStreams()));
         }
         else {
             connector.setSelectors(config.getSelectorCount());
@@ -383,6 +402,37 @@ public class JettyHttpClient
         this.queuedRequestsPerDestination = new DestinationDistribution(httpClient,
                 (distribution, destination) -> distribution.add(destination.getHttpExchanges().size()));
 
+        this.streamsPerHttp2Session = new Http2SessionDistribution(httpClient,
+                (distribution, connection) -> distribution.add(((HTTP2Session) connection.getSession()).getStreamCount()));
+
+        int http2MaxConcurrentStreams = config.getHttp2MaxConcurrentStreams();
+        this.http2SessionSaturation = new Http2SessionDistribution(httpClient, (distribution, connection) -> {
+            // percentage of the streams the session can carry that are in use
+            int serverMaxStreams = connection.getMaxMultiplex();
+            int maxStreams = serverMaxStreams > 0 ? min(serverMaxStreams, http2MaxConcurrentStreams) : http2MaxConcurrentStreams;
+            distribution.add(((HTTP2Session) connection.getSession()).getStreamCount() * 100L / maxStreams);
+        });
+
+        this.http2PingMonitor = new Http2PingMonitor(httpClient);
+        if (config.isHttp2Enabled() && config.getHttp2PingInterval().isPresent()) {
+            schedulePeriodically(http2PingMonitor::check, config.getHttp2PingInterval().get().toMillis());
+        }
+        // the response counters are exported directly, so the counts recorded by the stats are added to them periodically
+        schedulePeriodically(stats::flush, STATS_FLUSH_PERIOD_MILLIS);
+
+        if (config.isAdaptiveConcurrencyLimitEnabled()) {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                    config.getAdaptiveConcurrencyInitialLimit(),
+                    config.getAdaptiveConcurrencyMaxLimit(),
+                    config.getAdaptiveConcurrencyLatencyTolerance());
+            this.concurrencyLimiter = limiter;
+            this.concurrencyLimitPerDestination = new CachedDistribution(limiter::getLimitDistribution);
+        }
+        else {
+            this.concurrencyLimiter = null;
+            this.concurrencyLimitPerDestination = new CachedDistribution(Distribution::new);
+        }
+
         this.currentQueuedTime = new RequestDistribution(httpClient, (distribution, listener, now) -> {
             long started = listener.getRequestStarted();
             if (started == 0) {
@@ -691,6 +741,15 @@ public class JettyHttpClient
         RequestSizeListener requestSize = new RequestSizeListener();
         jettyRequest.onRequestContent(requestSize);
 
+        try {
+            acquireConcurrencyPermit(request, jettyRequest);
+        }
+        catch (DestinationOverloadedException e) {
+            stats.recordRequestFailed();
+            requestLogger.log(requestInfo, ResponseInfo.failed(Optional.empty(), Optional.of(e)));
+            return responseHandler.handleException(request, e);
+        }
+
         // fire the request
         jettyRequest.send(listener);
 
@@ -761,6 +820,24 @@ public class JettyHttpClient
         requireNonNull(request, "request is null");
         requireNonNull(responseHandler, "responseHandler is null");
 
+        AsyncRequest asyncRequest = prepareAsyncRequest(request);
+        JettyResponseFuture<T, E> future = asyncRequest.createFuture(responseHandler);
+        return sendAsync(asyncRequest, new BufferingResponseListener(future, Ints.saturatedCast(maxContentLength)), future);
+    }
+
+    @Override
+    public <T, E extends Exception> HttpResponseFuture<T> executeStreaming(Request request, StreamingResponseHandler<T, E> responseHandler)
+    {
+        requireNonNull(request, "request is null");
+        requireNonNull(responseHandler, "responseHandler is null");
+
+        AsyncRequest asyncRequest = prepareAsyncRequest(request);
+        StreamingResponseListener<T, E> listener = new StreamingResponseListener<>(asyncRequest.request(), responseHandler, asyncRequest::createFuture);
+        return sendAsync(asyncRequest, listener, listener.getFuture());
+    }
+
+    private AsyncRequest prepareAsyncRequest(Request request)
+    {
         request = applyRequestFilters(request);
 
         Span span = startSpan(request);
@@ -771,16 +848,13 @@ public class JettyHttpClient
         RequestSizeListener requestSize = new RequestSizeListener();
         jettyRequest.onRequestContent(requestSize);
 
-        JettyResponseFuture<T, E> future = new JettyResponseFuture<>(request, jettyRequest, requestSize::getBytes, responseHandler, span, stats, recordRequestComplete);
+        return new AsyncRequest(request, jettyRequest, span, requestSize);
+    }
 
-        BufferingResponseListener listener = new BufferingResponseListener(future, Ints.saturatedCast(maxContentLength))
-        {
-            @Override
-            public void onBegin(Response response)
-            {
-                callHttpStatusListeners(response);
-            }
-        };
+    private <T, E extends Exception> HttpResponseFuture<T> sendAsync(AsyncRequest asyncRequest, Response.Listener listener, JettyResponseFuture<T, E> future)
+    {
+        HttpRequest jettyRequest = asyncRequest.jettyRequest();
+        jettyRequest.onResponseBegin(this::callHttpStatusListeners);
 
         long requestTimestamp = System.currentTimeMillis();
 
@@ -789,6 +863,7 @@ public class JettyHttpClient
         }
 
         try {
+            acquireConcurrencyPermit(asyncRequest.request(), jettyRequest);
             jettyRequest.send(listener);
         }
         catch (RuntimeException e) {
@@ -802,6 +877,42 @@ public class JettyHttpClient
         return future;
     }
 
+    /**
+     * Admits the request under the adaptive concurrency limit of its destination, if enabled,
+     * and feeds the outcome of the request back to the limit.
+     *
+     * @throws DestinationOverloadedException if the destination is at its limit
+     */
+    private void acquireConcurrencyPermit(Request request, HttpRequest jettyRequest)
+    {
+        if (concurrencyLimiter == null) {
+            return;
+        }
+        URI uri = request.getUri();
+        Optional<Permit> permit = concurrencyLimiter.tryAcquire(uri);
+        if (permit.isEmpty()) {
+            concurrencyLimitRejections.update(1);
+            throw new DestinationOverloadedException(uri, concurrencyLimiter.getLimit(uri));
+        }
+        jettyRequest.onComplete(result -> {
+            Throwable failure = result.getFailure();
+            if (failure instanceof CancellationException) {
+                permit.get().ignored();
+            }
+            else if (failure != null || isOverloadedStatus(result.getResponse().getStatus())) {
+                permit.get().dropped();
+            }
+            else {
+                permit.get().succeeded();
+            }
+        });
+    }
+
+    private static boolean isOverloadedStatus(int status)
+    {
+        return status == 429 || status == 503;
+    }
+
     private void callHttpStatusListeners(Response response)
     {
         httpStatusListeners.forEach(listener -> {
@@ -884,6 +995,12 @@ public class JettyHttpClient
             else if (bodyGenerator instanceof FileBodyGenerator generator) {
                 jettyRequest.body(fileContent(generator.getPath()));
             }
+            else if (bodyGenerator instanceof StreamingBodyGenerator generator) {
+                StreamingRequestContent content = new StreamingRequestContent(generator.getWriter(), httpClient.getExecutor());
+                // start writing once the request is actually sent, so a queued request does not hold a thread
+                jettyRequest.onRequestBegin(request -> content.start());
+                jettyRequest.body(content);
+            }
             else {
                 jettyRequest.body(new BytesRequestContent(generateBody(bodyGenerator)));
             }
@@ -981,6 +1098,34 @@ public class JettyHttpClient
         return idleConnectionsPerDestination;
     }
 
+    @Managed
+    @Nested
+    public CachedDistribution getStreamsPerHttp2Session()
+    {
+        return streamsPerHttp2Session;
+    }
+
+    @Managed
+    @Nested
+    public CachedDistribution getHttp2SessionSaturation()
+    {
+        return http2SessionSaturation;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHttp2PingsSent()
+    {
+        return http2PingMonitor.getPingsSent();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHttp2PingTimeouts()
+    {
+        return http2PingMonitor.getPingTimeouts();
+    }
+
     @Managed
     @Nested
     public CachedDistribution getQueuedRequestsPerDestination()
@@ -988,6 +1133,30 @@ public class JettyHttpClient
         return queuedRequestsPerDestination;
     }
 
+    @Managed
+    @Nested
+    public CachedDistribution getConcurrencyLimitPerDestination()
+    {
+        return concurrencyLimitPerDestination;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getConcurrencyLimitRejections()
+    {
+        return concurrencyLimitRejections;
+    }
+
+    /**
+     * Returns whether a request to the URI would currently be admitted by the adaptive
+     * concurrency limit. Callers that can send a request to any of several servers may use
+     * this to route around overloaded ones.
+     */
+    public boolean hasCapacity(URI uri)
+    {
+        return concurrencyLimiter == null || concurrencyLimiter.hasCapacity(uri);
+    }
+
     @Managed
     @Nested
     public CachedDistribution getCurrentQueuedTime()
@@ -1134,6 +1303,17 @@ public class JettyHttpClient
         return new Duration(nanos, NANOSECONDS).getValue(MILLISECONDS);
     }
 
+    private void schedulePeriodically(Runnable task, long periodMillis)
+    {
+        // the task runs on the client's executor, to keep the scheduler free for timeouts
+        httpClient.getScheduler().schedule(() -> {
+            if (!isClosed()) {
+                schedulePeriodically(task, periodMillis);
+                httpClient.getExecutor().execute(task);
+            }
+        }, periodMillis, MILLISECONDS);
+    }
+
     @PreDestroy
     @Override
     public void close()
@@ -1202,6 +1382,40 @@ public class JettyHttpClient
                 responseProcessingTime);
     }
 
+    /**
+     * A request that has been filtered, traced and converted, but not sent yet.
+     */
+    private final class AsyncRequest
+    {
+        private final Request request;
+        private final HttpRequest jettyRequest;
+        private final Span span;
+        private final RequestSizeListener requestSize;
+
+        private AsyncRequest(Request request, HttpRequest jettyRequest, Span span, RequestSizeListener requestSize)
+        {
+            this.request = request;
+            this.jettyRequest = jettyRequest;
+            this.span = span;
+            this.requestSize = requestSize;
+        }
+
+        public Request request()
+        {
+            return request;
+        }
+
+        public HttpRequest jettyRequest()
+        {
+            return jettyRequest;
+        }
+
+        public <T, E extends Exception> JettyResponseFuture<T, E> createFuture(ResponseHandler<T, E> responseHandler)
+        {
+            return new JettyResponseFuture<>(request, jettyRequest, requestSize::getBytes, responseHandler, span, stats, recordRequestComplete);
+        }
+    }
+
     private static class RequestSizeListener
             implements org.eclipse.jetty.client.Request.ContentListener
     {
@@ -8,6 +8,7 @@ import org.eclipse.jetty.client.Response;
 import org.eclipse.jetty.http.HttpFields;
 
 import java.io.InputStream;
+import java.util.function.LongSupplier;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 
@@ -17,12 +18,25 @@ class JettyResponse
     private final Response response;
     private final CountingInputStream inputStream;
     private final ListMultimap<HeaderName, String> headers;
+    private final LongSupplier bytesRead;
 
     public JettyResponse(Response response, InputStream inputStream)
     {
         this.response = response;
         this.inputStream = new CountingInputStream(inputStream);
         this.headers = toHeadersMap(response.getHeaders());
+        this.bytesRead = this.inputStream::getCount;
+    }
+
+    /**
+     * Creates a response whose body has already been delivered to a {@link io.airlift.http.client.StreamingResponseHandler}.
+     */
+    public JettyResponse(Response response, long bytesRead)
+    {
+        this.response = response;
+        this.inputStream = new CountingInputStream(InputStream.nullInputStream());
+        this.headers = toHeadersMap(response.getHeaders());
+        this.bytesRead = () -> bytesRead;
     }
 
     @Override
@@ -40,7 +54,7 @@ class JettyResponse
     @Override
     public long getBytesRead()
     {
-        return inputStream.getCount();
+        return bytesRead.getAsLong();
     }
 
     @Override
@@ -58,7 +72,7 @@ class JettyResponse
                 .toString();
     }
 
-    private static ListMultimap<HeaderName, String> toHeadersMap(HttpFields headers)
+    static ListMultimap<HeaderName, String> toHeadersMap(HttpFields headers)
     {
         ImmutableListMultimap.Builder<HeaderName, String> builder = ImmutableListMultimap.builder();
         for (String name : headers.getFieldNamesCollection()) {
@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
@@ -86,6 +87,19 @@ class JettyResponseFuture<T, E extends Exception>
     }
 
     void completed(Response response, InputStream content)
+    {
+        completed(response, () -> new JettyResponse(response, content));
+    }
+
+    /**
+     * Completes the future for a response whose body has already been consumed while it was received.
+     */
+    void completed(Response response, long contentBytes)
+    {
+        completed(response, () -> new JettyResponse(response, contentBytes));
+    }
+
+    private void completed(Response response, Supplier<JettyResponse> responseFactory)
     {
         if (state.get() == JettyAsyncHttpState.CANCELED) {
             return;
@@ -99,7 +113,7 @@ class JettyResponseFuture<T, E extends Exception>
 
         T value;
         try {
-            value = processResponse(response, content);
+            value = processResponse(responseFactory);
         }
         catch (Throwable e) {
             // this will be an instance of E from the response handler or an Error
@@ -113,18 +127,18 @@ class JettyResponseFuture<T, E extends Exception>
         span.end();
     }
 
-    private T processResponse(Response response, InputStream content)
+    private T processResponse(Supplier<JettyResponse> responseFactory)
             throws E
     {
         // this time will not include the data fetching portion of the response,
-        // since the response is fully cached in memory at this point
+        // since the response is fully cached in memory, or already consumed when streamed, at this point
         long responseStart = System.nanoTime();
 
         state.set(JettyAsyncHttpState.PROCESSING_RESPONSE);
         JettyResponse jettyResponse = null;
         T value;
         try {
-            jettyResponse = new JettyResponse(response, content);
+            jettyResponse = responseFactory.get();
             value = responseHandler.handle(request, jettyResponse);
         }
         finally {
@@ -0,0 +1,67 @@
+package io.airlift.http.client.jetty;
+
+import io.airlift.http.client.StreamingBodyGenerator.BodyWriter;
+import org.eclipse.jetty.client.OutputStreamRequestContent;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Request content produced by a {@link BodyWriter} running on a separate thread. Each write
+ * blocks until the connection has consumed it, so at most one buffer of the body is held in
+ * memory, and the socket provides the back pressure.
+ */
+class StreamingRequestContent
+        extends OutputStreamRequestContent
+{
+    // matches the default HTTP/2 frame size, so a full buffer maps to a single DATA frame
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final BodyWriter writer;
+    private final Executor executor;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    public StreamingRequestContent(BodyWriter writer, Executor executor)
+    {
+        this.writer = requireNonNull(writer, "writer is null");
+        this.executor = requireNonNull(executor, "executor is null");
+    }
+
+    /**
+     * Starts writing the body. This must only be called once the request is being sent,
+     * otherwise the writer blocks a thread until the request is aborted. Only the first
+     * call has an effect.
+     */
+    public void start()
+    {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::writeBody);
+        }
+        catch (RejectedExecutionException e) {
+            fail(e);
+        }
+    }
+
+    private void writeBody()
+    {
+        OutputStream out = new BufferedOutputStream(getOutputStream(), BUFFER_SIZE);
+        try {
+            writer.write(out);
+            out.flush();
+        }
+        catch (Throwable e) {
+            // do not close the stream, as that would end the body and send a truncated request
+            fail(e);
+            return;
+        }
+        close();
+    }
+}
@@ -0,0 +1,132 @@
+package io.airlift.http.client.jetty;
+
+import com.google.errorprone.annotations.ThreadSafe;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.http.client.StreamingResponseHandler;
+import io.airlift.http.client.StreamingResponseHandler.ContentConsumer;
+import org.eclipse.jetty.client.Response;
+import org.eclipse.jetty.client.Result;
+import org.eclipse.jetty.io.Content;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.http.client.jetty.JettyResponse.toHeadersMap;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Passes the content chunks of a response to a {@link StreamingResponseHandler} without copying them.
+ * Each chunk is retained until the handler releases it, and more content is only demanded from the
+ * connection after the release.
+ */
+@ThreadSafe
+class StreamingResponseListener<T, E extends Exception>
+        implements Response.Listener
+{
+    private final Request request;
+    private final StreamingResponseHandler<T, E> handler;
+    private final JettyResponseFuture<T, E> future;
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile ContentConsumer<T, E> consumer;
+
+    public StreamingResponseListener(Request request, StreamingResponseHandler<T, E> handler, Function<ResponseHandler<T, E>, JettyResponseFuture<T, E>> futureFactory)
+    {
+        this.request = requireNonNull(request, "request is null");
+        this.handler = requireNonNull(handler, "handler is null");
+        this.future = futureFactory.apply(new CompletionHandler());
+    }
+
+    public JettyResponseFuture<T, E> getFuture()
+    {
+        return future;
+    }
+
+    @Override
+    public void onHeaders(Response response)
+    {
+        try {
+            consumer = handler.handleHeaders(request, response.getStatus(), toHeadersMap(response.getHeaders()));
+        }
+        catch (Exception e) {
+            response.abort(e);
+        }
+    }
+
+    @Override
+    public void onContent(Response response, Content.Chunk chunk, Runnable demander)
+    {
+        ContentConsumer<T, E> consumer = this.consumer;
+        ByteBuffer content = chunk.getByteBuffer();
+        if (consumer == null || !content.hasRemaining()) {
+            // the response is being aborted, or there is nothing to deliver
+            demander.run();
+            return;
+        }
+        bytesRead.addAndGet(content.remaining());
+
+        // Jetty releases the chunk once this method returns, so keep it alive until the consumer is done with it
+        boolean retained = chunk.canRetain();
+        if (retained) {
+            chunk.retain();
+        }
+        else {
+            content = ByteBuffer.allocate(content.remaining()).put(content).flip();
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                if (retained) {
+                    chunk.release();
+                }
+                demander.run();
+            }
+        };
+
+        try {
+            consumer.onContent(content, release);
+        }
+        catch (Exception e) {
+            if (released.compareAndSet(false, true) && retained) {
+                chunk.release();
+            }
+            response.abort(e);
+        }
+    }
+
+    @Override
+    public void onComplete(Result result)
+    {
+        Throwable throwable = result.getFailure();
+        if (throwable != null) {
+            future.failed(throwable);
+        }
+        else {
+            future.completed(result.getResponse(), bytesRead.get());
+        }
+    }
+
+    private class CompletionHandler
+            implements ResponseHandler<T, E>
+    {
+        @Override
+        public T handleException(Request request, Exception exception)
+                throws E
+        {
+            return handler.handleException(request, exception);
+        }
+
+        @Override
+        public T handle(Request request, io.airlift.http.client.Response response)
+                throws E
+        {
+            ContentConsumer<T, E> consumer = StreamingResponseListener.this.consumer;
+            checkState(consumer != null, "response completed before headers were handled");
+            return consumer.onComplete();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.StatusResponseHandler.StatusResponse;
 import io.airlift.http.client.StringResponseHandler.StringResponse;
 import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.json.JsonCodec;
 import io.airlift.log.Logging;
 import io.airlift.units.Duration;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
@@ -37,6 +38,8 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.UnresolvedAddressException;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
@@ -60,10 +63,13 @@ import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.http.client.Request.Builder.preparePost;
 import static io.airlift.http.client.Request.Builder.preparePut;
 import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static io.airlift.http.client.StreamingBodyGenerator.streamingBodyGenerator;
+import static io.airlift.http.client.StreamingBodyGenerator.streamingJsonBodyGenerator;
 import static io.airlift.http.client.StringResponseHandler.createStringResponseHandler;
 import static io.airlift.testing.Assertions.assertBetweenInclusive;
 import static io.airlift.testing.Assertions.assertGreaterThanOrEqual;
 import static io.airlift.testing.Assertions.assertLessThan;
+import static io.airlift.json.JsonCodec.listJsonCodec;
 import static io.airlift.units.Duration.nanosSince;
 import static java.lang.String.format;
 import static java.lang.Thread.currentThread;
@@ -71,6 +77,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
@@ -499,6 +506,73 @@ public abstract class AbstractHttpClientTest
         assertTrue(testFile.delete());
     }
 
+    @Test
+    public void testPutMethodWithStreamingBodyGenerator()
+            throws Exception
+    {
+        byte[] block = new byte[1000];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (byte) i;
+        }
+        int blocks = 5_000;
+
+        URI uri = baseURI.resolve("/road/to/nowhere");
+        Request request = preparePut()
+                .setUri(uri)
+                .setBodyGenerator(streamingBodyGenerator(out -> {
+                    for (int i = 0; i < blocks; i++) {
+                        out.write(block);
+                    }
+                }))
+                .build();
+
+        int statusCode = executeRequest(request, createStatusResponseHandler()).getStatusCode();
+        assertEquals(statusCode, 200);
+        assertEquals(servlet.getRequestMethod(), "PUT");
+        assertEquals(servlet.getRequestUri(), uri);
+
+        byte[] body = servlet.getRequestBytes();
+        assertEquals(body.length, block.length * blocks);
+        for (int i = 0; i < blocks; i++) {
+            assertEquals(Arrays.copyOfRange(body, i * block.length, (i + 1) * block.length), block);
+        }
+    }
+
+    @Test
+    public void testPutMethodWithStreamingJsonBodyGenerator()
+            throws Exception
+    {
+        JsonCodec<List<String>> codec = listJsonCodec(String.class);
+        List<String> values = Collections.nCopies(10_000, "streaming body");
+
+        URI uri = baseURI.resolve("/road/to/nowhere");
+        Request request = preparePut()
+                .setUri(uri)
+                .addHeader(CONTENT_TYPE, "application/json")
+                .setBodyGenerator(streamingJsonBodyGenerator(codec, values))
+                .build();
+
+        int statusCode = executeRequest(request, createStatusResponseHandler()).getStatusCode();
+        assertEquals(statusCode, 200);
+        assertEquals(servlet.getRequestHeaders(CONTENT_TYPE), ImmutableList.of("application/json"));
+        assertEquals(codec.fromJson(servlet.getRequestBytes()), values);
+    }
+
+    @Test
+    public void testStreamingBodyGeneratorFailure()
+    {
+        Request request = preparePut()
+                .setUri(baseURI.resolve("/road/to/nowhere"))
+                .setBodyGenerator(streamingBodyGenerator(out -> {
+                    out.write(new byte[100_000]);
+                    throw new IOException("body writer failed");
+                }))
+                .build();
+
+        assertThatThrownBy(() -> executeRequest(request, new ExceptionResponseHandler()))
+                .hasStackTraceContaining("body writer failed");
+    }
+
     @Test(expectedExceptions = {IOException.class, TimeoutException.class})
     public void testReadTimeout()
             throws Exception
@@ -0,0 +1,63 @@
+package io.airlift.http.client;
+
+import io.airlift.units.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(3)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkRequestStats
+{
+    private static final Duration REQUEST_TIME = new Duration(12, MILLISECONDS);
+    private static final Duration RESPONSE_TIME = new Duration(1, MILLISECONDS);
+
+    private final RequestStats stats = new RequestStats();
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkRecord()
+    {
+        stats.recordResponseReceived("GET", 200, 100, 1000, REQUEST_TIME, RESPONSE_TIME);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkRecordContended()
+    {
+        stats.recordResponseReceived("GET", 200, 100, 1000, REQUEST_TIME, RESPONSE_TIME);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*\\." + BenchmarkRequestStats.class.getSimpleName() + "\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,197 @@
+package io.airlift.http.client;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.http.client.HedgingHttpClient.AlternateUris;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.http.client.testing.TestingHttpClient;
+import io.airlift.http.client.testing.TestingHttpClient.Processor;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.net.MediaType.PLAIN_TEXT_UTF_8;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.http.client.HttpStatus.OK;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.StringResponseHandler.createStringResponseHandler;
+import static io.airlift.http.client.testing.TestingResponse.mockResponse;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestHedgingHttpClient
+{
+    private static final URI PRIMARY = URI.create("http://primary/");
+    private static final URI ALTERNATE = URI.create("http://alternate/");
+    private static final AlternateUris ALTERNATES = uri -> ImmutableList.of(ALTERNATE);
+    private static final HedgingPolicy FAST_HEDGE = HedgingPolicy.builder()
+            .setMinHedgeDelay(new Duration(1, MILLISECONDS))
+            .setMaxHedgeDelay(new Duration(20, MILLISECONDS))
+            .build();
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-hedging-%s"));
+        scheduler = newSingleThreadScheduledExecutor(daemonThreadsNamed("test-hedging-scheduler"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testFastRequestIsNotHedged()
+    {
+        AtomicInteger requests = new AtomicInteger();
+        HedgingHttpClient client = createClient(request -> {
+            requests.incrementAndGet();
+            return mockResponse(OK, PLAIN_TEXT_UTF_8, request.getUri().getHost());
+        }, FAST_HEDGE);
+
+        assertEquals(client.execute(prepareGet().setUri(PRIMARY).build(), createStringResponseHandler()).getBody(), "primary");
+        assertEquals(requests.get(), 1);
+        assertEquals(client.getHedgesSent().getTotalCount(), 0);
+    }
+
+    @Test
+    public void testSlowRequestIsHedged()
+            throws Exception
+    {
+        CountDownLatch primaryCanceled = new CountDownLatch(1);
+        HedgingHttpClient client = createClient(request -> {
+            if (request.getUri().equals(PRIMARY)) {
+                try {
+                    Thread.sleep(SECONDS.toMillis(10));
+                }
+                catch (InterruptedException e) {
+                    primaryCanceled.countDown();
+                    throw e;
+                }
+            }
+            return mockResponse(OK, PLAIN_TEXT_UTF_8, request.getUri().getHost());
+        }, FAST_HEDGE);
+
+        assertEquals(client.execute(prepareGet().setUri(PRIMARY).build(), createStringResponseHandler()).getBody(), "alternate");
+        assertEquals(client.getHedgesSent().getTotalCount(), 1);
+        assertEquals(client.getHedgesWon().getTotalCount(), 1);
+        assertTrue(primaryCanceled.await(10, SECONDS), "losing request was not canceled");
+    }
+
+    @Test
+    public void testNonIdempotentRequestIsNotHedged()
+    {
+        AtomicInteger requests = new AtomicInteger();
+        HedgingHttpClient client = createClient(request -> {
+            requests.incrementAndGet();
+            Thread.sleep(100);
+            return mockResponse(OK, PLAIN_TEXT_UTF_8, request.getUri().getHost());
+        }, FAST_HEDGE);
+
+        assertEquals(client.execute(preparePost().setUri(PRIMARY).build(), createStringResponseHandler()).getBody(), "primary");
+        assertEquals(requests.get(), 1);
+        assertEquals(client.getHedgesSent().getTotalCount(), 0);
+    }
+
+    @Test
+    public void testConnectionFailureIsRetried()
+    {
+        HedgingHttpClient client = createClient(request -> {
+            if (request.getUri().equals(PRIMARY)) {
+                throw new ConnectException("Connection refused");
+            }
+            return mockResponse(OK, PLAIN_TEXT_UTF_8, request.getUri().getHost());
+        }, HedgingPolicy.builder().build());
+
+        assertEquals(client.execute(prepareGet().setUri(PRIMARY).build(), createStringResponseHandler()).getBody(), "alternate");
+        assertEquals(client.getRetries().getTotalCount(), 1);
+        assertEquals(client.getHedgesSent().getTotalCount(), 0);
+    }
+
+    @Test
+    public void testRetryBudget()
+    {
+        HedgingHttpClient client = createClient(request -> {
+            throw new ConnectException("Connection refused");
+        }, HedgingPolicy.builder()
+                .setMaxRetryTokens(2)
+                .setRetryBudgetRatio(0)
+                .build());
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> client.execute(prepareGet().setUri(PRIMARY).build(), createStringResponseHandler()))
+                    .isInstanceOf(RuntimeException.class)
+                    .hasRootCauseInstanceOf(ConnectException.class);
+        }
+        assertEquals(client.getRetries().getTotalCount(), 2);
+        assertEquals(client.getRetryBudgetExhausted().getTotalCount(), 1);
+        assertEquals(client.getRetryTokens(), 0.0);
+    }
+
+    @Test
+    public void testHedgedResponseIsBuffered()
+            throws Exception
+    {
+        EchoServlet servlet = new EchoServlet();
+        servlet.setResponseBody("x".repeat(2048));
+        HttpClientConfig config = new HttpClientConfig()
+                .setMaxContentLength(DataSize.of(1, KILOBYTE));
+        try (TestingHttpServer server = new TestingHttpServer(Optional.empty(), servlet);
+                JettyHttpClient delegate = new JettyHttpClient(config)) {
+            URI uri = URI.create("http://" + server.getHostAndPort() + "/");
+            HedgingHttpClient client = new HedgingHttpClient(delegate, ignored -> ImmutableList.of(), FAST_HEDGE, scheduler);
+
+            // requests that are not hedged are streamed, so the response size is not limited
+            assertEquals(client.execute(preparePost().setUri(uri).build(), createStringResponseHandler()).getBody().length(), 2048);
+
+            // hedged requests are buffered, even when executed synchronously
+            assertThatThrownBy(() -> client.execute(prepareGet().setUri(uri).build(), createStringResponseHandler()))
+                    .isInstanceOf(ResponseTooLargeException.class);
+        }
+    }
+
+    @Test
+    public void testHedgeDelayFollowsRequestTime()
+    {
+        TestingHttpClient delegate = new TestingHttpClient(request -> mockResponse(OK, PLAIN_TEXT_UTF_8, ""));
+        HedgingHttpClient client = new HedgingHttpClient(delegate, ALTERNATES, HedgingPolicy.builder()
+                .setMinHedgeDelay(new Duration(5, MILLISECONDS))
+                .setMaxHedgeDelay(new Duration(1, SECONDS))
+                .build(), scheduler);
+
+        // too few samples for a meaningful percentile
+        assertEquals(client.getHedgeDelayNanos(), MILLISECONDS.toNanos(1000));
+
+        for (int i = 0; i < 200; i++) {
+            delegate.getStats().recordResponseReceived("GET", 200, 0, 0, new Duration(10, MILLISECONDS), new Duration(0, MILLISECONDS));
+        }
+        assertEquals(client.computeHedgeDelayNanos(), MILLISECONDS.toNanos(10), MILLISECONDS.toNanos(1));
+    }
+
+    private HedgingHttpClient createClient(Processor processor, HedgingPolicy policy)
+    {
+        return new HedgingHttpClient(new TestingHttpClient(processor, executor), ALTERNATES, policy, scheduler);
+    }
+}
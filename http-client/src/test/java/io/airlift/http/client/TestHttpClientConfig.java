@@ -21,6 +21,8 @@ import com.google.inject.ConfigurationException;
 import io.airlift.configuration.testing.ConfigAssertions;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.testng.annotations.Test;
@@ -56,6 +58,10 @@ public class TestHttpClientConfig
                 .setKeepAliveInterval(null)
                 .setMaxConnectionsPerServer(20)
                 .setMaxRequestsQueuedPerDestination(1024)
+                .setAdaptiveConcurrencyLimitEnabled(false)
+                .setAdaptiveConcurrencyInitialLimit(20)
+                .setAdaptiveConcurrencyMaxLimit(1000)
+                .setAdaptiveConcurrencyLatencyTolerance(2.0)
                 .setMaxContentLength(DataSize.of(16, MEGABYTE))
                 .setRequestBufferSize(DataSize.of(4, KILOBYTE))
                 .setResponseBufferSize(DataSize.of(16, KILOBYTE))
@@ -73,6 +79,8 @@ public class TestHttpClientConfig
                 .setHttp2InitialSessionReceiveWindowSize(DataSize.of(16, MEGABYTE))
                 .setHttp2InitialStreamReceiveWindowSize(DataSize.of(16, MEGABYTE))
                 .setHttp2InputBufferSize(DataSize.of(8, KILOBYTE))
+                .setHttp2MaxConcurrentStreams(100)
+                .setHttp2PingInterval(null)
                 .setSelectorCount(2)
                 .setRecordRequestComplete(true)
                 .setConnectBlocking(false)
@@ -103,6 +111,10 @@ public class TestHttpClientConfig
                 .put("http-client.keep-alive-interval", "6s")
                 .put("http-client.max-connections-per-server", "3")
                 .put("http-client.max-requests-queued-per-destination", "10")
+                .put("http-client.adaptive-concurrency-limit.enabled", "true")
+                .put("http-client.adaptive-concurrency-limit.initial-limit", "7")
+                .put("http-client.adaptive-concurrency-limit.max-limit", "70")
+                .put("http-client.adaptive-concurrency-limit.latency-tolerance", "1.5")
                 .put("http-client.max-content-length", "1MB")
                 .put("http-client.request-buffer-size", "42kB")
                 .put("http-client.response-buffer-size", "43kB")
@@ -120,6 +132,8 @@ public class TestHttpClientConfig
                 .put("http-client.http2.session-receive-window-size", "7MB")
                 .put("http-client.http2.stream-receive-window-size", "7MB")
                 .put("http-client.http2.input-buffer-size", "1MB")
+                .put("http-client.http2.max-concurrent-streams", "500")
+                .put("http-client.http2.ping-interval", "15s")
                 .put("http-client.selector-count", "16")
                 .put("http-client.record-request-complete", "false")
                 .put("http-client.use-blocking-connect", "true")
@@ -147,6 +161,10 @@ public class TestHttpClientConfig
                 .setKeepAliveInterval(new Duration(6, SECONDS))
                 .setMaxConnectionsPerServer(3)
                 .setMaxRequestsQueuedPerDestination(10)
+                .setAdaptiveConcurrencyLimitEnabled(true)
+                .setAdaptiveConcurrencyInitialLimit(7)
+                .setAdaptiveConcurrencyMaxLimit(70)
+                .setAdaptiveConcurrencyLatencyTolerance(1.5)
                 .setMaxContentLength(DataSize.of(1, MEGABYTE))
                 .setRequestBufferSize(DataSize.of(42, KILOBYTE))
                 .setResponseBufferSize(DataSize.of(43, KILOBYTE))
@@ -164,6 +182,8 @@ public class TestHttpClientConfig
                 .setHttp2InitialSessionReceiveWindowSize(DataSize.of(7, MEGABYTE))
                 .setHttp2InitialStreamReceiveWindowSize(DataSize.of(7, MEGABYTE))
                 .setHttp2InputBufferSize(DataSize.of(1, MEGABYTE))
+                .setHttp2MaxConcurrentStreams(500)
+                .setHttp2PingInterval(new Duration(15, SECONDS))
                 .setSelectorCount(16)
                 .setRecordRequestComplete(false)
                 .setConnectBlocking(true)
@@ -204,6 +224,12 @@ public class TestHttpClientConfig
         assertFailsValidation(new HttpClientConfig().setConnectTimeout(null), "connectTimeout", "must not be null", NotNull.class);
         assertFailsValidation(new HttpClientConfig().setRequestTimeout(null), "requestTimeout", "must not be null", NotNull.class);
         assertFailsValidation(new HttpClientConfig().setIdleTimeout(null), "idleTimeout", "must not be null", NotNull.class);
+        assertFailsValidation(new HttpClientConfig().setAdaptiveConcurrencyLatencyTolerance(0.5), "adaptiveConcurrencyLatencyTolerance", "must be at least 1.0", DecimalMin.class);
+        assertFailsValidation(
+                new HttpClientConfig().setAdaptiveConcurrencyMaxLimit(10),
+                "adaptiveConcurrencyMaxLimitValid",
+                "http-client.adaptive-concurrency-limit.max-limit must be at least http-client.adaptive-concurrency-limit.initial-limit",
+                AssertTrue.class);
     }
 
     @Test
@@ -0,0 +1,115 @@
+package io.airlift.http.client;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import io.airlift.http.client.StreamingResponseHandler.ContentConsumer;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static com.google.common.net.MediaType.PLAIN_TEXT_UTF_8;
+import static io.airlift.http.client.HttpStatus.INTERNAL_SERVER_ERROR;
+import static io.airlift.http.client.HttpStatus.OK;
+import static io.airlift.http.client.JsonStreamingResponseHandler.createJsonArrayStreamingResponseHandler;
+import static io.airlift.http.client.JsonStreamingResponseHandler.createJsonStreamingResponseHandler;
+import static io.airlift.http.client.TestFullJsonResponseHandler.User;
+import static io.airlift.json.JsonCodec.listJsonCodec;
+import static java.lang.Math.min;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+
+public class TestJsonStreamingResponseHandler
+{
+    private final JsonCodec<User> codec = JsonCodec.jsonCodec(User.class);
+    private final JsonStreamingResponseHandler<User> handler = createJsonStreamingResponseHandler(codec);
+
+    @Test
+    public void testValidJson()
+    {
+        User user = new User("Joe", 25);
+        AtomicInteger released = new AtomicInteger();
+
+        User response = consume(handler.handleHeaders(null, OK.code(), headers(JSON_UTF_8.toString())), codec.toJsonBytes(user), 3, released);
+
+        assertEquals(response.getName(), user.getName());
+        assertEquals(response.getAge(), user.getAge());
+        assertEquals(released.get(), (codec.toJsonBytes(user).length + 2) / 3);
+    }
+
+    @Test
+    public void testJsonArray()
+    {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(new User("user" + i, i));
+        }
+        byte[] json = listJsonCodec(codec).toJsonBytes(users);
+
+        List<User> decoded = new ArrayList<>();
+        JsonStreamingResponseHandler<Long> arrayHandler = createJsonArrayStreamingResponseHandler(codec, decoded::add);
+        long count = consume(arrayHandler.handleHeaders(null, OK.code(), headers(JSON_UTF_8.toString())), json, 17, new AtomicInteger());
+
+        assertEquals(count, users.size());
+        assertEquals(decoded.size(), users.size());
+        for (int i = 0; i < users.size(); i++) {
+            assertEquals(decoded.get(i).getName(), users.get(i).getName());
+            assertEquals(decoded.get(i).getAge(), users.get(i).getAge());
+        }
+    }
+
+    @Test
+    public void testInvalidJsonReleasesContent()
+    {
+        ContentConsumer<User, RuntimeException> consumer = handler.handleHeaders(null, OK.code(), headers(JSON_UTF_8.toString()));
+        AtomicInteger released = new AtomicInteger();
+
+        assertThatThrownBy(() -> consumer.onContent(ByteBuffer.wrap("{]".getBytes(UTF_8)), released::incrementAndGet))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid JSON bytes for [simple type, class io.airlift.http.client.TestFullJsonResponseHandler$User]");
+        assertEquals(released.get(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Incomplete JSON bytes for .*")
+    public void testTruncatedJson()
+    {
+        consume(handler.handleHeaders(null, OK.code(), headers(JSON_UTF_8.toString())), "{\"name\": \"Joe\"".getBytes(UTF_8), 4, new AtomicInteger());
+    }
+
+    @Test(expectedExceptions = UnexpectedResponseException.class, expectedExceptionsMessageRegExp = "Expected application/json response from server but got text/plain; charset=utf-8")
+    public void testNonJsonResponse()
+    {
+        handler.handleHeaders(null, OK.code(), headers(PLAIN_TEXT_UTF_8.toString()));
+    }
+
+    @Test(expectedExceptions = UnexpectedResponseException.class, expectedExceptionsMessageRegExp = "Content-Type is not set for response")
+    public void testMissingContentType()
+    {
+        handler.handleHeaders(null, OK.code(), ImmutableListMultimap.of());
+    }
+
+    @Test(expectedExceptions = UnexpectedResponseException.class)
+    public void testJsonErrorResponse()
+    {
+        handler.handleHeaders(null, INTERNAL_SERVER_ERROR.code(), headers(JSON_UTF_8.toString()));
+    }
+
+    private static ListMultimap<HeaderName, String> headers(String contentType)
+    {
+        return ImmutableListMultimap.of(HeaderName.of(CONTENT_TYPE), contentType);
+    }
+
+    private static <T> T consume(ContentConsumer<T, RuntimeException> consumer, byte[] body, int chunkSize, AtomicInteger released)
+    {
+        for (int offset = 0; offset < body.length; offset += chunkSize) {
+            consumer.onContent(ByteBuffer.wrap(body, offset, min(chunkSize, body.length - offset)), released::incrementAndGet);
+        }
+        return consumer.onComplete();
+    }
+}
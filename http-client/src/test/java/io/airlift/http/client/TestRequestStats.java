@@ -0,0 +1,74 @@
+package io.airlift.http.client;
+
+import io.airlift.stats.CounterStat;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+
+public class TestRequestStats
+{
+    @Test
+    public void testRecordResponses()
+    {
+        RequestStats stats = new RequestStats();
+        recordResponses(stats, 10);
+        assertStats(stats, 10, 2);
+    }
+
+    @Test
+    public void testCountersUpdatedOnFlush()
+    {
+        RequestStats stats = new RequestStats();
+        CounterStat allResponse = stats.getAllResponse();
+        recordResponses(stats, 10);
+
+        // the nested counter, as exported, is updated by a flush
+        assertEquals(allResponse.getTotalCount(), 0);
+        stats.flush();
+        assertEquals(allResponse.getTotalCount(), 10);
+    }
+
+    @Test
+    public void testConcurrentRecording()
+            throws Exception
+    {
+        RequestStats stats = new RequestStats();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofPlatform().start(() -> recordResponses(stats, 10_000)));
+        }
+        // flush concurrently with the writers
+        for (int i = 0; i < 100; i++) {
+            stats.flush();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertStats(stats, 80_000, 16_000);
+    }
+
+    private static void recordResponses(RequestStats stats, int count)
+    {
+        // 1/5 of the responses are client errors
+        for (int i = 0; i < count; i++) {
+            int responseCode = (i % 5 == 0) ? 404 : 200;
+            stats.recordResponseReceived("GET", responseCode, 10, 100, new Duration(5, MILLISECONDS), new Duration(1, MILLISECONDS));
+        }
+    }
+
+    private static void assertStats(RequestStats stats, int count, int clientErrors)
+    {
+        assertEquals(stats.getAllResponse().getTotalCount(), count);
+        assertEquals(stats.get2xxResponse().getTotalCount(), count - clientErrors);
+        assertEquals(stats.get4xxResponse().getTotalCount(), clientErrors);
+        assertEquals(stats.get5xxResponse().getTotalCount(), 0);
+        assertEquals(stats.getRequestTime().getAllTime().getCount(), count, 0.0);
+        assertEquals(stats.getReadBytes().getAllTime().getCount(), count, 0.0);
+        assertEquals(stats.getWrittenBytes().getAllTime().getTotal(), count * 10.0, 0.0);
+    }
+}
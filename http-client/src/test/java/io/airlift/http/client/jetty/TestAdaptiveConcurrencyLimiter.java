@@ -0,0 +1,211 @@
+package io.airlift.http.client.jetty;
+
+import io.airlift.http.client.jetty.AdaptiveConcurrencyLimiter.DestinationLimit;
+import io.airlift.http.client.jetty.AdaptiveConcurrencyLimiter.Permit;
+import io.airlift.testing.TestingTicker;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static io.airlift.http.client.jetty.AdaptiveConcurrencyLimiter.IDLE_TIMEOUT_NANOS;
+import static io.airlift.http.client.jetty.AdaptiveConcurrencyLimiter.LATENCY_FLOOR_NANOS;
+import static io.airlift.http.client.jetty.AdaptiveConcurrencyLimiter.LATENCY_WINDOW;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestAdaptiveConcurrencyLimiter
+{
+    private static final long LATENCY = MILLISECONDS.toNanos(10);
+
+    @Test
+    public void testAdmission()
+    {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 10, 2.0);
+        URI uri = URI.create("http://example.com/a");
+
+        Optional<Permit> first = limiter.tryAcquire(uri);
+        Optional<Permit> second = limiter.tryAcquire(URI.create("HTTP://EXAMPLE.COM:80/b"));
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertFalse(limiter.hasCapacity(uri));
+        assertTrue(limiter.tryAcquire(uri).isEmpty());
+
+        // other destinations are limited independently
+        assertTrue(limiter.hasCapacity(URI.create("https://example.com/a")));
+        assertTrue(limiter.tryAcquire(URI.create("http://example.com:8080/a")).isPresent());
+
+        // completing a permit more than once has no effect
+        first.get().ignored();
+        first.get().ignored();
+        assertTrue(limiter.hasCapacity(uri));
+        assertTrue(limiter.tryAcquire(uri).isPresent());
+        assertTrue(limiter.tryAcquire(uri).isEmpty());
+    }
+
+    @Test
+    public void testIncreaseWhenUtilized()
+    {
+        DestinationLimit limit = new AdaptiveConcurrencyLimiter(4, 6, 2.0).newDestinationLimit();
+
+        // a single request in flight does not use enough of the limit to justify raising it
+        acquire(limit, 1);
+        limit.release(LATENCY, false);
+        assertEquals(limit.getLimit(), 4);
+
+        acquire(limit, 2);
+        limit.release(LATENCY, false);
+        assertEquals(limit.getLimit(), 5);
+        limit.release(LATENCY, false);
+        assertEquals(limit.getLimit(), 5);
+
+        for (int i = 0; i < 10; i++) {
+            acquire(limit, 5);
+            releaseAll(limit, 5, LATENCY);
+        }
+        assertEquals(limit.getLimit(), 6);
+    }
+
+    @Test
+    public void testDecreaseOnDrop()
+    {
+        DestinationLimit limit = new AdaptiveConcurrencyLimiter(20, 100, 2.0).newDestinationLimit();
+
+        acquire(limit, 1);
+        limit.release(LATENCY, true);
+        assertEquals(limit.getLimit(), 18);
+
+        for (int i = 0; i < 100; i++) {
+            acquire(limit, 1);
+            limit.release(1, true);
+        }
+        assertEquals(limit.getLimit(), 1);
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+    }
+
+    @Test
+    public void testDecreaseOnLatency()
+    {
+        DestinationLimit limit = new AdaptiveConcurrencyLimiter(10, 100, 2.0).newDestinationLimit();
+
+        acquire(limit, 1);
+        limit.release(LATENCY, false);
+        assertEquals(limit.getLimit(), 10);
+
+        // within the tolerance
+        acquire(limit, 1);
+        limit.release(LATENCY * 2, false);
+        assertEquals(limit.getLimit(), 10);
+
+        acquire(limit, 1);
+        limit.release(LATENCY * 2 + 1, false);
+        assertEquals(limit.getLimit(), 9);
+    }
+
+    @Test
+    public void testLatencyFloor()
+    {
+        DestinationLimit limit = new AdaptiveConcurrencyLimiter(10, 100, 2.0).newDestinationLimit();
+
+        acquire(limit, 1);
+        limit.release(1_000, false);
+        acquire(limit, 1);
+        limit.release(LATENCY_FLOOR_NANOS, false);
+        assertEquals(limit.getLimit(), 10);
+    }
+
+    @Test
+    public void testBaselineFollowsDestination()
+    {
+        DestinationLimit limit = new AdaptiveConcurrencyLimiter(10, 100, 2.0).newDestinationLimit();
+
+        acquire(limit, 1);
+        limit.release(LATENCY, false);
+
+        // the destination becomes permanently slower; after two windows the old baseline is forgotten
+        for (int i = 0; i < 2 * LATENCY_WINDOW; i++) {
+            acquire(limit, 1);
+            limit.release(LATENCY * 3, false);
+        }
+        int settled = limit.getLimit();
+        assertThat(settled).isLessThan(10);
+
+        // the new latency is now the baseline, so it no longer reduces the limit
+        acquire(limit, 1);
+        limit.release(LATENCY * 3, false);
+        assertEquals(limit.getLimit(), settled + 1);
+    }
+
+    @Test
+    public void testInvalidArguments()
+    {
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(0, 10, 2.0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(10, 5, 2.0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(10, 20, 0.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testLimitDistribution()
+    {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(3, 10, 2.0);
+        List<Permit> permits = new ArrayList<>();
+        limiter.tryAcquire(URI.create("http://a.example.com")).ifPresent(permits::add);
+        limiter.tryAcquire(URI.create("http://b.example.com")).ifPresent(permits::add);
+        assertEquals(permits.size(), 2);
+        assertEquals(limiter.getLimitDistribution().getCount(), 2.0);
+        assertEquals(limiter.getLimit(URI.create("http://c.example.com")), 3);
+    }
+
+    @Test
+    public void testEvictIdleDestinations()
+    {
+        TestingTicker ticker = new TestingTicker();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 10, 2.0, ticker);
+        URI idle = URI.create("http://idle.example.com");
+        URI busy = URI.create("http://busy.example.com");
+        limiter.tryAcquire(idle).orElseThrow().succeeded();
+        Permit busyPermit = limiter.tryAcquire(busy).orElseThrow();
+        assertEquals(limiter.getDestinationCount(), 2);
+
+        ticker.increment(IDLE_TIMEOUT_NANOS - 1, NANOSECONDS);
+        limiter.tryAcquire(URI.create("http://other.example.com")).orElseThrow().ignored();
+        assertEquals(limiter.getDestinationCount(), 3);
+
+        // idle destinations are removed, and a destination with a request in flight is kept
+        ticker.increment(IDLE_TIMEOUT_NANOS, NANOSECONDS);
+        assertTrue(limiter.tryAcquire(URI.create("http://new.example.com")).isPresent());
+        assertEquals(limiter.getDestinationCount(), 2);
+        assertTrue(limiter.tryAcquire(busy).isEmpty());
+
+        // an evicted destination starts again from the initial limit
+        busyPermit.succeeded();
+        assertEquals(limiter.getLimit(idle), 1);
+        assertTrue(limiter.tryAcquire(idle).isPresent());
+        assertEquals(limiter.getDestinationCount(), 3);
+    }
+
+    private static void acquire(DestinationLimit limit, int count)
+    {
+        for (int i = 0; i < count; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+    }
+
+    private static void releaseAll(DestinationLimit limit, int count, long latencyNanos)
+    {
+        for (int i = 0; i < count; i++) {
+            limit.release(latencyNanos, false);
+        }
+    }
+}
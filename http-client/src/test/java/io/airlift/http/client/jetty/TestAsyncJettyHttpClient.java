@@ -2,14 +2,44 @@ package io.airlift.http.client.jetty;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
 import io.airlift.http.client.AbstractHttpClientTest;
+import io.airlift.http.client.DestinationOverloadedException;
+import io.airlift.http.client.HeaderName;
+import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.Request;
 import io.airlift.http.client.ResponseHandler;
+import io.airlift.http.client.StatusResponseHandler.StatusResponse;
+import io.airlift.http.client.StreamingResponseHandler;
 import io.airlift.http.client.TestingRequestFilter;
 import io.airlift.http.client.TestingStatusListener;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static io.airlift.http.client.JsonStreamingResponseHandler.createJsonArrayStreamingResponseHandler;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.json.JsonCodec.listJsonCodec;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
 
 public class TestAsyncJettyHttpClient
         extends AbstractHttpClientTest
@@ -52,4 +82,197 @@ public class TestAsyncJettyHttpClient
             return executeAsync(client, request, responseHandler);
         }
     }
+
+    @Test
+    public void testStreamingResponseBody()
+            throws Exception
+    {
+        String body = "x".repeat(1_000_000);
+        servlet.setResponseBody(body);
+        servlet.addResponseHeader("foo", "bar");
+
+        Request request = prepareGet()
+                .setUri(baseURI)
+                .build();
+
+        StreamedResponse response = httpClient.executeStreaming(request, new CollectingStreamingResponseHandler(null)).get(10, TimeUnit.SECONDS);
+        assertEquals(response.statusCode(), 200);
+        assertEquals(response.headers().get(HeaderName.of("foo")), ImmutableList.of("bar"));
+        assertEquals(response.body(), body);
+        assertThat(response.chunks()).isGreaterThan(1);
+        assertThat(httpClient.getStats().getReadBytes().getAllTime().getMax()).isGreaterThanOrEqualTo(body.length());
+    }
+
+    @Test
+    public void testStreamingResponseBodyReleasedAsynchronously()
+            throws Exception
+    {
+        String body = "y".repeat(1_000_000);
+        servlet.setResponseBody(body);
+
+        Request request = prepareGet()
+                .setUri(baseURI)
+                .build();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            StreamedResponse response = httpClient.executeStreaming(request, new CollectingStreamingResponseHandler(executor)).get(10, TimeUnit.SECONDS);
+            assertEquals(response.body(), body);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStreamingJsonArrayResponse()
+            throws Exception
+    {
+        List<String> values = Collections.nCopies(50_000, "element");
+        servlet.setResponseBody(listJsonCodec(String.class).toJson(values));
+        servlet.addResponseHeader(CONTENT_TYPE, "application/json");
+
+        Request request = prepareGet()
+                .setUri(baseURI)
+                .build();
+
+        AtomicLong elements = new AtomicLong();
+        long count = httpClient.executeStreaming(request, createJsonArrayStreamingResponseHandler(jsonCodec(String.class), value -> {
+            assertEquals(value, "element");
+            elements.incrementAndGet();
+        })).get(10, TimeUnit.SECONDS);
+        assertEquals(count, values.size());
+        assertEquals(elements.get(), values.size());
+    }
+
+    @Test
+    public void testAdaptiveConcurrencyLimit()
+            throws Exception
+    {
+        HttpClientConfig config = createClientConfig()
+                .setAdaptiveConcurrencyLimitEnabled(true)
+                .setAdaptiveConcurrencyInitialLimit(1)
+                .setAdaptiveConcurrencyMaxLimit(1);
+
+        try (JettyHttpClient client = new JettyHttpClient("test-limited", config)) {
+            Request slowRequest = prepareGet()
+                    .setUri(baseURI.resolve("/?sleep=500"))
+                    .build();
+            HttpResponseFuture<StatusResponse> slow = client.executeAsync(slowRequest, createStatusResponseHandler());
+            assertThat(client.hasCapacity(baseURI)).isFalse();
+
+            Request request = prepareGet()
+                    .setUri(baseURI)
+                    .build();
+            assertThatThrownBy(() -> client.executeAsync(request, createStatusResponseHandler()).get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause()
+                    .isInstanceOf(DestinationOverloadedException.class)
+                    .hasMessageContaining(baseURI.toString());
+            assertEquals(client.getConcurrencyLimitRejections().getTotalCount(), 1);
+
+            assertEquals(slow.get(10, TimeUnit.SECONDS).getStatusCode(), 200);
+            assertThat(client.hasCapacity(baseURI)).isTrue();
+            assertEquals(client.executeAsync(request, createStatusResponseHandler()).get(10, TimeUnit.SECONDS).getStatusCode(), 200);
+        }
+    }
+
+    @Test
+    public void testStreamingHandlerFailure()
+    {
+        Request request = prepareGet()
+                .setUri(baseURI)
+                .build();
+
+        StreamingResponseHandler<Void, RuntimeException> handler = new StreamingResponseHandler<>()
+        {
+            @Override
+            public Void handleException(Request request, Exception exception)
+            {
+                throw new IllegalStateException("handled", exception);
+            }
+
+            @Override
+            public ContentConsumer<Void, RuntimeException> handleHeaders(Request request, int statusCode, ListMultimap<HeaderName, String> headers)
+            {
+                throw new UnsupportedOperationException("headers");
+            }
+        };
+
+        assertThatThrownBy(() -> httpClient.executeStreaming(request, handler).get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .hasMessage("handled")
+                .cause()
+                .hasMessage("headers");
+    }
+
+    @Test
+    public void testStreamingConnectionRefused()
+            throws Exception
+    {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Request request = prepareGet()
+                .setUri(new URI(baseURI.getScheme(), null, "127.0.0.1", port, null, null, null))
+                .build();
+
+        StreamedResponse response = httpClient.executeStreaming(request, new CollectingStreamingResponseHandler(null)).get(10, TimeUnit.SECONDS);
+        assertEquals(response.statusCode(), -1);
+    }
+
+    private record StreamedResponse(int statusCode, ListMultimap<HeaderName, String> headers, String body, int chunks) {}
+
+    private static class CollectingStreamingResponseHandler
+            implements StreamingResponseHandler<StreamedResponse, RuntimeException>
+    {
+        // when set, chunks are released from this executor rather than from the callback
+        private final ExecutorService releaseExecutor;
+
+        public CollectingStreamingResponseHandler(ExecutorService releaseExecutor)
+        {
+            this.releaseExecutor = releaseExecutor;
+        }
+
+        @Override
+        public StreamedResponse handleException(Request request, Exception exception)
+        {
+            return new StreamedResponse(-1, null, null, 0);
+        }
+
+        @Override
+        public ContentConsumer<StreamedResponse, RuntimeException> handleHeaders(Request request, int statusCode, ListMultimap<HeaderName, String> headers)
+        {
+            return new ContentConsumer<>()
+            {
+                private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                private int chunks;
+
+                @Override
+                public void onContent(ByteBuffer content, Runnable release)
+                {
+                    byte[] bytes = new byte[content.remaining()];
+                    content.get(bytes);
+                    synchronized (this) {
+                        body.writeBytes(bytes);
+                        chunks++;
+                    }
+                    if (releaseExecutor == null) {
+                        release.run();
+                    }
+                    else {
+                        releaseExecutor.execute(release);
+                    }
+                }
+
+                @Override
+                public synchronized StreamedResponse onComplete()
+                {
+                    return new StreamedResponse(statusCode, headers, body.toString(UTF_8), chunks);
+                }
+            };
+        }
+    }
 }
@@ -1,6 +1,21 @@
 package io.airlift.http.client.jetty;
 
 import io.airlift.http.client.HttpClientConfig;
+import io.airlift.http.client.HttpClient.HttpResponseFuture;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.StatusResponseHandler.StatusResponse;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.assertEquals;
 
 public class TestAsyncJettyHttpClientHttp2
         extends TestAsyncJettyHttpClient
@@ -11,4 +26,48 @@ public class TestAsyncJettyHttpClientHttp2
         return super.createClientConfig()
                 .setHttp2Enabled(true);
     }
+
+    @Test
+    public void testConcurrentRequestsAreMultiplexed()
+            throws Exception
+    {
+        HttpClientConfig config = createClientConfig()
+                .setHttp2MaxConcurrentStreams(8);
+
+        try (JettyHttpClient client = new JettyHttpClient("test-multiplexed", config)) {
+            Request request = prepareGet()
+                    .setUri(baseURI.resolve("/?sleep=200"))
+                    .build();
+            List<HttpResponseFuture<StatusResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(client.executeAsync(request, createStatusResponseHandler()));
+            }
+            for (HttpResponseFuture<StatusResponse> future : futures) {
+                assertEquals(future.get(10, TimeUnit.SECONDS).getStatusCode(), 200);
+            }
+
+            // 16 concurrent requests at 8 streams per connection need 2 connections, not 16, although
+            // the pool may open one or two more while the first connections are being established
+            assertThat(client.getConnectionStats().getTotalConnectionCount()).isBetween(2L, 4L);
+        }
+    }
+
+    @Test
+    public void testPingKeepsLiveConnection()
+            throws Exception
+    {
+        HttpClientConfig config = createClientConfig()
+                .setHttp2PingInterval(new Duration(100, MILLISECONDS));
+
+        try (JettyHttpClient client = new JettyHttpClient("test-ping", config)) {
+            Request request = prepareGet()
+                    .setUri(baseURI.resolve("/?sleep=1000"))
+                    .build();
+            assertEquals(client.executeAsync(request, createStatusResponseHandler()).get(10, TimeUnit.SECONDS).getStatusCode(), 200);
+
+            // the server is silent while it sleeps, so the connection is pinged, and the server answers
+            assertThat(client.getHttp2PingsSent().getTotalCount()).isGreaterThan(0);
+            assertEquals(client.getHttp2PingTimeouts().getTotalCount(), 0);
+        }
+    }
 }
@@ -1,15 +1,24 @@
 package io.airlift.http.client.testing;
 
+import com.google.common.collect.ListMultimap;
+import com.google.common.net.MediaType;
 import io.airlift.http.client.AbstractHttpClientTest.CaptureExceptionResponseHandler;
 import io.airlift.http.client.AbstractHttpClientTest.CapturedException;
+import io.airlift.http.client.HeaderName;
 import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.Request;
+import io.airlift.http.client.StreamingResponseHandler;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutionException;
 
+import static io.airlift.http.client.HttpStatus.OK;
 import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.testing.TestingResponse.mockResponse;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static io.airlift.testing.Assertions.assertInstanceOf;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
@@ -40,4 +49,48 @@ public class TestTestingHttpClient
             assertEquals(cause.getCause(), expectedException);
         }
     }
+
+    @Test
+    public void testStreamingThroughInputStream()
+            throws Exception
+    {
+        Request request = prepareGet()
+                .setUri(URI.create("http://example.org"))
+                .build();
+
+        String body = "z".repeat(100_000);
+        HttpResponseFuture<String> future = new TestingHttpClient(input -> mockResponse(OK, MediaType.PLAIN_TEXT_UTF_8, body))
+                .executeStreaming(request, new StreamingResponseHandler<String, RuntimeException>()
+                {
+                    @Override
+                    public String handleException(Request request, Exception exception)
+                    {
+                        throw new RuntimeException(exception);
+                    }
+
+                    @Override
+                    public ContentConsumer<String, RuntimeException> handleHeaders(Request request, int statusCode, ListMultimap<HeaderName, String> headers)
+                    {
+                        assertEquals(statusCode, 200);
+                        ByteArrayOutputStream output = new ByteArrayOutputStream();
+                        return new ContentConsumer<>()
+                        {
+                            @Override
+                            public void onContent(ByteBuffer content, Runnable release)
+                            {
+                                output.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+                                release.run();
+                            }
+
+                            @Override
+                            public String onComplete()
+                            {
+                                return output.toString(UTF_8);
+                            }
+                        };
+                    }
+                });
+
+        assertEquals(future.get(), body);
+    }
 }
@@ -0,0 +1,152 @@
+package io.airlift.http.server;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.NanoTime;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Rejects requests with {@code 503 Service Unavailable} and a {@code Retry-After} header when the
+ * server is overloaded, so that excess work fails fast instead of making every request slow.
+ * <p>
+ * The time between the start of a request and the moment it is handled is the time it waited
+ * for a worker thread. Following CoDel, the queue is considered standing, rather than absorbing
+ * a burst, when every request has waited longer than the target queue time for a whole interval,
+ * counted from the first request that did.
+ * Requests that waited longer than the interval are shed, and while the queue is standing, so
+ * are requests that waited longer than the target. Requests are also shed when the number of
+ * requests in flight reaches the configured maximum.
+ * <p>
+ * Requests on the admin connector are never shed.
+ */
+public class AdmissionControlHandler
+        extends Handler.Wrapper
+{
+    private static final String ADMIN_CONNECTOR = "admin";
+    private static final long NOT_ABOVE_TARGET = Long.MIN_VALUE;
+
+    private final long targetQueueTimeNanos;
+    private final long intervalNanos;
+    private final int maxConcurrentRequests;
+    private final String retryAfterSeconds;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    // when the queue time went above the target, or NOT_ABOVE_TARGET if the last request waited less
+    private volatile long firstAboveTargetNanos = NOT_ABOVE_TARGET;
+
+    private final TimeStat queueTime = new TimeStat();
+    private final CounterStat queueTimeShed = new CounterStat();
+    private final CounterStat concurrencyShed = new CounterStat();
+
+    public AdmissionControlHandler(Duration targetQueueTime, Duration interval, int maxConcurrentRequests, Duration retryAfter)
+    {
+        requireNonNull(targetQueueTime, "targetQueueTime is null");
+        requireNonNull(interval, "interval is null");
+        requireNonNull(retryAfter, "retryAfter is null");
+        checkArgument(maxConcurrentRequests > 0, "maxConcurrentRequests must be positive");
+        checkArgument(targetQueueTime.compareTo(interval) <= 0, "targetQueueTime must not be greater than interval");
+
+        this.targetQueueTimeNanos = targetQueueTime.roundTo(NANOSECONDS);
+        this.intervalNanos = interval.roundTo(NANOSECONDS);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, (long) Math.ceil(retryAfter.getValue(SECONDS))));
+    }
+
+    @Override
+    public boolean handle(Request request, Response response, Callback callback)
+            throws Exception
+    {
+        if (ADMIN_CONNECTOR.equals(request.getConnectionMetaData().getConnector().getName())) {
+            return super.handle(request, response, callback);
+        }
+
+        long now = NanoTime.now();
+        long waitNanos = NanoTime.elapsed(request.getBeginNanoTime(), now);
+        queueTime.addNanos(waitNanos);
+        if (shouldShed(waitNanos, now)) {
+            queueTimeShed.update(1);
+            reject(response, callback);
+            return true;
+        }
+
+        if (inFlightRequests.incrementAndGet() > maxConcurrentRequests) {
+            inFlightRequests.decrementAndGet();
+            concurrencyShed.update(1);
+            reject(response, callback);
+            return true;
+        }
+        Request.addCompletionListener(request, failure -> inFlightRequests.decrementAndGet());
+
+        return super.handle(request, response, callback);
+    }
+
+    @VisibleForTesting
+    boolean shouldShed(long waitNanos, long now)
+    {
+        long firstAboveTarget = firstAboveTargetNanos;
+        if (waitNanos < targetQueueTimeNanos) {
+            // read before writing, so that the shared field is not written on every request while the queue is short
+            if (firstAboveTarget != NOT_ABOVE_TARGET) {
+                firstAboveTargetNanos = NOT_ABOVE_TARGET;
+            }
+            return false;
+        }
+        if (firstAboveTarget == NOT_ABOVE_TARGET) {
+            firstAboveTargetNanos = now;
+            firstAboveTarget = now;
+        }
+        boolean standingQueue = now - firstAboveTarget > intervalNanos;
+        return waitNanos > (standingQueue ? targetQueueTimeNanos : intervalNanos);
+    }
+
+    private void reject(Response response, Callback callback)
+    {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE_503);
+        response.getHeaders().put(HttpHeader.RETRY_AFTER, retryAfterSeconds);
+        response.write(true, BufferUtil.EMPTY_BUFFER, callback);
+    }
+
+    @Managed
+    public int getInFlightRequests()
+    {
+        return inFlightRequests.get();
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getQueueTime()
+    {
+        return queueTime;
+    }
+
+    @Managed(description = "requests rejected because they waited too long for a worker thread")
+    @Nested
+    public CounterStat getQueueTimeShed()
+    {
+        return queueTimeShed;
+    }
+
+    @Managed(description = "requests rejected because too many requests were in flight")
+    @Nested
+    public CounterStat getConcurrencyShed()
+    {
+        return concurrencyShed;
+    }
+}
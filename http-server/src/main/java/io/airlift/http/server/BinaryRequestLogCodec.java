@@ -0,0 +1,242 @@
+package io.airlift.http.server;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.DoubleSummaryStatistics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Fixed-layout binary encoding of the fields of {@link HttpRequestEvent} that are written to the
+ * delimited request log. A log file starts with {@link #MAGIC} and {@link #VERSION}, followed by
+ * records laid out as:
+ * <pre>
+ * int     length of the rest of the record
+ * long    timestamp (epoch millis)
+ * int     response code
+ * long    request size
+ * long    response size
+ * long    time to last byte
+ * long    begin to dispatch millis
+ * long    begin to end millis
+ * long    first to last content millis
+ * byte    1 if response content interarrival stats follow
+ *   double  min
+ *   double  average
+ *   double  max
+ *   long    count
+ * string  client address, method, request uri, user, agent, trace token, protocol version
+ * </pre>
+ * Strings are a signed short byte length ({@code -1} for null) followed by UTF-8 bytes, and are
+ * truncated so that every record fits in {@link #MAX_RECORD_SIZE} bytes.
+ */
+final class BinaryRequestLogCodec
+{
+    static final int MAGIC = 0x41524C47; // "ARLG"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = Integer.BYTES + Short.BYTES;
+    static final int MAX_RECORD_SIZE = 2048;
+
+    private static final int MAX_REQUEST_URI_BYTES = 1024;
+    private static final int MAX_AGENT_BYTES = 256;
+    private static final int MAX_FIELD_BYTES = 128;
+
+    private BinaryRequestLogCodec() {}
+
+    static void writeHeader(ByteBuffer buffer)
+    {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+    }
+
+    /**
+     * Returns whether the buffer starts with the magic of a binary request log, of any version.
+     */
+    static boolean isBinaryLog(ByteBuffer buffer)
+    {
+        return buffer.remaining() >= Integer.BYTES && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    static void readHeader(ByteBuffer buffer)
+    {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a binary request log");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary request log version: " + version);
+        }
+    }
+
+    /**
+     * Encodes the event at the position of the buffer, which must have room for
+     * {@link #MAX_RECORD_SIZE} bytes. Does not allocate.
+     */
+    static void encode(HttpRequestEvent event, ByteBuffer buffer)
+    {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.putLong(event.getTimeStamp().toEpochMilli());
+        buffer.putInt(event.getResponseCode());
+        buffer.putLong(event.getRequestSize());
+        buffer.putLong(event.getResponseSize());
+        buffer.putLong(event.getTimeToLastByte());
+        buffer.putLong(event.getBeginToDispatchMillis());
+        buffer.putLong(event.getBeginToEndMillis());
+        buffer.putLong(event.getFirstToLastContentTimeInMillis());
+
+        DoubleSummaryStats stats = event.getResponseContentInterarrivalStats();
+        if (stats == null) {
+            buffer.put((byte) 0);
+        }
+        else {
+            buffer.put((byte) 1);
+            buffer.putDouble(stats.getMin());
+            buffer.putDouble(stats.getAverage());
+            buffer.putDouble(stats.getMax());
+            buffer.putLong(stats.getCount());
+        }
+
+        putString(buffer, event.getClientAddress(), MAX_FIELD_BYTES);
+        putString(buffer, event.getMethod(), MAX_FIELD_BYTES);
+        putString(buffer, event.getRequestUri(), MAX_REQUEST_URI_BYTES);
+        putString(buffer, event.getUser(), MAX_FIELD_BYTES);
+        putString(buffer, event.getAgent(), MAX_AGENT_BYTES);
+        putString(buffer, event.getTraceToken(), MAX_FIELD_BYTES);
+        putString(buffer, event.getProtocolVersion(), MAX_FIELD_BYTES);
+
+        buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+    }
+
+    /**
+     * Decodes the record at the position of the buffer. Fields that are not part of the
+     * binary format are left null or zero.
+     *
+     * @throws BufferUnderflowException if the buffer does not contain a complete record
+     */
+    static HttpRequestEvent decode(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        Instant timestamp = Instant.ofEpochMilli(buffer.getLong());
+        int responseCode = buffer.getInt();
+        long requestSize = buffer.getLong();
+        long responseSize = buffer.getLong();
+        long timeToLastByte = buffer.getLong();
+        long beginToDispatchMillis = buffer.getLong();
+        long beginToEndMillis = buffer.getLong();
+        long firstToLastContentTimeInMillis = buffer.getLong();
+
+        DoubleSummaryStats stats = null;
+        if (buffer.get() != 0) {
+            double min = buffer.getDouble();
+            double average = buffer.getDouble();
+            double max = buffer.getDouble();
+            long count = buffer.getLong();
+            stats = new DoubleSummaryStats(new DoubleSummaryStatistics(count, min, max, average * count));
+        }
+
+        String clientAddress = getString(buffer);
+        String method = getString(buffer);
+        String requestUri = getString(buffer);
+        String user = getString(buffer);
+        String agent = getString(buffer);
+        String traceToken = getString(buffer);
+        String protocolVersion = getString(buffer);
+
+        return new HttpRequestEvent(
+                timestamp,
+                traceToken,
+                clientAddress,
+                null,
+                method,
+                requestUri,
+                user,
+                agent,
+                null,
+                requestSize,
+                null,
+                responseSize,
+                responseCode,
+                null,
+                beginToDispatchMillis,
+                null,
+                timeToLastByte,
+                beginToDispatchMillis,
+                beginToEndMillis,
+                firstToLastContentTimeInMillis,
+                stats,
+                protocolVersion);
+    }
+
+    private static void putString(ByteBuffer buffer, String value, int maxBytes)
+    {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+
+        int lengthPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int start = buffer.position();
+        int limit = start + maxBytes;
+        // encode by hand, since String.getBytes allocates
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (buffer.position() + 1 > limit) {
+                    break;
+                }
+                buffer.put((byte) c);
+            }
+            else if (c < 0x800) {
+                if (buffer.position() + 2 > limit) {
+                    break;
+                }
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                if (buffer.position() + 4 > limit) {
+                    break;
+                }
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+            else if (Character.isSurrogate(c)) {
+                // unpaired surrogate
+                if (buffer.position() + 1 > limit) {
+                    break;
+                }
+                buffer.put((byte) '?');
+            }
+            else {
+                if (buffer.position() + 3 > limit) {
+                    break;
+                }
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.putShort(lengthPosition, (short) (buffer.position() - start));
+    }
+
+    private static String getString(ByteBuffer buffer)
+    {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,93 @@
+package io.airlift.http.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads request logs written with {@code http-server.log.format=BINARY}, and converts them to
+ * the tab-delimited format of the text request log.
+ * <p>
+ * Usage: {@code java -cp <classpath> io.airlift.http.server.BinaryRequestLogReader <file>...}
+ */
+public final class BinaryRequestLogReader
+{
+    private BinaryRequestLogReader() {}
+
+    public static void main(String[] args)
+            throws IOException
+    {
+        if (args.length == 0) {
+            System.err.println("Usage: BinaryRequestLogReader <file>...");
+            System.exit(1);
+        }
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8));
+        for (String file : args) {
+            convertToText(Path.of(file), out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes each record of the binary log as a line of the text request log.
+     */
+    public static void convertToText(Path file, Writer out)
+            throws IOException
+    {
+        HttpLogLayout layout = new HttpLogLayout();
+        ByteBuffer buffer = map(file);
+        BinaryRequestLogCodec.readHeader(buffer);
+        HttpRequestEvent event;
+        while ((event = readEvent(buffer)) != null) {
+            out.write(layout.doLayout(event));
+        }
+    }
+
+    /**
+     * Passes each record of the binary log to the consumer. Fields of {@link HttpRequestEvent}
+     * that are not written to the request log are null or zero.
+     */
+    public static void readEvents(Path file, Consumer<HttpRequestEvent> consumer)
+            throws IOException
+    {
+        ByteBuffer buffer = map(file);
+        BinaryRequestLogCodec.readHeader(buffer);
+        HttpRequestEvent event;
+        while ((event = readEvent(buffer)) != null) {
+            consumer.accept(event);
+        }
+    }
+
+    private static HttpRequestEvent readEvent(ByteBuffer buffer)
+    {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        try {
+            return BinaryRequestLogCodec.decode(buffer);
+        }
+        catch (BufferUnderflowException e) {
+            // the last record is incomplete if the server stopped while writing it
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(Path file)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            return channel.map(READ_ONLY, 0, channel.size());
+        }
+    }
+}
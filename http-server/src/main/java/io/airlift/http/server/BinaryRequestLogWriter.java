@@ -0,0 +1,337 @@
+package io.airlift.http.server;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.log.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.math.IntMath.ceilingPowerOfTwo;
+import static io.airlift.http.server.BinaryRequestLogCodec.HEADER_SIZE;
+import static io.airlift.http.server.BinaryRequestLogCodec.MAX_RECORD_SIZE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Writes request log records in the {@link BinaryRequestLogCodec} format.
+ * <p>
+ * Request threads encode records into slots of a ring that is allocated up front, so that
+ * appending does not allocate or take a lock. A single writer thread copies published slots to
+ * the log file, and rolls the file when it reaches the maximum size or the day changes. Records
+ * are dropped, and counted, when the writer falls behind and the ring is full.
+ * <p>
+ * When writing or rolling the file fails, the records that were being written are dropped, and
+ * the writer retries after a delay, rolling whatever was written to the file before the failure.
+ * Records appended meanwhile wait in the ring.
+ */
+class BinaryRequestLogWriter
+{
+    private static final Logger log = Logger.get(BinaryRequestLogWriter.class);
+    static final String ROLLED_FILE_EXTENSION = ".bin";
+    // extension of the rolled text request log, used for a left over file that is not in the binary format
+    static final String ROLLED_TEXT_FILE_EXTENSION = ".log";
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+    private static final long IDLE_PARK_NANOS = MILLISECONDS.toNanos(10);
+    private static final long RETRY_DELAY_NANOS = SECONDS.toNanos(1);
+
+    private final Path file;
+    private final int maxHistory;
+    private final long maxFileSizeInBytes;
+
+    private final int mask;
+    private final ByteBuffer[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // only updated by the writer thread
+    private volatile long head;
+    private final ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+    private int outputRecords;
+    // null after a failure, until the file is opened again
+    private FileChannel channel;
+    private boolean failed;
+    private long fileSize;
+    private LocalDate fileDate;
+
+    public BinaryRequestLogWriter(String filename, int maxHistory, int queueSize, long maxFileSizeInBytes)
+    {
+        checkArgument(queueSize > 0, "queueSize must be positive");
+        this.file = Path.of(filename);
+        this.maxHistory = maxHistory;
+        this.maxFileSizeInBytes = maxFileSizeInBytes;
+
+        int capacity = ceilingPowerOfTwo(queueSize);
+        this.mask = capacity - 1;
+        // one backing array, so that the ring is a single allocation
+        ByteBuffer backing = ByteBuffer.allocate(capacity * MAX_RECORD_SIZE);
+        this.slots = new ByteBuffer[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = backing.slice(i * MAX_RECORD_SIZE, MAX_RECORD_SIZE);
+            sequences.set(i, i);
+        }
+
+        try {
+            // a file left over from a previous run is rolled, so that each file has a single header, and a text log keeps a text log name
+            rollAndOpenFile();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to open request log " + file, e);
+        }
+
+        writerThread = new Thread(this::run, "http-request-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Appends the event to the log. Does not block.
+     *
+     * @return {@code false} if the record was dropped because the log is falling behind
+     */
+    public boolean append(HttpRequestEvent event)
+    {
+        long position;
+        while (true) {
+            position = tail.get();
+            long sequence = sequences.get((int) (position & mask));
+            if (sequence < position || !running) {
+                droppedRecords.incrementAndGet();
+                return false;
+            }
+            if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+        }
+
+        int index = (int) (position & mask);
+        ByteBuffer slot = slots[index];
+        slot.clear();
+        BinaryRequestLogCodec.encode(event, slot);
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    public int getQueueSize()
+    {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public long getDroppedRecords()
+    {
+        return droppedRecords.get();
+    }
+
+    public void stop()
+    {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(SECONDS.toMillis(10));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run()
+    {
+        try {
+            while (true) {
+                boolean stopping = !running;
+                try {
+                    int drained = drain();
+                    if (drained == 0) {
+                        writeOutput();
+                        if (stopping) {
+                            break;
+                        }
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                }
+                catch (IOException e) {
+                    handleWriteFailure(e);
+                    if (stopping) {
+                        break;
+                    }
+                    LockSupport.parkNanos(RETRY_DELAY_NANOS);
+                }
+            }
+        }
+        finally {
+            closeChannel();
+        }
+    }
+
+    private void handleWriteFailure(IOException e)
+    {
+        // only the first failure is logged, since the writer retries until it recovers
+        if (!failed) {
+            log.error(e, "Failed to write request log %s, retrying", file);
+            failed = true;
+        }
+        droppedRecords.addAndGet(outputRecords);
+        output.clear();
+        outputRecords = 0;
+        closeChannel();
+    }
+
+    private void closeChannel()
+    {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to close request log %s", file);
+        }
+        channel = null;
+    }
+
+    private int drain()
+            throws IOException
+    {
+        int drained = 0;
+        // bounded so that idle checks (and rolling) still happen under a steady stream of records
+        for (int i = 0; i <= mask; i++) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+
+            ByteBuffer slot = slots[index];
+            int length = Integer.BYTES + slot.getInt(0);
+            if (output.remaining() < length) {
+                writeOutput();
+            }
+            output.put(output.position(), slot, 0, length);
+            output.position(output.position() + length);
+            outputRecords++;
+
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    private void writeOutput()
+            throws IOException
+    {
+        if (output.position() == 0) {
+            return;
+        }
+        if (channel == null) {
+            // the file may end with a partial record written before the failure
+            rollAndOpenFile();
+        }
+        else if ((fileSize > HEADER_SIZE && fileSize + output.position() > maxFileSizeInBytes) || !LocalDate.now().equals(fileDate)) {
+            closeChannel();
+            roll(fileDate, ROLLED_FILE_EXTENSION);
+            openFile();
+        }
+        output.flip();
+        while (output.hasRemaining()) {
+            fileSize += channel.write(output);
+        }
+        output.clear();
+        outputRecords = 0;
+
+        if (failed) {
+            log.info("Resumed writing request log %s", file);
+            failed = false;
+        }
+    }
+
+    private void rollAndOpenFile()
+            throws IOException
+    {
+        if (Files.exists(file) && Files.size(file) > 0) {
+            // the file was last written by a previous run, or before a failure, so its date is when it was last modified
+            LocalDate date = LocalDate.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+            roll(date, isBinaryLog(file) ? ROLLED_FILE_EXTENSION : ROLLED_TEXT_FILE_EXTENSION);
+        }
+        openFile();
+    }
+
+    private static boolean isBinaryLog(Path file)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            return BinaryRequestLogCodec.isBinaryLog(header);
+        }
+    }
+
+    private void openFile()
+            throws IOException
+    {
+        channel = FileChannel.open(file, CREATE, WRITE, APPEND);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        BinaryRequestLogCodec.writeHeader(header);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileSize = HEADER_SIZE;
+        fileDate = LocalDate.now();
+    }
+
+    private void roll(LocalDate date, String extension)
+            throws IOException
+    {
+        Path rolled;
+        int index = 0;
+        do {
+            rolled = file.resolveSibling("%s-%s.%s%s".formatted(file.getFileName(), date, index, extension));
+            index++;
+        }
+        while (Files.exists(rolled));
+        if (Files.exists(file)) {
+            Files.move(file, rolled, ATOMIC_MOVE);
+        }
+        deleteExpiredFiles();
+    }
+
+    @VisibleForTesting
+    void deleteExpiredFiles()
+    {
+        String prefix = file.getFileName() + "-";
+        File[] rolledFiles = file.toAbsolutePath().getParent().toFile()
+                .listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(ROLLED_FILE_EXTENSION));
+        if (rolledFiles == null || rolledFiles.length <= maxHistory) {
+            return;
+        }
+        Arrays.sort(rolledFiles, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = maxHistory; i < rolledFiles.length; i++) {
+            if (!rolledFiles[i].delete()) {
+                log.warn("Could not delete expired request log %s", rolledFiles[i]);
+            }
+        }
+    }
+}
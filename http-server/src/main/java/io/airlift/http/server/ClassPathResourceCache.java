@@ -0,0 +1,329 @@
+package io.airlift.http.server;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import io.airlift.stats.CounterStat;
+import io.airlift.units.DataSize;
+import jakarta.annotation.Nullable;
+import org.eclipse.jetty.http.DateGenerator;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the static resources served by {@link ClassPathResourceFilter} in memory, so that they
+ * are read from the classpath and compressed once rather than on every request.
+ * <p>
+ * Classpath resources do not change while the server is running, so entries are never evicted.
+ * Resources that would grow the cache beyond its maximum size are remembered as uncacheable, and
+ * are streamed from the classpath without being read into memory.
+ */
+public class ClassPathResourceCache
+{
+    // the compressed variant is only kept when it saves at least this fraction of the original size
+    private static final double MIN_COMPRESSION_SAVINGS = 0.1;
+
+    private final long maxSizeInBytes;
+    private final boolean offHeap;
+    private final ConcurrentMap<String, CachedResource> resources = new ConcurrentHashMap<>();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final Set<String> uncacheable = ConcurrentHashMap.newKeySet();
+
+    private final CounterStat hits = new CounterStat();
+    private final CounterStat misses = new CounterStat();
+    private final CounterStat uncached = new CounterStat();
+    private final CounterStat notModified = new CounterStat();
+    private final CounterStat partialContent = new CounterStat();
+
+    public ClassPathResourceCache(DataSize maxSize, boolean offHeap)
+    {
+        this.maxSizeInBytes = requireNonNull(maxSize, "maxSize is null").toBytes();
+        this.offHeap = offHeap;
+    }
+
+    @Nullable
+    CachedResource get(String name)
+    {
+        CachedResource resource = resources.get(name);
+        if (resource != null) {
+            hits.update(1);
+        }
+        return resource;
+    }
+
+    /**
+     * Reads the resource from the classpath and caches it if there is room. The returned resource
+     * is usable whether or not it was cached.
+     *
+     * @return null if the resource is too large to be cached, and should be streamed from the classpath
+     */
+    @Nullable
+    CachedResource load(String name, URL url, String contentType)
+            throws IOException
+    {
+        if (uncacheable.contains(name)) {
+            uncached.update(1);
+            return null;
+        }
+
+        CachedResource resource = readResource(url, contentType, offHeap, maxSizeInBytes - cachedBytes.get());
+        if (resource == null) {
+            uncacheable.add(name);
+            uncached.update(1);
+            return null;
+        }
+        misses.update(1);
+
+        long size = resource.getRetainedSize();
+        if (cachedBytes.addAndGet(size) > maxSizeInBytes) {
+            cachedBytes.addAndGet(-size);
+            // the resource was already read, so serve it this time
+            uncacheable.add(name);
+            return resource;
+        }
+
+        CachedResource existing = resources.putIfAbsent(name, resource);
+        if (existing != null) {
+            // another request loaded the same resource concurrently
+            cachedBytes.addAndGet(-size);
+            return existing;
+        }
+        return resource;
+    }
+
+    void recordNotModified()
+    {
+        notModified.update(1);
+    }
+
+    void recordPartialContent()
+    {
+        partialContent.update(1);
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHits()
+    {
+        return hits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getMisses()
+    {
+        return misses;
+    }
+
+    @Managed(description = "responses streamed from the classpath because the resource is too large to cache")
+    @Nested
+    public CounterStat getUncached()
+    {
+        return uncached;
+    }
+
+    @Managed(description = "responses served as 304 Not Modified")
+    @Nested
+    public CounterStat getNotModified()
+    {
+        return notModified;
+    }
+
+    @Managed(description = "responses served as 206 Partial Content")
+    @Nested
+    public CounterStat getPartialContent()
+    {
+        return partialContent;
+    }
+
+    @Managed
+    public double getHitRatio()
+    {
+        long hitCount = hits.getTotalCount();
+        long total = hitCount + misses.getTotalCount();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Managed(description = "total size of the cached resources, including compressed variants")
+    public long getCachedBytes()
+    {
+        return cachedBytes.get();
+    }
+
+    @Managed
+    public int getCachedResources()
+    {
+        return resources.size();
+    }
+
+    @Managed
+    public long getMaxSizeInBytes()
+    {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * @return null if the content of the resource is larger than the maximum length
+     */
+    @Nullable
+    @VisibleForTesting
+    static CachedResource readResource(URL url, String contentType, boolean offHeap, long maxLength)
+            throws IOException
+    {
+        URLConnection connection = url.openConnection();
+        byte[] content;
+        try (InputStream in = connection.getInputStream()) {
+            // the length is usually known for classpath resources, so large ones are not read at all
+            if (connection.getContentLengthLong() > maxLength) {
+                return null;
+            }
+            content = in.readAllBytes();
+        }
+        if (content.length > maxLength) {
+            return null;
+        }
+
+        long lastModified = connection.getLastModified();
+        if (lastModified <= 0) {
+            // resources without a timestamp are considered to have been modified when the server loaded them
+            lastModified = System.currentTimeMillis();
+        }
+
+        byte[] gzipped = gzip(content);
+        if (gzipped.length > content.length * (1 - MIN_COMPRESSION_SAVINGS)) {
+            gzipped = null;
+        }
+
+        return new CachedResource(
+                contentType,
+                toBuffer(content, offHeap),
+                gzipped == null ? null : toBuffer(gzipped, offHeap),
+                Hashing.murmur3_128().hashBytes(content).toString(),
+                lastModified);
+    }
+
+    private static byte[] gzip(byte[] content)
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        // compression happens once per resource, so spend the CPU on the smallest output
+        try (OutputStream gzip = new GZIPOutputStream(out)
+        {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static ByteBuffer toBuffer(byte[] bytes, boolean offHeap)
+    {
+        if (!offHeap) {
+            return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    static final class CachedResource
+    {
+        private final String contentType;
+        private final ByteBuffer content;
+        @Nullable
+        private final ByteBuffer gzipContent;
+        private final String etag;
+        private final String gzipEtag;
+        private final long lastModified;
+        private final String lastModifiedHeader;
+
+        private CachedResource(String contentType, ByteBuffer content, @Nullable ByteBuffer gzipContent, String hash, long lastModified)
+        {
+            this.contentType = contentType;
+            this.content = requireNonNull(content, "content is null");
+            this.gzipContent = gzipContent;
+            // each representation needs its own strong validator; the suffix deliberately differs from
+            // the one GzipHandler strips from conditional request headers
+            this.etag = '"' + hash + '"';
+            this.gzipEtag = '"' + hash + "-gz" + '"';
+            // HTTP dates have a resolution of one second
+            this.lastModified = lastModified - (lastModified % 1000);
+            this.lastModifiedHeader = DateGenerator.formatDate(this.lastModified);
+        }
+
+        @Nullable
+        public String getContentType()
+        {
+            return contentType;
+        }
+
+        public int getLength()
+        {
+            return content.remaining();
+        }
+
+        /**
+         * Returns a view of the uncompressed content that the caller may consume.
+         */
+        public ByteBuffer getContent()
+        {
+            return content.duplicate();
+        }
+
+        public boolean hasGzipContent()
+        {
+            return gzipContent != null;
+        }
+
+        /**
+         * Returns a view of the gzip compressed content that the caller may consume.
+         */
+        public ByteBuffer getGzipContent()
+        {
+            requireNonNull(gzipContent, "resource does not have gzip content");
+            return gzipContent.duplicate();
+        }
+
+        public String getEtag()
+        {
+            return etag;
+        }
+
+        public String getGzipEtag()
+        {
+            return gzipEtag;
+        }
+
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+        public String getLastModifiedHeader()
+        {
+            return lastModifiedHeader;
+        }
+
+        long getRetainedSize()
+        {
+            return content.capacity() + (gzipContent == null ? 0 : gzipContent.capacity());
+        }
+    }
+}
@@ -18,26 +18,39 @@ package io.airlift.http.server;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteStreams;
 import com.google.common.net.HttpHeaders;
+import io.airlift.http.server.ClassPathResourceCache.CachedResource;
 import jakarta.annotation.Nullable;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.ee10.servlet.HttpOutput;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.MimeTypes;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Serves files from a given folder on the classpath through jetty.
  * Intended to serve a couple of static files e.g. for javascript or HTML.
+ * <p>
+ * When a {@link ClassPathResourceCache} is provided, the files are served from memory with
+ * validators, so that clients can revalidate them with conditional requests and fetch parts
+ * of them with range requests.
  */
 // Forked from https://github.com/NessComputing/components-ness-httpserver/
 public class ClassPathResourceFilter
@@ -52,8 +65,14 @@ public class ClassPathResourceFilter
     private final String baseUri; // "" or "/foo"
     private final String classPathResourceBase;
     private final List<String> welcomeFiles;
+    private final Optional<ClassPathResourceCache> cache;
 
     public ClassPathResourceFilter(String baseUri, String classPathResourceBase, List<String> welcomeFiles)
+    {
+        this(baseUri, classPathResourceBase, welcomeFiles, Optional.empty());
+    }
+
+    public ClassPathResourceFilter(String baseUri, String classPathResourceBase, List<String> welcomeFiles, Optional<ClassPathResourceCache> cache)
     {
         requireNonNull(baseUri, "baseUri is null");
         requireNonNull(classPathResourceBase, "classPathResourceBase is null");
@@ -74,6 +93,7 @@ public class ClassPathResourceFilter
             files.add(welcomeFile);
         }
         this.welcomeFiles = files.build();
+        this.cache = requireNonNull(cache, "cache is null");
     }
 
     public String getBaseUri()
@@ -97,12 +117,46 @@ public class ClassPathResourceFilter
             return;
         }
 
+        if (cache.isPresent()) {
+            serveFromCache(cache.get(), resourcePath, request, response, chain);
+            return;
+        }
+
         URL resource = getResource(resourcePath);
         if (resource == null) {
             chain.doFilter(request, response);
             return;
         }
+        serveFromClassPath(resource, request, response);
+    }
+
+    private void serveFromCache(ClassPathResourceCache cache, String resourcePath, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException
+    {
+        for (String name : getResourceNames(resourcePath)) {
+            CachedResource cachedResource = cache.get(name);
+            if (cachedResource == null) {
+                URL url = getClass().getClassLoader().getResource(name);
+                if (url == null) {
+                    continue;
+                }
+                cachedResource = cache.load(name, url, MIME_TYPES.getMimeByExtension(url.toString()));
+                if (cachedResource == null) {
+                    serveFromClassPath(url, request, response);
+                    return;
+                }
+            }
+            if (isGetOrHead(request, response)) {
+                serve(cache, cachedResource, request, response, HttpMethod.HEAD.is(request.getMethod()));
+            }
+            return;
+        }
+        chain.doFilter(request, response);
+    }
 
+    private static void serveFromClassPath(URL resource, HttpServletRequest request, HttpServletResponse response)
+            throws IOException
+    {
         String method = request.getMethod();
         boolean skipContent = false;
         if (!HttpMethod.GET.is(method)) {
@@ -133,6 +187,170 @@ public class ClassPathResourceFilter
         }
     }
 
+    private static boolean isGetOrHead(HttpServletRequest request, HttpServletResponse response)
+            throws IOException
+    {
+        String method = request.getMethod();
+        if (HttpMethod.GET.is(method) || HttpMethod.HEAD.is(method)) {
+            return true;
+        }
+        response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+        return false;
+    }
+
+    private static void serve(ClassPathResourceCache cache, CachedResource resource, HttpServletRequest request, HttpServletResponse response, boolean skipContent)
+            throws IOException
+    {
+        boolean gzip = resource.hasGzipContent() && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        response.setContentType(resource.getContentType());
+        response.setHeader(HttpHeaders.LAST_MODIFIED, resource.getLastModifiedHeader());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (resource.hasGzipContent()) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        if (isNotModified(request, resource)) {
+            cache.recordNotModified();
+            response.setHeader(HttpHeaders.ETAG, gzip ? resource.getGzipEtag() : resource.getEtag());
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && isRangeApplicable(request, resource)) {
+            ByteRange byteRange = ByteRange.parse(range, resource.getLength());
+            if (byteRange == ByteRange.UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + resource.getLength());
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (byteRange != null) {
+                // ranges always refer to the uncompressed representation
+                cache.recordPartialContent();
+                response.setHeader(HttpHeaders.ETAG, resource.getEtag());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes %s-%s/%s".formatted(byteRange.start(), byteRange.end(), resource.getLength()));
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                ByteBuffer content = resource.getContent()
+                        .position(toIntExact(byteRange.start()))
+                        .limit(toIntExact(byteRange.end() + 1));
+                writeContent(response, content, skipContent);
+                return;
+            }
+        }
+
+        if (gzip) {
+            response.setHeader(HttpHeaders.ETAG, resource.getGzipEtag());
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            writeContent(response, resource.getGzipContent(), skipContent);
+        }
+        else {
+            response.setHeader(HttpHeaders.ETAG, resource.getEtag());
+            writeContent(response, resource.getContent(), skipContent);
+        }
+    }
+
+    private static void writeContent(HttpServletResponse response, ByteBuffer content, boolean skipContent)
+            throws IOException
+    {
+        response.setContentLength(content.remaining());
+        if (skipContent) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        if (out instanceof HttpOutput httpOutput) {
+            // hand the cached buffer to jetty as is, which avoids copying it for large resources
+            httpOutput.write(content);
+            return;
+        }
+
+        byte[] chunk = new byte[min(content.remaining(), 8192)];
+        while (content.hasRemaining()) {
+            int length = min(content.remaining(), chunk.length);
+            content.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, CachedResource resource)
+    {
+        // If-None-Match takes precedence over If-Modified-Since (RFC 9110 section 13.2.2)
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String etag : ifNoneMatch.split(",")) {
+                // weak comparison, and either representation is still current
+                etag = etag.trim();
+                if (etag.startsWith("W/")) {
+                    etag = etag.substring(2);
+                }
+                if (etag.equals("*") || etag.equals(resource.getEtag()) || etag.equals(resource.getGzipEtag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && resource.getLastModified() <= ifModifiedSince;
+    }
+
+    private static boolean isRangeApplicable(HttpServletRequest request, CachedResource resource)
+    {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        // If-Range requires a strong match, otherwise the full representation is sent
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(resource.getEtag());
+        }
+        return getDateHeader(request, HttpHeaders.IF_RANGE) == resource.getLastModified();
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name)
+    {
+        try {
+            return request.getDateHeader(name);
+        }
+        catch (IllegalArgumentException e) {
+            // invalid dates must be ignored
+            return -1;
+        }
+    }
+
+    private static boolean acceptsGzip(@Nullable String acceptEncoding)
+    {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String value : acceptEncoding.split(",")) {
+            int parameters = value.indexOf(';');
+            String coding = (parameters < 0 ? value : value.substring(0, parameters)).trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            return parameters < 0 || !isZeroQuality(value.substring(parameters + 1));
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(String parameters)
+    {
+        for (String parameter : parameters.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) == 0;
+                }
+                catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
     @Nullable
     private String getResourcePath(HttpServletRequest request)
     {
@@ -156,21 +374,28 @@ public class ClassPathResourceFilter
     }
 
     private URL getResource(String resourcePath)
+    {
+        for (String name : getResourceNames(resourcePath)) {
+            URL resource = getClass().getClassLoader().getResource(name);
+            if (resource != null) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private List<String> getResourceNames(String resourcePath)
     {
         checkArgument(resourcePath.startsWith("/"), "resourcePath does not start with a slash: %s", resourcePath);
 
         if (!"/".equals(resourcePath)) {
-            return getClass().getClassLoader().getResource(classPathResourceBase + resourcePath);
+            return ImmutableList.of(classPathResourceBase + resourcePath);
         }
 
         // check welcome files
-        for (String welcomeFile : welcomeFiles) {
-            URL resource = getClass().getClassLoader().getResource(classPathResourceBase + welcomeFile);
-            if (resource != null) {
-                return resource;
-            }
-        }
-        return null;
+        return welcomeFiles.stream()
+                .map(welcomeFile -> classPathResourceBase + welcomeFile)
+                .collect(toImmutableList());
     }
 
     private static void closeQuietly(@Nullable InputStream in)
@@ -184,4 +409,55 @@ public class ClassPathResourceFilter
             }
         }
     }
+
+    private record ByteRange(long start, long end)
+    {
+        public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+        /**
+         * Parses a single byte range (RFC 9110 section 14.1.2). Returns null if the header should
+         * be ignored, which includes requests for multiple ranges: a full response satisfies those too.
+         */
+        @Nullable
+        public static ByteRange parse(String header, long length)
+        {
+            if (!header.startsWith("bytes=")) {
+                return null;
+            }
+            String range = header.substring("bytes=".length()).trim();
+            int dash = range.indexOf('-');
+            if (range.indexOf(',') >= 0 || dash < 0) {
+                return null;
+            }
+
+            try {
+                String first = range.substring(0, dash).trim();
+                String last = range.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // suffix range: the last N bytes
+                    long suffixLength = Long.parseLong(last);
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    if (suffixLength == 0 || length == 0) {
+                        return UNSATISFIABLE;
+                    }
+                    return new ByteRange(max(0, length - suffixLength), length - 1);
+                }
+
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (start < 0 || end < start) {
+                    return null;
+                }
+                if (start >= length) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(start, min(end, length - 1));
+            }
+            catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
 }
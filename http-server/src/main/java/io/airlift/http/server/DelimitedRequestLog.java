@@ -24,10 +24,12 @@ import ch.qos.logback.core.status.ErrorStatus;
 import ch.qos.logback.core.util.FileSize;
 import com.google.common.math.LongMath;
 import io.airlift.event.client.EventClient;
+import io.airlift.http.server.HttpServerConfig.LogFormat;
 import io.airlift.http.server.jetty.RequestTiming;
 import io.airlift.log.Logger;
 import io.airlift.tracetoken.TraceTokenManager;
 import io.airlift.units.DataSize;
+import jakarta.annotation.Nullable;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Response;
 
@@ -52,7 +54,10 @@ class DelimitedRequestLog
     private final TraceTokenManager traceTokenManager;
     private final EventClient eventClient;
     private final CurrentTimeMillisProvider currentTimeMillisProvider;
+    @Nullable
     private final AsyncAppenderBase<HttpRequestEvent> asyncAppender;
+    @Nullable
+    private final BinaryRequestLogWriter binaryWriter;
 
     public DelimitedRequestLog(
             String filename,
@@ -75,11 +80,33 @@ class DelimitedRequestLog
             EventClient eventClient,
             CurrentTimeMillisProvider currentTimeMillisProvider,
             boolean compressionEnabled)
+    {
+        this(filename, maxHistory, queueSize, maxFileSizeInBytes, traceTokenManager, eventClient, currentTimeMillisProvider, compressionEnabled, LogFormat.TEXT);
+    }
+
+    public DelimitedRequestLog(
+            String filename,
+            int maxHistory,
+            int queueSize,
+            long maxFileSizeInBytes,
+            TraceTokenManager traceTokenManager,
+            EventClient eventClient,
+            CurrentTimeMillisProvider currentTimeMillisProvider,
+            boolean compressionEnabled,
+            LogFormat format)
     {
         this.traceTokenManager = traceTokenManager;
         this.eventClient = eventClient;
         this.currentTimeMillisProvider = currentTimeMillisProvider;
 
+        if (format == LogFormat.BINARY) {
+            // rolled binary files are not compressed, since the records are already compact
+            this.binaryWriter = new BinaryRequestLogWriter(filename, maxHistory, queueSize, maxFileSizeInBytes);
+            this.asyncAppender = null;
+            return;
+        }
+        this.binaryWriter = null;
+
         ContextBase context = new ContextBase();
         HttpLogLayout httpLogLayout = new HttpLogLayout();
 
@@ -140,20 +167,42 @@ class DelimitedRequestLog
                 responseContentInterarrivalStats);
 
         HttpRequestEvent event = createHttpRequestEvent(request, response, traceTokenManager, timing);
-        asyncAppender.doAppend(event);
+        if (binaryWriter != null) {
+            binaryWriter.append(event);
+        }
+        else {
+            asyncAppender.doAppend(event);
+        }
         eventClient.post(event);
     }
 
     public void stop()
     {
-        asyncAppender.stop();
+        if (binaryWriter != null) {
+            binaryWriter.stop();
+        }
+        else {
+            asyncAppender.stop();
+        }
     }
 
     public int getQueueSize()
     {
+        if (binaryWriter != null) {
+            return binaryWriter.getQueueSize();
+        }
         return asyncAppender.getNumberOfElementsInQueue();
     }
 
+    public long getDroppedRecords()
+    {
+        if (binaryWriter != null) {
+            return binaryWriter.getDroppedRecords();
+        }
+        // the text log blocks rather than dropping records when its queue is full
+        return 0;
+    }
+
     private static void recoverTempFiles(String logPath)
     {
         // logback has a tendency to leave around temp files if it is interrupted
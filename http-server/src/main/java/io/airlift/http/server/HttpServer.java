@@ -43,6 +43,7 @@ import org.eclipse.jetty.security.SecurityHandler;
 import org.eclipse.jetty.security.authentication.BasicAuthenticator;
 import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.ForwardedRequestCustomizer;
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.SecureRequestCustomizer;
@@ -107,6 +108,9 @@ public class HttpServer
     private final MonitoredQueuedThreadPoolMBean monitoredQueuedThreadPoolMBean;
     private final MonitoredQueuedThreadPoolMBean monitoredAdminQueuedThreadPoolMBean;
     private final DelimitedRequestLog requestLog;
+    private final Optional<ClassPathResourceCache> resourceCache;
+    private final RouteStats routeStats;
+    private final Optional<AdmissionControlHandler> admissionControlHandler;
     private ConnectionStats httpConnectionStats;
     private ConnectionStats httpsConnectionStats;
     private ScheduledExecutorService scheduledExecutorService;
@@ -134,6 +138,54 @@ public class HttpServer
             EventClient eventClient,
             Optional<SslContextFactory.Server> maybeSslContextFactory)
             throws IOException
+    {
+        this(
+                httpServerInfo,
+                nodeInfo,
+                config,
+                maybeHttpsConfig,
+                theServlet,
+                parameters,
+                filters,
+                resources,
+                theAdminServlet,
+                adminParameters,
+                adminFilters,
+                enableVirtualThreads,
+                enableLegacyUriCompliance,
+                clientCertificate,
+                mbeanServer,
+                loginService,
+                tokenManager,
+                stats,
+                new RouteStats(config),
+                eventClient,
+                maybeSslContextFactory);
+    }
+
+    public HttpServer(
+            HttpServerInfo httpServerInfo,
+            NodeInfo nodeInfo,
+            HttpServerConfig config,
+            Optional<HttpsConfig> maybeHttpsConfig,
+            Servlet theServlet,
+            Map<String, String> parameters,
+            Set<Filter> filters,
+            Set<HttpResourceBinding> resources,
+            Servlet theAdminServlet,
+            Map<String, String> adminParameters,
+            Set<Filter> adminFilters,
+            boolean enableVirtualThreads,
+            boolean enableLegacyUriCompliance,
+            ClientCertificate clientCertificate,
+            MBeanServer mbeanServer,
+            LoginService loginService,
+            TraceTokenManager tokenManager,
+            RequestStats stats,
+            RouteStats routeStats,
+            EventClient eventClient,
+            Optional<SslContextFactory.Server> maybeSslContextFactory)
+            throws IOException
     {
         requireNonNull(httpServerInfo, "httpServerInfo is null");
         requireNonNull(nodeInfo, "nodeInfo is null");
@@ -142,6 +194,8 @@ public class HttpServer
         requireNonNull(theServlet, "theServlet is null");
         requireNonNull(maybeSslContextFactory, "maybeSslContextFactory is null");
         requireNonNull(clientCertificate, "clientCertificate is null");
+        requireNonNull(routeStats, "routeStats is null");
+        this.routeStats = routeStats;
 
         checkArgument(!config.isHttpsEnabled() || maybeHttpsConfig.isPresent(), "httpsConfig must be present when HTTPS is enabled");
 
@@ -325,6 +379,7 @@ public class HttpServer
          *
          *
          *  channel listener
+         *    |--- admission control handler (optional)
          *    |--- statistics handler
          *           |--- context handler
          *           |       |--- trace token filter
@@ -339,28 +394,51 @@ public class HttpServer
          *           \ --- the admin servlet
          */
 
+        // static resources are shared by both contexts, so they are cached once
+        if (config.isResourceCacheEnabled() && !resources.isEmpty()) {
+            this.resourceCache = Optional.of(new ClassPathResourceCache(config.getResourceCacheMaxSize(), config.isResourceCacheOffHeap()));
+        }
+        else {
+            this.resourceCache = Optional.empty();
+        }
+
         // add handlers to Jetty
         StatisticsHandler statsHandler = new StatisticsHandler();
-        statsHandler.setHandler(createServletContext(theServlet, resources, parameters, filters, tokenManager, loginService, Set.of("http", "https"), showStackTrace, enableLegacyUriCompliance));
+        statsHandler.setHandler(createServletContext(theServlet, resources, resourceCache, parameters, filters, tokenManager, loginService, Set.of("http", "https"), showStackTrace, enableLegacyUriCompliance));
 
         ContextHandlerCollection rootHandlers = new ContextHandlerCollection();
         if (theAdminServlet != null && config.isAdminEnabled()) {
-            rootHandlers.addHandler(createServletContext(theAdminServlet, resources, adminParameters, adminFilters, tokenManager, loginService, Set.of("admin"), showStackTrace, enableLegacyUriCompliance));
+            rootHandlers.addHandler(createServletContext(theAdminServlet, resources, resourceCache, adminParameters, adminFilters, tokenManager, loginService, Set.of("admin"), showStackTrace, enableLegacyUriCompliance));
         }
         rootHandlers.addHandler(statsHandler);
-        StatsRecordingHandler statsRecordingHandler = new StatsRecordingHandler(stats);
+        StatsRecordingHandler statsRecordingHandler = new StatsRecordingHandler(stats, routeStats);
+
+        Handler handler = rootHandlers;
+        if (config.isAdmissionControlEnabled()) {
+            AdmissionControlHandler admissionControl = new AdmissionControlHandler(
+                    config.getAdmissionControlTargetQueueTime(),
+                    config.getAdmissionControlInterval(),
+                    firstNonNull(config.getAdmissionControlMaxConcurrentRequests(), Integer.MAX_VALUE),
+                    config.getAdmissionControlRetryAfter());
+            admissionControl.setHandler(rootHandlers);
+            handler = admissionControl;
+            this.admissionControlHandler = Optional.of(admissionControl);
+        }
+        else {
+            this.admissionControlHandler = Optional.empty();
+        }
 
         if (config.isLogEnabled()) {
             this.requestLog = createDelimitedRequestLog(config, tokenManager, eventClient);
             DelimitedRequestLogHandler logHandler = new DelimitedRequestLogHandler(requestLog);
             server.setRequestLog(new RequestLogCollection(logHandler, statsRecordingHandler));
-            logHandler.setHandler(rootHandlers);
+            logHandler.setHandler(handler);
             server.setHandler(logHandler);
         }
         else {
             this.requestLog = null;
             server.setRequestLog(statsRecordingHandler);
-            server.setHandler(rootHandlers);
+            server.setHandler(handler);
         }
 
         ErrorHandler errorHandler = new ErrorHandler();
@@ -379,6 +457,7 @@ public class HttpServer
 
     private static ServletContextHandler createServletContext(Servlet theServlet,
             Set<HttpResourceBinding> resources,
+            Optional<ClassPathResourceCache> resourceCache,
             Map<String, String> parameters,
             Set<Filter> filters,
             TraceTokenManager tokenManager,
@@ -417,7 +496,8 @@ public class HttpServer
             ClassPathResourceFilter servlet = new ClassPathResourceFilter(
                     resource.getBaseUri(),
                     resource.getClassPathResourceBase(),
-                    resource.getWelcomeFiles());
+                    resource.getWelcomeFiles(),
+                    resourceCache);
             context.addFilter(new FilterHolder(servlet), servlet.getBaseUri() + "/*", null);
         }
         // -- gzip handler
@@ -473,7 +553,9 @@ public class HttpServer
                 config.getLogMaxFileSize().toBytes(),
                 tokenManager,
                 eventClient,
-                config.isLogCompressionEnabled());
+                new SystemCurrentTimeMillisProvider(),
+                config.isLogCompressionEnabled(),
+                config.getLogFormat());
     }
 
     @VisibleForTesting
@@ -523,6 +605,25 @@ public class HttpServer
         return httpsConnectionStats;
     }
 
+    @Managed
+    @Nested
+    public ClassPathResourceCache getResourceCache()
+    {
+        return resourceCache.orElse(null);
+    }
+
+    @Managed
+    @Nested
+    public AdmissionControlHandler getAdmissionControl()
+    {
+        return admissionControlHandler.orElse(null);
+    }
+
+    public RouteStats getRouteStats()
+    {
+        return routeStats;
+    }
+
     @Managed
     @Nested
     public MonitoredQueuedThreadPoolMBean getServerThreadPool()
@@ -546,6 +647,15 @@ public class HttpServer
         return requestLog.getQueueSize();
     }
 
+    @Managed(description = "request log records dropped because the log could not keep up")
+    public long getLoggerDroppedRecords()
+    {
+        if (requestLog == null) {
+            return 0;
+        }
+        return requestLog.getDroppedRecords();
+    }
+
     @PostConstruct
     public void start()
             throws Exception
@@ -22,11 +22,14 @@ import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import io.airlift.units.MaxDataSize;
 import io.airlift.units.MinDataSize;
+import io.airlift.units.MinDuration;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -49,6 +52,11 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 })
 public class HttpServerConfig
 {
+    public enum LogFormat
+    {
+        TEXT, BINARY
+    }
+
     private boolean httpEnabled = true;
     private int httpPort = 8080;
     private int httpAcceptQueueSize = 8000;
@@ -61,6 +69,7 @@ public class HttpServerConfig
     private int logQueueSize = 10_000;
     private DataSize logMaxFileSize = DataSize.of(100, MEGABYTE);
     private boolean logCompressionEnabled = true;
+    private LogFormat logFormat = LogFormat.TEXT;
 
     private boolean processForwarded;
 
@@ -81,6 +90,16 @@ public class HttpServerConfig
     private DataSize http2InputBufferSize = DataSize.of(8, KILOBYTE);
     private Duration http2StreamIdleTimeout = new Duration(15, SECONDS);
 
+    private boolean resourceCacheEnabled;
+    private DataSize resourceCacheMaxSize = DataSize.of(64, MEGABYTE);
+    private boolean resourceCacheOffHeap;
+    private int routeStatsMaxRoutes = 100;
+    private boolean admissionControlEnabled;
+    private Duration admissionControlTargetQueueTime = new Duration(5, MILLISECONDS);
+    private Duration admissionControlInterval = new Duration(100, MILLISECONDS);
+    private Integer admissionControlMaxConcurrentRequests;
+    private Duration admissionControlRetryAfter = new Duration(1, SECONDS);
+
     private String userAuthFile;
 
     private boolean adminEnabled;
@@ -294,6 +313,7 @@ public class HttpServerConfig
     }
 
     @Config("http-server.log.queue-size")
+    @ConfigDescription("Maximum number of request log records waiting to be written. The BINARY format preallocates 2kB per record, rounded up to a power of two records, which is 32MB for the default")
     public HttpServerConfig setLogQueueSize(int logQueueSize)
     {
         this.logQueueSize = logQueueSize;
@@ -312,6 +332,20 @@ public class HttpServerConfig
         return this;
     }
 
+    @NotNull
+    public LogFormat getLogFormat()
+    {
+        return logFormat;
+    }
+
+    @Config("http-server.log.format")
+    @ConfigDescription("Format of the request log: TEXT for tab-delimited lines, or BINARY for compact records that BinaryRequestLogReader converts to text")
+    public HttpServerConfig setLogFormat(LogFormat logFormat)
+    {
+        this.logFormat = logFormat;
+        return this;
+    }
+
     public String getUserAuthFile()
     {
         return userAuthFile;
@@ -495,4 +529,135 @@ public class HttpServerConfig
         this.http2StreamIdleTimeout = http2StreamIdleTimeout;
         return this;
     }
+
+    public boolean isResourceCacheEnabled()
+    {
+        return resourceCacheEnabled;
+    }
+
+    @Config("http-server.resource-cache.enabled")
+    @ConfigDescription("Keep static classpath resources and their compressed variants in memory")
+    public HttpServerConfig setResourceCacheEnabled(boolean resourceCacheEnabled)
+    {
+        this.resourceCacheEnabled = resourceCacheEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getResourceCacheMaxSize()
+    {
+        return resourceCacheMaxSize;
+    }
+
+    @Config("http-server.resource-cache.max-size")
+    @ConfigDescription("Maximum total size of the cached static resources, including compressed variants")
+    public HttpServerConfig setResourceCacheMaxSize(DataSize resourceCacheMaxSize)
+    {
+        this.resourceCacheMaxSize = resourceCacheMaxSize;
+        return this;
+    }
+
+    public boolean isResourceCacheOffHeap()
+    {
+        return resourceCacheOffHeap;
+    }
+
+    @Config("http-server.resource-cache.off-heap")
+    @ConfigDescription("Store the cached static resources in direct buffers rather than on the heap")
+    public HttpServerConfig setResourceCacheOffHeap(boolean resourceCacheOffHeap)
+    {
+        this.resourceCacheOffHeap = resourceCacheOffHeap;
+        return this;
+    }
+
+    @Min(0)
+    public int getRouteStatsMaxRoutes()
+    {
+        return routeStatsMaxRoutes;
+    }
+
+    @Config("http-server.route-stats.max-routes")
+    @ConfigDescription("Maximum number of routes with their own request statistics, 0 to disable per-route statistics")
+    public HttpServerConfig setRouteStatsMaxRoutes(int routeStatsMaxRoutes)
+    {
+        this.routeStatsMaxRoutes = routeStatsMaxRoutes;
+        return this;
+    }
+
+    public boolean isAdmissionControlEnabled()
+    {
+        return admissionControlEnabled;
+    }
+
+    @Config("http-server.admission-control.enabled")
+    @ConfigDescription("Reject requests with 503 when the server is overloaded")
+    public HttpServerConfig setAdmissionControlEnabled(boolean admissionControlEnabled)
+    {
+        this.admissionControlEnabled = admissionControlEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getAdmissionControlTargetQueueTime()
+    {
+        return admissionControlTargetQueueTime;
+    }
+
+    @Config("http-server.admission-control.target-queue-time")
+    @ConfigDescription("Acceptable time for requests to wait for a worker thread")
+    public HttpServerConfig setAdmissionControlTargetQueueTime(Duration admissionControlTargetQueueTime)
+    {
+        this.admissionControlTargetQueueTime = admissionControlTargetQueueTime;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getAdmissionControlInterval()
+    {
+        return admissionControlInterval;
+    }
+
+    @Config("http-server.admission-control.interval")
+    @ConfigDescription("Time the queue time must stay above the target before requests are shed at the target")
+    public HttpServerConfig setAdmissionControlInterval(Duration admissionControlInterval)
+    {
+        this.admissionControlInterval = admissionControlInterval;
+        return this;
+    }
+
+    @Min(1)
+    public Integer getAdmissionControlMaxConcurrentRequests()
+    {
+        return admissionControlMaxConcurrentRequests;
+    }
+
+    @Config("http-server.admission-control.max-concurrent-requests")
+    @ConfigDescription("Maximum number of requests in flight, not limited if unset")
+    public HttpServerConfig setAdmissionControlMaxConcurrentRequests(Integer admissionControlMaxConcurrentRequests)
+    {
+        this.admissionControlMaxConcurrentRequests = admissionControlMaxConcurrentRequests;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAdmissionControlRetryAfter()
+    {
+        return admissionControlRetryAfter;
+    }
+
+    @Config("http-server.admission-control.retry-after")
+    @ConfigDescription("Value of the Retry-After header of rejected requests")
+    public HttpServerConfig setAdmissionControlRetryAfter(Duration admissionControlRetryAfter)
+    {
+        this.admissionControlRetryAfter = admissionControlRetryAfter;
+        return this;
+    }
+
+    @AssertTrue(message = "http-server.admission-control.target-queue-time must not be greater than http-server.admission-control.interval")
+    public boolean isAdmissionControlTargetQueueTimeValid()
+    {
+        return admissionControlTargetQueueTime.compareTo(admissionControlInterval) <= 0;
+    }
 }
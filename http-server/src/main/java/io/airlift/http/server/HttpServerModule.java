@@ -70,6 +70,7 @@ public class HttpServerModule
         newExporter(binder).export(HttpServer.class).withGeneratedName();
         binder.bind(HttpServerInfo.class).in(Scopes.SINGLETON);
         binder.bind(RequestStats.class).in(Scopes.SINGLETON);
+        binder.bind(RouteStats.class).in(Scopes.SINGLETON);
         // override with HttpServerBinder.enableVirtualThreads()
         newOptionalBinder(binder, Key.get(Boolean.class, EnableVirtualThreads.class)).setDefault().toInstance(false);
         // override with HttpServerBinder.enableLegacyUriCompliance()
@@ -80,6 +81,7 @@ public class HttpServerModule
         newOptionalBinder(binder, SslContextFactory.Server.class);
 
         newExporter(binder).export(RequestStats.class).withGeneratedName();
+        newExporter(binder).export(RouteStats.class).withGeneratedName();
 
         configBinder(binder).bindConfig(HttpServerConfig.class);
         newOptionalBinder(binder, HttpsConfig.class);
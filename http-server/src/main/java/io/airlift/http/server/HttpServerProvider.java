@@ -61,6 +61,7 @@ public class HttpServerProvider
     private MBeanServer mbeanServer;
     private LoginService loginService;
     private final RequestStats stats;
+    private RouteStats routeStats;
     private final Set<Filter> filters;
     private final Set<Filter> adminFilters;
     private TraceTokenManager traceTokenManager;
@@ -108,6 +109,7 @@ public class HttpServerProvider
         this.enableLegacyUriCompliance = enableLegacyUriCompliance;
         this.clientCertificate = clientCertificate;
         this.stats = stats;
+        this.routeStats = new RouteStats(config);
         this.eventClient = eventClient;
         this.sslContextFactory = sslContextFactory;
     }
@@ -142,6 +144,12 @@ public class HttpServerProvider
         this.loginService = loginService;
     }
 
+    @Inject(optional = true)
+    public void setRouteStats(RouteStats routeStats)
+    {
+        this.routeStats = requireNonNull(routeStats, "routeStats is null");
+    }
+
     @Inject(optional = true)
     public void setTokenManager(@Nullable TraceTokenManager tokenManager)
     {
@@ -171,6 +179,7 @@ public class HttpServerProvider
                     loginService,
                     traceTokenManager,
                     stats,
+                    routeStats,
                     eventClient,
                     sslContextFactory);
             httpServer.start();
@@ -0,0 +1,180 @@
+package io.airlift.http.server;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+import jakarta.annotation.PreDestroy;
+import org.weakref.jmx.MBeanExport;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Request statistics for each route, such as {@code GET /v1/task/{taskId}}. The route of a
+ * request is the value of the {@link #ROUTE_ATTRIBUTE} request attribute, which is set by the
+ * framework that dispatches the request, such as the JAX-RS module. Requests without a route are
+ * only recorded in {@link RequestStats}.
+ * <p>
+ * The number of routes is bounded, and requests for routes beyond the limit are recorded in a
+ * shared bucket. When an {@link MBeanExporter} is available, the statistics of each route are
+ * exported as a separate MBean, which makes them available to the OpenMetrics endpoint as well.
+ */
+public class RouteStats
+{
+    public static final String ROUTE_ATTRIBUTE = RouteStats.class.getName() + ".route";
+
+    private static final Logger log = Logger.get(RouteStats.class);
+
+    private final int maxRoutes;
+    private final ConcurrentMap<String, RequestStats> routes = new ConcurrentHashMap<>();
+    private final RequestStats otherRoutes = new RequestStats();
+
+    // guarded by this
+    private MBeanExporter exporter;
+    private final List<MBeanExport> exports = new ArrayList<>();
+    private final Set<String> exportedNames = new HashSet<>();
+
+    @Inject
+    public RouteStats(HttpServerConfig config)
+    {
+        this(config.getRouteStatsMaxRoutes());
+    }
+
+    public RouteStats(int maxRoutes)
+    {
+        checkArgument(maxRoutes >= 0, "maxRoutes is negative");
+        this.maxRoutes = maxRoutes;
+    }
+
+    @Inject(optional = true)
+    public synchronized void setExporter(MBeanExporter exporter)
+    {
+        this.exporter = exporter;
+        // routes can be recorded before the exporter is injected
+        routes.forEach(this::export);
+    }
+
+    @PreDestroy
+    public synchronized void unexport()
+    {
+        exports.forEach(MBeanExport::unexport);
+        exports.clear();
+        exportedNames.clear();
+        exporter = null;
+    }
+
+    public void record(String route, long requestSizeInBytes, long responseSizeInBytes, Duration requestProcessingTime)
+    {
+        if (maxRoutes == 0) {
+            return;
+        }
+        RequestStats stats = routes.get(route);
+        if (stats == null) {
+            stats = addRoute(route);
+        }
+        stats.record(requestSizeInBytes, responseSizeInBytes, requestProcessingTime);
+    }
+
+    public Map<String, RequestStats> getRoutes()
+    {
+        return ImmutableMap.copyOf(routes);
+    }
+
+    @Managed
+    public int getRouteCount()
+    {
+        return routes.size();
+    }
+
+    @Managed
+    public int getMaxRoutes()
+    {
+        return maxRoutes;
+    }
+
+    @Managed(description = "requests for routes beyond the maximum number of routes")
+    @Nested
+    public RequestStats getOtherRoutes()
+    {
+        return otherRoutes;
+    }
+
+    private RequestStats addRoute(String route)
+    {
+        // check without the lock, so that requests for routes beyond the limit do not contend
+        if (routes.size() >= maxRoutes) {
+            return otherRoutes;
+        }
+        synchronized (this) {
+            RequestStats stats = routes.get(route);
+            if (stats != null) {
+                return stats;
+            }
+            if (routes.size() >= maxRoutes) {
+                return otherRoutes;
+            }
+            stats = new RequestStats();
+            routes.put(route, stats);
+            export(route, stats);
+            return stats;
+        }
+    }
+
+    private synchronized void export(String route, RequestStats stats)
+    {
+        if (exporter == null) {
+            return;
+        }
+        String name = toObjectNameValue(route);
+        String uniqueName = name;
+        for (int i = 2; !exportedNames.add(uniqueName); i++) {
+            uniqueName = name + "_" + i;
+        }
+        try {
+            exports.add(exporter.exportWithGeneratedName(stats, RouteStats.class, ImmutableMap.of("name", RouteStats.class.getSimpleName(), "route", uniqueName)));
+        }
+        catch (RuntimeException e) {
+            log.warn(e, "Failed to export request stats for route %s", route);
+        }
+    }
+
+    /**
+     * Converts the route to a value that is valid in an object name, and that results in a valid
+     * OpenMetrics metric name, e.g., {@code GET /v1/task/{taskId}} becomes {@code GET_v1_task_taskId}.
+     */
+    @VisibleForTesting
+    static String toObjectNameValue(String route)
+    {
+        StringBuilder name = new StringBuilder(route.length());
+        boolean separator = false;
+        for (int i = 0; i < route.length(); i++) {
+            char c = route.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                if (separator && !name.isEmpty()) {
+                    name.append('_');
+                }
+                name.append(c);
+                separator = false;
+            }
+            else {
+                separator = true;
+            }
+        }
+        if (name.isEmpty()) {
+            return "root";
+        }
+        return name.toString();
+    }
+}
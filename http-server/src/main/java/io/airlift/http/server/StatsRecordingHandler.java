@@ -28,16 +28,28 @@ public class StatsRecordingHandler
         implements RequestLog
 {
     private final RequestStats stats;
+    private final RouteStats routeStats;
 
     public StatsRecordingHandler(RequestStats stats)
+    {
+        this(stats, new RouteStats(0));
+    }
+
+    public StatsRecordingHandler(RequestStats stats, RouteStats routeStats)
     {
         this.stats = stats;
+        this.routeStats = routeStats;
     }
 
     @Override
     public void log(Request request, Response response)
     {
         Duration requestTime = new Duration(max(0, System.currentTimeMillis() - Request.getTimeStamp(request)), TimeUnit.MILLISECONDS);
-        stats.record(Request.getContentBytesRead(request), Response.getContentBytesWritten(response), requestTime);
+        long readBytes = Request.getContentBytesRead(request);
+        long writtenBytes = Response.getContentBytesWritten(response);
+        stats.record(readBytes, writtenBytes, requestTime);
+        if (request.getAttribute(RouteStats.ROUTE_ATTRIBUTE) instanceof String route) {
+            routeStats.record(route, readBytes, writtenBytes, requestTime);
+        }
     }
 }
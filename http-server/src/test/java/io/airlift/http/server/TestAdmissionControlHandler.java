@@ -0,0 +1,120 @@
+package io.airlift.http.server;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpClientConfig;
+import io.airlift.http.client.StatusResponseHandler.StatusResponse;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.http.server.testing.TestingHttpServer;
+import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestAdmissionControlHandler
+{
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    public void testShedsOnlyStandingQueue()
+    {
+        AdmissionControlHandler handler = new AdmissionControlHandler(new Duration(5, MILLISECONDS), new Duration(100, MILLISECONDS), Integer.MAX_VALUE, new Duration(1, SECONDS));
+        long now = System.nanoTime();
+
+        assertFalse(handler.shouldShed(MILLIS, now));
+        // a burst is absorbed as long as requests wait less than the interval
+        assertFalse(handler.shouldShed(50 * MILLIS, now + 10 * MILLIS));
+        assertTrue(handler.shouldShed(150 * MILLIS, now + 20 * MILLIS));
+
+        // requests waited longer than the target for a whole interval, so the queue is standing
+        assertTrue(handler.shouldShed(50 * MILLIS, now + 200 * MILLIS));
+        assertTrue(handler.shouldShed(10 * MILLIS, now + 210 * MILLIS));
+
+        // the queue drained
+        assertFalse(handler.shouldShed(MILLIS, now + 220 * MILLIS));
+        assertFalse(handler.shouldShed(50 * MILLIS, now + 230 * MILLIS));
+    }
+
+    @Test
+    public void testIdleGapIsNotStandingQueue()
+    {
+        AdmissionControlHandler handler = new AdmissionControlHandler(new Duration(5, MILLISECONDS), new Duration(100, MILLISECONDS), Integer.MAX_VALUE, new Duration(1, SECONDS));
+        long now = System.nanoTime();
+
+        assertFalse(handler.shouldShed(MILLIS, now));
+        // the first slow request after an idle period starts the interval rather than being shed
+        assertFalse(handler.shouldShed(10 * MILLIS, now + 10_000 * MILLIS));
+        assertFalse(handler.shouldShed(10 * MILLIS, now + 10_050 * MILLIS));
+        assertTrue(handler.shouldShed(10 * MILLIS, now + 10_101 * MILLIS));
+    }
+
+    @Test
+    public void testMaxConcurrentRequests()
+            throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServlet servlet = new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            {
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        HttpServerConfig config = new HttpServerConfig()
+                .setHttpPort(0)
+                .setAdmissionControlEnabled(true)
+                .setAdmissionControlMaxConcurrentRequests(1)
+                .setAdmissionControlRetryAfter(new Duration(2500, MILLISECONDS));
+        NodeInfo nodeInfo = new NodeInfo("test");
+        TestingHttpServer server = new TestingHttpServer(new HttpServerInfo(config, nodeInfo), nodeInfo, config, servlet, ImmutableMap.of());
+        server.start();
+        ExecutorService executor = newCachedThreadPool();
+        try (HttpClient client = new JettyHttpClient(new HttpClientConfig())) {
+            URI uri = server.getBaseUrl();
+            Future<StatusResponse> blocked = executor.submit(() -> client.execute(prepareGet().setUri(uri).build(), createStatusResponseHandler()));
+            assertTrue(started.await(10, SECONDS));
+
+            StatusResponse response = client.execute(prepareGet().setUri(uri).build(), createStatusResponseHandler());
+            assertEquals(response.getStatusCode(), 503);
+            assertEquals(response.getHeader("Retry-After"), "3");
+
+            release.countDown();
+            assertEquals(blocked.get(10, SECONDS).getStatusCode(), 200);
+            assertEquals(client.execute(prepareGet().setUri(uri).build(), createStatusResponseHandler()).getStatusCode(), 200);
+
+            AdmissionControlHandler handler = server.getAdmissionControl();
+            assertEquals(handler.getConcurrencyShed().getTotalCount(), 1);
+            assertEquals(handler.getQueueTimeShed().getTotalCount(), 0);
+        }
+        finally {
+            release.countDown();
+            executor.shutdownNow();
+            server.stop();
+        }
+    }
+}
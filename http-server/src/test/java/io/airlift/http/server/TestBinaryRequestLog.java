@@ -0,0 +1,304 @@
+package io.airlift.http.server;
+
+import com.google.common.base.Strings;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.http.server.BinaryRequestLogCodec.MAX_RECORD_SIZE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test(singleThreaded = true)
+public class TestBinaryRequestLog
+{
+    private Path directory;
+
+    @BeforeMethod
+    public void setup()
+            throws IOException
+    {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+            throws IOException
+    {
+        deleteRecursively(directory, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        DoubleSummaryStatistics statistics = new DoubleSummaryStatistics();
+        statistics.accept(1);
+        statistics.accept(3);
+        HttpRequestEvent event = createEvent("/aaa+bbb/ccc?param=hello%20there", "HttpClient 4.0 é中😀", new DoubleSummaryStats(statistics));
+
+        HttpRequestEvent decoded = roundTrip(event);
+        assertEquals(decoded.getTimeStamp(), event.getTimeStamp());
+        assertEquals(decoded.getClientAddress(), event.getClientAddress());
+        assertEquals(decoded.getMethod(), event.getMethod());
+        assertEquals(decoded.getRequestUri(), event.getRequestUri());
+        assertEquals(decoded.getUser(), event.getUser());
+        assertEquals(decoded.getAgent(), event.getAgent());
+        assertEquals(decoded.getResponseCode(), event.getResponseCode());
+        assertEquals(decoded.getRequestSize(), event.getRequestSize());
+        assertEquals(decoded.getResponseSize(), event.getResponseSize());
+        assertEquals(decoded.getTimeToLastByte(), event.getTimeToLastByte());
+        assertEquals(decoded.getTraceToken(), event.getTraceToken());
+        assertEquals(decoded.getProtocolVersion(), event.getProtocolVersion());
+        assertEquals(decoded.getBeginToDispatchMillis(), event.getBeginToDispatchMillis());
+        assertEquals(decoded.getBeginToEndMillis(), event.getBeginToEndMillis());
+        assertEquals(decoded.getFirstToLastContentTimeInMillis(), event.getFirstToLastContentTimeInMillis());
+
+        // the text log line is the same whether it is written directly or converted from the binary log
+        HttpLogLayout layout = new HttpLogLayout();
+        assertEquals(layout.doLayout(decoded), layout.doLayout(event));
+
+        HttpRequestEvent withoutOptionalFields = createEvent(null, null, null);
+        decoded = roundTrip(withoutOptionalFields);
+        assertNull(decoded.getRequestUri());
+        assertNull(decoded.getAgent());
+        assertNull(decoded.getResponseContentInterarrivalStats());
+        assertEquals(layout.doLayout(decoded), layout.doLayout(withoutOptionalFields));
+    }
+
+    @Test
+    public void testLongFieldsAreTruncated()
+    {
+        // a code point that does not fit is dropped as a whole
+        String requestUri = "/" + Strings.repeat("x", 1021) + "éé";
+        HttpRequestEvent decoded = roundTrip(createEvent(requestUri, Strings.repeat("中", 1000), null));
+
+        assertEquals(decoded.getRequestUri(), "/" + Strings.repeat("x", 1021) + "é");
+        assertEquals(decoded.getAgent().getBytes(UTF_8).length, 255);
+    }
+
+    @Test
+    public void testWriteAndConvert()
+            throws Exception
+    {
+        String file = directory.resolve("http-request.log").toString();
+        BinaryRequestLogWriter writer = new BinaryRequestLogWriter(file, 1, 256, Long.MAX_VALUE);
+        HttpLogLayout layout = new HttpLogLayout();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            HttpRequestEvent event = createEvent("/v1/resource/" + i, "agent", null);
+            while (!writer.append(event)) {
+                Thread.sleep(1);
+            }
+            expected.append(layout.doLayout(event));
+        }
+        writer.stop();
+
+        StringWriter actual = new StringWriter();
+        BinaryRequestLogReader.convertToText(Path.of(file), actual);
+        assertEquals(actual.toString(), expected.toString());
+
+        List<HttpRequestEvent> events = new ArrayList<>();
+        BinaryRequestLogReader.readEvents(Path.of(file), events::add);
+        assertEquals(events.size(), 1000);
+    }
+
+    @Test
+    public void testRollingAndHistory()
+            throws Exception
+    {
+        Path file = directory.resolve("http-request.log");
+        Files.writeString(file, "left over from the text format\n");
+
+        BinaryRequestLogWriter writer = new BinaryRequestLogWriter(file.toString(), 2, 16, 4096);
+        for (int i = 0; i < 200; i++) {
+            while (!writer.append(createEvent("/v1/resource/" + i, "agent", null))) {
+                Thread.sleep(1);
+            }
+            if (i % 10 == 0) {
+                // let the writer write out small batches, so that the log rolls several times
+                while (writer.getQueueSize() > 0) {
+                    Thread.sleep(1);
+                }
+                Thread.sleep(20);
+            }
+        }
+        writer.stop();
+
+        List<Path> rolled;
+        try (Stream<Path> files = Files.list(directory)) {
+            rolled = files.filter(path -> path.toString().endsWith(BinaryRequestLogWriter.ROLLED_FILE_EXTENSION)).toList();
+        }
+        assertEquals(rolled.size(), 2);
+        for (Path path : rolled) {
+            assertThat(path.getFileName().toString()).startsWith("http-request.log-");
+        }
+
+        // the left over text log is not named as a binary log, and does not count towards the binary history
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> text = files
+                    .filter(path -> path.getFileName().toString().startsWith("http-request.log-"))
+                    .filter(path -> path.toString().endsWith(BinaryRequestLogWriter.ROLLED_TEXT_FILE_EXTENSION))
+                    .toList();
+            assertEquals(text.size(), 1);
+            assertEquals(Files.readString(text.getFirst()), "left over from the text format\n");
+        }
+
+        List<HttpRequestEvent> events = new ArrayList<>();
+        BinaryRequestLogReader.readEvents(file, events::add);
+        assertThat(events).isNotEmpty();
+        assertThat(Files.size(file)).isLessThanOrEqualTo(4096 + 256 * 1024);
+        assertEquals(events.getLast().getRequestUri(), "/v1/resource/199");
+    }
+
+    @Test
+    public void testLeftOverFileKeepsItsDate()
+            throws Exception
+    {
+        Path file = directory.resolve("http-request.log");
+        FileTime lastModified = FileTime.from(LocalDate.of(2020, 1, 2).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+
+        // a binary log from a previous run is rolled with the date it was written
+        BinaryRequestLogWriter writer = new BinaryRequestLogWriter(file.toString(), 2, 16, Long.MAX_VALUE);
+        writer.append(createEvent("/previous", "agent", null));
+        writer.stop();
+        Files.setLastModifiedTime(file, lastModified);
+
+        writer = new BinaryRequestLogWriter(file.toString(), 2, 16, Long.MAX_VALUE);
+        writer.stop();
+        Path rolledBinary = directory.resolve("http-request.log-2020-01-02.0" + BinaryRequestLogWriter.ROLLED_FILE_EXTENSION);
+        List<HttpRequestEvent> events = new ArrayList<>();
+        BinaryRequestLogReader.readEvents(rolledBinary, events::add);
+        assertThat(events).extracting(HttpRequestEvent::getRequestUri).containsExactly("/previous");
+
+        // a text log is rolled with a text log name
+        Files.writeString(file, "left over from the text format\n");
+        Files.setLastModifiedTime(file, lastModified);
+
+        writer = new BinaryRequestLogWriter(file.toString(), 2, 16, Long.MAX_VALUE);
+        writer.stop();
+        Path rolledText = directory.resolve("http-request.log-2020-01-02.0" + BinaryRequestLogWriter.ROLLED_TEXT_FILE_EXTENSION);
+        assertEquals(Files.readString(rolledText), "left over from the text format\n");
+    }
+
+    @Test
+    public void testTruncatedRecordIsIgnored()
+            throws Exception
+    {
+        File file = directory.resolve("http-request.log").toFile();
+        BinaryRequestLogWriter writer = new BinaryRequestLogWriter(file.getPath(), 1, 16, Long.MAX_VALUE);
+        writer.append(createEvent("/first", "agent", null));
+        writer.append(createEvent("/second", "agent", null));
+        writer.stop();
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        List<HttpRequestEvent> events = new ArrayList<>();
+        BinaryRequestLogReader.readEvents(file.toPath(), events::add);
+        assertEquals(events.size(), 1);
+        assertEquals(events.getFirst().getRequestUri(), "/first");
+    }
+
+    @Test
+    public void testRecoversFromWriteFailure()
+            throws Exception
+    {
+        Path file = directory.resolve("http-request.log");
+        BinaryRequestLogWriter writer = new BinaryRequestLogWriter(file.toString(), 2, 16, 1);
+        writer.append(createEvent("/first", "agent", null));
+        awaitWritten(writer);
+
+        // rolling fails while the directory is missing, and the batch being written is dropped
+        deleteRecursively(directory, ALLOW_INSECURE);
+        writer.append(createEvent("/dropped", "agent", null));
+        while (writer.getDroppedRecords() == 0) {
+            Thread.sleep(1);
+        }
+        assertEquals(writer.getDroppedRecords(), 1);
+
+        // records appended while the writer is failing are kept, and written once the file can be opened again
+        writer.append(createEvent("/retained", "agent", null));
+        Files.createDirectories(directory);
+        awaitWritten(writer);
+        writer.append(createEvent("/after", "agent", null));
+        writer.stop();
+
+        List<HttpRequestEvent> events = new ArrayList<>();
+        BinaryRequestLogReader.readEvents(file, events::add);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(path -> path.toString().endsWith(BinaryRequestLogWriter.ROLLED_FILE_EXTENSION)).toList()) {
+                BinaryRequestLogReader.readEvents(path, events::add);
+            }
+        }
+        assertThat(events).extracting(HttpRequestEvent::getRequestUri).containsExactlyInAnyOrder("/retained", "/after");
+        assertEquals(writer.getDroppedRecords(), 1);
+    }
+
+    private static void awaitWritten(BinaryRequestLogWriter writer)
+            throws InterruptedException
+    {
+        while (writer.getQueueSize() > 0) {
+            Thread.sleep(1);
+        }
+        // the writer writes out its buffer once the ring is empty
+        Thread.sleep(50);
+    }
+
+    private static HttpRequestEvent roundTrip(HttpRequestEvent event)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORD_SIZE);
+        BinaryRequestLogCodec.encode(event, buffer);
+        assertThat(buffer.position()).isLessThanOrEqualTo(MAX_RECORD_SIZE);
+        buffer.flip();
+        HttpRequestEvent decoded = BinaryRequestLogCodec.decode(buffer);
+        assertEquals(buffer.remaining(), 0);
+        return decoded;
+    }
+
+    private static HttpRequestEvent createEvent(String requestUri, String agent, DoubleSummaryStats stats)
+    {
+        return new HttpRequestEvent(
+                Instant.ofEpochMilli(1_700_000_000_123L),
+                "trace-token",
+                "4.4.4.4",
+                "https",
+                "GET",
+                requestUri,
+                "martin",
+                agent,
+                "http://www.google.com",
+                5432,
+                "request/type",
+                32311,
+                200,
+                "response/type",
+                333,
+                456L,
+                3453,
+                333,
+                555,
+                444,
+                stats,
+                "HTTP/2.0");
+    }
+}
@@ -0,0 +1,268 @@
+package io.airlift.http.server;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.io.Resources;
+import io.airlift.http.client.HeaderName;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpClientConfig;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.http.server.HttpServer.ClientCertificate;
+import io.airlift.http.server.HttpServerBinder.HttpResourceBinding;
+import io.airlift.http.server.testing.TestingHttpServer;
+import io.airlift.node.NodeInfo;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.net.HttpHeaders.ACCEPT_ENCODING;
+import static com.google.common.net.HttpHeaders.CONTENT_ENCODING;
+import static com.google.common.net.HttpHeaders.CONTENT_RANGE;
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.IF_MODIFIED_SINCE;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static com.google.common.net.HttpHeaders.IF_RANGE;
+import static com.google.common.net.HttpHeaders.LAST_MODIFIED;
+import static com.google.common.net.HttpHeaders.RANGE;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+
+@Test(singleThreaded = true)
+public class TestClassPathResourceFilter
+{
+    private static final byte[] APP_JS = readResource("webapp/cached/app.js");
+
+    private TestingHttpServer server;
+    private HttpClient client;
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+    }
+
+    @Test
+    public void testServesCachedResource()
+            throws Exception
+    {
+        URI uri = startServer(false).resolve("/app.js");
+
+        BytesResponse first = get(uri);
+        assertEquals(first.statusCode(), 200);
+        assertEquals(first.body(), APP_JS);
+        assertThat(first.headers().get(HeaderName.of("Content-Type")).getFirst()).startsWith("text/javascript");
+        assertNull(first.header(CONTENT_ENCODING));
+
+        BytesResponse second = get(uri);
+        assertEquals(second.body(), APP_JS);
+        assertEquals(second.header(ETAG), first.header(ETAG));
+
+        ClassPathResourceCache cache = server.getResourceCache();
+        assertEquals(cache.getMisses().getTotalCount(), 1);
+        assertEquals(cache.getHits().getTotalCount(), 1);
+        assertEquals(cache.getCachedResources(), 1);
+        assertThat(cache.getCachedBytes()).isGreaterThan(APP_JS.length);
+    }
+
+    @Test
+    public void testServesPrecompressedVariant()
+            throws Exception
+    {
+        URI uri = startServer(true).resolve("/app.js");
+
+        BytesResponse response = get(uri, ACCEPT_ENCODING, "deflate, gzip;q=0.8");
+        assertEquals(response.statusCode(), 200);
+        assertEquals(response.header(CONTENT_ENCODING), "gzip");
+        assertThat(response.body().length).isLessThan(APP_JS.length / 2);
+        assertEquals(gunzip(response.body()), APP_JS);
+        assertNotEquals(response.header(ETAG), get(uri).header(ETAG));
+
+        assertNull(get(uri, ACCEPT_ENCODING, "gzip;q=0").header(CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testNotModified()
+            throws Exception
+    {
+        URI uri = startServer(false).resolve("/app.js");
+        BytesResponse response = get(uri, ACCEPT_ENCODING, "gzip");
+
+        BytesResponse notModified = get(uri, IF_NONE_MATCH, response.header(ETAG));
+        assertEquals(notModified.statusCode(), 304);
+        assertEquals(notModified.body().length, 0);
+
+        assertEquals(get(uri, IF_NONE_MATCH, "W/" + response.header(ETAG)).statusCode(), 304);
+        assertEquals(get(uri, IF_NONE_MATCH, "\"other\"").statusCode(), 200);
+        assertEquals(get(uri, IF_MODIFIED_SINCE, response.header(LAST_MODIFIED)).statusCode(), 304);
+        assertEquals(get(uri, IF_MODIFIED_SINCE, "Thu, 01 Jan 1970 00:00:00 GMT").statusCode(), 200);
+        assertEquals(get(uri, IF_MODIFIED_SINCE, "not a date").statusCode(), 200);
+
+        assertEquals(server.getResourceCache().getNotModified().getTotalCount(), 3);
+    }
+
+    @Test
+    public void testRange()
+            throws Exception
+    {
+        URI uri = startServer(false).resolve("/app.js");
+        int length = APP_JS.length;
+
+        BytesResponse response = get(uri, RANGE, "bytes=10-19");
+        assertEquals(response.statusCode(), 206);
+        assertEquals(response.header(CONTENT_RANGE), "bytes 10-19/" + length);
+        assertEquals(response.body(), Arrays.copyOfRange(APP_JS, 10, 20));
+
+        // ranges refer to the uncompressed content even when the client accepts gzip
+        response = get(uri, RANGE, "bytes=-5", ACCEPT_ENCODING, "gzip");
+        assertEquals(response.statusCode(), 206);
+        assertNull(response.header(CONTENT_ENCODING));
+        assertEquals(response.body(), Arrays.copyOfRange(APP_JS, length - 5, length));
+
+        response = get(uri, RANGE, "bytes=100-");
+        assertEquals(response.statusCode(), 206);
+        assertEquals(response.body(), Arrays.copyOfRange(APP_JS, 100, length));
+
+        response = get(uri, RANGE, "bytes=" + length + "-");
+        assertEquals(response.statusCode(), 416);
+        assertEquals(response.header(CONTENT_RANGE), "bytes */" + length);
+
+        // multiple ranges and stale validators get the full content
+        assertEquals(get(uri, RANGE, "bytes=0-1,5-6").body(), APP_JS);
+        assertEquals(get(uri, RANGE, "bytes=0-1", IF_RANGE, "\"stale\"").body(), APP_JS);
+        String etag = get(uri).header(ETAG);
+        assertEquals(get(uri, RANGE, "bytes=0-1", IF_RANGE, etag).statusCode(), 206);
+
+        assertEquals(server.getResourceCache().getPartialContent().getTotalCount(), 4);
+    }
+
+    @Test
+    public void testCacheSizeLimit()
+            throws Exception
+    {
+        HttpServerConfig config = new HttpServerConfig()
+                .setHttpPort(0)
+                .setResourceCacheEnabled(true)
+                .setResourceCacheMaxSize(DataSize.ofBytes(APP_JS.length / 2));
+        URI uri = startServer(config).resolve("/app.js");
+
+        for (int i = 0; i < 2; i++) {
+            // streamed from the classpath, without validators
+            BytesResponse response = get(uri);
+            assertEquals(response.body(), APP_JS);
+            assertNull(response.header(ETAG));
+        }
+
+        ClassPathResourceCache cache = server.getResourceCache();
+        assertEquals(cache.getCachedResources(), 0);
+        assertEquals(cache.getCachedBytes(), 0);
+        assertEquals(cache.getMisses().getTotalCount(), 0);
+        assertEquals(cache.getUncached().getTotalCount(), 2);
+    }
+
+    private URI startServer(boolean offHeap)
+            throws Exception
+    {
+        return startServer(new HttpServerConfig()
+                .setHttpPort(0)
+                .setResourceCacheEnabled(true)
+                .setResourceCacheOffHeap(offHeap));
+    }
+
+    private URI startServer(HttpServerConfig config)
+            throws Exception
+    {
+        NodeInfo nodeInfo = new NodeInfo("test");
+        HttpServerInfo httpServerInfo = new HttpServerInfo(config, nodeInfo);
+        server = new TestingHttpServer(
+                httpServerInfo,
+                nodeInfo,
+                config,
+                Optional.empty(),
+                new DummyServlet(),
+                ImmutableMap.of(),
+                ImmutableSet.of(),
+                ImmutableSet.of(new HttpResourceBinding("/", "webapp/cached")),
+                false,
+                false,
+                ClientCertificate.NONE);
+        server.start();
+        client = new JettyHttpClient(new HttpClientConfig());
+        return server.getBaseUrl();
+    }
+
+    private BytesResponse get(URI uri, String... headers)
+    {
+        Request.Builder request = prepareGet().setUri(uri);
+        for (int i = 0; i < headers.length; i += 2) {
+            request.addHeader(headers[i], headers[i + 1]);
+        }
+        return client.execute(request.build(), new ResponseHandler<>()
+        {
+            @Override
+            public BytesResponse handleException(Request request, Exception exception)
+            {
+                throw new RuntimeException(exception);
+            }
+
+            @Override
+            public BytesResponse handle(Request request, Response response)
+            {
+                try {
+                    return new BytesResponse(response.getStatusCode(), response.getHeaders(), response.getInputStream().readAllBytes());
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private static byte[] gunzip(byte[] bytes)
+            throws IOException
+    {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] readResource(String name)
+    {
+        try {
+            return Resources.toByteArray(Resources.getResource(name));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record BytesResponse(int statusCode, ListMultimap<HeaderName, String> headers, byte[] body)
+    {
+        public String header(String name)
+        {
+            return headers.get(HeaderName.of(name)).stream().findFirst().orElse(null);
+        }
+    }
+}
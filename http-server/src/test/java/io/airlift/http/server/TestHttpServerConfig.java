@@ -16,8 +16,10 @@
 package io.airlift.http.server;
 
 import com.google.common.collect.ImmutableMap;
+import io.airlift.http.server.HttpServerConfig.LogFormat;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
+import jakarta.validation.constraints.AssertTrue;
 import org.testng.annotations.Test;
 
 import java.util.Map;
@@ -25,9 +27,12 @@ import java.util.Map;
 import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
 import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.testing.ValidationAssertions.assertFailsValidation;
+import static io.airlift.testing.ValidationAssertions.assertValidates;
 import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -48,6 +53,7 @@ public class TestHttpServerConfig
                 .setLogHistory(15)
                 .setLogQueueSize(10_000)
                 .setLogCompressionEnabled(true)
+                .setLogFormat(LogFormat.TEXT)
                 .setHttpAcceptorThreads(null)
                 .setHttpSelectorThreads(null)
                 .setHttpsAcceptorThreads(null)
@@ -68,7 +74,16 @@ public class TestHttpServerConfig
                 .setHttp2InitialSessionReceiveWindowSize(DataSize.of(16, MEGABYTE))
                 .setHttp2InputBufferSize(DataSize.of(8, KILOBYTE))
                 .setHttp2InitialStreamReceiveWindowSize(DataSize.of(16, MEGABYTE))
-                .setHttp2StreamIdleTimeout(new Duration(15, SECONDS)));
+                .setHttp2StreamIdleTimeout(new Duration(15, SECONDS))
+                .setResourceCacheEnabled(false)
+                .setResourceCacheMaxSize(DataSize.of(64, MEGABYTE))
+                .setResourceCacheOffHeap(false)
+                .setRouteStatsMaxRoutes(100)
+                .setAdmissionControlEnabled(false)
+                .setAdmissionControlTargetQueueTime(new Duration(5, MILLISECONDS))
+                .setAdmissionControlInterval(new Duration(100, MILLISECONDS))
+                .setAdmissionControlMaxConcurrentRequests(null)
+                .setAdmissionControlRetryAfter(new Duration(1, SECONDS)));
     }
 
     @Test
@@ -86,6 +101,7 @@ public class TestHttpServerConfig
                 .put("http-server.log.max-history", "1")
                 .put("http-server.log.queue-size", "1")
                 .put("http-server.log.compression.enabled", "false")
+                .put("http-server.log.format", "BINARY")
                 .put("http-server.http.acceptor-threads", "10")
                 .put("http-server.http.selector-threads", "11")
                 .put("http-server.https.acceptor-threads", "12")
@@ -107,6 +123,15 @@ public class TestHttpServerConfig
                 .put("http-server.http2.stream-receive-window-size", "4MB")
                 .put("http-server.http2.input-buffer-size", "4MB")
                 .put("http-server.http2.stream-idle-timeout", "23s")
+                .put("http-server.resource-cache.enabled", "true")
+                .put("http-server.resource-cache.max-size", "1GB")
+                .put("http-server.resource-cache.off-heap", "true")
+                .put("http-server.route-stats.max-routes", "7")
+                .put("http-server.admission-control.enabled", "true")
+                .put("http-server.admission-control.target-queue-time", "20ms")
+                .put("http-server.admission-control.interval", "1s")
+                .put("http-server.admission-control.max-concurrent-requests", "500")
+                .put("http-server.admission-control.retry-after", "5s")
                 .build();
 
         HttpServerConfig expected = new HttpServerConfig()
@@ -121,6 +146,7 @@ public class TestHttpServerConfig
                 .setLogHistory(1)
                 .setLogQueueSize(1)
                 .setLogCompressionEnabled(false)
+                .setLogFormat(LogFormat.BINARY)
                 .setHttpAcceptorThreads(10)
                 .setHttpSelectorThreads(11)
                 .setHttpsAcceptorThreads(12)
@@ -141,8 +167,33 @@ public class TestHttpServerConfig
                 .setHttp2InitialSessionReceiveWindowSize(DataSize.of(4, MEGABYTE))
                 .setHttp2InitialStreamReceiveWindowSize(DataSize.of(4, MEGABYTE))
                 .setHttp2InputBufferSize(DataSize.of(4, MEGABYTE))
-                .setHttp2StreamIdleTimeout(new Duration(23, SECONDS));
+                .setHttp2StreamIdleTimeout(new Duration(23, SECONDS))
+                .setResourceCacheEnabled(true)
+                .setResourceCacheMaxSize(DataSize.of(1, GIGABYTE))
+                .setResourceCacheOffHeap(true)
+                .setRouteStatsMaxRoutes(7)
+                .setAdmissionControlEnabled(true)
+                .setAdmissionControlTargetQueueTime(new Duration(20, MILLISECONDS))
+                .setAdmissionControlInterval(new Duration(1, SECONDS))
+                .setAdmissionControlMaxConcurrentRequests(500)
+                .setAdmissionControlRetryAfter(new Duration(5, SECONDS));
 
         assertFullMapping(properties, expected);
     }
+
+    @Test
+    public void testAdmissionControlValidation()
+    {
+        assertValidates(new HttpServerConfig()
+                .setAdmissionControlTargetQueueTime(new Duration(100, MILLISECONDS))
+                .setAdmissionControlInterval(new Duration(100, MILLISECONDS)));
+
+        assertFailsValidation(
+                new HttpServerConfig()
+                        .setAdmissionControlTargetQueueTime(new Duration(1, SECONDS))
+                        .setAdmissionControlInterval(new Duration(100, MILLISECONDS)),
+                "admissionControlTargetQueueTimeValid",
+                "http-server.admission-control.target-queue-time must not be greater than http-server.admission-control.interval",
+                AssertTrue.class);
+    }
 }
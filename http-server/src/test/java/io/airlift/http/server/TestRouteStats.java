@@ -0,0 +1,87 @@
+package io.airlift.http.server;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.assertEquals;
+
+public class TestRouteStats
+{
+    private static final Duration REQUEST_TIME = new Duration(10, MILLISECONDS);
+
+    @Test
+    public void testRecord()
+    {
+        RouteStats stats = new RouteStats(10);
+        stats.record("GET /v1/task/{taskId}", 0, 100, REQUEST_TIME);
+        stats.record("GET /v1/task/{taskId}", 0, 300, REQUEST_TIME);
+        stats.record("POST /v1/task", 1000, 0, REQUEST_TIME);
+
+        assertEquals(stats.getRouteCount(), 2);
+        RequestStats task = stats.getRoutes().get("GET /v1/task/{taskId}");
+        assertEquals(task.getRequest().getTotalCount(), 2);
+        assertEquals(task.getWrittenBytes().getAllTime().getTotal(), 400.0);
+        assertEquals(task.getRequestTime().getAllTime().getCount(), 2.0);
+        assertEquals(stats.getRoutes().get("POST /v1/task").getReadBytes().getAllTime().getTotal(), 1000.0);
+        assertEquals(stats.getOtherRoutes().getRequest().getTotalCount(), 0);
+    }
+
+    @Test
+    public void testMaxRoutes()
+    {
+        RouteStats stats = new RouteStats(2);
+        stats.record("GET /a", 0, 0, REQUEST_TIME);
+        stats.record("GET /b", 0, 0, REQUEST_TIME);
+        stats.record("GET /c", 0, 0, REQUEST_TIME);
+        stats.record("GET /d", 0, 0, REQUEST_TIME);
+        stats.record("GET /a", 0, 0, REQUEST_TIME);
+
+        assertThat(stats.getRoutes()).containsOnlyKeys("GET /a", "GET /b");
+        assertEquals(stats.getRoutes().get("GET /a").getRequest().getTotalCount(), 2);
+        assertEquals(stats.getOtherRoutes().getRequest().getTotalCount(), 2);
+
+        RouteStats disabled = new RouteStats(0);
+        disabled.record("GET /a", 0, 0, REQUEST_TIME);
+        assertEquals(disabled.getRouteCount(), 0);
+        assertEquals(disabled.getOtherRoutes().getRequest().getTotalCount(), 0);
+    }
+
+    @Test
+    public void testExport()
+            throws Exception
+    {
+        MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+        RouteStats stats = new RouteStats(10);
+
+        // routes recorded before the exporter is available are exported with it
+        stats.record("GET /v1/task/{taskId}", 0, 0, REQUEST_TIME);
+        stats.setExporter(new MBeanExporter(mbeanServer));
+        stats.record("GET /v1/task/{taskId}/", 0, 0, REQUEST_TIME);
+        stats.record("GET /", 0, 0, REQUEST_TIME);
+
+        assertThat(mbeanServer.queryNames(new ObjectName("io.airlift.http.server:name=RouteStats,*"), null))
+                .containsExactlyInAnyOrder(
+                        new ObjectName("io.airlift.http.server:name=RouteStats,route=GET_v1_task_taskId"),
+                        new ObjectName("io.airlift.http.server:name=RouteStats,route=GET_v1_task_taskId_2"),
+                        new ObjectName("io.airlift.http.server:name=RouteStats,route=GET"));
+        assertEquals(mbeanServer.getAttribute(new ObjectName("io.airlift.http.server:name=RouteStats,route=GET"), "TotalCount"), 1L);
+
+        stats.unexport();
+        assertThat(mbeanServer.queryNames(new ObjectName("io.airlift.http.server:name=RouteStats,*"), null)).isEmpty();
+    }
+
+    @Test
+    public void testObjectNameValue()
+    {
+        assertEquals(RouteStats.toObjectNameValue("GET /v1/task/{taskId}"), "GET_v1_task_taskId");
+        assertEquals(RouteStats.toObjectNameValue("GET /v1/{path:.*}"), "GET_v1_path");
+        assertEquals(RouteStats.toObjectNameValue("/"), "root");
+    }
+}
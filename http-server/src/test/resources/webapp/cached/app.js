@@ -0,0 +1,201 @@
+// test bundle for the static resource cache
+export function component0(props) { return render('component-0', props); }
+export function component1(props) { return render('component-1', props); }
+export function component2(props) { return render('component-2', props); }
+export function component3(props) { return render('component-3', props); }
+export function component4(props) { return render('component-4', props); }
+export function component5(props) { return render('component-5', props); }
+export function component6(props) { return render('component-6', props); }
+export function component7(props) { return render('component-7', props); }
+export function component8(props) { return render('component-8', props); }
+export function component9(props) { return render('component-9', props); }
+export function component10(props) { return render('component-10', props); }
+export function component11(props) { return render('component-11', props); }
+export function component12(props) { return render('component-12', props); }
+export function component13(props) { return render('component-13', props); }
+export function component14(props) { return render('component-14', props); }
+export function component15(props) { return render('component-15', props); }
+export function component16(props) { return render('component-16', props); }
+export function component17(props) { return render('component-17', props); }
+export function component18(props) { return render('component-18', props); }
+export function component19(props) { return render('component-19', props); }
+export function component20(props) { return render('component-20', props); }
+export function component21(props) { return render('component-21', props); }
+export function component22(props) { return render('component-22', props); }
+export function component23(props) { return render('component-23', props); }
+export function component24(props) { return render('component-24', props); }
+export function component25(props) { return render('component-25', props); }
+export function component26(props) { return render('component-26', props); }
+export function component27(props) { return render('component-27', props); }
+export function component28(props) { return render('component-28', props); }
+export function component29(props) { return render('component-29', props); }
+export function component30(props) { return render('component-30', props); }
+export function component31(props) { return render('component-31', props); }
+export function component32(props) { return render('component-32', props); }
+export function component33(props) { return render('component-33', props); }
+export function component34(props) { return render('component-34', props); }
+export function component35(props) { return render('component-35', props); }
+export function component36(props) { return render('component-36', props); }
+export function component37(props) { return render('component-37', props); }
+export function component38(props) { return render('component-38', props); }
+export function component39(props) { return render('component-39', props); }
+export function component40(props) { return render('component-40', props); }
+export function component41(props) { return render('component-41', props); }
+export function component42(props) { return render('component-42', props); }
+export function component43(props) { return render('component-43', props); }
+export function component44(props) { return render('component-44', props); }
+export function component45(props) { return render('component-45', props); }
+export function component46(props) { return render('component-46', props); }
+export function component47(props) { return render('component-47', props); }
+export function component48(props) { return render('component-48', props); }
+export function component49(props) { return render('component-49', props); }
+export function component50(props) { return render('component-50', props); }
+export function component51(props) { return render('component-51', props); }
+export function component52(props) { return render('component-52', props); }
+export function component53(props) { return render('component-53', props); }
+export function component54(props) { return render('component-54', props); }
+export function component55(props) { return render('component-55', props); }
+export function component56(props) { return render('component-56', props); }
+export function component57(props) { return render('component-57', props); }
+export function component58(props) { return render('component-58', props); }
+export function component59(props) { return render('component-59', props); }
+export function component60(props) { return render('component-60', props); }
+export function component61(props) { return render('component-61', props); }
+export function component62(props) { return render('component-62', props); }
+export function component63(props) { return render('component-63', props); }
+export function component64(props) { return render('component-64', props); }
+export function component65(props) { return render('component-65', props); }
+export function component66(props) { return render('component-66', props); }
+export function component67(props) { return render('component-67', props); }
+export function component68(props) { return render('component-68', props); }
+export function component69(props) { return render('component-69', props); }
+export function component70(props) { return render('component-70', props); }
+export function component71(props) { return render('component-71', props); }
+export function component72(props) { return render('component-72', props); }
+export function component73(props) { return render('component-73', props); }
+export function component74(props) { return render('component-74', props); }
+export function component75(props) { return render('component-75', props); }
+export function component76(props) { return render('component-76', props); }
+export function component77(props) { return render('component-77', props); }
+export function component78(props) { return render('component-78', props); }
+export function component79(props) { return render('component-79', props); }
+export function component80(props) { return render('component-80', props); }
+export function component81(props) { return render('component-81', props); }
+export function component82(props) { return render('component-82', props); }
+export function component83(props) { return render('component-83', props); }
+export function component84(props) { return render('component-84', props); }
+export function component85(props) { return render('component-85', props); }
+export function component86(props) { return render('component-86', props); }
+export function component87(props) { return render('component-87', props); }
+export function component88(props) { return render('component-88', props); }
+export function component89(props) { return render('component-89', props); }
+export function component90(props) { return render('component-90', props); }
+export function component91(props) { return render('component-91', props); }
+export function component92(props) { return render('component-92', props); }
+export function component93(props) { return render('component-93', props); }
+export function component94(props) { return render('component-94', props); }
+export function component95(props) { return render('component-95', props); }
+export function component96(props) { return render('component-96', props); }
+export function component97(props) { return render('component-97', props); }
+export function component98(props) { return render('component-98', props); }
+export function component99(props) { return render('component-99', props); }
+export function component100(props) { return render('component-100', props); }
+export function component101(props) { return render('component-101', props); }
+export function component102(props) { return render('component-102', props); }
+export function component103(props) { return render('component-103', props); }
+export function component104(props) { return render('component-104', props); }
+export function component105(props) { return render('component-105', props); }
+export function component106(props) { return render('component-106', props); }
+export function component107(props) { return render('component-107', props); }
+export function component108(props) { return render('component-108', props); }
+export function component109(props) { return render('component-109', props); }
+export function component110(props) { return render('component-110', props); }
+export function component111(props) { return render('component-111', props); }
+export function component112(props) { return render('component-112', props); }
+export function component113(props) { return render('component-113', props); }
+export function component114(props) { return render('component-114', props); }
+export function component115(props) { return render('component-115', props); }
+export function component116(props) { return render('component-116', props); }
+export function component117(props) { return render('component-117', props); }
+export function component118(props) { return render('component-118', props); }
+export function component119(props) { return render('component-119', props); }
+export function component120(props) { return render('component-120', props); }
+export function component121(props) { return render('component-121', props); }
+export function component122(props) { return render('component-122', props); }
+export function component123(props) { return render('component-123', props); }
+export function component124(props) { return render('component-124', props); }
+export function component125(props) { return render('component-125', props); }
+export function component126(props) { return render('component-126', props); }
+export function component127(props) { return render('component-127', props); }
+export function component128(props) { return render('component-128', props); }
+export function component129(props) { return render('component-129', props); }
+export function component130(props) { return render('component-130', props); }
+export function component131(props) { return render('component-131', props); }
+export function component132(props) { return render('component-132', props); }
+export function component133(props) { return render('component-133', props); }
+export function component134(props) { return render('component-134', props); }
+export function component135(props) { return render('component-135', props); }
+export function component136(props) { return render('component-136', props); }
+export function component137(props) { return render('component-137', props); }
+export function component138(props) { return render('component-138', props); }
+export function component139(props) { return render('component-139', props); }
+export function component140(props) { return render('component-140', props); }
+export function component141(props) { return render('component-141', props); }
+export function component142(props) { return render('component-142', props); }
+export function component143(props) { return render('component-143', props); }
+export function component144(props) { return render('component-144', props); }
+export function component145(props) { return render('component-145', props); }
+export function component146(props) { return render('component-146', props); }
+export function component147(props) { return render('component-147', props); }
+export function component148(props) { return render('component-148', props); }
+export function component149(props) { return render('component-149', props); }
+export function component150(props) { return render('component-150', props); }
+export function component151(props) { return render('component-151', props); }
+export function component152(props) { return render('component-152', props); }
+export function component153(props) { return render('component-153', props); }
+export function component154(props) { return render('component-154', props); }
+export function component155(props) { return render('component-155', props); }
+export function component156(props) { return render('component-156', props); }
+export function component157(props) { return render('component-157', props); }
+export function component158(props) { return render('component-158', props); }
+export function component159(props) { return render('component-159', props); }
+export function component160(props) { return render('component-160', props); }
+export function component161(props) { return render('component-161', props); }
+export function component162(props) { return render('component-162', props); }
+export function component163(props) { return render('component-163', props); }
+export function component164(props) { return render('component-164', props); }
+export function component165(props) { return render('component-165', props); }
+export function component166(props) { return render('component-166', props); }
+export function component167(props) { return render('component-167', props); }
+export function component168(props) { return render('component-168', props); }
+export function component169(props) { return render('component-169', props); }
+export function component170(props) { return render('component-170', props); }
+export function component171(props) { return render('component-171', props); }
+export function component172(props) { return render('component-172', props); }
+export function component173(props) { return render('component-173', props); }
+export function component174(props) { return render('component-174', props); }
+export function component175(props) { return render('component-175', props); }
+export function component176(props) { return render('component-176', props); }
+export function component177(props) { return render('component-177', props); }
+export function component178(props) { return render('component-178', props); }
+export function component179(props) { return render('component-179', props); }
+export function component180(props) { return render('component-180', props); }
+export function component181(props) { return render('component-181', props); }
+export function component182(props) { return render('component-182', props); }
+export function component183(props) { return render('component-183', props); }
+export function component184(props) { return render('component-184', props); }
+export function component185(props) { return render('component-185', props); }
+export function component186(props) { return render('component-186', props); }
+export function component187(props) { return render('component-187', props); }
+export function component188(props) { return render('component-188', props); }
+export function component189(props) { return render('component-189', props); }
+export function component190(props) { return render('component-190', props); }
+export function component191(props) { return render('component-191', props); }
+export function component192(props) { return render('component-192', props); }
+export function component193(props) { return render('component-193', props); }
+export function component194(props) { return render('component-194', props); }
+export function component195(props) { return render('component-195', props); }
+export function component196(props) { return render('component-196', props); }
+export function component197(props) { return render('component-197', props); }
+export function component198(props) { return render('component-198', props); }
+export function component199(props) { return render('component-199', props); }
@@ -143,6 +143,11 @@ abstract class AbstractJacksonMapper
             OutputStream outputStream)
             throws IOException
     {
+        if (value instanceof PreSerializedJson<?> preSerialized) {
+            writePreSerialized(preSerialized, httpHeaders, outputStream);
+            return;
+        }
+
         JavaType rootType = null;
         if (genericType != null && value != null) {
             if (genericType.getClass() != Class.class) { // generic types are other implementations of 'java.lang.reflect.Type'
@@ -156,6 +161,15 @@ abstract class AbstractJacksonMapper
         write(value, Optional.ofNullable(rootType), httpHeaders, outputStream);
     }
 
+    /**
+     * Writes a pre-serialized entity. By default, the value is serialized like any other entity.
+     */
+    protected void writePreSerialized(PreSerializedJson<?> value, MultivaluedMap<String, Object> httpHeaders, OutputStream outputStream)
+            throws IOException
+    {
+        write(value.getValue(), Optional.empty(), httpHeaders, outputStream);
+    }
+
     protected abstract void write(
             Object value,
             Optional<JavaType> rootType,
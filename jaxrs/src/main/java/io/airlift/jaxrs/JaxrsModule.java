@@ -53,6 +53,7 @@ public class JaxrsModule
         jaxrsBinder(binder).bind(JsonMapper.class);
         jaxrsBinder(binder).bind(SmileMapper.class);
         jaxrsBinder(binder).bind(ParsingExceptionMapper.class);
+        jaxrsBinder(binder).bind(RouteStatsFilter.class);
 
         newSetBinder(binder, Object.class, JaxrsResource.class).permitDuplicates();
 
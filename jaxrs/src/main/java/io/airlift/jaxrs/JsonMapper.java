@@ -69,6 +69,25 @@ public class JsonMapper
         return objectMapper.getFactory();
     }
 
+    @Override
+    protected void writePreSerialized(PreSerializedJson<?> value, MultivaluedMap<String, Object> httpHeaders, OutputStream outputStream)
+            throws IOException
+    {
+        // pretty printing and JSONP change the output, so they need the regular serialization
+        if (isPrettyPrintRequested() || getJsonpFunctionName() != null) {
+            super.writePreSerialized(value, httpHeaders, outputStream);
+            return;
+        }
+
+        httpHeaders.add(HttpHeaders.X_CONTENT_TYPE_OPTIONS, "nosniff");
+        try {
+            value.writeTo(outputStream);
+        }
+        catch (EOFException e) {
+            // the client closed the connection, see write()
+        }
+    }
+
     @Override
     protected void write(Object value,
             Optional<JavaType> rootType,
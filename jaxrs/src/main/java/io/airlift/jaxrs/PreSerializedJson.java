@@ -0,0 +1,102 @@
+package io.airlift.jaxrs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.hash.Hashing;
+import jakarta.ws.rs.core.EntityTag;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A response entity that is serialized to JSON once, for resources that return the same or
+ * slowly changing values many times, such as status endpoints. {@link JsonMapper} writes the
+ * serialized bytes directly, without Jackson, unless the request asks for pretty printing or
+ * JSONP. Other mappers serialize the {@linkplain #getValue() value} as usual.
+ * <p>
+ * Each serialization has a version, which is incremented by {@link #update} when the value
+ * changes. Conditional requests can be answered with {@link #getEntityTag()}, which is a hash of
+ * the serialized bytes, so that it is the same across restarts and across servers. The value
+ * must not be mutated after it is serialized.
+ */
+public final class PreSerializedJson<T>
+{
+    private final ObjectWriter writer;
+    private final T value;
+    private final long version;
+    private final byte[] json;
+    private final EntityTag entityTag;
+
+    private PreSerializedJson(ObjectWriter writer, T value, long version)
+    {
+        this.writer = writer;
+        this.value = requireNonNull(value, "value is null");
+        this.version = version;
+        try {
+            byte[] bytes = writer.writeValueAsBytes(value);
+            // same trailing newline as JsonMapper
+            this.json = Arrays.copyOf(bytes, bytes.length + 1);
+            this.json[bytes.length] = '\n';
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to serialize " + value.getClass().getName(), e);
+        }
+        this.entityTag = new EntityTag(Hashing.murmur3_128().hashBytes(json).toString());
+    }
+
+    /**
+     * Serializes the value with the object mapper, which should be the one used by {@link JsonMapper}.
+     */
+    public static <T> PreSerializedJson<T> of(ObjectMapper objectMapper, T value)
+    {
+        return new PreSerializedJson<>(objectMapper.writer(), value, 0);
+    }
+
+    /**
+     * Returns this instance if the value is equal to the current value, and otherwise a new
+     * serialization of the value with the next version.
+     */
+    public PreSerializedJson<T> update(T newValue)
+    {
+        if (Objects.equals(value, newValue)) {
+            return this;
+        }
+        return new PreSerializedJson<>(writer, newValue, version + 1);
+    }
+
+    public T getValue()
+    {
+        return value;
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public EntityTag getEntityTag()
+    {
+        return entityTag;
+    }
+
+    void writeTo(OutputStream outputStream)
+            throws IOException
+    {
+        outputStream.write(json);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("version", version)
+                .add("value", value)
+                .toString();
+    }
+}
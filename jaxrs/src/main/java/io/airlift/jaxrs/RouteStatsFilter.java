@@ -0,0 +1,51 @@
+package io.airlift.jaxrs;
+
+import io.airlift.http.server.RouteStats;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import java.util.List;
+
+/**
+ * Sets the {@link RouteStats#ROUTE_ATTRIBUTE} of the request to the HTTP method and the path
+ * template of the matched resource method, e.g., {@code GET /v1/task/{taskId}}, so that the
+ * HTTP server records request statistics per route rather than per URI.
+ */
+@Priority(0)
+public final class RouteStatsFilter
+        implements ContainerRequestFilter
+{
+    @Override
+    public void filter(ContainerRequestContext requestContext)
+    {
+        ContainerRequest request = (ContainerRequest) requestContext.getRequest();
+        // with the servlet container, request properties are backed by the servlet request attributes
+        requestContext.setProperty(RouteStats.ROUTE_ATTRIBUTE, getRoute(request.getMethod(), request.getUriInfo().getMatchedTemplates()));
+    }
+
+    static String getRoute(String method, List<UriTemplate> matchedTemplates)
+    {
+        StringBuilder route = new StringBuilder(method).append(' ');
+        int prefixLength = route.length();
+        // the templates are ordered from the resource method to the root resource
+        for (int i = matchedTemplates.size() - 1; i >= 0; i--) {
+            appendPath(route, matchedTemplates.get(i).getTemplate());
+        }
+        if (route.length() == prefixLength) {
+            route.append('/');
+        }
+        return route.toString();
+    }
+
+    private static void appendPath(StringBuilder route, String path)
+    {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        if (start < end) {
+            route.append('/').append(path, start, end);
+        }
+    }
+}
@@ -17,8 +17,12 @@ package io.airlift.jaxrs;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.net.HttpHeaders;
 import io.airlift.jaxrs.testing.GuavaMultivaluedMap;
+import io.airlift.jaxrs.testing.MockUriInfo;
 import io.airlift.json.JsonCodec;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MultivaluedMap;
@@ -28,10 +32,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipException;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -63,6 +71,61 @@ public class TestJsonMapper
         assertEquals(headers.getFirst(HttpHeaders.X_CONTENT_TYPE_OPTIONS), "nosniff");
     }
 
+    @Test
+    public void testPreSerialized()
+            throws IOException
+    {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonMapper jsonMapper = new JsonMapper(objectMapper);
+        Map<String, Object> value = ImmutableMap.of("state", "ACTIVE", "uptime", 123);
+        PreSerializedJson<Map<String, Object>> preSerialized = PreSerializedJson.of(objectMapper, value);
+
+        // the same output as the regular serialization of the value
+        assertEquals(write(jsonMapper, preSerialized), write(jsonMapper, value));
+
+        // pretty printing falls back to the regular serialization
+        jsonMapper.setUriInfo(MockUriInfo.from("http://localhost/status?pretty"));
+        String pretty = write(jsonMapper, value);
+        assertTrue(pretty.contains("\n  \"state\""));
+        assertEquals(write(jsonMapper, preSerialized), pretty);
+
+        // other mappers serialize the value
+        ByteArrayOutputStream smile = new ByteArrayOutputStream();
+        new SmileMapper(objectMapper).writeTo(preSerialized, PreSerializedJson.class, null, null, null, new GuavaMultivaluedMap<>(), smile);
+        assertEquals(new ObjectMapper(new SmileFactory()).readValue(smile.toByteArray(), Map.class), value);
+    }
+
+    @Test
+    public void testPreSerializedVersion()
+    {
+        ObjectMapper objectMapper = new ObjectMapper();
+        PreSerializedJson<List<String>> preSerialized = PreSerializedJson.of(objectMapper, ImmutableList.of("a"));
+        assertEquals(preSerialized.getVersion(), 0);
+
+        assertSame(preSerialized.update(ImmutableList.of("a")), preSerialized);
+
+        PreSerializedJson<List<String>> updated = preSerialized.update(ImmutableList.of("a", "b"));
+        assertEquals(updated.getVersion(), 1);
+        assertEquals(updated.getValue(), ImmutableList.of("a", "b"));
+        assertNotEquals(updated.getEntityTag(), preSerialized.getEntityTag());
+
+        // the entity tag depends only on the serialized bytes
+        PreSerializedJson<List<String>> reverted = updated.update(ImmutableList.of("a"));
+        assertEquals(reverted.getVersion(), 2);
+        assertEquals(reverted.getEntityTag(), preSerialized.getEntityTag());
+        assertEquals(PreSerializedJson.of(objectMapper, ImmutableList.of("a")).getEntityTag(), preSerialized.getEntityTag());
+    }
+
+    private static String write(JsonMapper jsonMapper, Object value)
+            throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MultivaluedMap<String, Object> headers = new GuavaMultivaluedMap<>();
+        jsonMapper.writeTo(value, value.getClass(), null, null, null, headers, outputStream);
+        assertEquals(headers.getFirst(HttpHeaders.X_CONTENT_TYPE_OPTIONS), "nosniff");
+        return outputStream.toString(UTF_8);
+    }
+
     @Test
     public void testEOFExceptionReturnsJsonMapperParsingException()
             throws IOException
@@ -0,0 +1,100 @@
+package io.airlift.jaxrs;
+
+import com.google.inject.Injector;
+import io.airlift.bootstrap.Bootstrap;
+import io.airlift.bootstrap.LifeCycleManager;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.http.server.HttpServer;
+import io.airlift.http.server.HttpServerInfo;
+import io.airlift.http.server.RequestStats;
+import io.airlift.http.server.RouteStats;
+import io.airlift.http.server.testing.TestingHttpServerModule;
+import io.airlift.json.JsonModule;
+import io.airlift.node.testing.TestingNodeModule;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static io.airlift.jaxrs.JaxrsBinder.jaxrsBinder;
+import static org.testng.Assert.assertEquals;
+
+public class TestRouteStatsFilter
+{
+    @Path("/v1/item")
+    public static class ItemResource
+    {
+        @GET
+        public String list()
+        {
+            return "items";
+        }
+
+        @GET
+        @Path("{id}/")
+        public String get(@PathParam("id") String id)
+        {
+            return id;
+        }
+
+        @POST
+        @Path("{id}")
+        public void update(@PathParam("id") String id) {}
+    }
+
+    @Test
+    public void testRecordsRequestsPerRoute()
+            throws Exception
+    {
+        Injector injector = new Bootstrap(
+                binder -> jaxrsBinder(binder).bind(ItemResource.class),
+                new TestingNodeModule(),
+                new TestingHttpServerModule(),
+                new JaxrsModule(),
+                new JsonModule())
+                .quiet()
+                .initialize();
+
+        try (HttpClient client = new JettyHttpClient()) {
+            URI uri = injector.getInstance(HttpServerInfo.class).getHttpUri();
+            client.execute(prepareGet().setUri(uri.resolve("/v1/item")).build(), createStatusResponseHandler());
+            client.execute(prepareGet().setUri(uri.resolve("/v1/item/1")).build(), createStatusResponseHandler());
+            client.execute(prepareGet().setUri(uri.resolve("/v1/item/2")).build(), createStatusResponseHandler());
+            client.execute(preparePost().setUri(uri.resolve("/v1/item/2")).build(), createStatusResponseHandler());
+            // unmatched requests have no route
+            client.execute(prepareGet().setUri(uri.resolve("/unknown")).build(), createStatusResponseHandler());
+
+            RouteStats routeStats = injector.getInstance(HttpServer.class).getRouteStats();
+            // the stats are recorded after the response is sent
+            long start = System.nanoTime();
+            while (totalCount(routeStats.getRoutes()) < 4 && System.nanoTime() - start < 10_000_000_000L) {
+                Thread.sleep(10);
+            }
+
+            Map<String, RequestStats> routes = routeStats.getRoutes();
+            assertEquals(routes.keySet(), Set.of("GET /v1/item", "GET /v1/item/{id}", "POST /v1/item/{id}"));
+            assertEquals(routes.get("GET /v1/item").getRequest().getTotalCount(), 1);
+            assertEquals(routes.get("GET /v1/item/{id}").getRequest().getTotalCount(), 2);
+            assertEquals(routes.get("POST /v1/item/{id}").getRequest().getTotalCount(), 1);
+        }
+        finally {
+            injector.getInstance(LifeCycleManager.class).stop();
+        }
+    }
+
+    private static long totalCount(Map<String, RequestStats> routes)
+    {
+        return routes.values().stream()
+                .mapToLong(stats -> stats.getRequest().getTotalCount())
+                .sum();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.airlift.json;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Suppliers;
@@ -23,11 +24,13 @@ import com.google.common.reflect.TypeToken;
 import io.airlift.json.LengthLimitedWriter.LengthLimitExceededException;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import static com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT;
@@ -215,6 +218,41 @@ public class JsonCodec<T>
         }
     }
 
+    /**
+     * Writes the specified instance as json (UTF-8) directly to the output stream, without
+     * materializing the serialized form. The stream is flushed but not closed.
+     *
+     * @param instance the instance to convert to json
+     * @param output the stream to write the json bytes to
+     * @throws IOException if the specified instance can not be converted to json or the stream can not be written
+     */
+    public void writeJson(T instance, OutputStream output)
+            throws IOException
+    {
+        mapper.writerFor(javaType)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(output, instance);
+    }
+
+    /**
+     * Creates a decoder that parses json (UTF-8) into an instance of type T as the bytes
+     * arrive, without blocking for more input.
+     */
+    public NonBlockingJsonDecoder<T> nonBlockingDecoder()
+    {
+        return NonBlockingJsonDecoder.valueDecoder(mapper, javaType);
+    }
+
+    /**
+     * Creates a decoder for a json (UTF-8) array of instances of type T that passes each
+     * element to the consumer as soon as it has been parsed, without blocking for more input.
+     * The decoder returns the number of elements.
+     */
+    public NonBlockingJsonDecoder<Long> nonBlockingArrayDecoder(Consumer<? super T> elementConsumer)
+    {
+        return NonBlockingJsonDecoder.arrayDecoder(mapper, javaType, elementConsumer);
+    }
+
     @SuppressWarnings("unchecked")
     TypeToken<T> getTypeToken()
     {
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decodes JSON (UTF-8) that arrives as a sequence of byte chunks, without blocking for
+ * more input. Each chunk is tokenized as soon as it is {@linkplain #feed(ByteBuffer) fed}, and
+ * is not referenced once that call returns, so the caller may reuse or release it.
+ * <p>
+ * A decoder created by {@link JsonCodec#nonBlockingDecoder()} buffers the tokens of a single
+ * value and binds it when {@link #finish()} is called. A decoder created by
+ * {@link JsonCodec#nonBlockingArrayDecoder(Consumer)} instead binds each element of a top-level
+ * array as soon as it is complete, so memory use is bounded by the largest element rather than
+ * by the whole document.
+ * <p>
+ * Instances are not thread safe, but may be used by a different thread for each call.
+ *
+ * @param <R> the type of the result returned by {@link #finish()}
+ */
+public final class NonBlockingJsonDecoder<R>
+{
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final ObjectReader reader;
+    private final JavaType javaType;
+    // null when decoding a single value
+    private final Consumer<Object> elementConsumer;
+
+    private TokenBuffer tokens;
+    private int depth;
+    private boolean started;
+    private boolean complete;
+    private long elementCount;
+    private boolean finished;
+
+    static <T> NonBlockingJsonDecoder<T> valueDecoder(ObjectMapper mapper, JavaType javaType)
+    {
+        return new NonBlockingJsonDecoder<>(mapper, javaType, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> NonBlockingJsonDecoder<Long> arrayDecoder(ObjectMapper mapper, JavaType elementType, Consumer<? super T> elementConsumer)
+    {
+        requireNonNull(elementConsumer, "elementConsumer is null");
+        return new NonBlockingJsonDecoder<>(mapper, elementType, element -> elementConsumer.accept((T) element));
+    }
+
+    private NonBlockingJsonDecoder(ObjectMapper mapper, JavaType javaType, Consumer<Object> elementConsumer)
+    {
+        try {
+            this.parser = mapper.getFactory().createNonBlockingByteBufferParser();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to create non-blocking JSON parser", e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        this.reader = mapper.readerFor(javaType);
+        this.javaType = javaType;
+        this.elementConsumer = elementConsumer;
+        this.tokens = new TokenBuffer(parser);
+    }
+
+    /**
+     * Decodes as much of the chunk as possible. Bytes of a token that is split across chunks
+     * are retained until the rest of the token is fed.
+     *
+     * @throws IllegalArgumentException if the input is not valid JSON for the type being decoded
+     */
+    public void feed(ByteBuffer chunk)
+            throws IllegalArgumentException
+    {
+        checkState(!finished, "decoder is finished");
+        try {
+            feeder.feedInput(chunk);
+            drain();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Invalid JSON bytes for %s", javaType), e);
+        }
+    }
+
+    /**
+     * Signals the end of the input and returns the decoded value, or for an array decoder,
+     * the number of elements that were passed to the consumer.
+     *
+     * @throws IllegalArgumentException if the input is incomplete or not valid JSON for the type being decoded
+     */
+    @SuppressWarnings("unchecked")
+    public R finish()
+            throws IllegalArgumentException
+    {
+        checkState(!finished, "decoder is finished");
+        finished = true;
+        try {
+            feeder.endOfInput();
+            drain();
+            if (!complete) {
+                throw new IllegalArgumentException(format("Incomplete JSON bytes for %s", javaType));
+            }
+            if (elementConsumer != null) {
+                return (R) Long.valueOf(elementCount);
+            }
+            return (R) reader.readValue(tokens.asParser());
+        }
+        catch (JsonEOFException e) {
+            throw new IllegalArgumentException(format("Incomplete JSON bytes for %s", javaType), e);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Invalid JSON bytes for %s", javaType), e);
+        }
+        finally {
+            tokens = null;
+        }
+    }
+
+    private void drain()
+            throws IOException
+    {
+        while (true) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.NOT_AVAILABLE) {
+                return;
+            }
+            if (complete) {
+                throw new IllegalArgumentException(format("Trailing content after JSON value for %s", javaType));
+            }
+            if (elementConsumer == null) {
+                onValueToken(token);
+            }
+            else {
+                onArrayToken(token);
+            }
+        }
+    }
+
+    private void onValueToken(JsonToken token)
+            throws IOException
+    {
+        tokens.copyCurrentEvent(parser);
+        depth += depthChange(token);
+        complete = depth == 0;
+    }
+
+    private void onArrayToken(JsonToken token)
+            throws IOException
+    {
+        if (!started) {
+            if (token != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException(format("Expected JSON array of %s, but found %s", javaType, token));
+            }
+            started = true;
+            depth = 1;
+            return;
+        }
+        if (depth == 1 && token == JsonToken.END_ARRAY) {
+            depth = 0;
+            complete = true;
+            return;
+        }
+
+        tokens.copyCurrentEvent(parser);
+        depth += depthChange(token);
+        if (depth == 1) {
+            // the element is complete: bind it and start buffering the next one
+            Object element = reader.readValue(tokens.asParser());
+            tokens = new TokenBuffer(parser);
+            elementCount++;
+            elementConsumer.accept(element);
+        }
+    }
+
+    private static int depthChange(JsonToken token)
+    {
+        if (token.isStructStart()) {
+            return 1;
+        }
+        if (token.isStructEnd()) {
+            return -1;
+        }
+        return 0;
+    }
+}
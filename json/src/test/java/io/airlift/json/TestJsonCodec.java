@@ -19,6 +19,8 @@ import com.google.common.base.Strings;
 import com.google.common.reflect.TypeToken;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -248,6 +250,18 @@ public class TestJsonCodec
         assertEquals(jsonCodec.fromJson(bytes), person);
     }
 
+    @Test
+    public void testWriteJson()
+            throws IOException
+    {
+        JsonCodec<ImmutablePerson> jsonCodec = jsonCodec(ImmutablePerson.class);
+        ImmutablePerson person = new ImmutablePerson(Strings.repeat("a", 100_000), false);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        jsonCodec.writeJson(person, output);
+        assertEquals(output.toByteArray(), jsonCodec.toJsonBytes(person));
+    }
+
     @Test
     public void testToJsonWithLengthLimitNonAscii()
     {
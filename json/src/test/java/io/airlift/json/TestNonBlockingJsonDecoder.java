@@ -0,0 +1,140 @@
+package io.airlift.json;
+
+import com.google.common.base.Strings;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.json.JsonCodec.listJsonCodec;
+import static io.airlift.json.JsonCodec.mapJsonCodec;
+import static java.lang.Math.min;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.testng.Assert.assertEquals;
+
+public class TestNonBlockingJsonDecoder
+{
+    @Test
+    public void testValue()
+    {
+        JsonCodec<List<ImmutablePerson>> codec = listJsonCodec(ImmutablePerson.class);
+        List<ImmutablePerson> people = people(100);
+        byte[] json = codec.toJsonBytes(people);
+
+        for (int chunkSize : new int[] {1, 7, 1000, json.length}) {
+            NonBlockingJsonDecoder<List<ImmutablePerson>> decoder = codec.nonBlockingDecoder();
+            feed(decoder, json, chunkSize);
+            assertEquals(decoder.finish(), people);
+        }
+    }
+
+    @Test
+    public void testScalarValue()
+    {
+        JsonCodec<String> codec = jsonCodec(String.class);
+        String value = Strings.repeat("\u0158x", 1000);
+
+        NonBlockingJsonDecoder<String> decoder = codec.nonBlockingDecoder();
+        feed(decoder, codec.toJsonBytes(value), 3);
+        assertEquals(decoder.finish(), value);
+    }
+
+    @Test
+    public void testArray()
+    {
+        JsonCodec<ImmutablePerson> codec = jsonCodec(ImmutablePerson.class);
+        List<ImmutablePerson> people = people(100);
+        byte[] json = listJsonCodec(codec).toJsonBytes(people);
+
+        for (int chunkSize : new int[] {1, 13, json.length}) {
+            List<ImmutablePerson> decoded = new ArrayList<>();
+            NonBlockingJsonDecoder<Long> decoder = codec.nonBlockingArrayDecoder(decoded::add);
+            feed(decoder, json, chunkSize);
+            assertEquals(decoded, people);
+            assertEquals(decoder.finish().longValue(), people.size());
+        }
+    }
+
+    @Test
+    public void testArrayDeliversElementsIncrementally()
+    {
+        JsonCodec<Map<String, Integer>> codec = mapJsonCodec(String.class, Integer.class);
+        List<Map<String, Integer>> decoded = new ArrayList<>();
+        NonBlockingJsonDecoder<Long> decoder = codec.nonBlockingArrayDecoder(decoded::add);
+
+        decoder.feed(utf8("[{\"a\": 1}, {\"b\""));
+        assertEquals(decoded, List.of(Map.of("a", 1)));
+        decoder.feed(utf8(": 2}, {}]"));
+        assertEquals(decoded, List.of(Map.of("a", 1), Map.of("b", 2), Map.of()));
+        assertEquals(decoder.finish().longValue(), 3);
+    }
+
+    @Test
+    public void testEmptyArray()
+    {
+        NonBlockingJsonDecoder<Long> decoder = jsonCodec(String.class).nonBlockingArrayDecoder(value -> {
+            throw new AssertionError();
+        });
+        decoder.feed(utf8(" [ ] "));
+        assertEquals(decoder.finish().longValue(), 0);
+    }
+
+    @Test
+    public void testInvalid()
+    {
+        NonBlockingJsonDecoder<ImmutablePerson> incomplete = jsonCodec(ImmutablePerson.class).nonBlockingDecoder();
+        incomplete.feed(utf8("{\"name\": \"x\""));
+        assertThatThrownBy(incomplete::finish)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Incomplete JSON");
+
+        NonBlockingJsonDecoder<String> trailing = jsonCodec(String.class).nonBlockingDecoder();
+        assertThatThrownBy(() -> trailing.feed(utf8("\"a\" \"b\"")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Trailing content");
+
+        NonBlockingJsonDecoder<ImmutablePerson> malformed = jsonCodec(ImmutablePerson.class).nonBlockingDecoder();
+        assertThatThrownBy(() -> malformed.feed(utf8("{]")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid JSON bytes");
+
+        NonBlockingJsonDecoder<Long> notArray = jsonCodec(String.class).nonBlockingArrayDecoder(value -> {});
+        assertThatThrownBy(() -> notArray.feed(utf8("{}")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Expected JSON array");
+
+        NonBlockingJsonDecoder<Long> wrongElement = jsonCodec(ImmutablePerson.class).nonBlockingArrayDecoder(value -> {});
+        assertThatThrownBy(() -> wrongElement.feed(utf8("[[1]]")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid JSON bytes");
+    }
+
+    private static void feed(NonBlockingJsonDecoder<?> decoder, byte[] json, int chunkSize)
+    {
+        for (int offset = 0; offset < json.length; offset += chunkSize) {
+            byte[] chunk = new byte[min(chunkSize, json.length - offset)];
+            System.arraycopy(json, offset, chunk, 0, chunk.length);
+            decoder.feed(ByteBuffer.wrap(chunk));
+            // the decoder must not hold on to the chunk
+            ByteBuffer.wrap(chunk).put(new byte[chunk.length]);
+        }
+    }
+
+    private static ByteBuffer utf8(String value)
+    {
+        return ByteBuffer.wrap(value.getBytes(UTF_8));
+    }
+
+    private static List<ImmutablePerson> people(int count)
+    {
+        List<ImmutablePerson> people = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            people.add(new ImmutablePerson("person-" + i + "-\u0158", i % 2 == 0));
+        }
+        return people;
+    }
+}
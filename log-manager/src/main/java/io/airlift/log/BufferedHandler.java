@@ -2,23 +2,23 @@ package io.airlift.log;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultiset;
-import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.util.concurrent.RateLimiter;
 import com.google.errorprone.annotations.ThreadSafe;
-import com.google.errorprone.annotations.concurrent.GuardedBy;
-import jakarta.annotation.Nullable;
 import org.weakref.jmx.Managed;
 
 import java.time.Duration;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -27,10 +27,11 @@ import java.util.logging.LogRecord;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.lang.Math.min;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.logging.ErrorManager.CLOSE_FAILURE;
@@ -49,7 +50,7 @@ class BufferedHandler
         String formatDropSummary(Multiset<String> dropCountBySource);
     }
 
-    private static final MessageAndSource TERMINAL_MESSAGE = new MessageAndSource(new byte[] {}, "");
+    private static final long OPEN = Long.MAX_VALUE;
 
     private final ExecutorService bufferDrainExecutor = newSingleThreadExecutor(daemonThreadsNamed("log-buffer-drainer"));
     private final AtomicBoolean initialized = new AtomicBoolean();
@@ -62,14 +63,25 @@ class BufferedHandler
     private final Duration maxCloseTime;
     private final int messageFlushCount;
 
-    // queueDrainLock ensures that queue and dropCountBySource are kept in sync as data is extracted or moved between these structures
-    private final ReentrantLock queueDrainLock = new ReentrantLock();
-    private final Condition recordEnqueued = queueDrainLock.newCondition();
-    private final Deque<MessageAndSource> queue;
-    @GuardedBy("queueDrainLock")
-    private final Multiset<String> dropCountBySource = HashMultiset.create();
-    @GuardedBy("queueDrainLock")
-    private boolean terminalMessageDequeued;
+    // Bounded multi-producer/single-consumer ring buffer. The sequence of a slot is 2 * position when the slot is free for
+    // that position, and 2 * position + 1 when the message at that position is published. A producer claims a position by
+    // advancing the tail, and the drainer releases a slot by setting its sequence for the position one lap later.
+    private final int capacity;
+    private final MessageAndSource[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    // When the ring is full, the new message is dropped, and the drop is recorded with the position the message would have had.
+    // All earlier messages from the same thread have a lower position, and all later messages a position at least as high, so
+    // the drop summary written before the message at that position preserves the order of each source.
+    private final Queue<Drop> drops = new ConcurrentLinkedQueue<>();
+
+    // Messages at or after this position, which is set when the handler is closed, are not written
+    private volatile long terminalPosition = OPEN;
+    private volatile boolean terminalPositionObserved;
+
+    private volatile Thread drainerThread;
+    private volatile boolean drainerParked;
 
     public BufferedHandler(MessageOutput messageOutput, Formatter formatter, ErrorManager errorManager)
     {
@@ -103,7 +115,12 @@ class BufferedHandler
         checkArgument(messageFlushCount > 0, "messageFlushCount must be greater than zero");
         this.messageFlushCount = messageFlushCount;
         checkArgument(maxBufferSize > 0, "maxBufferSize must be greater than zero");
-        queue = new LinkedBlockingDeque<>(maxBufferSize);
+        capacity = maxBufferSize;
+        slots = new MessageAndSource[maxBufferSize];
+        sequences = new AtomicLongArray(maxBufferSize);
+        for (int i = 0; i < maxBufferSize; i++) {
+            sequences.set(i, 2L * i);
+        }
     }
 
     private static String defaultFormatDropSummary(Multiset<String> dropCountBySource)
@@ -124,94 +141,81 @@ class BufferedHandler
 
     private void bufferDrainLoop()
     {
+        drainerThread = Thread.currentThread();
+
+        // The drain state is only accessed by this thread
+        PriorityQueue<Drop> pendingDrops = new PriorityQueue<>(comparingLong(Drop::position));
+        Multiset<String> dropSnapshot = HashMultiset.create();
+        List<byte[]> batch = new ArrayList<>(messageFlushCount);
+        long head = 0;
         int flushCounter = 0;
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                Multiset<String> dropSnapshot = ImmutableMultiset.of();
-                MessageAndSource message = null;
-                try {
-                    // Extract work to do
-                    queueDrainLock.lock();
-                    try {
-                        while (true) {
-                            if (!dropCountBySource.isEmpty()) {
-                                dropSnapshot = ImmutableMultiset.copyOf(dropCountBySource);
-                                dropCountBySource.clear();
-                            }
-
-                            // Always check if there are any messages (even if we have a drop snapshot to process) to ensure that we
-                            // are processing at least some messages during overload conditions, and not just only printing drop summaries.
-                            // Note: queuePollFirst() will return null and set terminalMessageDequeued when encountering TERMINAL_MESSAGE.
-                            message = queuePollFirst();
-
-                            if (!dropSnapshot.isEmpty() || message != null) {
-                                // Work found
-                                break;
-                            }
-
-                            if (terminalMessageDequeued) {
-                                // No more work and terminal message was already located
-                                return; // Graceful way to exit the drain loop (other than via interruption)
-                            }
-
-                            recordEnqueued.await();
-                        }
-                    }
-                    finally {
-                        queueDrainLock.unlock();
+                long terminal = terminalPosition;
+                if (terminal != OPEN && !terminalPositionObserved) {
+                    terminalPositionObserved = true;
+                }
+                boolean finished = head >= terminal;
+
+                // Check for published messages before collecting drops, so that all drops recorded by their producers before they were published are seen
+                int available = finished ? 0 : countPublished(head, terminal);
+
+                // Drops that occurred before the next message need to be written first. Once the terminal position is
+                // reached, all remaining drops are written, including those of messages published while closing.
+                collectDrops(pendingDrops, dropSnapshot, finished ? Long.MAX_VALUE : head);
+                if (!dropSnapshot.isEmpty()) {
+                    if (!writeMessageOutputSafe(formatMessageBytes(createDropSummaryRecord(dropSnapshot)))) {
+                        errorRetryLimiter.acquire();
+                        continue;
                     }
-                    // For safety: dropSnapshot and message will be requeued in the finally block if not explicitly unreferenced
+                    dropSnapshot.clear();
+                    flushCounter++;
+                }
 
-                    // Dropped messages occurred before the current, and so drop snapshot need to be written first
-                    if (!dropSnapshot.isEmpty()) {
-                        if (!writeMessageOutputSafe(formatMessageBytes(createDropSummaryRecord(dropSnapshot)))) {
-                            errorRetryLimiter.acquire();
-                            continue;
-                        }
-                        dropSnapshot = ImmutableMultiset.of();
-                        flushCounter++;
+                // Write the published messages as one batch, ending the batch where the next drop summary needs to be written
+                if (available > 0) {
+                    Drop nextDrop = pendingDrops.peek();
+                    if (nextDrop != null) {
+                        available = (int) min(available, nextDrop.position() - head);
                     }
-
-                    // Then write the message
-                    if (message != null) {
-                        if (!writeMessageOutputSafe(message.logMessage())) {
-                            errorRetryLimiter.acquire();
-                            continue;
+                    batch.clear();
+                    for (int i = 0; i < available; i++) {
+                        batch.add(slots[index(head + i)].logMessage());
+                    }
+                    int written = writeMessagesOutputSafe(batch);
+                    flushCounter += written;
+                    if (written < available && !terminalPositionObserved) {
+                        // The unwritten messages keep their slots until they are written, so later messages are dropped while the output fails
+                        head = release(head, written);
+                        errorRetryLimiter.acquire();
+                        continue;
+                    }
+                    if (written < available) {
+                        // The handler is closing, so the unwritten messages become part of the drop summary instead of being retried
+                        for (int i = written; i < available; i++) {
+                            pendingDrops.add(new Drop(head + available, slots[index(head + i)].sourceName()));
                         }
-                        message = null;
-                        flushCounter++;
+                        droppedMessages.addAndGet(available - written);
                     }
+                    head = release(head, available);
 
-                    // Flush after some number of messages or if there is nothing more to process at the moment
-                    if (flushCounter >= messageFlushCount || !hasDrainingWork()) {
+                    if (flushCounter >= messageFlushCount) {
                         flushMessageOutputSafe();
                         flushCounter = 0;
                     }
+                    continue;
                 }
-                finally {
-                    if (message != null || !dropSnapshot.isEmpty()) {
-                        // Return messages that failed
-                        queueDrainLock.lock();
-                        try {
-                            // Return a failed message to the queue, or drop it if at capacity.
-                            if (message != null) {
-                                // If TERMINAL_MESSAGE has been dequeued, the queue is finished and this message must now become part of the drop summary.
-                                // If dropCountBySource is nonempty, then need to drop the current message because subsequent messages have already been dropped (regardless of the current queue size).
-                                // If the queue is full, then also need to drop the current message. NOTE: this must be the last condition checked.
-                                if (terminalMessageDequeued || !dropCountBySource.isEmpty() || !queue.offerFirst(message)) {
-                                    dropCountBySource.add(message.sourceName());
-                                    droppedMessages.incrementAndGet();
-                                }
-                            }
-
-                            // Merge back dropped messages snapshot
-                            dropSnapshot.forEachEntry(dropCountBySource::add);
-                        }
-                        finally {
-                            queueDrainLock.unlock();
-                        }
-                    }
+
+                // Flush if there is nothing more to process at the moment
+                if (flushCounter > 0) {
+                    flushMessageOutputSafe();
+                    flushCounter = 0;
                 }
+
+                if (finished) {
+                    return; // Graceful way to exit the drain loop (other than via interruption)
+                }
+                awaitWork(head, terminal);
             }
             catch (LogFormatException e) {
                 reportError(null, e, FORMAT_FAILURE);
@@ -226,38 +230,67 @@ class BufferedHandler
         }
     }
 
-    /**
-     * INVARIANT: Once TERMINAL_MESSAGE has been dequeued, no further records will be dequeued.
-     */
-    @Nullable
-    private MessageAndSource queuePollFirst()
+    private int countPublished(long head, long terminal)
     {
-        checkState(queueDrainLock.isLocked());
-        if (terminalMessageDequeued) {
-            return null;
+        int maxCount = (int) min(messageFlushCount, terminal - head);
+        int count = 0;
+        while (count < maxCount && sequences.get(index(head + count)) == published(head + count)) {
+            count++;
         }
+        return count;
+    }
 
-        MessageAndSource message = queue.pollFirst();
-
-        if (message == TERMINAL_MESSAGE) {
-            terminalMessageDequeued = true;
-            return null;
+    private void collectDrops(PriorityQueue<Drop> pendingDrops, Multiset<String> dropSnapshot, long maxPosition)
+    {
+        Drop drop;
+        while ((drop = drops.poll()) != null) {
+            pendingDrops.add(drop);
+        }
+        while (!pendingDrops.isEmpty() && pendingDrops.peek().position() <= maxPosition) {
+            dropSnapshot.add(pendingDrops.poll().sourceName());
         }
-
-        return message;
     }
 
-    private boolean hasDrainingWork()
+    private void awaitWork(long head, long terminal)
+            throws InterruptedException
     {
-        queueDrainLock.lock();
+        // Producers check the flag after publishing, and this thread checks for work after setting it, so a wakeup cannot be lost
+        drainerParked = true;
         try {
-            return !dropCountBySource.isEmpty() || !queue.isEmpty();
+            while (sequences.get(index(head)) != published(head) && drops.isEmpty() && terminalPosition == terminal) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
         }
         finally {
-            queueDrainLock.unlock();
+            drainerParked = false;
         }
     }
 
+    private void signalDrainer()
+    {
+        if (drainerParked) {
+            LockSupport.unpark(drainerThread);
+        }
+    }
+
+    private int index(long position)
+    {
+        return (int) (position % capacity);
+    }
+
+    private static long free(long position)
+    {
+        return 2 * position;
+    }
+
+    private static long published(long position)
+    {
+        return 2 * position + 1;
+    }
+
     private LogRecord createDropSummaryRecord(Multiset<String> droppedSnapshot)
     {
         try {
@@ -295,7 +328,7 @@ class BufferedHandler
             // Generate the message on the publishing thread to ensure we get the correct thread name.
             MessageAndSource message = toMessageAndSource(record);
 
-            // Messages may be inserted after being closed, but they won't be processed if they come after the terminal message
+            // Messages may be inserted after being closed, but they won't be processed if they come after the terminal position
             queueInsert(message);
         }
         catch (LogFormatException e) {
@@ -314,7 +347,11 @@ class BufferedHandler
     private byte[] formatMessageBytes(LogRecord logRecord)
     {
         try {
-            return getFormatter().format(logRecord).getBytes(UTF_8);
+            Formatter formatter = getFormatter();
+            if (formatter instanceof JsonFormatter jsonFormatter) {
+                return jsonFormatter.formatBytes(logRecord);
+            }
+            return formatter.format(logRecord).getBytes(UTF_8);
         }
         catch (Exception e) {
             // Wrap exception with the proper classification
@@ -329,32 +366,31 @@ class BufferedHandler
 
     private void queueInsert(MessageAndSource message)
     {
-        while (!queue.offerLast(message)) {
-            queueDrainLock.lock();
-            try {
-                MessageAndSource toDrop = queuePollFirst();
-                if (toDrop == null) {
-                    if (terminalMessageDequeued) {
-                        return; // Queue already terminated
-                    }
-                    continue;
+        long position = tail.get();
+        while (true) {
+            int index = index(position);
+            long sequence = sequences.get(index);
+            if (sequence == free(position)) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = message;
+                    sequences.set(index, published(position));
+                    signalDrainer();
+                    return;
                 }
-                dropCountBySource.add(toDrop.sourceName());
+                position = tail.get();
+            }
+            else if (sequence < free(position)) {
+                // The slot still holds the message from the previous lap, so the ring is full
+                drops.add(new Drop(position, message.sourceName()));
                 droppedMessages.incrementAndGet();
+                signalDrainer();
+                return;
             }
-            finally {
-                queueDrainLock.unlock();
+            else {
+                // Another producer claimed this position
+                position = tail.get();
             }
         }
-
-        // Notify drainer about new message
-        queueDrainLock.lock();
-        try {
-            recordEnqueued.signal();
-        }
-        finally {
-            queueDrainLock.unlock();
-        }
     }
 
     @Override
@@ -374,7 +410,11 @@ class BufferedHandler
         if (!inputClosed.compareAndSet(false, true)) {
             return;
         }
-        queueInsert(TERMINAL_MESSAGE);
+        terminalPosition = tail.get();
+        Thread drainer = drainerThread;
+        if (drainer != null) {
+            LockSupport.unpark(drainer);
+        }
 
         try {
             bufferDrainExecutor.shutdown();
@@ -392,15 +432,9 @@ class BufferedHandler
     }
 
     @VisibleForTesting
-    boolean isTerminalMessageDequeued()
+    boolean isTerminalPositionObserved()
     {
-        queueDrainLock.lock();
-        try {
-            return terminalMessageDequeued;
-        }
-        finally {
-            queueDrainLock.unlock();
-        }
+        return terminalPositionObserved;
     }
 
     @VisibleForTesting
@@ -427,6 +461,33 @@ class BufferedHandler
         }
     }
 
+    private int writeMessagesOutputSafe(List<byte[]> messages)
+    {
+        try {
+            messageOutput.writeMessages(messages);
+            return messages.size();
+        }
+        catch (PartialWriteException e) {
+            reportError("Could not write to the MessageOutput", e, WRITE_FAILURE);
+            return min(e.getWrittenMessages(), messages.size());
+        }
+        catch (Exception e) {
+            reportError("Could not write to the MessageOutput", e, WRITE_FAILURE);
+            return 0;
+        }
+    }
+
+    private long release(long head, int count)
+    {
+        for (int i = 0; i < count; i++) {
+            int index = index(head);
+            slots[index] = null;
+            sequences.set(index, free(head + capacity));
+            head++;
+        }
+        return head;
+    }
+
     private void flushMessageOutputSafe()
     {
         try {
@@ -455,4 +516,6 @@ class BufferedHandler
             requireNonNull(sourceName, "sourceName is null");
         }
     }
+
+    private record Drop(long position, String sourceName) {}
 }
@@ -4,25 +4,44 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
-import io.airlift.json.JsonCodec;
-import io.airlift.json.JsonCodecFactory;
-import io.airlift.json.ObjectMapperProvider;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.context.Context;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
+import static com.google.common.base.Throwables.getStackTraceAsString;
+import static java.lang.Math.max;
+import static java.nio.charset.CodingErrorAction.REPLACE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Formats records as JSON lines. The fields are written directly with a {@link JsonGenerator}
+ * that is reused by each thread together with its buffers, so formatting a record only allocates
+ * the resulting bytes. The output is the same as the serialization of {@link JsonRecord}.
+ */
 public class JsonFormatter
         extends Formatter
 {
     private static final Object[] EMPTY_ARRAY = new Object[0];
-    private static final JsonCodec<JsonRecord> CODEC = new JsonCodecFactory(new ObjectMapperProvider()).jsonCodec(JsonRecord.class);
     private static final JsonFactory jsonFactory = new JsonFactory();
+    // larger buffers are not kept by the thread after formatting a record
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<RecordWriter> RECORD_WRITER = ThreadLocal.withInitial(RecordWriter::new);
+
     private final Map<String, String> logAnnotations;
 
     public JsonFormatter(Map<String, String> logAnnotations)
@@ -33,52 +52,127 @@ public class JsonFormatter
     @Override
     public String format(LogRecord record)
     {
-        JsonRecord jsonRecord = new JsonRecord(
-                record.getInstant(),
-                Level.fromJulLevel(record.getLevel()),
-                Thread.currentThread().getName(),
-                record.getLoggerName(),
-                record.getMessage(),
-                record.getParameters(),
-                record.getThrown(),
-                Context.current(),
-                logAnnotations);
+        return new String(formatBytes(record), UTF_8);
+    }
+
+    /**
+     * Formats the record as UTF-8 bytes, without creating a string.
+     */
+    public byte[] formatBytes(LogRecord record)
+    {
+        Instant timestamp = record.getInstant();
+        Level level = Level.fromJulLevel(record.getLevel());
+        String thread = Thread.currentThread().getName();
 
         try {
-            return toString(jsonRecord);
+            return write(timestamp, level, thread, record.getLoggerName(), record.getMessage(), record.getParameters(), record.getThrown());
         }
-        catch (IllegalArgumentException outer) {
+        catch (RuntimeException outer) {
             try {
-                return toString(new JsonRecord(
-                        record.getInstant(),
-                        Level.fromJulLevel(record.getLevel()),
-                        Thread.currentThread().getName(),
-                        record.getLoggerName(),
-                        outer.getMessage(),
-                        EMPTY_ARRAY,
-                        outer,
-                        Context.current(),
-                        logAnnotations));
+                return write(timestamp, level, thread, record.getLoggerName(), outer.getMessage(), EMPTY_ARRAY, outer);
             }
-            catch (IllegalArgumentException inner) {
+            catch (RuntimeException inner) {
                 inner.addSuppressed(outer);
 
-                return minimalJsonErrorLogLine(jsonRecord, inner);
+                return minimalJsonErrorLogLine(timestamp, inner).getBytes(UTF_8);
             }
         }
     }
 
+    private byte[] write(Instant timestamp, Level level, String thread, String loggerName, String message, Object[] parameters, Throwable throwable)
+    {
+        // user code, such as the toString of a parameter, may log, which formats a record with the writer of this thread,
+        // so it runs before this record is started
+        String[] parameterStrings = null;
+        if (parameters != null && parameters.length > 0) {
+            parameterStrings = new String[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                parameterStrings[i] = String.valueOf(parameters[i]);
+            }
+        }
+        String stackTrace = null;
+        String throwableMessage = null;
+        if (throwable != null) {
+            stackTrace = getStackTraceAsString(throwable);
+            throwableMessage = throwable.getMessage();
+        }
+
+        RecordWriter writer = RECORD_WRITER.get();
+        try {
+            JsonGenerator generator = writer.generator();
+            generator.writeStartObject();
+            generator.writeStringField("timestamp", timestamp.toString());
+            generator.writeStringField("level", level.name());
+            writeOptionalStringField(generator, "thread", thread);
+            writeOptionalStringField(generator, "logger", loggerName);
+            writeOptionalStringField(generator, "message", message);
+            if (parameterStrings != null) {
+                generator.writeArrayFieldStart("parameters");
+                for (String parameter : parameterStrings) {
+                    generator.writeString(parameter);
+                }
+                generator.writeEndArray();
+            }
+            // the remaining fields are in the order in which they are written by the JsonRecord serialization
+            if (!logAnnotations.isEmpty()) {
+                generator.writeObjectFieldStart("annotations");
+                for (Map.Entry<String, String> entry : logAnnotations.entrySet()) {
+                    generator.writeStringField(entry.getKey(), entry.getValue());
+                }
+                generator.writeEndObject();
+            }
+            if (throwable != null) {
+                generator.writeStringField("stackTrace", stackTrace);
+            }
+            SpanContext spanContext = Span.fromContext(Context.current()).getSpanContext();
+            if (spanContext.isValid()) {
+                generator.writeStringField("traceId", spanContext.getTraceId());
+                generator.writeStringField("spanId", spanContext.getSpanId());
+                generator.writeStringField("traceFlags", spanContext.getTraceFlags().asHex());
+            }
+            if (throwable != null) {
+                generator.writeStringField("throwableClass", throwable.getClass().getName());
+                writeOptionalStringField(generator, "throwableMessage", throwableMessage);
+            }
+            generator.writeEndObject();
+            return writer.finish();
+        }
+        catch (IOException e) {
+            // The output is in memory, so this should not happen
+            RECORD_WRITER.remove();
+            throw new UncheckedIOException(e);
+        }
+        catch (RuntimeException e) {
+            // the generator may be in the middle of the record
+            RECORD_WRITER.remove();
+            throw e;
+        }
+    }
+
+    private static void writeOptionalStringField(JsonGenerator generator, String name, String value)
+            throws IOException
+    {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
     /**
      * Creates a minimalistic log line using JsonGenerator and avoiding the codecs and object mapper so that at least we get a json parseable log line
      */
     @VisibleForTesting
     String minimalJsonErrorLogLine(JsonRecord jsonRecord, Exception exception)
+    {
+        return minimalJsonErrorLogLine(jsonRecord.getTimestamp(), exception);
+    }
+
+    private static String minimalJsonErrorLogLine(Instant timestamp, Exception exception)
     {
         // Emit a log line that is at least json parseable and indicates things are broken
         StringWriter stringWriter = new StringWriter();
         try (JsonGenerator jsonGenerator = jsonFactory.createGenerator(stringWriter)) {
             jsonGenerator.writeStartObject();
-            jsonGenerator.writeStringField("timestamp", jsonRecord.getTimestamp().toString());
+            jsonGenerator.writeStringField("timestamp", timestamp.toString());
             jsonGenerator.writeStringField("message", exception.getMessage());
             jsonGenerator.writeStringField("level", Level.ERROR.name());
             jsonGenerator.writeEndObject();
@@ -91,8 +185,97 @@ public class JsonFormatter
         return stringWriter.append("\n").toString();
     }
 
-    private static String toString(JsonRecord jsonRecord)
+    /**
+     * Writes the JSON into a reusable character buffer, and encodes it into a reusable byte buffer.
+     * The generator writes characters, rather than UTF-8, because it escapes supplementary
+     * characters when it writes UTF-8.
+     */
+    private static class RecordWriter
+            extends Writer
     {
-        return CODEC.toJson(jsonRecord) + "\n";
+        private final JsonGenerator generator;
+        private final CharsetEncoder encoder = UTF_8.newEncoder()
+                .onMalformedInput(REPLACE)
+                .onUnmappableCharacter(REPLACE);
+        private char[] chars = new char[1024];
+        private int size;
+        private ByteBuffer bytes = ByteBuffer.allocate(3 * 1024);
+
+        public RecordWriter()
+        {
+            try {
+                // records are separated by the newline written after each record
+                generator = jsonFactory.createGenerator(this)
+                        .setRootValueSeparator(null);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public JsonGenerator generator()
+        {
+            return generator;
+        }
+
+        public byte[] finish()
+                throws IOException
+        {
+            generator.flush();
+            write('\n');
+
+            // a character is at most 3 bytes in UTF-8, as supplementary characters are 2 characters
+            if (bytes.capacity() < size * 3) {
+                bytes = ByteBuffer.allocate(size * 3);
+            }
+            bytes.clear();
+            encoder.reset();
+            CharBuffer input = CharBuffer.wrap(chars, 0, size);
+            encoder.encode(input, bytes, true);
+            encoder.flush(bytes);
+            byte[] result = Arrays.copyOf(bytes.array(), bytes.position());
+
+            size = 0;
+            if (chars.length > MAX_RETAINED_BUFFER_SIZE) {
+                RECORD_WRITER.remove();
+            }
+            return result;
+        }
+
+        @Override
+        public void write(int c)
+        {
+            ensureCapacity(1);
+            chars[size++] = (char) c;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length)
+        {
+            ensureCapacity(length);
+            System.arraycopy(buffer, offset, chars, size, length);
+            size += length;
+        }
+
+        @Override
+        public void write(String value, int offset, int length)
+        {
+            ensureCapacity(length);
+            value.getChars(offset, offset + length, chars, size);
+            size += length;
+        }
+
+        private void ensureCapacity(int length)
+        {
+            if (size + length > chars.length) {
+                chars = Arrays.copyOf(chars, max(chars.length * 2, size + length));
+            }
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
     }
 }
@@ -36,6 +36,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.LogManager;
@@ -74,6 +75,8 @@ public class Logging
     @GuardedBy("this")
     private boolean configured;
 
+    private volatile Optional<SocketMessageOutput> socketMessageOutput = Optional.empty();
+
     private final SettableFuture<MBeanExporter> mBeanExporterAvailableFuture = SettableFuture.create();
     private final SettableFuture<List<MBeanExport>> mBeanExportsFuture = SettableFuture.create();
 
@@ -153,13 +156,14 @@ public class Logging
         consoleHandler = null;
     }
 
-    private void logToFile(String logPath, DataSize maxFileSize, DataSize maxTotalSize, CompressionType compressionType, Formatter formatter, List<LogMBeanExport> mBeanExportCollector)
+    private void logToFile(String logPath, DataSize maxFileSize, DataSize maxTotalSize, CompressionType compressionType, int compressionThreads, Formatter formatter, List<LogMBeanExport> mBeanExportCollector)
     {
         log.info("Logging to %s", logPath);
-        RollingFileMessageOutput output = new RollingFileMessageOutput(logPath, maxFileSize, maxTotalSize, compressionType);
+        RollingFileMessageOutput output = new RollingFileMessageOutput(logPath, maxFileSize, maxTotalSize, compressionType, compressionThreads);
         BufferedHandler handler = new BufferedHandler(output, formatter, new BufferedHandlerErrorManager(stdErr));
         handler.initialize();
         mBeanExportCollector.add(new LogMBeanExport(handler, BufferedHandler.class, "RollingFileMessageOutput"));
+        mBeanExportCollector.add(new LogMBeanExport(output, RollingFileMessageOutput.class, "RollingFileMessageOutput"));
 
         ROOT.addHandler(handler);
     }
@@ -174,6 +178,7 @@ public class Logging
         BufferedHandler handler = new BufferedHandler(output, formatter, new BufferedHandlerErrorManager(stdErr));
         handler.initialize();
         mBeanExportCollector.add(new LogMBeanExport(handler, BufferedHandler.class, "SocketMessageOutput"));
+        socketMessageOutput = Optional.of(output);
 
         ROOT.addHandler(handler);
     }
@@ -229,6 +234,11 @@ public class Logging
                 .setLevel(level.toJulLevel());
     }
 
+    Optional<SocketMessageOutput> getSocketMessageOutput()
+    {
+        return socketMessageOutput;
+    }
+
     public Map<String, Level> getAllLevels()
     {
         ImmutableSortedMap.Builder<String, Level> levels = ImmutableSortedMap.naturalOrder();
@@ -271,6 +281,7 @@ public class Logging
                         config.getMaxSize(),
                         config.getMaxTotalSize(),
                         config.getCompression(),
+                        config.getCompressionThreads(),
                         config.getFormat().createFormatter(logAnnotations),
                         mBeanExportCollector);
             }
@@ -22,6 +22,7 @@ import io.airlift.configuration.LegacyConfig;
 import io.airlift.configuration.validation.FileExists;
 import io.airlift.log.RollingFileMessageOutput.CompressionType;
 import io.airlift.units.DataSize;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import static io.airlift.units.DataSize.Unit.GIGABYTE;
@@ -39,6 +40,7 @@ public class LoggingConfiguration
     private DataSize maxSize = DataSize.of(100, MEGABYTE);
     private DataSize maxTotalSize = DataSize.of(1, GIGABYTE);
     private CompressionType compression = CompressionType.GZIP;
+    private int compressionThreads = 1;
     private String levelsFile;
     private String logAnnotationFile;
     private Format format = Format.TEXT;
@@ -108,6 +110,20 @@ public class LoggingConfiguration
         return this;
     }
 
+    @Min(1)
+    public int getCompressionThreads()
+    {
+        return compressionThreads;
+    }
+
+    @Config("log.compression.threads")
+    @ConfigDescription("Number of threads compressing log files while they are written")
+    public LoggingConfiguration setCompressionThreads(int compressionThreads)
+    {
+        this.compressionThreads = compressionThreads;
+        return this;
+    }
+
     public String getLevelsFile()
     {
         return levelsFile;
@@ -62,4 +62,28 @@ public class LoggingMBean
     {
         return ImmutableSortedMap.copyOf(Maps.transformValues(logging.getAllLevels(), Object::toString));
     }
+
+    @Managed(description = "Bytes buffered for the log socket and not yet sent")
+    public long getSocketQueuedBytes()
+    {
+        return logging.getSocketMessageOutput().map(SocketMessageOutput::getQueuedBytes).orElse(0L);
+    }
+
+    @Managed(description = "Bytes dropped because the log socket buffer was full")
+    public long getSocketDroppedBytes()
+    {
+        return logging.getSocketMessageOutput().map(SocketMessageOutput::getDroppedBytes).orElse(0L);
+    }
+
+    @Managed(description = "Reconnects of the log socket")
+    public long getSocketReconnects()
+    {
+        return logging.getSocketMessageOutput().map(SocketMessageOutput::getReconnects).orElse(0L);
+    }
+
+    @Managed(description = "Failed connections of the log socket")
+    public long getSocketFailedConnections()
+    {
+        return logging.getSocketMessageOutput().map(SocketMessageOutput::getFailedConnections).orElse(0L);
+    }
 }
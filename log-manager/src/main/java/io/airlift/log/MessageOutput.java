@@ -3,6 +3,7 @@ package io.airlift.log;
 import com.google.errorprone.annotations.ThreadSafe;
 
 import java.io.IOException;
+import java.util.List;
 
 @ThreadSafe
 public interface MessageOutput
@@ -10,6 +11,28 @@ public interface MessageOutput
     void writeMessage(byte[] message)
             throws IOException;
 
+    /**
+     * Writes the messages in order. Implementations should override this to write the whole
+     * batch at once. If writing fails after some of the messages were completely written, a
+     * {@link PartialWriteException} with the number of written messages is thrown, so only the
+     * remaining messages are written again. The list must not be retained.
+     */
+    default void writeMessages(List<byte[]> messages)
+            throws IOException
+    {
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                writeMessage(messages.get(i));
+            }
+            catch (IOException | RuntimeException e) {
+                if (i == 0) {
+                    throw e;
+                }
+                throw new PartialWriteException(i, e);
+            }
+        }
+    }
+
     void flush()
             throws IOException;
 
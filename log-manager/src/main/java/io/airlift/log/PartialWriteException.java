@@ -0,0 +1,30 @@
+package io.airlift.log;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Thrown by {@link MessageOutput#writeMessages} when writing failed after some of the messages
+ * were written, so the caller can retry only the messages that were not written.
+ */
+public class PartialWriteException
+        extends IOException
+{
+    private final int writtenMessages;
+
+    public PartialWriteException(int writtenMessages, Throwable cause)
+    {
+        super("Only %s messages were written".formatted(writtenMessages), cause);
+        checkArgument(writtenMessages > 0, "writtenMessages must be positive");
+        this.writtenMessages = writtenMessages;
+    }
+
+    /**
+     * Returns the number of messages at the start of the batch that were completely written.
+     */
+    public int getWrittenMessages()
+    {
+        return writtenMessages;
+    }
+}
@@ -13,20 +13,24 @@
  */
 package io.airlift.log;
 
+import com.github.luben.zstd.Zstd;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.io.ByteStreams;
 import com.google.common.io.MoreFiles;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
 import io.airlift.units.DataSize;
+import org.weakref.jmx.Managed;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -36,22 +40,34 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 import java.util.logging.ErrorManager;
 import java.util.zip.GZIPOutputStream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static java.util.Objects.requireNonNull;
 import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.logging.ErrorManager.GENERIC_FAILURE;
 
@@ -60,24 +76,51 @@ final class RollingFileMessageOutput
 {
     public enum CompressionType
     {
-        NONE(Optional.empty()),
-        GZIP(Optional.of(".gz"));
+        NONE(Optional.empty(), Optional.empty()),
+        GZIP(Optional.of(".gz"), Optional.of(CompressionType::gzipFrame)),
+        // concatenated zstd frames are a valid zstd file
+        ZSTD(Optional.of(".zst"), Optional.of(Zstd::compress));
 
         private final Optional<String> extension;
+        private final Optional<UnaryOperator<byte[]>> frameCompressor;
 
-        CompressionType(Optional<String> extension)
+        CompressionType(Optional<String> extension, Optional<UnaryOperator<byte[]>> frameCompressor)
         {
             this.extension = requireNonNull(extension, "extension is null");
+            this.frameCompressor = requireNonNull(frameCompressor, "frameCompressor is null");
         }
 
         public Optional<String> getExtension()
         {
             return extension;
         }
+
+        /**
+         * Compresses a frame into a piece that can be concatenated with the other frames of a file.
+         */
+        Optional<UnaryOperator<byte[]>> getFrameCompressor()
+        {
+            return frameCompressor;
+        }
+
+        private static byte[] gzipFrame(byte[] data)
+        {
+            // each frame is a complete gzip member, and concatenated members are a valid gzip file
+            ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 4);
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(output)) {
+                gzipOutputStream.write(data);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return output.toByteArray();
+        }
     }
 
     private static final int MAX_OPEN_NEW_LOG_ATTEMPTS = 100;
     private static final int MAX_BATCH_BYTES = toIntExact(DataSize.of(1, MEGABYTE).toBytes());
+    private static final int COMPRESSION_FRAME_BYTES = MAX_BATCH_BYTES;
+    private static final int MAX_PENDING_FRAMES_PER_THREAD = 2;
     private static final String TEMP_PREFIX = ".tmp.";
     private static final String DELETED_PREFIX = ".deleted.";
 
@@ -86,6 +129,8 @@ final class RollingFileMessageOutput
     private final Path symlink;
     private final long maxFileSize;
     private final CompressionType compressionType;
+    // null when the log is not compressed
+    private final UnaryOperator<byte[]> frameCompressor;
 
     @GuardedBy("this")
     private Path currentOutputFile;
@@ -95,20 +140,56 @@ final class RollingFileMessageOutput
     private long currentFileSize;
     @GuardedBy("this")
     private OutputStream currentOutputStream;
+    @GuardedBy("this")
+    private FileChannel currentChannel;
+    @GuardedBy("this")
+    private CompressedFile currentCompressedFile;
 
     private final LogHistoryManager historyManager;
 
+    // compresses frames of the open log file while it is written, so rolling a file does not require reading it again
     private final ExecutorService compressionExecutor;
+    // moves the compressed file in place of a rolled file, which requires the lock, so it must not block frame compression
+    private final ExecutorService compressionCompletionExecutor;
+    private final int maxPendingFrames;
+    private final Semaphore pendingFramePermits;
+    private final AtomicLong pendingCompressionBytes = new AtomicLong();
+    private final AtomicLong failedCompressions = new AtomicLong();
+    private volatile long lastCompressionLagNanos;
 
     RollingFileMessageOutput(String filename, DataSize maxFileSize, DataSize maxTotalSize, CompressionType compressionType)
+    {
+        this(filename, maxFileSize, maxTotalSize, compressionType, 1);
+    }
+
+    RollingFileMessageOutput(String filename, DataSize maxFileSize, DataSize maxTotalSize, CompressionType compressionType, int compressionThreads)
     {
         requireNonNull(filename, "filename is null");
         requireNonNull(maxFileSize, "maxFileSize is null");
         requireNonNull(maxTotalSize, "maxTotalSize is null");
         requireNonNull(compressionType, "compressionType is null");
+        checkArgument(compressionThreads > 0, "compressionThreads must be positive");
 
         this.maxFileSize = maxFileSize.toBytes();
         this.compressionType = compressionType;
+        this.maxPendingFrames = compressionThreads * MAX_PENDING_FRAMES_PER_THREAD;
+        this.pendingFramePermits = new Semaphore(maxPendingFrames);
+
+        this.frameCompressor = compressionType.getFrameCompressor().orElse(null);
+        if (frameCompressor != null) {
+            compressionExecutor = newFixedThreadPool(compressionThreads, new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("log-compression-%d")
+                    .build());
+            compressionCompletionExecutor = newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("log-compression-completion-%d")
+                    .build());
+        }
+        else {
+            compressionExecutor = null;
+            compressionCompletionExecutor = null;
+        }
 
         symlink = Paths.get(filename);
 
@@ -159,16 +240,6 @@ final class RollingFileMessageOutput
         catch (IOException e) {
             throw new UncheckedIOException(e);
         }
-
-        if (compressionType != CompressionType.NONE) {
-            compressionExecutor = newSingleThreadExecutor(new ThreadFactoryBuilder()
-                    .setDaemon(true)
-                    .setNameFormat("log-compression-%d")
-                    .build());
-        }
-        else {
-            compressionExecutor = null;
-        }
     }
 
     @Override
@@ -181,41 +252,54 @@ final class RollingFileMessageOutput
     }
 
     @Override
-    public synchronized void close()
+    public void close()
             throws IOException
     {
         IOException exception = new IOException("Exception thrown attempting to close the file output.");
 
-        if (currentOutputStream != null) {
-            try {
-                currentOutputStream.flush();
-            }
-            catch (IOException e) {
-                exception.addSuppressed(e);
-            }
-            try {
-                currentOutputStream.close();
-            }
-            catch (IOException e) {
-                exception.addSuppressed(e);
+        CompressedFile compressedFile;
+        synchronized (this) {
+            if (currentOutputStream != null) {
+                try {
+                    currentOutputStream.flush();
+                }
+                catch (IOException e) {
+                    exception.addSuppressed(e);
+                }
+                try {
+                    currentOutputStream.close();
+                }
+                catch (IOException e) {
+                    exception.addSuppressed(e);
+                }
             }
+
+            compressedFile = currentCompressedFile;
+            currentCompressedFile = null;
+            currentOutputStream = null;
+            currentChannel = null;
+            currentOutputFile = null;
+            currentOutputFileName = null;
+            currentFileSize = 0;
         }
 
-        // wait for compression to finish
+        // wait for compression of rolled files to finish, without holding the lock which is required to complete it
         if (compressionExecutor != null) {
             compressionExecutor.shutdown();
             try {
                 compressionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+                compressionCompletionExecutor.shutdown();
+                compressionCompletionExecutor.awaitTermination(1, TimeUnit.MINUTES);
             }
             catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
 
-        currentOutputStream = null;
-        currentOutputFile = null;
-        currentOutputFileName = null;
-        currentFileSize = 0;
+        // the open log file is left uncompressed
+        if (compressedFile != null) {
+            compressedFile.discard();
+        }
 
         if (exception.getSuppressed().length > 0) {
             throw exception;
@@ -226,7 +310,78 @@ final class RollingFileMessageOutput
     public synchronized void writeMessage(byte[] message)
             throws IOException
     {
-        if (currentFileSize > 0 && (currentFileSize + message.length > maxFileSize)) {
+        rollFileIfNecessary(message.length);
+        historyManager.pruneLogFilesIfNecessary(currentFileSize + message.length);
+        currentFileSize += message.length;
+        currentOutputStream.write(message);
+        compressInline(message);
+    }
+
+    @Override
+    public synchronized void writeMessages(List<byte[]> messages)
+            throws IOException
+    {
+        // messages written individually are buffered, and must be written first
+        currentOutputStream.flush();
+
+        int start = 0;
+        while (start < messages.size()) {
+            try {
+                rollFileIfNecessary(messages.get(start).length);
+            }
+            catch (IOException e) {
+                if (start == 0) {
+                    throw e;
+                }
+                // part of the batch is written, and failing would make the caller write it again, so continue with the
+                // current file, which is either the new file or, if the roll did not happen, the old one
+                new ErrorManager().error("Error rolling log file", e, GENERIC_FAILURE);
+            }
+
+            // all messages that fit in the current file are written with a single gathering write
+            long batchSize = messages.get(start).length;
+            int end = start + 1;
+            while (end < messages.size() && currentFileSize + batchSize + messages.get(end).length <= maxFileSize) {
+                batchSize += messages.get(end).length;
+                end++;
+            }
+            historyManager.pruneLogFilesIfNecessary(currentFileSize + batchSize);
+            currentFileSize += batchSize;
+
+            ByteBuffer[] buffers = new ByteBuffer[end - start];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = ByteBuffer.wrap(messages.get(start + i));
+            }
+            long remaining = batchSize;
+            try {
+                while (remaining > 0) {
+                    remaining -= currentChannel.write(buffers);
+                }
+            }
+            catch (IOException e) {
+                currentFileSize -= remaining;
+                int written = start;
+                while (!buffers[written - start].hasRemaining()) {
+                    compressInline(messages.get(written));
+                    written++;
+                }
+                if (written == 0) {
+                    throw e;
+                }
+                // the written messages must not be written again, so the caller only retries the rest
+                throw new PartialWriteException(written, e);
+            }
+            for (int i = start; i < end; i++) {
+                compressInline(messages.get(i));
+            }
+            start = end;
+        }
+    }
+
+    private void rollFileIfNecessary(int messageSize)
+            throws IOException
+    {
+        if (currentFileSize > 0 && (currentFileSize + messageSize > maxFileSize)) {
             try {
                 rollFile();
             }
@@ -237,9 +392,6 @@ final class RollingFileMessageOutput
                 throw new IOException("Error rolling log file", e);
             }
         }
-        historyManager.pruneLogFilesIfNecessary(currentFileSize + message.length);
-        currentFileSize += message.length;
-        currentOutputStream.write(message);
     }
 
     private synchronized void rollFile()
@@ -249,12 +401,14 @@ final class RollingFileMessageOutput
 
         LogFileName newFileName = null;
         Path newFile = null;
+        FileChannel newChannel = null;
         OutputStream newOutputStream = null;
         for (int i = 0; i < MAX_OPEN_NEW_LOG_ATTEMPTS; i++) {
             try {
                 newFileName = LogFileName.generateNextLogFileName(symlink, compressionType.getExtension());
                 newFile = symlink.resolveSibling(newFileName.getFileName());
-                newOutputStream = new BufferedOutputStream(Files.newOutputStream(newFile, CREATE_NEW), MAX_BATCH_BYTES);
+                newChannel = FileChannel.open(newFile, CREATE_NEW, WRITE);
+                newOutputStream = new BufferedOutputStream(Channels.newOutputStream(newChannel), MAX_BATCH_BYTES);
                 break;
             }
             catch (FileAlreadyExistsException ignore) {
@@ -279,25 +433,31 @@ final class RollingFileMessageOutput
                 exception.addSuppressed(new IOException("Unable to close old output stream: " + currentOutputFile, e));
             }
             historyManager.addFile(currentOutputFile, currentOutputFileName, currentFileSize);
-            if (compressionExecutor != null) {
+            if (currentCompressedFile != null) {
+                // only the last partial frame remains to be compressed
+                CompressedFile compressedFile = currentCompressedFile;
+                if (compressedFile.frameSize > 0 || compressedFile.frames == 0) {
+                    submitFrame(compressedFile);
+                }
                 Path originalFile = currentOutputFile;
                 LogFileName originalLogFileName = currentOutputFileName;
                 long originalFileSize = currentFileSize;
-                compressionExecutor.submit(() -> {
-                    try {
-                        compressInternal(originalFile, originalLogFileName, originalFileSize);
-                    }
-                    catch (IOException e) {
-                        exception.addSuppressed(e);
-                    }
-                });
+                compressedFile.written.whenCompleteAsync(
+                        (ignored, failure) -> completeCompression(compressedFile, failure, originalFile, originalLogFileName, originalFileSize),
+                        compressionCompletionExecutor);
             }
         }
 
         currentOutputFile = newFile;
         currentOutputFileName = newFileName;
         currentOutputStream = newOutputStream;
+        currentChannel = newChannel;
         currentFileSize = 0;
+        currentCompressedFile = null;
+
+        if (compressionExecutor != null) {
+            currentCompressedFile = new CompressedFile(newFile.resolveSibling(TEMP_PREFIX + newFile.getFileName() + compressionType.getExtension().orElseThrow()));
+        }
 
         // update symlink
         try {
@@ -313,25 +473,86 @@ final class RollingFileMessageOutput
         }
     }
 
-    private void compressInternal(Path originalFile, LogFileName originalLogFileName, long originalFileSize)
-            throws IOException
+    @GuardedBy("this")
+    private void compressInline(byte[] message)
     {
-        tryCleanupTempFiles(symlink);
+        CompressedFile compressedFile = currentCompressedFile;
+        if (compressedFile == null || compressedFile.written.isCompletedExceptionally()) {
+            return;
+        }
 
-        String compressionExtension = compressionType.getExtension().orElseThrow(IllegalStateException::new);
+        int offset = 0;
+        while (offset < message.length) {
+            if (compressedFile.frame == null) {
+                compressedFile.frame = new byte[COMPRESSION_FRAME_BYTES];
+            }
+            int length = min(message.length - offset, COMPRESSION_FRAME_BYTES - compressedFile.frameSize);
+            System.arraycopy(message, offset, compressedFile.frame, compressedFile.frameSize, length);
+            compressedFile.frameSize += length;
+            offset += length;
+            if (compressedFile.frameSize == COMPRESSION_FRAME_BYTES) {
+                submitFrame(compressedFile);
+            }
+        }
+    }
 
-        // compress file
-        Path tempFile = originalFile.resolveSibling(TEMP_PREFIX + originalFile.getFileName() + compressionExtension);
-        try (
-                InputStream input = Files.newInputStream(originalFile);
-                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
-            ByteStreams.copy(input, gzipOutputStream);
+    @GuardedBy("this")
+    private void submitFrame(CompressedFile compressedFile)
+    {
+        byte[] data;
+        if (compressedFile.frame == null) {
+            // an empty file is still compressed to a valid file
+            data = new byte[0];
         }
-        catch (IOException e) {
-            throw new IOException("Unable to compress log file", e);
+        else if (compressedFile.frameSize == COMPRESSION_FRAME_BYTES) {
+            data = compressedFile.frame;
+        }
+        else {
+            data = Arrays.copyOf(compressedFile.frame, compressedFile.frameSize);
+        }
+        compressedFile.frame = null;
+        compressedFile.frameSize = 0;
+        compressedFile.frames++;
+
+        // writing blocks when compression falls behind, which bounds the memory used by pending frames
+        pendingFramePermits.acquireUninterruptibly();
+        pendingCompressionBytes.addAndGet(data.length);
+        long submitTime = System.nanoTime();
+
+        // frames are compressed in parallel, and appended to the file in order
+        CompletableFuture<byte[]> compressedFrame = supplyAsync(() -> frameCompressor.apply(data), compressionExecutor);
+        compressedFile.written = compressedFile.written.thenCombine(compressedFrame, (ignored, frame) -> {
+            compressedFile.write(frame);
+            return null;
+        });
+        compressedFile.written.whenComplete((ignored, failure) -> {
+            lastCompressionLagNanos = System.nanoTime() - submitTime;
+            pendingCompressionBytes.addAndGet(-data.length);
+            pendingFramePermits.release();
+        });
+    }
+
+    private void completeCompression(CompressedFile compressedFile, Throwable failure, Path originalFile, LogFileName originalLogFileName, long originalFileSize)
+    {
+        Path tempFile = compressedFile.tempFile;
+        try {
+            if (failure != null) {
+                throw new IOException("Unable to compress log file: " + originalFile, failure instanceof CompletionException ? failure.getCause() : failure);
+            }
+            compressedFile.close();
+            completeCompression(tempFile, originalFile, originalLogFileName, originalFileSize);
+        }
+        catch (IOException | RuntimeException e) {
+            // the original file is kept
+            failedCompressions.incrementAndGet();
+            compressedFile.discard();
+            new ErrorManager().error("Unable to compress log file: " + originalFile, e, GENERIC_FAILURE);
         }
+    }
 
-        // Size can only be checked after the gzip stream is closed
+    private void completeCompression(Path tempFile, Path originalFile, LogFileName originalLogFileName, long originalFileSize)
+            throws IOException
+    {
         long compressedSize;
         try {
             compressedSize = Files.size(tempFile);
@@ -354,7 +575,7 @@ final class RollingFileMessageOutput
                 return;
             }
 
-            Path compressedFile = originalFile.resolveSibling(originalFile.getFileName() + compressionExtension);
+            Path compressedFile = originalFile.resolveSibling(originalFile.getFileName() + compressionType.getExtension().orElseThrow());
 
             // 2. Move temp file to final compressed name
             LogFileName compressedFileName = originalLogFileName.withCompression(compressedFile);
@@ -364,14 +585,7 @@ final class RollingFileMessageOutput
             catch (IOException e) {
                 // add the original file back to the history manager
                 historyManager.addFile(originalFile, originalLogFileName, originalFileSize);
-
-                // move failed, delete the temp file
-                try {
-                    Files.deleteIfExists(tempFile);
-                }
-                catch (IOException ignored) {
-                    // delete failed, system will attempt to delete temp files periodically
-                }
+                throw new IOException("Unable to move compressed log file: " + compressedFile, e);
             }
             historyManager.addFile(compressedFile, compressedFileName, compressedSize);
 
@@ -431,6 +645,88 @@ final class RollingFileMessageOutput
         return files.build();
     }
 
+    @Managed(description = "Bytes written to the log that are not yet compressed")
+    public long getCompressionPendingBytes()
+    {
+        return pendingCompressionBytes.get();
+    }
+
+    @Managed(description = "Frames of the log that are not yet compressed")
+    public int getCompressionPendingFrames()
+    {
+        return maxPendingFrames - pendingFramePermits.availablePermits();
+    }
+
+    @Managed(description = "Time between writing and compressing the most recently compressed frame")
+    public double getCompressionLagMillis()
+    {
+        return lastCompressionLagNanos / 1_000_000.0;
+    }
+
+    @Managed
+    public long getFailedCompressions()
+    {
+        return failedCompressions.get();
+    }
+
+    private static final class CompressedFile
+    {
+        private final Path tempFile;
+        // created when the first frame is written, so there is no temp file while the log file is smaller than a frame
+        private FileChannel channel;
+
+        // frame being filled, guarded by the output
+        private byte[] frame;
+        private int frameSize;
+        private int frames;
+        // completes when all submitted frames are written, updated by the output while holding the lock
+        private volatile CompletableFuture<Void> written = completedFuture(null);
+
+        public CompressedFile(Path tempFile)
+        {
+            this.tempFile = requireNonNull(tempFile, "tempFile is null");
+        }
+
+        public void write(byte[] frame)
+        {
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(tempFile, CREATE_NEW, WRITE);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(frame);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public void close()
+                throws IOException
+        {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+
+        public void discard()
+        {
+            try {
+                close();
+            }
+            catch (IOException ignored) {
+            }
+            try {
+                Files.deleteIfExists(tempFile);
+            }
+            catch (IOException ignored) {
+                // delete failed, system will attempt to delete temp files on startup
+            }
+        }
+    }
+
     private static final String TEMP_FILE_EXTENSION = ".tmp";
     private static final String LOG_FILE_EXTENSION = ".log";
 
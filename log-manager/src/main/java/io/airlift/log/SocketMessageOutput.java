@@ -1,133 +1,283 @@
 package io.airlift.log;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.HostAndPort;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
+import io.airlift.units.DataSize;
 import org.weakref.jmx.Managed;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
+/**
+ * Writes log messages to a socket without blocking the caller. Messages are appended to a bounded
+ * off-heap buffer, and a background thread sends everything buffered with a single write, and
+ * reconnects with exponential backoff when the connection fails. While the collector is unavailable,
+ * messages are buffered until the buffer is full, and then dropped.
+ */
 public class SocketMessageOutput
         implements MessageOutput
 {
+    private static final DataSize DEFAULT_BUFFER_SIZE = DataSize.of(8, MEGABYTE);
     private static final int CONNECTION_TIMEOUT_MILLIS = 100;
-    private static final int MAX_WRITE_ATTEMPTS_PER_MESSAGE = 5;
+    private static final long MIN_RECONNECT_DELAY_MILLIS = 100;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 10_000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
 
     private final InetSocketAddress socketAddress;
-    private final AtomicLong failedConnections = new AtomicLong(0);
+    private final ExecutorService writerExecutor = newSingleThreadExecutor(daemonThreadsNamed("log-socket-writer"));
 
-    @GuardedBy("this")
-    private Socket socket;
-    @GuardedBy("this")
-    private OutputStream currentOutputStream;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingOrClosed = lock.newCondition();
+    // messages are appended to the pending buffer, and the writer swaps it with the sending buffer, so it can write without the lock
+    @GuardedBy("lock")
+    private ByteBuffer pending;
+    @GuardedBy("lock")
+    private boolean closed;
+
+    // only accessed by the writer thread
+    private ByteBuffer sending;
+    private boolean connectedBefore;
+    // closed by close() when the writer is blocked
+    private volatile SocketChannel channel;
+
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private final AtomicLong failedConnections = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
 
     SocketMessageOutput(HostAndPort hostAndPort)
+    {
+        this(hostAndPort, DEFAULT_BUFFER_SIZE);
+    }
+
+    @VisibleForTesting
+    SocketMessageOutput(HostAndPort hostAndPort, DataSize bufferSize)
     {
         requireNonNull(hostAndPort, "hostAndPort is null");
+        requireNonNull(bufferSize, "bufferSize is null");
+        checkArgument(bufferSize.toBytes() >= 2, "bufferSize is too small");
         this.socketAddress = new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort());
+
+        // half of the buffer is pending, and the other half is being sent
+        int halfBufferSize = toIntExact(bufferSize.toBytes() / 2);
+        this.pending = ByteBuffer.allocateDirect(halfBufferSize);
+        this.sending = ByteBuffer.allocateDirect(halfBufferSize);
+
+        writerExecutor.execute(this::writeLoop);
     }
 
     @Override
-    public synchronized void writeMessage(byte[] message)
+    public void writeMessage(byte[] message)
             throws IOException
     {
-        IOException lastException = null;
-        boolean success = false;
-        int connectionFailures = 0;
-        for (int i = 0; i < MAX_WRITE_ATTEMPTS_PER_MESSAGE; i++) {
-            if (socket == null || socket.isClosed() || currentOutputStream == null) {
-                try {
-                    socket = new Socket();
-                    socket.connect(socketAddress, CONNECTION_TIMEOUT_MILLIS);
-                    currentOutputStream = socket.getOutputStream();
-                }
-                catch (IOException e) {
-                    socket.close();
-                    socket = null;
-                    currentOutputStream = null;
-                    lastException = e;
-                    connectionFailures++;
-                    continue;
-                }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Socket output is closed");
             }
-
-            try {
-                currentOutputStream.write(message);
-                success = true;
-                break;
+            if (message.length > pending.remaining()) {
+                droppedBytes.addAndGet(message.length);
+                return;
             }
-            catch (IOException e) {
-                socket.close();
-                socket = null;
-                currentOutputStream = null;
-                connectionFailures++;
-                lastException = e;
+            boolean wasEmpty = pending.position() == 0;
+            pending.put(message);
+            queuedBytes.addAndGet(message.length);
+            if (wasEmpty) {
+                pendingOrClosed.signal();
             }
         }
-
-        if (connectionFailures > 0) {
-            failedConnections.addAndGet(connectionFailures);
-            if (!success) {
-                throw new IOException(
-                        "Exception caught connecting via socket to %s:%s. There were %s failures attempting to write the log message.".formatted(
-                                socketAddress.getHostName(),
-                                socketAddress.getPort(),
-                                connectionFailures),
-                        lastException);
-            }
+        finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized void flush()
-            throws IOException
+    public void flush()
     {
-        if (currentOutputStream != null) {
-            currentOutputStream.flush();
-        }
+        // messages are sent as soon as they are written
     }
 
     @Override
-    public synchronized void close()
+    public void close()
             throws IOException
     {
-        IOException exception = new IOException("Exception thrown attempting to close the output stream and socket.");
+        lock.lock();
+        try {
+            closed = true;
+            pendingOrClosed.signal();
+        }
+        finally {
+            lock.unlock();
+        }
 
-        if (currentOutputStream != null) {
-            try {
-                currentOutputStream.flush();
-            }
-            catch (IOException e) {
-                exception.addSuppressed(e);
+        // the writer sends the buffered messages before it exits, unless it can not connect
+        writerExecutor.shutdown();
+        try {
+            if (!writerExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, SECONDS)) {
+                // closing the channel aborts a blocked write
+                closeChannel();
+                writerExecutor.shutdownNow();
+                throw new IOException("Timed out sending buffered log messages to %s:%s".formatted(socketAddress.getHostName(), socketAddress.getPort()));
             }
-            try {
-                currentOutputStream.close();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeChannel();
+            writerExecutor.shutdownNow();
+        }
+    }
+
+    private void writeLoop()
+    {
+        long reconnectDelayMillis = MIN_RECONNECT_DELAY_MILLIS;
+        try {
+            while (takePending()) {
+                while (sending.hasRemaining()) {
+                    SocketChannel currentChannel = channel;
+                    if (currentChannel == null) {
+                        currentChannel = connect();
+                    }
+                    if (currentChannel != null) {
+                        try {
+                            currentChannel.write(sending);
+                            reconnectDelayMillis = MIN_RECONNECT_DELAY_MILLIS;
+                            continue;
+                        }
+                        catch (IOException e) {
+                            closeChannel();
+                            failedConnections.incrementAndGet();
+                            // the whole batch is sent again, because the part of it sent before the failure may not have been received
+                            sending.rewind();
+                        }
+                    }
+
+                    if (isClosed()) {
+                        // do not retry while closing
+                        droppedBytes.addAndGet(sending.remaining());
+                        break;
+                    }
+                    awaitClose(reconnectDelayMillis);
+                    reconnectDelayMillis = min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+                }
+                queuedBytes.addAndGet(-sending.limit());
+                sending.clear();
             }
-            catch (IOException e) {
-                exception.addSuppressed(e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            closeChannel();
+        }
+    }
+
+    /**
+     * Swaps the pending messages into the sending buffer, waiting until there are pending messages.
+     *
+     * @return false if the output is closed and all messages were sent
+     */
+    private boolean takePending()
+            throws InterruptedException
+    {
+        lock.lock();
+        try {
+            while (pending.position() == 0) {
+                if (closed) {
+                    return false;
+                }
+                pendingOrClosed.await();
             }
+            ByteBuffer buffer = pending;
+            pending = sending;
+            sending = buffer;
+            sending.flip();
+            return true;
+        }
+        finally {
+            lock.unlock();
         }
+    }
 
-        currentOutputStream = null;
+    private boolean isClosed()
+    {
+        lock.lock();
+        try {
+            return closed;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
 
-        if (socket != null) {
-            try {
-                socket.close();
-            }
-            catch (IOException e) {
-                exception.addSuppressed(e);
+    private void awaitClose(long millis)
+            throws InterruptedException
+    {
+        lock.lock();
+        try {
+            long remainingNanos = MILLISECONDS.toNanos(millis);
+            while (!closed && remainingNanos > 0) {
+                remainingNanos = pendingOrClosed.awaitNanos(remainingNanos);
             }
         }
+        finally {
+            lock.unlock();
+        }
+    }
 
-        socket = null;
+    private SocketChannel connect()
+    {
+        SocketChannel newChannel = null;
+        try {
+            newChannel = SocketChannel.open();
+            newChannel.socket().connect(socketAddress, CONNECTION_TIMEOUT_MILLIS);
+            newChannel.socket().setTcpNoDelay(true);
+        }
+        catch (IOException e) {
+            failedConnections.incrementAndGet();
+            if (newChannel != null) {
+                try {
+                    newChannel.close();
+                }
+                catch (IOException ignored) {
+                }
+            }
+            return null;
+        }
+        if (connectedBefore) {
+            reconnects.incrementAndGet();
+        }
+        connectedBefore = true;
+        channel = newChannel;
+        return newChannel;
+    }
 
-        if (exception.getSuppressed().length > 0) {
-            throw exception;
+    private void closeChannel()
+    {
+        SocketChannel currentChannel = channel;
+        channel = null;
+        if (currentChannel != null) {
+            try {
+                currentChannel.close();
+            }
+            catch (IOException ignored) {
+            }
         }
     }
 
@@ -136,4 +286,22 @@ public class SocketMessageOutput
     {
         return failedConnections.get();
     }
+
+    @Managed(description = "Successful connections after the first connection")
+    public long getReconnects()
+    {
+        return reconnects.get();
+    }
+
+    @Managed(description = "Bytes buffered and not yet sent")
+    public long getQueuedBytes()
+    {
+        return queuedBytes.get();
+    }
+
+    @Managed(description = "Bytes dropped because the buffer was full or the output was closed")
+    public long getDroppedBytes()
+    {
+        return droppedBytes.get();
+    }
 }
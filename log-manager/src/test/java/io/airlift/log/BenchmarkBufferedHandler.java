@@ -0,0 +1,104 @@
+package io.airlift.log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+import static java.util.logging.Level.INFO;
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.SampleTime)
+@Fork(3)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkBufferedHandler
+{
+    private final LogRecord record = createRecord();
+    private BufferedHandler handler;
+
+    @Setup(Level.Iteration)
+    public void setup()
+    {
+        handler = new BufferedHandler(new DiscardingMessageOutput(), new MessageFormatter(), new ErrorManager());
+        handler.initialize();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown()
+    {
+        handler.close();
+    }
+
+    @Benchmark
+    public void benchmarkPublish()
+    {
+        handler.publish(record);
+    }
+
+    private static LogRecord createRecord()
+    {
+        LogRecord record = new LogRecord(INFO, "benchmark message");
+        record.setLoggerName(BenchmarkBufferedHandler.class.getName());
+        return record;
+    }
+
+    private static class MessageFormatter
+            extends Formatter
+    {
+        @Override
+        public String format(LogRecord record)
+        {
+            return record.getMessage();
+        }
+    }
+
+    private static class DiscardingMessageOutput
+            implements MessageOutput
+    {
+        @Override
+        public void writeMessage(byte[] message) {}
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        // publish latency with 1 to 64 logging threads
+        for (int threads = 1; threads <= 64; threads *= 4) {
+            Options options = new OptionsBuilder()
+                    .verbosity(VerboseMode.NORMAL)
+                    .include(".*\\." + BenchmarkBufferedHandler.class.getSimpleName() + "\\..*")
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
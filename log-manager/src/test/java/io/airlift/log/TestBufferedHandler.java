@@ -11,6 +11,7 @@ import com.google.common.util.concurrent.RateLimiter;
 import jakarta.annotation.Nullable;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -264,11 +265,11 @@ public class TestBufferedHandler
         // Submit the close asynchronously
         Future<?> closeFuture = executor.submit(bufferedHandler::close);
 
-        // Wait for the buffered handler terminal message to be processed, and then for a subsequent write attempt, before allowing writes to proceed
-        while (!bufferedHandler.isTerminalMessageDequeued()) {
+        // Wait for the buffered handler to observe the close, and then for a subsequent write attempt, before allowing writes to proceed
+        while (!bufferedHandler.isTerminalPositionObserved()) {
             sleepUninterruptibly(20, TimeUnit.MILLISECONDS);
         }
-        // Wait for the next 2 write attempts to ensure there was at least one attempt with the terminal message signal established
+        // Wait for the next 2 write attempts to ensure there was at least one attempt with the terminal position observed
         testingMessageOutput.getNextWriteAttemptLatch().await(5, TimeUnit.SECONDS);
         testingMessageOutput.getNextWriteAttemptLatch().await(5, TimeUnit.SECONDS);
         testingMessageOutput.setThrowOnWrite(false);
@@ -283,6 +284,156 @@ public class TestBufferedHandler
         assertLogStreamContents(testingMessageOutput.getFlushedMessages(), "B-TestLogger", 1, String::valueOf);
     }
 
+    @Test
+    public void testFullBufferDropsNewestMessages()
+    {
+        TestingMessageOutput testingMessageOutput = new TestingMessageOutput();
+        BufferedHandler bufferedHandler = new BufferedHandler(
+                testingMessageOutput,
+                testingFormatter(),
+                TestBufferedHandler::serializeMultiset,
+                new ErrorManager(),
+                RateLimiter.create(10),
+                Duration.ofSeconds(5),
+                100,
+                3);
+
+        // The drainer is not running yet, so the buffer fills up after the first 3 messages
+        for (int i = 0; i < 5; i++) {
+            bufferedHandler.publish(logRecord(INFO, "TestLogger", String.valueOf(i)));
+        }
+        bufferedHandler.initialize();
+        bufferedHandler.close();
+
+        assertThat(bufferedHandler.getDroppedMessages()).isEqualTo(2);
+        assertThat(testingMessageOutput.getFlushedMessages())
+                .as("The messages already in the buffer are kept, and the new messages are dropped")
+                .containsExactly(
+                        new LogEntry("TestLogger", "0").serialize(),
+                        new LogEntry("TestLogger", "1").serialize(),
+                        new LogEntry("TestLogger", "2").serialize(),
+                        new LogEntry(BufferedHandler.class.getName(), "TestLogger=2").serialize());
+    }
+
+    @Test
+    public void testDropSummaryWrittenBeforeMessageAtDropPosition()
+            throws Exception
+    {
+        TestingMessageOutput testingMessageOutput = new TestingMessageOutput();
+        BufferedHandler bufferedHandler = new BufferedHandler(
+                testingMessageOutput,
+                testingFormatter(),
+                TestBufferedHandler::serializeMultiset,
+                new ErrorManager(),
+                RateLimiter.create(10),
+                Duration.ofSeconds(5),
+                100,
+                2);
+
+        // Messages 2 and 3 are dropped at the position that message 4 takes once the buffer has space
+        for (int i = 0; i < 4; i++) {
+            bufferedHandler.publish(logRecord(INFO, "TestLogger", String.valueOf(i)));
+        }
+        bufferedHandler.initialize();
+        testingMessageOutput.awaitFirstFlushAttempt(5, TimeUnit.SECONDS);
+        bufferedHandler.publish(logRecord(INFO, "TestLogger", "4"));
+        bufferedHandler.close();
+
+        assertThat(testingMessageOutput.getFlushedMessages())
+                .as("The drop summary is written after the earlier messages and before the later ones")
+                .containsExactly(
+                        new LogEntry("TestLogger", "0").serialize(),
+                        new LogEntry("TestLogger", "1").serialize(),
+                        new LogEntry(BufferedHandler.class.getName(), "TestLogger=2").serialize(),
+                        new LogEntry("TestLogger", "4").serialize());
+    }
+
+    @Test
+    public void testConcurrentProducers()
+    {
+        int producerCount = 8;
+        int messagesPerProducer = 10_000;
+
+        TestingMessageOutput testingMessageOutput = new TestingMessageOutput();
+        BufferedHandler bufferedHandler = new BufferedHandler(
+                testingMessageOutput,
+                testingFormatter(),
+                TestBufferedHandler::serializeMultiset,
+                new ErrorManager(),
+                RateLimiter.create(10),
+                Duration.ofSeconds(5),
+                100,
+                producerCount * messagesPerProducer + 1);
+        bufferedHandler.initialize();
+
+        ExecutorService executor = Executors.newFixedThreadPool(producerCount, daemonThreadsNamed("submitter-%s"));
+        CountDownLatch start = new CountDownLatch(1);
+        for (int producer = 0; producer < producerCount; producer++) {
+            String loggerName = "TestLogger-" + producer;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < messagesPerProducer; i++) {
+                    bufferedHandler.publish(logRecord(INFO, loggerName, String.valueOf(i)));
+                }
+            });
+        }
+        start.countDown();
+
+        assertThat(shutdownAndAwaitTermination(executor, 10, TimeUnit.SECONDS)).isTrue();
+
+        bufferedHandler.close();
+
+        assertThat(bufferedHandler.getDroppedMessages())
+                .as("The buffer is large enough to hold every message")
+                .isZero();
+        List<String> flushedMessages = testingMessageOutput.getFlushedMessages();
+        assertThat(flushedMessages).hasSize(producerCount * messagesPerProducer);
+        for (int producer = 0; producer < producerCount; producer++) {
+            assertThat(assertLogStreamContents(flushedMessages, "TestLogger-" + producer, messagesPerProducer, String::valueOf))
+                    .as("Every message of each producer is written, in the order it was published")
+                    .isZero();
+        }
+    }
+
+    @Test
+    public void testPartialBatchWriteRetriesOnlyUnwrittenMessages()
+            throws Exception
+    {
+        TestingMessageOutput testingMessageOutput = new TestingMessageOutput()
+                .setPartialWriteOnNextBatch(true);
+        BufferedHandler bufferedHandler = new BufferedHandler(
+                testingMessageOutput,
+                testingFormatter(),
+                TestBufferedHandler::serializeMultiset,
+                new ErrorManager(),
+                RateLimiter.create(1000),
+                Duration.ofSeconds(5),
+                100,
+                100);
+
+        // publish before draining starts, so the messages are written as one batch
+        List<String> expectedMessages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            LogRecord record = logRecord(INFO, "TestLogger", String.valueOf(i));
+            expectedMessages.add(testingFormatter().format(record));
+            bufferedHandler.publish(record);
+        }
+        bufferedHandler.initialize();
+        testingMessageOutput.awaitFirstFlushAttempt(5, TimeUnit.SECONDS);
+        bufferedHandler.close();
+
+        assertThat(testingMessageOutput.getFlushedMessages())
+                .as("Messages written before the failure are not written again")
+                .containsExactlyElementsOf(expectedMessages);
+        assertThat(bufferedHandler.getDroppedMessages()).isZero();
+    }
+
     @Test
     public void testIgnoreWriteAfterClose()
     {
@@ -448,6 +599,7 @@ public class TestBufferedHandler
         private final CountDownLatch firstFlushAttemptLatch = new CountDownLatch(1);
         private final AtomicBoolean throwOnWrite = new AtomicBoolean();
         private final AtomicBoolean throwOnFlush = new AtomicBoolean();
+        private final AtomicBoolean partialWriteOnNextBatch = new AtomicBoolean();
 
         public TestingMessageOutput setThrowOnWrite(boolean shouldThrow)
         {
@@ -461,6 +613,12 @@ public class TestBufferedHandler
             return this;
         }
 
+        public TestingMessageOutput setPartialWriteOnNextBatch(boolean partialWrite)
+        {
+            partialWriteOnNextBatch.set(partialWrite);
+            return this;
+        }
+
         public CountDownLatch getNextWriteAttemptLatch()
         {
             CountDownLatch latch = new CountDownLatch(1);
@@ -514,6 +672,20 @@ public class TestBufferedHandler
             }
         }
 
+        @Override
+        public void writeMessages(List<byte[]> messages)
+                throws IOException
+        {
+            if (messages.size() > 1 && partialWriteOnNextBatch.compareAndSet(true, false)) {
+                int written = messages.size() / 2;
+                for (byte[] message : messages.subList(0, written)) {
+                    writeMessage(message);
+                }
+                throw new PartialWriteException(written, new IOException("Testing failure"));
+            }
+            MessageOutput.super.writeMessages(messages);
+        }
+
         @Override
         public void flush()
         {
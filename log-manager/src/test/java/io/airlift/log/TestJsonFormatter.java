@@ -1,6 +1,8 @@
 package io.airlift.log;
 
 import com.google.common.collect.ImmutableMap;
+import io.airlift.json.JsonCodecFactory;
+import io.airlift.json.ObjectMapperProvider;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanId;
 import io.opentelemetry.api.trace.TraceId;
@@ -19,6 +21,7 @@ import java.util.logging.LogRecord;
 import static com.google.common.base.Throwables.getStackTraceAsString;
 import static io.airlift.json.JsonCodec.jsonCodec;
 import static io.airlift.json.JsonCodec.mapJsonCodec;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.temporal.ChronoUnit.NANOS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.Assert.assertEquals;
@@ -177,4 +180,102 @@ public class TestJsonFormatter
         assertEquals(jsonRecord.getMessage(), record.getMessage());
         assertThat(jsonMap.get("annotations")).asInstanceOf(InstanceOfAssertFactories.map(String.class, String.class)).containsExactlyEntriesOf(logAnnotations);
     }
+
+    @Test
+    public void testParameterThatLogs()
+    {
+        JsonFormatter formatter = new JsonFormatter(ImmutableMap.of());
+        String[] nested = new String[1];
+        Object parameter = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                nested[0] = formatter.format(new LogRecord(Level.INFO.toJulLevel(), "nested message"));
+                return "parameter";
+            }
+        };
+        Exception exception = new RuntimeException("exception message")
+        {
+            @Override
+            public String getMessage()
+            {
+                formatter.format(new LogRecord(Level.INFO.toJulLevel(), "nested from exception"));
+                return super.getMessage();
+            }
+        };
+
+        LogRecord record = new LogRecord(Level.WARN.toJulLevel(), "outer message");
+        record.setParameters(new Object[] {parameter});
+        record.setThrown(exception);
+        String logMessage = formatter.format(record);
+
+        // a record formatted while formatting another does not corrupt it
+        assertThat(logMessage).endsWith("\n").containsOnlyOnce("\n");
+        Map<String, Object> jsonMap = mapJsonCodec(String.class, Object.class).fromJson(logMessage);
+        assertEquals(jsonMap.get("message"), "outer message");
+        assertEquals(jsonMap.get("parameters"), List.of("parameter"));
+        assertEquals(jsonMap.get("throwableMessage"), "exception message");
+        assertEquals(jsonCodec(JsonRecord.class).fromJson(nested[0]).getMessage(), "nested message");
+    }
+
+    @Test
+    public void testSameAsJsonRecordSerialization()
+    {
+        Map<String, String> logAnnotations = ImmutableMap.of("foo", "apple", "bar", "\"banana\"");
+        JsonFormatter formatter = new JsonFormatter(logAnnotations);
+
+        LogRecord minimal = new LogRecord(Level.INFO.toJulLevel(), null);
+        assertSameAsJsonRecordSerialization(formatter, minimal, Context.root(), logAnnotations);
+
+        LogRecord message = new LogRecord(Level.WARN.toJulLevel(), "Test \"message\"\n\t with \u00e9\u4e2d\uD83D\uDE00 and \u0001");
+        message.setLoggerName("TestLogger");
+        message.setParameters(new Object[] {"apple", 42});
+        assertSameAsJsonRecordSerialization(formatter, message, Context.root(), logAnnotations);
+
+        LogRecord record = new LogRecord(Level.WARN.toJulLevel(), "Test \"message\"\n\t with \u00e9\u4e2d\uD83D\uDE00 and \u0001");
+        record.setLoggerName("TestLogger");
+        record.setParameters(new Object[] {"apple", 42});
+        record.setThrown(new RuntimeException("Test Exception", new IllegalStateException()));
+        assertSameAsJsonRecordSerialization(formatter, record, Context.root(), logAnnotations);
+        assertSameAsJsonRecordSerialization(new JsonFormatter(ImmutableMap.of()), record, Context.root(), ImmutableMap.of());
+
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder().build();
+        try (tracerProvider) {
+            Span span = tracerProvider.get("test")
+                    .spanBuilder("test-span")
+                    .startSpan();
+            try (var ignored = span.makeCurrent()) {
+                assertSameAsJsonRecordSerialization(formatter, record, Context.current(), logAnnotations);
+            }
+            finally {
+                span.end();
+            }
+        }
+    }
+
+    private static void assertSameAsJsonRecordSerialization(JsonFormatter formatter, LogRecord record, Context context, Map<String, String> logAnnotations)
+    {
+        JsonRecord jsonRecord = new JsonRecord(
+                record.getInstant(),
+                Level.fromJulLevel(record.getLevel()),
+                Thread.currentThread().getName(),
+                record.getLoggerName(),
+                record.getMessage(),
+                record.getParameters(),
+                record.getThrown(),
+                context,
+                logAnnotations);
+        // the codec used by the formatter before it wrote the fields directly
+        String expected = new JsonCodecFactory(new ObjectMapperProvider()).jsonCodec(JsonRecord.class).toJson(jsonRecord) + "\n";
+
+        String actual = formatter.format(record);
+        // the order of the fields that are not creator properties depends on reflection
+        assertEquals(mapJsonCodec(String.class, Object.class).fromJson(actual), mapJsonCodec(String.class, Object.class).fromJson(expected));
+        if (record.getThrown() == null && !Span.fromContext(context).getSpanContext().isValid()) {
+            assertEquals(actual, expected);
+        }
+        // a second record reuses the generator of the thread
+        assertEquals(formatter.formatBytes(record), actual.getBytes(UTF_8));
+    }
 }
@@ -60,6 +60,18 @@ public class TestLogFileName
                 OptionalInt.of(4),
                 OptionalInt.empty(),
                 true);
+        assertLogFile(
+                "20201122.010203.zst",
+                LocalDateTime.of(2020, 11, 22, 1, 2, 3),
+                OptionalInt.of(0),
+                OptionalInt.empty(),
+                true);
+        assertLogFile(
+                "20201122.010203-4.zst",
+                LocalDateTime.of(2020, 11, 22, 1, 2, 3),
+                OptionalInt.of(4),
+                OptionalInt.empty(),
+                true);
     }
 
     @Test
@@ -38,6 +38,7 @@ public class TestLoggingConfiguration
                 .setMaxSize(DataSize.of(100, DataSize.Unit.MEGABYTE))
                 .setMaxTotalSize(DataSize.of(1, Unit.GIGABYTE))
                 .setCompression(CompressionType.GZIP)
+                .setCompressionThreads(1)
                 .setLevelsFile(null)
                 .setFormat(Format.TEXT)
                 .setLogAnnotationFile(null));
@@ -53,7 +54,8 @@ public class TestLoggingConfiguration
                 .put("log.path", "/tmp/log.log")
                 .put("log.max-size", "1kB")
                 .put("log.max-total-size", "33kB")
-                .put("log.compression", "NONE")
+                .put("log.compression", "ZSTD")
+                .put("log.compression.threads", "4")
                 .put("log.levels-file", "/tmp/levels.txt")
                 .put("log.format", "json")
                 .put("node.annotation-file", annotationFile.getAbsolutePath())
@@ -64,7 +66,8 @@ public class TestLoggingConfiguration
                 .setLogPath("/tmp/log.log")
                 .setMaxSize(DataSize.of(1, KILOBYTE))
                 .setMaxTotalSize(DataSize.of(33, KILOBYTE))
-                .setCompression(CompressionType.NONE)
+                .setCompression(CompressionType.ZSTD)
+                .setCompressionThreads(4)
                 .setLevelsFile("/tmp/levels.txt")
                 .setFormat(Format.JSON)
                 .setLogAnnotationFile(annotationFile.getAbsolutePath());
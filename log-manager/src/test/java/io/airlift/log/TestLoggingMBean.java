@@ -70,6 +70,15 @@ public class TestLoggingMBean
         assertEquals(logging.getRootLevel(), "INFO");
     }
 
+    @Test
+    public void testSocketMetricsWithoutSocket()
+    {
+        assertEquals(logging.getSocketQueuedBytes(), 0);
+        assertEquals(logging.getSocketDroppedBytes(), 0);
+        assertEquals(logging.getSocketReconnects(), 0);
+        assertEquals(logging.getSocketFailedConnections(), 0);
+    }
+
     @Test
     public void testSetInvalidLevel()
     {
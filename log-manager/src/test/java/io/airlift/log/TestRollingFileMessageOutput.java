@@ -13,6 +13,7 @@
  */
 package io.airlift.log;
 
+import com.github.luben.zstd.ZstdInputStream;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteSource;
@@ -24,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.ErrorManager;
@@ -35,6 +37,7 @@ import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.io.MoreFiles.asByteSource;
 import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
@@ -42,7 +45,9 @@ import static io.airlift.log.Format.TEXT;
 import static io.airlift.log.LogFileName.parseHistoryLogFileName;
 import static io.airlift.log.RollingFileMessageOutput.CompressionType.GZIP;
 import static io.airlift.log.RollingFileMessageOutput.CompressionType.NONE;
+import static io.airlift.log.RollingFileMessageOutput.CompressionType.ZSTD;
 import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.APPEND;
@@ -257,6 +262,71 @@ public class TestRollingFileMessageOutput
         }
     }
 
+    @Test
+    public void testWriteMessages()
+            throws Exception
+    {
+        byte[] message = (Strings.padEnd("", 99, 'x') + "\n").getBytes(UTF_8);
+
+        Path tempDir = Files.createTempDirectory("logging-test");
+        try {
+            Path masterFile = tempDir.resolve("launcher.log");
+            RollingFileMessageOutput output = new RollingFileMessageOutput(masterFile.toString(), DataSize.of(message.length * 5, BYTE), DataSize.of(1, MEGABYTE), NONE);
+
+            output.writeMessage(message);
+            // the batch is split where the file is rolled
+            output.writeMessages(Collections.nCopies(6, message));
+            output.writeMessages(List.of(message));
+            output.flush();
+
+            assertEquals(output.getFiles().size(), 2);
+            assertEquals(Files.readAllBytes(masterFile).length, message.length * 3);
+            long totalSize = 0;
+            for (LogFileName file : output.getFiles()) {
+                totalSize += Files.size(masterFile.resolveSibling(file.getFileName()));
+            }
+            assertEquals(totalSize, message.length * 8);
+
+            output.close();
+        }
+        finally {
+            deleteRecursively(tempDir, ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testWriteMessagesRollFailure()
+            throws Exception
+    {
+        byte[] message = (Strings.padEnd("", 99, 'x') + "\n").getBytes(UTF_8);
+
+        Path tempDir = Files.createTempDirectory("logging-test");
+        try {
+            Path masterFile = tempDir.resolve("launcher.log");
+            RollingFileMessageOutput output = new RollingFileMessageOutput(masterFile.toString(), DataSize.of(message.length * 5, BYTE), DataSize.of(1, MEGABYTE), NONE);
+
+            // the symlink can not be replaced, so rolling fails after the new file is opened
+            Files.delete(masterFile);
+            Files.createDirectories(masterFile.resolve("blocker"));
+
+            // a roll failure after part of the batch is written does not fail the batch, so it is not written twice
+            output.writeMessages(Collections.nCopies(8, message));
+            output.flush();
+
+            assertEquals(output.getFiles().size(), 2);
+            long totalSize = 0;
+            for (LogFileName file : output.getFiles()) {
+                totalSize += Files.size(masterFile.resolveSibling(file.getFileName()));
+            }
+            assertEquals(totalSize, message.length * 8);
+
+            output.close();
+        }
+        finally {
+            deleteRecursively(tempDir, ALLOW_INSECURE);
+        }
+    }
+
     @Test
     public void testCompression()
             throws Exception
@@ -342,6 +412,50 @@ public class TestRollingFileMessageOutput
         }
     }
 
+    @Test
+    public void testCompressionFrames()
+            throws Exception
+    {
+        for (RollingFileMessageOutput.CompressionType compressionType : List.of(GZIP, ZSTD)) {
+            Path tempDir = Files.createTempDirectory("logging-test");
+            try {
+                Path masterFile = tempDir.resolve("launcher.log");
+                RollingFileMessageOutput output = new RollingFileMessageOutput(masterFile.toString(), DataSize.of(3, MEGABYTE), DataSize.of(1, GIGABYTE), compressionType, 2);
+
+                // the file spans several frames, which are compressed in parallel while it is written
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                for (int i = 0; expected.size() < DataSize.of(3, MEGABYTE).toBytes() - 1000; i++) {
+                    byte[] message = (Strings.padStart(String.valueOf(i), 999, 'x') + "\n").getBytes(UTF_8);
+                    if (i % 2 == 0) {
+                        output.writeMessage(message);
+                    }
+                    else {
+                        output.writeMessages(List.of(message));
+                    }
+                    expected.write(message);
+                }
+                output.writeMessage(Strings.padEnd("", 2000, 'y').getBytes(UTF_8));
+
+                Set<LogFileName> compressedFiles = waitForCompression(output, 2);
+                assertEquals(compressedFiles.size(), 1);
+                Path compressedFile = masterFile.resolveSibling(getOnlyElement(compressedFiles).getFileName());
+                assertTrue(compressedFile.toString().endsWith(compressionType.getExtension().orElseThrow()));
+                try (InputStream input = compressionType == GZIP ? new GZIPInputStream(Files.newInputStream(compressedFile)) : new ZstdInputStream(Files.newInputStream(compressedFile))) {
+                    assertEquals(input.readAllBytes(), expected.toByteArray());
+                }
+                assertEquals(output.getCompressionPendingBytes(), 0);
+                assertEquals(output.getCompressionPendingFrames(), 0);
+                assertEquals(output.getFailedCompressions(), 0);
+
+                output.close();
+                assertLogDirectory(masterFile);
+            }
+            finally {
+                deleteRecursively(tempDir, ALLOW_INSECURE);
+            }
+        }
+    }
+
     @Test
     public void testClosedHandler()
             throws Exception
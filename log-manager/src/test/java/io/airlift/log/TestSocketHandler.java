@@ -5,6 +5,7 @@ import com.google.common.collect.Multiset;
 import com.google.common.io.ByteStreams;
 import com.google.common.net.HostAndPort;
 import com.google.common.util.concurrent.RateLimiter;
+import io.airlift.units.DataSize;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
@@ -20,6 +21,9 @@ import java.util.logging.Level;
 import java.util.logging.LogRecord;
 
 import static io.airlift.log.Format.TEXT;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
@@ -72,6 +76,64 @@ public class TestSocketHandler
         assertTrue(((SocketMessageOutput) handler.getMessageOutput()).getFailedConnections() > 0);
     }
 
+    @Test
+    public void testBufferedUntilConnected()
+            throws Exception
+    {
+        ServerSocket unusedSocket = new ServerSocket(0);
+        int port = unusedSocket.getLocalPort();
+        unusedSocket.close();
+
+        SocketMessageOutput output = new SocketMessageOutput(HostAndPort.fromParts("localhost", port), DataSize.of(64, KILOBYTE));
+        // the collector is down, so the messages are buffered without blocking
+        output.writeMessage("apple\n".getBytes(UTF_8));
+        output.writeMessage("banana\n".getBytes(UTF_8));
+        assertEquals(output.getQueuedBytes(), 13);
+
+        while (output.getFailedConnections() == 0) {
+            Thread.sleep(10);
+        }
+
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            output.writeMessage("orange\n".getBytes(UTF_8));
+            Executors.newSingleThreadExecutor().submit(() -> {
+                output.close();
+                return null;
+            });
+
+            try (Socket listeningSocket = serverSocket.accept();
+                    InputStream inputStream = listeningSocket.getInputStream()) {
+                assertEquals(new String(ByteStreams.toByteArray(inputStream), UTF_8), "apple\nbanana\norange\n");
+            }
+        }
+        assertEquals(output.getQueuedBytes(), 0);
+        assertEquals(output.getDroppedBytes(), 0);
+        assertEquals(output.getReconnects(), 0);
+    }
+
+    @Test
+    public void testDropsWhenBufferIsFull()
+            throws Exception
+    {
+        ServerSocket serverSocket = new ServerSocket(0);
+        int unallocatedPort = serverSocket.getLocalPort();
+        serverSocket.close();
+
+        SocketMessageOutput output = new SocketMessageOutput(HostAndPort.fromParts("localhost", unallocatedPort), DataSize.of(100, BYTE));
+        byte[] message = "x".repeat(29).concat("\n").getBytes(UTF_8);
+        for (int i = 0; i < 10; i++) {
+            output.writeMessage(message);
+        }
+        // one message fits in each half of the buffer
+        assertTrue(output.getQueuedBytes() <= 60);
+        assertEquals(output.getQueuedBytes() + output.getDroppedBytes(), 300);
+
+        output.close();
+        assertEquals(output.getQueuedBytes(), 0);
+        assertEquals(output.getDroppedBytes(), 300);
+        assertTrue(output.getFailedConnections() > 0);
+    }
+
     private static BufferedHandler createSocketHandler(HostAndPort hostAndPort, Formatter formatter, ErrorManager errorManager)
     {
         SocketMessageOutput output = new SocketMessageOutput(hostAndPort);
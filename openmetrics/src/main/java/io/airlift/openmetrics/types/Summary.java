@@ -15,6 +15,7 @@ package io.airlift.openmetrics.types;
 
 import com.google.common.collect.ImmutableMap;
 import io.airlift.stats.TimeDistribution;
+import io.airlift.stats.TimeDistribution.TimeDistributionSnapshot;
 
 import java.util.Map;
 
@@ -25,13 +26,14 @@ public record Summary(String metricName, Long count, Double sum, Double created,
 {
     public static Summary from(String metricName, TimeDistribution timeDistribution, Map<String, String> labels, String help)
     {
-        return new Summary(metricName, (long) timeDistribution.getCount(), timeDistribution.getAvg() * timeDistribution.getCount(), null,
+        TimeDistributionSnapshot snapshot = timeDistribution.snapshot();
+        return new Summary(metricName, (long) snapshot.getCount(), snapshot.getAvg() * snapshot.getCount(), null,
                 ImmutableMap.<Double, Double>builder()
-                        .put(0.5, timeDistribution.getP50())
-                        .put(0.75, timeDistribution.getP75())
-                        .put(0.9, timeDistribution.getP90())
-                        .put(0.95, timeDistribution.getP95())
-                        .put(0.99, timeDistribution.getP99())
+                        .put(0.5, snapshot.getP50())
+                        .put(0.75, snapshot.getP75())
+                        .put(0.9, snapshot.getP90())
+                        .put(0.95, snapshot.getP95())
+                        .put(0.99, snapshot.getP99())
                         .build(), labels, help);
     }
 
@@ -58,12 +58,19 @@ public final class DecayCounter
 
     public synchronized void add(long value)
     {
-        long nowInSeconds = getTickInSeconds();
+        add(value, getTickInSeconds());
+    }
 
-        if (nowInSeconds - landmarkInSeconds >= RESCALE_THRESHOLD_SECONDS) {
-            rescaleToNewLandmark(nowInSeconds);
+    /**
+     * Adds a value that was observed at {@code timestampInSeconds} (as read from this counter's ticker),
+     * which may be in the past.
+     */
+    synchronized void add(long value, long timestampInSeconds)
+    {
+        if (timestampInSeconds - landmarkInSeconds >= RESCALE_THRESHOLD_SECONDS) {
+            rescaleToNewLandmark(timestampInSeconds);
         }
-        count += value * weight(alpha, nowInSeconds, landmarkInSeconds);
+        count += value * weight(alpha, timestampInSeconds, landmarkInSeconds);
     }
 
     public synchronized void merge(DecayCounter decayCounter)
@@ -102,11 +102,20 @@ public class DecayTDigest
     }
 
     public void add(double value, double weight)
+    {
+        add(value, weight, nowInSeconds());
+    }
+
+    /**
+     * Adds a value that was observed at {@code timestampInSeconds} (as read from this digest's ticker),
+     * which may be in the past.
+     */
+    void add(double value, double weight, long timestampInSeconds)
     {
         rescaleIfNeeded();
 
         if (alpha > 0.0) {
-            weight *= weight(alpha, nowInSeconds(), landmarkInSeconds) * SCALE_FACTOR;
+            weight *= weight(alpha, timestampInSeconds, landmarkInSeconds) * SCALE_FACTOR;
         }
 
         digest.add(value, weight);
@@ -2,6 +2,8 @@ package io.airlift.stats;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
 import com.google.errorprone.annotations.ThreadSafe;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
 import org.weakref.jmx.Managed;
@@ -13,12 +15,21 @@ import java.util.Map;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Verify.verify;
 import static java.util.Objects.requireNonNull;
-
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Samples are recorded into a lock-free {@link StripedSampleBuffer}, so concurrent writers do not
+ * contend on the monitor of this object. Buffered samples carry the time at which they were recorded
+ * and are merged into the decaying digest before any value is read.
+ */
 @ThreadSafe
 public class Distribution
 {
     private static final double[] SNAPSHOT_QUANTILES = new double[]{0.01, 0.05, 0.10, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99};
     private static final double[] PERCENTILES;
+    @VisibleForTesting
+    static final long SNAPSHOT_TTL_NANOS = SECONDS.toNanos(1);
 
     static {
         PERCENTILES = new double[100];
@@ -31,8 +42,22 @@ public class Distribution
     @GuardedBy("this")
     private DecayTDigest digest;
 
+    @GuardedBy("this")
     private final DecayCounter total;
 
+    private final StripedSampleBuffer buffer = new StripedSampleBuffer();
+    private final Ticker ticker;
+
+    // incremented whenever the digest changes, to invalidate the cached snapshot
+    @GuardedBy("this")
+    private long version;
+    @GuardedBy("this")
+    private DistributionSnapshot cachedSnapshot;
+    @GuardedBy("this")
+    private long cachedSnapshotVersion;
+    @GuardedBy("this")
+    private long cachedSnapshotNanos;
+
     public Distribution()
     {
         this(0);
@@ -40,122 +65,150 @@ public class Distribution
 
     public Distribution(double alpha)
     {
-        this(alpha, new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha), new DecayCounter(alpha));
+        this(alpha, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    Distribution(double alpha, Ticker ticker)
+    {
+        this(alpha, new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha, ticker), new DecayCounter(alpha, ticker), ticker);
     }
 
-    private Distribution(double alpha, DecayTDigest digest, DecayCounter total)
+    private Distribution(double alpha, DecayTDigest digest, DecayCounter total, Ticker ticker)
     {
         this.alpha = alpha;
+        this.ticker = requireNonNull(ticker, "ticker is null");
         this.digest = requireNonNull(digest, "digest is null");
         this.total = requireNonNull(total, "total is null");
     }
 
-    public synchronized void add(long value)
+    public void add(long value)
+    {
+        add(value, 1);
+    }
+
+    public void add(long value, long count)
+    {
+        long timestampInSeconds = NANOSECONDS.toSeconds(ticker.read());
+        if (!buffer.add(value, count, timestampInSeconds)) {
+            synchronized (this) {
+                flush();
+                record(value, count, timestampInSeconds);
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void flush()
     {
-        digest.add(value);
-        total.add(value);
+        buffer.drain(this::record);
     }
 
-    public synchronized void add(long value, long count)
+    @GuardedBy("this")
+    private void record(long value, long count, long timestampInSeconds)
     {
-        digest.add(value, count);
-        total.add(value * count);
+        version++;
+        digest.add(value, count, timestampInSeconds);
+        total.add(value * count, timestampInSeconds);
     }
 
     public synchronized Distribution duplicate()
     {
-        return new Distribution(alpha, digest.duplicate(), total.duplicate());
+        flush();
+        return new Distribution(alpha, digest.duplicate(), total.duplicate(), ticker);
     }
 
     @Managed
     public synchronized void reset()
     {
+        buffer.clear();
+        version++;
         total.reset();
-        digest = new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha);
+        digest = new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha, ticker);
     }
 
     @Managed
-    public synchronized double getCount()
+    public double getCount()
     {
-        return digest.getCount();
+        return snapshot().getCount();
     }
 
     @Managed
-    public synchronized double getTotal()
+    public double getTotal()
     {
-        return total.getCount();
+        return snapshot().getTotal();
     }
 
     @Managed
-    public synchronized double getP01()
+    public double getP01()
     {
-        return digest.valueAt(0.01);
+        return snapshot().getP01();
     }
 
     @Managed
-    public synchronized double getP05()
+    public double getP05()
     {
-        return digest.valueAt(0.05);
+        return snapshot().getP05();
     }
 
     @Managed
-    public synchronized double getP10()
+    public double getP10()
     {
-        return digest.valueAt(0.10);
+        return snapshot().getP10();
     }
 
     @Managed
-    public synchronized double getP25()
+    public double getP25()
     {
-        return digest.valueAt(0.25);
+        return snapshot().getP25();
     }
 
     @Managed
-    public synchronized double getP50()
+    public double getP50()
     {
-        return digest.valueAt(0.5);
+        return snapshot().getP50();
     }
 
     @Managed
-    public synchronized double getP75()
+    public double getP75()
     {
-        return digest.valueAt(0.75);
+        return snapshot().getP75();
     }
 
     @Managed
-    public synchronized double getP90()
+    public double getP90()
     {
-        return digest.valueAt(0.90);
+        return snapshot().getP90();
     }
 
     @Managed
-    public synchronized double getP95()
+    public double getP95()
     {
-        return digest.valueAt(0.95);
+        return snapshot().getP95();
     }
 
     @Managed
-    public synchronized double getP99()
+    public double getP99()
     {
-        return digest.valueAt(0.99);
+        return snapshot().getP99();
     }
 
     @Managed
-    public synchronized double getMin()
+    public double getMin()
     {
-        return digest.getMin();
+        return snapshot().getMin();
     }
 
     @Managed
-    public synchronized double getMax()
+    public double getMax()
     {
-        return digest.getMax();
+        return snapshot().getMax();
     }
 
     @Managed
-    public synchronized double getAvg()
+    public double getAvg()
     {
-        return getTotal() / getCount();
+        return snapshot().getAvg();
     }
 
     @Managed
@@ -163,6 +216,7 @@ public class Distribution
     {
         double[] values;
         synchronized (this) {
+            flush();
             values = digest.valuesAt(PERCENTILES);
         }
 
@@ -178,29 +232,42 @@ public class Distribution
 
     public synchronized List<Double> getPercentiles(List<Double> percentiles)
     {
+        flush();
         return digest.valuesAt(percentiles);
     }
 
     public synchronized double[] getPercentiles(double... percentiles)
     {
+        flush();
         return digest.valuesAt(percentiles);
     }
 
+    /**
+     * Returns all the summary values of this distribution, computed in a single pass over the digest.
+     * The result is cached and shared by the individual getters until new samples are recorded or,
+     * for decaying distributions, until {@link #SNAPSHOT_TTL_NANOS} elapses, so reading every attribute
+     * of a distribution costs about as much as reading one.
+     */
     public DistributionSnapshot snapshot()
     {
-        double totalCount;
-        double digestCount;
-        double min;
-        double max;
-        double[] quantiles;
+        long now = ticker.read();
         synchronized (this) {
-            totalCount = total.getCount();
-            digestCount = digest.getCount();
-            min = digest.getMin();
-            max = digest.getMax();
-            quantiles = digest.valuesAt(SNAPSHOT_QUANTILES);
+            flush();
+            if (cachedSnapshot == null || cachedSnapshotVersion != version || (alpha > 0 && now - cachedSnapshotNanos >= SNAPSHOT_TTL_NANOS)) {
+                cachedSnapshot = computeSnapshot();
+                cachedSnapshotVersion = version;
+                cachedSnapshotNanos = now;
+            }
+            return cachedSnapshot;
         }
-        double average = totalCount / digestCount;
+    }
+
+    @GuardedBy("this")
+    private DistributionSnapshot computeSnapshot()
+    {
+        double totalCount = total.getCount();
+        double digestCount = digest.getCount();
+        double[] quantiles = digest.valuesAt(SNAPSHOT_QUANTILES);
         return new DistributionSnapshot(
                 digestCount,
                 totalCount,
@@ -213,9 +280,9 @@ public class Distribution
                 quantiles[6], // p90
                 quantiles[7], // p95
                 quantiles[8], // p99
-                min,
-                max,
-                average);
+                digest.getMin(),
+                digest.getMax(),
+                totalCount / digestCount);
     }
 
     public static class DistributionSnapshot
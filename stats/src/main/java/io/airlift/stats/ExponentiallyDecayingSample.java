@@ -38,23 +38,28 @@ package io.airlift.stats;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.Math.exp;
 import static java.lang.Math.floor;
 import static java.lang.Math.min;
-import static java.lang.Math.random;
 
 /**
  * An exponentially-decaying random sample of {@code long}s. Uses Cormode et
  * al's forward-decaying priority reservoir sampling method to produce a
  * statistically representative sample, exponentially biased towards newer
  * entries.
+ * <p>
+ * Updates do not take any lock. The reservoir and the landmark its priorities are
+ * relative to are published together, and a rescale builds a new reservoir and swaps it
+ * in. Updates that race with the (hourly) rescale may be dropped from the sample.
  *
  * @see <a href="http://www.research.att.com/people/Cormode_Graham/library/publications/CormodeShkapenyukSrivastavaXu09.pdf">
  * Cormode et al. Forward Decay: A Practical Time Decay Model for Streaming
@@ -64,12 +69,10 @@ import static java.lang.Math.random;
 final class ExponentiallyDecayingSample
 {
     private static final long RESCALE_THRESHOLD = TimeUnit.HOURS.toNanos(1);
-    private final ConcurrentSkipListMap<Double, Long> values;
-    private final ReentrantReadWriteLock lock;
+    private final AtomicReference<Reservoir> reservoir = new AtomicReference<>();
     private final double alpha;
     private final int reservoirSize;
     private final AtomicLong count = new AtomicLong(0);
-    private volatile long startTime;
     private final AtomicLong nextScaleTime = new AtomicLong(0);
 
     /**
@@ -81,8 +84,6 @@ final class ExponentiallyDecayingSample
      */
     public ExponentiallyDecayingSample(int reservoirSize, double alpha)
     {
-        this.values = new ConcurrentSkipListMap<>();
-        this.lock = new ReentrantReadWriteLock();
         this.alpha = alpha;
         this.reservoirSize = reservoirSize;
         clear();
@@ -90,9 +91,8 @@ final class ExponentiallyDecayingSample
 
     public void clear()
     {
-        values.clear();
+        reservoir.set(new Reservoir(tick(), new ConcurrentSkipListMap<>()));
         count.set(0);
-        this.startTime = tick();
         nextScaleTime.set(System.nanoTime() + RESCALE_THRESHOLD);
     }
 
@@ -114,28 +114,22 @@ final class ExponentiallyDecayingSample
      */
     public void update(long value, long timestamp)
     {
-        lockForRegularUsage();
-        try {
-            final double priority = weight(timestamp - startTime) / random();
-            final long newCount = count.incrementAndGet();
-            if (newCount <= reservoirSize) {
-                values.put(priority, value);
-            }
-            else {
-                Double first = values.firstKey();
-                if (first < priority) {
-                    if (values.putIfAbsent(priority, value) == null) {
-                        // ensure we always remove an item
-                        while (values.remove(first) == null) {
-                            first = values.firstKey();
-                        }
-                    }
+        Reservoir current = reservoir.get();
+        ConcurrentSkipListMap<Double, Long> values = current.values();
+        final double priority = weight(timestamp - current.startTime()) / ThreadLocalRandom.current().nextDouble();
+        final long newCount = count.incrementAndGet();
+        if (newCount <= reservoirSize) {
+            values.put(priority, value);
+        }
+        else {
+            Map.Entry<Double, Long> first = values.firstEntry();
+            if (first != null && first.getKey() < priority) {
+                if (values.putIfAbsent(priority, value) == null) {
+                    // evict the lowest priority, which may have changed since it was read
+                    values.pollFirstEntry();
                 }
             }
         }
-        finally {
-            unlockForRegularUsage();
-        }
 
         final long now = System.nanoTime();
         final long next = nextScaleTime.get();
@@ -146,13 +140,7 @@ final class ExponentiallyDecayingSample
 
     public List<Long> values()
     {
-        lockForRegularUsage();
-        try {
-            return new ArrayList<>(values.values());
-        }
-        finally {
-            unlockForRegularUsage();
-        }
+        return new ArrayList<>(reservoir.get().values().values());
     }
 
     private static long tick()
@@ -186,63 +174,38 @@ final class ExponentiallyDecayingSample
     private void rescale(long now, long next)
     {
         if (nextScaleTime.compareAndSet(next, now + RESCALE_THRESHOLD)) {
-            lockForRescale();
-            try {
-                final long oldStartTime = startTime;
-                this.startTime = tick();
-                final ArrayList<Double> keys = new ArrayList<>(values.keySet());
-                for (Double key : keys) {
-                    final Long value = values.remove(key);
-                    values.put(key * exp(-alpha * (startTime - oldStartTime)), value);
-                }
-            }
-            finally {
-                unlockForRescale();
+            Reservoir old = reservoir.get();
+            long startTime = tick();
+            double scale = exp(-alpha * (startTime - old.startTime()));
+            ConcurrentSkipListMap<Double, Long> values = new ConcurrentSkipListMap<>();
+            for (Map.Entry<Double, Long> entry : old.values().entrySet()) {
+                values.put(entry.getKey() * scale, entry.getValue());
             }
+            reservoir.set(new Reservoir(startTime, values));
         }
     }
 
-    private void unlockForRescale()
-    {
-        lock.writeLock().unlock();
-    }
-
-    private void lockForRescale()
-    {
-        lock.writeLock().lock();
-    }
-
-    private void lockForRegularUsage()
-    {
-        lock.readLock().lock();
-    }
-
-    private void unlockForRegularUsage()
-    {
-        lock.readLock().unlock();
-    }
-
     public double[] percentiles(double... percentiles)
     {
         final double[] scores = new double[percentiles.length];
         Arrays.fill(scores, Double.NaN);
 
-        final List<Long> values = this.values();
-        if (!values.isEmpty()) {
-            Collections.sort(values);
-
+        final long[] values = toArray(reservoir.get().values().values());
+        if (values.length > 0) {
             for (int i = 0; i < percentiles.length; i++) {
                 final double p = percentiles[i];
-                final double pos = p * (values.size() + 1);
+                final double pos = p * (values.length + 1);
                 if (pos < 1) {
-                    scores[i] = values.get(0);
+                    scores[i] = select(values, 0);
                 }
-                else if (pos >= values.size()) {
-                    scores[i] = values.get(values.size() - 1);
+                else if (pos >= values.length) {
+                    scores[i] = select(values, values.length - 1);
                 }
                 else {
-                    final double lower = values.get((int) pos - 1);
-                    final double upper = values.get((int) pos);
+                    final int index = (int) pos;
+                    final double lower = select(values, index - 1);
+                    // select() leaves every value after index - 1 greater than or equal to the lower one
+                    final double upper = minimum(values, index);
                     scores[i] = lower + (pos - floor(pos)) * (upper - lower);
                 }
             }
@@ -250,4 +213,75 @@ final class ExponentiallyDecayingSample
 
         return scores;
     }
+
+    private static long[] toArray(Collection<Long> collection)
+    {
+        // the reservoir may change while it is copied, so do not rely on its size
+        long[] values = new long[collection.size()];
+        int size = 0;
+        for (long value : collection) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2 + 1);
+            }
+            values[size++] = value;
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Returns the value that would be at position {@code k} if {@code values} were sorted, and
+     * partially reorders {@code values} so that no value before {@code k} is greater than it and
+     * no value after {@code k} is smaller.
+     */
+    private static long select(long[] values, int k)
+    {
+        int left = 0;
+        int right = values.length - 1;
+        while (left < right) {
+            long pivot = medianOfThree(values[left], values[(left + right) >>> 1], values[right]);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long temp = values[i];
+                    values[i] = values[j];
+                    values[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            }
+            else if (k >= i) {
+                left = i;
+            }
+            else {
+                break;
+            }
+        }
+        return values[k];
+    }
+
+    private static long medianOfThree(long a, long b, long c)
+    {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static long minimum(long[] values, int from)
+    {
+        long result = values[from];
+        for (int i = from + 1; i < values.length; i++) {
+            result = Math.min(result, values[i]);
+        }
+        return result;
+    }
+
+    private record Reservoir(long startTime, ConcurrentSkipListMap<Double, Long> values) {}
 }
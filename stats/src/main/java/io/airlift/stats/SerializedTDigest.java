@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.primitives.Doubles;
+import io.airlift.slice.SizeOf;
+import io.airlift.slice.Slice;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.stats.TDigest.validateQuantilesArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A read-only view of a digest produced by {@link TDigest#serialize()}. Quantiles are computed
+ * directly from the serialized centroids, without copying them into a {@link TDigest}. Use
+ * {@link TDigest#mergeWith(SerializedTDigest)} to fold the view into a mutable digest.
+ * <p>
+ * The view reads the underlying slice on every call, so the slice must not be modified while
+ * the view is in use.
+ */
+public final class SerializedTDigest
+{
+    private static final int FORMAT_TAG = 0;
+    private static final int MIN_OFFSET = SizeOf.SIZE_OF_BYTE;
+    private static final int MAX_OFFSET = MIN_OFFSET + SizeOf.SIZE_OF_DOUBLE;
+    private static final int TOTAL_WEIGHT_OFFSET = MAX_OFFSET + 2 * SizeOf.SIZE_OF_DOUBLE; // skip compression
+    private static final int CENTROID_COUNT_OFFSET = TOTAL_WEIGHT_OFFSET + SizeOf.SIZE_OF_DOUBLE;
+    private static final int MEANS_OFFSET = CENTROID_COUNT_OFFSET + SizeOf.SIZE_OF_INT;
+
+    private final Slice serialized;
+    private final int centroidCount;
+    private final int weightsOffset;
+
+    private SerializedTDigest(Slice serialized)
+    {
+        this.serialized = requireNonNull(serialized, "serialized is null");
+
+        checkArgument(serialized.length() >= MEANS_OFFSET, "serialized digest is too short");
+        checkArgument(serialized.getByte(0) == FORMAT_TAG, "Invalid format");
+        centroidCount = serialized.getInt(CENTROID_COUNT_OFFSET);
+        checkArgument(centroidCount >= 0, "Invalid centroid count: %s", centroidCount);
+        checkArgument(serialized.length() == MEANS_OFFSET + 2L * SizeOf.SIZE_OF_DOUBLE * centroidCount, "serialized digest size does not match its centroid count");
+        weightsOffset = MEANS_OFFSET + SizeOf.SIZE_OF_DOUBLE * centroidCount;
+    }
+
+    public static SerializedTDigest wrap(Slice serialized)
+    {
+        return new SerializedTDigest(serialized);
+    }
+
+    public double getMin()
+    {
+        if (getCount() == 0) {
+            return Double.NaN;
+        }
+        return serialized.getDouble(MIN_OFFSET);
+    }
+
+    public double getMax()
+    {
+        if (getCount() == 0) {
+            return Double.NaN;
+        }
+        return serialized.getDouble(MAX_OFFSET);
+    }
+
+    public double getCount()
+    {
+        return serialized.getDouble(TOTAL_WEIGHT_OFFSET);
+    }
+
+    public double valueAt(double quantile)
+    {
+        return valuesAt(quantile)[0];
+    }
+
+    public List<Double> valuesAt(List<Double> quantiles)
+    {
+        return Doubles.asList(valuesAt(Doubles.toArray(quantiles)));
+    }
+
+    public double[] valuesAt(double... quantiles)
+    {
+        if (quantiles.length == 0) {
+            return new double[0];
+        }
+
+        validateQuantilesArgument(quantiles);
+
+        // serialize() merges the digest first, so the centroids are already sorted by mean
+        return TDigest.valuesAt(
+                quantiles,
+                centroidCount,
+                getCount(),
+                serialized.getDouble(MIN_OFFSET),
+                serialized.getDouble(MAX_OFFSET),
+                this::getMean,
+                this::getWeight);
+    }
+
+    int getCentroidCount()
+    {
+        return centroidCount;
+    }
+
+    double getMean(int centroid)
+    {
+        return serialized.getDouble(MEANS_OFFSET + SizeOf.SIZE_OF_DOUBLE * centroid);
+    }
+
+    double getWeight(int centroid)
+    {
+        return serialized.getDouble(weightsOffset + SizeOf.SIZE_OF_DOUBLE * centroid);
+    }
+}
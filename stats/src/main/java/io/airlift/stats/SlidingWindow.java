@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.base.Ticker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A fixed ring of time buckets. Each bucket covers {@code bucketNanos} of wall-clock time
+ * and is discarded once it falls out of the ring. Buckets are created lazily, so idle periods
+ * do not hold on to memory.
+ * <p>
+ * This class is NOT thread safe.
+ */
+final class SlidingWindow<B>
+{
+    private final Object[] buckets;
+    private final long bucketNanos;
+    private final Supplier<B> bucketFactory;
+    private final Ticker ticker;
+
+    // absolute index (time / bucketNanos) of the most recent bucket in the ring
+    private long currentBucket;
+
+    public SlidingWindow(int bucketCount, long bucketNanos, Supplier<B> bucketFactory, Ticker ticker)
+    {
+        checkArgument(bucketCount > 0, "bucketCount must be positive");
+        checkArgument(bucketNanos > 0, "bucketNanos must be positive");
+        this.buckets = new Object[bucketCount];
+        this.bucketNanos = bucketNanos;
+        this.bucketFactory = requireNonNull(bucketFactory, "bucketFactory is null");
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        this.currentBucket = ticker.read() / bucketNanos;
+    }
+
+    public int getBucketCount()
+    {
+        return buckets.length;
+    }
+
+    public long getBucketNanos()
+    {
+        return bucketNanos;
+    }
+
+    /**
+     * Returns the bucket covering the current time, creating it if necessary.
+     */
+    @SuppressWarnings("unchecked")
+    public B current()
+    {
+        advance();
+        int slot = slot(currentBucket);
+        B bucket = (B) buckets[slot];
+        if (bucket == null) {
+            bucket = bucketFactory.get();
+            buckets[slot] = bucket;
+        }
+        return bucket;
+    }
+
+    /**
+     * Returns the non-empty buckets among the {@code count} most recent ones, including the current one.
+     */
+    @SuppressWarnings("unchecked")
+    public List<B> recent(int count)
+    {
+        checkArgument(count > 0 && count <= buckets.length, "count must be between 1 and %s", buckets.length);
+        advance();
+        List<B> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            B bucket = (B) buckets[slot(currentBucket - i)];
+            if (bucket != null) {
+                result.add(bucket);
+            }
+        }
+        return result;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(buckets, null);
+    }
+
+    private void advance()
+    {
+        long now = ticker.read() / bucketNanos;
+        if (now <= currentBucket) {
+            return;
+        }
+
+        // drop the buckets that fell out of the ring, but never visit a slot more than once
+        long expired = Math.min(now - currentBucket, buckets.length);
+        for (long i = 1; i <= expired; i++) {
+            buckets[slot(currentBucket + i)] = null;
+        }
+        currentBucket = now;
+    }
+
+    private int slot(long bucket)
+    {
+        return (int) Math.floorMod(bucket, (long) buckets.length);
+    }
+}
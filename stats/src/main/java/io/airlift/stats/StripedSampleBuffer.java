@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.errorprone.annotations.ThreadSafe;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.math.IntMath.ceilingPowerOfTwo;
+import static java.lang.Math.min;
+
+/**
+ * A buffer of weighted, timestamped samples that writers can append to without blocking
+ * each other. Each writer thread is mapped to one of a number of stripes, each of which is
+ * a bounded multi-producer ring. The number of stripes starts at one and grows (up to a
+ * limit derived from the number of processors) when writers contend for the same stripe.
+ * <p>
+ * The buffer is drained by a single consumer at a time. Callers must serialize calls to
+ * {@link #drain(SampleConsumer)}, typically by holding the lock that guards the data
+ * structure the samples are merged into.
+ */
+@ThreadSafe
+final class StripedSampleBuffer
+{
+    @VisibleForTesting
+    static final int STRIPE_CAPACITY = 32;
+    private static final int MAX_STRIPES = ceilingPowerOfTwo(min(64, Runtime.getRuntime().availableProcessors()));
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final AtomicReference<Stripe[]> stripes = new AtomicReference<>(new Stripe[] {new Stripe()});
+
+    /**
+     * Appends a sample to the buffer.
+     *
+     * @return {@code false} if the sample could not be buffered because the stripe for the
+     * current thread is full or heavily contended. The caller must then drain the buffer and
+     * record the sample directly.
+     */
+    public boolean add(long value, long weight, long timestampInSeconds)
+    {
+        int probe = probe();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Stripe[] current = stripes.get();
+            Stripe stripe = current[probe & (current.length - 1)];
+            switch (stripe.offer(value, weight, timestampInSeconds)) {
+                case SUCCESS:
+                    return true;
+                case FULL:
+                    return false;
+                case CONTENDED:
+                    expand(current);
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passes every buffered sample to the consumer, in per-stripe insertion order, and
+     * removes it from the buffer. Must not be called concurrently.
+     */
+    public void drain(SampleConsumer consumer)
+    {
+        for (Stripe stripe : stripes.get()) {
+            stripe.drain(consumer);
+        }
+    }
+
+    /**
+     * Discards every buffered sample. Must not be called concurrently with {@link #drain(SampleConsumer)}.
+     */
+    public void clear()
+    {
+        drain((value, weight, timestampInSeconds) -> {});
+    }
+
+    @VisibleForTesting
+    int getStripeCount()
+    {
+        return stripes.get().length;
+    }
+
+    private void expand(Stripe[] current)
+    {
+        if (current.length >= MAX_STRIPES) {
+            return;
+        }
+        Stripe[] expanded = Arrays.copyOf(current, current.length * 2);
+        for (int i = current.length; i < expanded.length; i++) {
+            expanded[i] = new Stripe();
+        }
+        // existing stripes are carried over, so losing this race never loses samples
+        stripes.compareAndSet(current, expanded);
+    }
+
+    private static int probe()
+    {
+        // spread thread ids so that consecutive ids land on different stripes once the buffer expands
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    @FunctionalInterface
+    interface SampleConsumer
+    {
+        void accept(long value, long weight, long timestampInSeconds);
+    }
+
+    private enum OfferResult
+    {
+        SUCCESS, FULL, CONTENDED
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer ring based on per-slot sequence numbers.
+     * A slot at position {@code p} is free for writing when its sequence equals {@code p}
+     * and holds a published sample when its sequence equals {@code p + 1}.
+     */
+    private static final class Stripe
+    {
+        private static final int MASK = STRIPE_CAPACITY - 1;
+
+        private final long[] values = new long[STRIPE_CAPACITY];
+        private final long[] weights = new long[STRIPE_CAPACITY];
+        private final long[] timestamps = new long[STRIPE_CAPACITY];
+        private final AtomicLongArray sequences = new AtomicLongArray(STRIPE_CAPACITY);
+        private final AtomicLong tail = new AtomicLong();
+        // only accessed by the (single) consumer
+        private long head;
+
+        private Stripe()
+        {
+            for (int i = 0; i < STRIPE_CAPACITY; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        public OfferResult offer(long value, long weight, long timestampInSeconds)
+        {
+            long position = tail.get();
+            int index = (int) (position & MASK);
+            long sequence = sequences.get(index);
+            if (sequence < position) {
+                return OfferResult.FULL;
+            }
+            if (sequence > position || !tail.compareAndSet(position, position + 1)) {
+                return OfferResult.CONTENDED;
+            }
+
+            values[index] = value;
+            weights[index] = weight;
+            timestamps[index] = timestampInSeconds;
+            sequences.lazySet(index, position + 1);
+            return OfferResult.SUCCESS;
+        }
+
+        public void drain(SampleConsumer consumer)
+        {
+            // bounded so that a steady stream of writers cannot keep the consumer here forever
+            for (int i = 0; i < STRIPE_CAPACITY; i++) {
+                int index = (int) (head & MASK);
+                if (sequences.get(index) != head + 1) {
+                    // empty, or the next slot has been claimed but not yet published
+                    return;
+                }
+
+                consumer.accept(values[index], weights[index], timestamps[index]);
+                sequences.lazySet(index, head + STRIPE_CAPACITY);
+                head++;
+            }
+        }
+    }
+}
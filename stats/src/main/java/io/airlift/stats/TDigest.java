@@ -25,8 +25,10 @@ import io.airlift.slice.Slices;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.function.IntToDoubleFunction;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.slice.SizeOf.instanceSize;
 import static java.lang.Double.isInfinite;
@@ -189,17 +191,7 @@ public class TDigest
         checkArgument(!isInfinite(value), "value must be finite");
         checkArgument(!isInfinite(weight), "weight must be finite");
 
-        if (centroidCount == means.length) {
-            if (means.length < maxSize) {
-                ensureCapacity(Math.min(Math.max(means.length * 2, INITIAL_CAPACITY), maxSize));
-            }
-            else {
-                merge(internalCompressionFactor(compression));
-                if (centroidCount >= means.length) {
-                    throw new AssertionError("Invalid size estimation for T-Digest: " + Base64.getEncoder().encodeToString(serializeInternal().getBytes()));
-                }
-            }
-        }
+        ensureRoomForValue();
 
         means[centroidCount] = value;
         weights[centroidCount] = weight;
@@ -212,6 +204,106 @@ public class TDigest
         needsMerge = true;
     }
 
+    /**
+     * Adds {@code length} values, each with a weight of 1, starting at {@code offset}.
+     * The result is the same as adding the values one at a time, but values are copied into
+     * the buffer in bulk and each batch that fills the buffer is sorted and merged in one pass.
+     * No memory is allocated once the internal buffers have grown to their maximum size.
+     */
+    public void add(double[] values, int offset, int length)
+    {
+        checkPositionIndexes(offset, offset + length, values.length);
+
+        double batchMin = min;
+        double batchMax = max;
+        for (int i = offset; i < offset + length; i++) {
+            double value = values[i];
+            checkArgument(!isNaN(value), "value is NaN");
+            checkArgument(!isInfinite(value), "value must be finite");
+            batchMin = Math.min(value, batchMin);
+            batchMax = Math.max(value, batchMax);
+        }
+
+        min = batchMin;
+        max = batchMax;
+
+        // grow once up front rather than doubling repeatedly; merges still happen at the same points as with add(double)
+        ensureCapacity(Math.min(centroidCount + length, Math.max(maxSize, means.length)));
+
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            ensureRoomForValue();
+
+            int count = Math.min(end - position, means.length - centroidCount);
+            System.arraycopy(values, position, means, centroidCount, count);
+            Arrays.fill(weights, centroidCount, centroidCount + count, 1);
+            centroidCount += count;
+            totalWeight += count;
+            position += count;
+            needsMerge = true;
+        }
+    }
+
+    /**
+     * Merges all the given digests into this one. Unlike calling {@link #mergeWith(TDigest)} for each of
+     * them, the other digests are not modified, and their centroids are merged into this digest in as
+     * few passes as the buffer size allows.
+     */
+    public void mergeWith(Iterable<TDigest> others)
+    {
+        for (TDigest other : others) {
+            checkArgument(other != this, "cannot merge a digest with itself");
+
+            int position = 0;
+            while (position < other.centroidCount) {
+                ensureRoomForValue();
+
+                int count = Math.min(other.centroidCount - position, means.length - centroidCount);
+                System.arraycopy(other.means, position, means, centroidCount, count);
+                System.arraycopy(other.weights, position, weights, centroidCount, count);
+                // keep the total in sync with the buffered centroids, as merging relies on it
+                for (int i = centroidCount; i < centroidCount + count; i++) {
+                    totalWeight += weights[i];
+                }
+                centroidCount += count;
+                position += count;
+                needsMerge = true;
+            }
+
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /**
+     * Merges a serialized digest into this one, reading its centroids directly from the serialized form.
+     */
+    public void mergeWith(SerializedTDigest other)
+    {
+        int otherCentroidCount = other.getCentroidCount();
+        int position = 0;
+        while (position < otherCentroidCount) {
+            ensureRoomForValue();
+
+            int count = Math.min(otherCentroidCount - position, means.length - centroidCount);
+            for (int i = 0; i < count; i++) {
+                means[centroidCount] = other.getMean(position);
+                weights[centroidCount] = other.getWeight(position);
+                // keep the total in sync with the buffered centroids, as merging relies on it
+                totalWeight += weights[centroidCount];
+                centroidCount++;
+                position++;
+            }
+            needsMerge = true;
+        }
+
+        if (otherCentroidCount > 0) {
+            min = Math.min(min, other.getMin());
+            max = Math.max(max, other.getMax());
+        }
+    }
+
     public void mergeWith(TDigest other)
     {
         if (centroidCount + other.centroidCount > means.length) {
@@ -253,6 +345,19 @@ public class TDigest
 
         validateQuantilesArgument(quantiles);
 
+        mergeIfNeeded(internalCompressionFactor(compression));
+
+        double[] means = this.means;
+        double[] weights = this.weights;
+        return valuesAt(quantiles, centroidCount, totalWeight, min, max, index -> means[index], index -> weights[index]);
+    }
+
+    /**
+     * Computes the values at the given (validated, sorted) quantiles of a merged digest whose centroids
+     * are sorted by mean and provided by the {@code means} and {@code weights} accessors.
+     */
+    static double[] valuesAt(double[] quantiles, int centroidCount, double totalWeight, double min, double max, IntToDoubleFunction means, IntToDoubleFunction weights)
+    {
         double[] result = new double[quantiles.length];
 
         if (centroidCount == 0) {
@@ -260,10 +365,8 @@ public class TDigest
             return result;
         }
 
-        mergeIfNeeded(internalCompressionFactor(compression));
-
         if (centroidCount == 1) {
-            Arrays.fill(result, means[0]);
+            Arrays.fill(result, means.applyAsDouble(0));
             return result;
         }
 
@@ -279,14 +382,14 @@ public class TDigest
             index++;
         }
         // between bottom and first centroid
-        while (index < result.length && result[index] < weights[0] / 2) {
-            result[index] = (min + interpolate(result[index], 1, min, weights[0] / 2, means[0]));
+        while (index < result.length && result[index] < weights.applyAsDouble(0) / 2) {
+            result[index] = (min + interpolate(result[index], 1, min, weights.applyAsDouble(0) / 2, means.applyAsDouble(0)));
             index++;
         }
         // between last centroid and top, but not the greatest value
-        while (index < result.length && result[index] <= totalWeight - 1 && totalWeight - result[index] <= weights[centroidCount - 1] / 2 && weights[centroidCount - 1] / 2 > 1) {
+        while (index < result.length && result[index] <= totalWeight - 1 && totalWeight - result[index] <= weights.applyAsDouble(centroidCount - 1) / 2 && weights.applyAsDouble(centroidCount - 1) / 2 > 1) {
             // we interpolate back from the end, so the value is negative
-            result[index] = (max + interpolate(totalWeight - result[index], 1, max, weights[centroidCount - 1] / 2, means[centroidCount - 1]));
+            result[index] = (max + interpolate(totalWeight - result[index], 1, max, weights.applyAsDouble(centroidCount - 1) / 2, means.applyAsDouble(centroidCount - 1)));
             index++;
         }
         // greatest value
@@ -295,23 +398,23 @@ public class TDigest
             return result;
         }
 
-        double weightSoFar = weights[0] / 2;
+        double weightSoFar = weights.applyAsDouble(0) / 2;
         int currentCentroid = 0;
         while (index < result.length) {
-            double delta = (weights[currentCentroid] + weights[currentCentroid + 1]) / 2;
+            double delta = (weights.applyAsDouble(currentCentroid) + weights.applyAsDouble(currentCentroid + 1)) / 2;
             while (currentCentroid < centroidCount - 1 && weightSoFar + delta <= result[index]) {
                 weightSoFar += delta;
                 currentCentroid++;
                 if (currentCentroid < centroidCount - 1) {
-                    delta = (weights[currentCentroid] + weights[currentCentroid + 1]) / 2;
+                    delta = (weights.applyAsDouble(currentCentroid) + weights.applyAsDouble(currentCentroid + 1)) / 2;
                 }
             }
             // past the last centroid
             if (currentCentroid == centroidCount - 1) {
                 // between last centroid and top, but not the greatest value
-                while (index < result.length && result[index] <= totalWeight - 1 && weights[centroidCount - 1] / 2 > 1) {
+                while (index < result.length && result[index] <= totalWeight - 1 && weights.applyAsDouble(centroidCount - 1) / 2 > 1) {
                     // we interpolate back from the end, so the value is negative
-                    result[index] = (max + interpolate(totalWeight - result[index], 1, max, weights[centroidCount - 1] / 2, means[centroidCount - 1]));
+                    result[index] = (max + interpolate(totalWeight - result[index], 1, max, weights.applyAsDouble(centroidCount - 1) / 2, means.applyAsDouble(centroidCount - 1)));
                     index++;
                 }
                 // greatest value
@@ -322,25 +425,25 @@ public class TDigest
             }
             else {
                 // single-sample cluster on the left (current centroid) and the quantile falls within that cluster
-                if (weights[currentCentroid] == 1 && result[index] - weightSoFar < weights[currentCentroid] / 2) {
-                    result[index] = means[currentCentroid];
+                if (weights.applyAsDouble(currentCentroid) == 1 && result[index] - weightSoFar < weights.applyAsDouble(currentCentroid) / 2) {
+                    result[index] = means.applyAsDouble(currentCentroid);
                 }
                 // single-sample cluster on the right (next centroid) and the quantile falls within that cluster
-                else if (weights[currentCentroid + 1] == 1 && result[index] - weightSoFar >= weights[currentCentroid] / 2) {
-                    result[index] = means[currentCentroid + 1];
+                else if (weights.applyAsDouble(currentCentroid + 1) == 1 && result[index] - weightSoFar >= weights.applyAsDouble(currentCentroid) / 2) {
+                    result[index] = means.applyAsDouble(currentCentroid + 1);
                 }
                 // the quantile falls within a multi-sample cluster. If the other cluster is single-sample, we can exclude it from interpolation
                 else {
                     double interpolationOffset = result[index] - weightSoFar;
                     double interpolationSectionLength = delta;
-                    if (weights[currentCentroid] == 1) {
-                        interpolationOffset -= weights[currentCentroid] / 2;
-                        interpolationSectionLength = weights[currentCentroid + 1] / 2;
+                    if (weights.applyAsDouble(currentCentroid) == 1) {
+                        interpolationOffset -= weights.applyAsDouble(currentCentroid) / 2;
+                        interpolationSectionLength = weights.applyAsDouble(currentCentroid + 1) / 2;
                     }
-                    else if (weights[currentCentroid + 1] == 1) {
-                        interpolationSectionLength = weights[currentCentroid] / 2;
+                    else if (weights.applyAsDouble(currentCentroid + 1) == 1) {
+                        interpolationSectionLength = weights.applyAsDouble(currentCentroid) / 2;
                     }
-                    result[index] = (means[currentCentroid] + interpolate(interpolationOffset, 0, means[currentCentroid], interpolationSectionLength, means[currentCentroid + 1]));
+                    result[index] = (means.applyAsDouble(currentCentroid) + interpolate(interpolationOffset, 0, means.applyAsDouble(currentCentroid), interpolationSectionLength, means.applyAsDouble(currentCentroid + 1)));
                 }
                 index++;
             }
@@ -349,7 +452,7 @@ public class TDigest
         return result;
     }
 
-    private static void validateQuantilesArgument(double[] quantiles)
+    static void validateQuantilesArgument(double[] quantiles)
     {
         for (int i = 0; i < quantiles.length; i++) {
             double quantile = quantiles[i];
@@ -429,9 +532,11 @@ public class TDigest
         double centroidMean = means[indexes[0]];
         double centroidWeight = weights[indexes[0]];
 
-        if (tempMeans == null) {
-            tempMeans = new double[INITIAL_CAPACITY];
-            tempWeights = new double[INITIAL_CAPACITY];
+        // merging never produces more centroids than it started with, so size the temporary
+        // buffers like the main ones to avoid growing them while merging
+        if (tempMeans == null || tempMeans.length < centroidCount) {
+            tempMeans = new double[means.length];
+            tempWeights = new double[means.length];
         }
 
         int lastCentroid = 0;
@@ -468,7 +573,6 @@ public class TDigest
                 centroidMean = entryMean;
             }
 
-            ensureTempCapacity(lastCentroid);
             tempMeans[lastCentroid] = centroidMean;
             tempWeights[lastCentroid] = centroidWeight;
         }
@@ -504,20 +608,26 @@ public class TDigest
         }
     }
 
-    private void ensureCapacity(int newSize)
+    private void ensureRoomForValue()
     {
-        if (means.length < newSize) {
-            means = Arrays.copyOf(means, newSize);
-            weights = Arrays.copyOf(weights, newSize);
+        if (centroidCount == means.length) {
+            if (means.length < maxSize) {
+                ensureCapacity(Math.min(Math.max(means.length * 2, INITIAL_CAPACITY), maxSize));
+            }
+            else {
+                merge(internalCompressionFactor(compression));
+                if (centroidCount >= means.length) {
+                    throw new AssertionError("Invalid size estimation for T-Digest: " + Base64.getEncoder().encodeToString(serializeInternal().getBytes()));
+                }
+            }
         }
     }
 
-    private void ensureTempCapacity(int capacity)
+    private void ensureCapacity(int newSize)
     {
-        if (tempMeans.length <= capacity) {
-            int newSize = capacity + (int) Math.ceil(capacity * 0.5);
-            tempMeans = Arrays.copyOf(tempMeans, newSize);
-            tempWeights = Arrays.copyOf(tempWeights, newSize);
+        if (means.length < newSize) {
+            means = Arrays.copyOf(means, newSize);
+            weights = Arrays.copyOf(weights, newSize);
         }
     }
 
@@ -2,6 +2,9 @@ package io.airlift.stats;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.errorprone.annotations.ThreadSafe;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
 import org.weakref.jmx.Managed;
 
@@ -11,9 +14,16 @@ import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Verify.verify;
+import static io.airlift.stats.Distribution.SNAPSHOT_TTL_NANOS;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+/**
+ * Samples are recorded into a lock-free {@link StripedSampleBuffer} and merged into the decaying
+ * digest before any value is read. See {@link Distribution}.
+ */
+@ThreadSafe
 public class TimeDistribution
 {
     private static final double[] SNAPSHOT_QUANTILES = new double[]{0.5, 0.75, 0.9, 0.95, 0.99};
@@ -33,6 +43,19 @@ public class TimeDistribution
     private final DecayCounter total;
     private final TimeUnit unit;
 
+    private final StripedSampleBuffer buffer = new StripedSampleBuffer();
+    private final Ticker ticker;
+
+    // incremented whenever the digest changes, to invalidate the cached snapshot
+    @GuardedBy("this")
+    private long version;
+    @GuardedBy("this")
+    private TimeDistributionSnapshot cachedSnapshot;
+    @GuardedBy("this")
+    private long cachedSnapshotVersion;
+    @GuardedBy("this")
+    private long cachedSnapshotNanos;
+
     public TimeDistribution()
     {
         this(SECONDS);
@@ -49,72 +72,98 @@ public class TimeDistribution
     }
 
     public TimeDistribution(double alpha, TimeUnit unit)
+    {
+        this(alpha, unit, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    TimeDistribution(double alpha, TimeUnit unit, Ticker ticker)
     {
         requireNonNull(unit, "unit is null");
         this.alpha = alpha;
-        digest = new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha);
-        total = new DecayCounter(alpha);
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        digest = new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha, ticker);
+        total = new DecayCounter(alpha, ticker);
         this.unit = unit;
     }
 
-    public synchronized void add(long value)
+    public void add(long value)
     {
-        digest.add(value);
-        total.add(value);
+        long timestampInSeconds = NANOSECONDS.toSeconds(ticker.read());
+        if (!buffer.add(value, 1, timestampInSeconds)) {
+            synchronized (this) {
+                flush();
+                record(value, 1, timestampInSeconds);
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void flush()
+    {
+        buffer.drain(this::record);
+    }
+
+    @GuardedBy("this")
+    private void record(long value, long count, long timestampInSeconds)
+    {
+        version++;
+        digest.add(value, count, timestampInSeconds);
+        total.add(value * count, timestampInSeconds);
     }
 
     @Managed
-    public synchronized double getCount()
+    public double getCount()
     {
-        return digest.getCount();
+        return snapshot().getCount();
     }
 
     @Managed
-    public synchronized double getP50()
+    public double getP50()
     {
-        return convertToUnit(digest.valueAt(0.5));
+        return snapshot().getP50();
     }
 
     @Managed
-    public synchronized double getP75()
+    public double getP75()
     {
-        return convertToUnit(digest.valueAt(0.75));
+        return snapshot().getP75();
     }
 
     @Managed
-    public synchronized double getP90()
+    public double getP90()
     {
-        return convertToUnit(digest.valueAt(0.90));
+        return snapshot().getP90();
     }
 
     @Managed
-    public synchronized double getP95()
+    public double getP95()
     {
-        return convertToUnit(digest.valueAt(0.95));
+        return snapshot().getP95();
     }
 
     @Managed
-    public synchronized double getP99()
+    public double getP99()
     {
-        return convertToUnit(digest.valueAt(0.99));
+        return snapshot().getP99();
     }
 
     @Managed
-    public synchronized double getMin()
+    public double getMin()
     {
-        return convertToUnit(digest.getMin());
+        return snapshot().getMin();
     }
 
     @Managed
-    public synchronized double getMax()
+    public double getMax()
     {
-        return convertToUnit(digest.getMax());
+        return snapshot().getMax();
     }
 
     @Managed
-    public synchronized double getAvg()
+    public double getAvg()
     {
-        return convertToUnit(total.getCount()) / getCount();
+        return snapshot().getAvg();
     }
 
     @Managed
@@ -128,6 +177,7 @@ public class TimeDistribution
     {
         double[] values;
         synchronized (this) {
+            flush();
             values = digest.valuesAt(PERCENTILES);
         }
         verify(values.length == PERCENTILES.length, "values length mismatch");
@@ -140,38 +190,36 @@ public class TimeDistribution
         return result;
     }
 
-    private double convertToUnit(long nanos)
-    {
-        if (nanos == Long.MAX_VALUE || nanos == Long.MIN_VALUE) {
-            return Double.NaN;
-        }
-        return nanos * 1.0 / unit.toNanos(1);
-    }
-
-    private double convertToUnit(double nanos)
-    {
-        return convertToUnit(nanos, (double) unit.toNanos(1));
-    }
-
     private static double convertToUnit(double nanos, double unitNanos)
     {
         return nanos / unitNanos;
     }
 
+    /**
+     * Returns all the summary values of this distribution, computed in a single pass over the digest.
+     * The result is cached and shared by the individual getters until new samples are recorded or,
+     * for decaying distributions, until {@link Distribution#SNAPSHOT_TTL_NANOS} elapses.
+     */
     public TimeDistributionSnapshot snapshot()
     {
-        double totalCount;
-        double digestCount;
-        double min;
-        double max;
-        double[] quantiles;
+        long now = ticker.read();
         synchronized (this) {
-            totalCount = total.getCount();
-            digestCount = digest.getCount();
-            min = digest.getMin();
-            max = digest.getMax();
-            quantiles = digest.valuesAt(SNAPSHOT_QUANTILES);
+            flush();
+            if (cachedSnapshot == null || cachedSnapshotVersion != version || (alpha > 0 && now - cachedSnapshotNanos >= SNAPSHOT_TTL_NANOS)) {
+                cachedSnapshot = computeSnapshot();
+                cachedSnapshotVersion = version;
+                cachedSnapshotNanos = now;
+            }
+            return cachedSnapshot;
         }
+    }
+
+    @GuardedBy("this")
+    private TimeDistributionSnapshot computeSnapshot()
+    {
+        double totalCount = total.getCount();
+        double digestCount = digest.getCount();
+        double[] quantiles = digest.valuesAt(SNAPSHOT_QUANTILES);
         double unitNanos = (double) unit.toNanos(1);
         double average = convertToUnit(totalCount, unitNanos) / digestCount;
         return new TimeDistributionSnapshot(
@@ -181,8 +229,8 @@ public class TimeDistribution
                 convertToUnit(quantiles[2], unitNanos), // p90
                 convertToUnit(quantiles[3], unitNanos), // p95
                 convertToUnit(quantiles[4], unitNanos), // p99
-                convertToUnit(min, unitNanos),
-                convertToUnit(max, unitNanos),
+                convertToUnit(digest.getMin(), unitNanos),
+                convertToUnit(digest.getMax(), unitNanos),
                 average,
                 unit);
     }
@@ -190,8 +238,10 @@ public class TimeDistribution
     @Managed
     public synchronized void reset()
     {
+        buffer.clear();
+        version++;
         total.reset();
-        digest = new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha);
+        digest = new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha, ticker);
     }
 
     public static class TimeDistributionSnapshot
@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import io.airlift.stats.CounterStat.CounterStatSnapshot;
+import io.airlift.stats.DecayCounter.DecayCounterSnapshot;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Event statistics over sliding windows of one, five and fifteen minutes.
+ * <p>
+ * Unlike {@link CounterStat}, which keeps an exponentially decaying counter per window, this stat
+ * records each event once into a ring of {@value #BUCKET_SECONDS}-second buckets. The windows are
+ * computed on read by summing the buckets they cover, so an event counts fully towards a window
+ * until its bucket falls out of it. The window getters expose the same attributes as
+ * {@link DecayCounter}, so the two stats can be used interchangeably for monitoring.
+ */
+@ThreadSafe
+public final class WindowedCounterStat
+{
+    @VisibleForTesting
+    static final int BUCKET_SECONDS = 5;
+
+    @GuardedBy("this")
+    private final SlidingWindow<Bucket> buckets;
+    @GuardedBy("this")
+    private long totalCount;
+
+    private final Window oneMinute = new Window(1);
+    private final Window fiveMinute = new Window(5);
+    private final Window fifteenMinute = new Window(15);
+
+    public WindowedCounterStat()
+    {
+        this(Ticker.systemTicker());
+    }
+
+    public WindowedCounterStat(Ticker ticker)
+    {
+        requireNonNull(ticker, "ticker is null");
+        buckets = new SlidingWindow<>((int) (MINUTES.toSeconds(15) / BUCKET_SECONDS), SECONDS.toNanos(BUCKET_SECONDS), Bucket::new, ticker);
+    }
+
+    public synchronized void update(long count)
+    {
+        buckets.current().count += count;
+        totalCount += count;
+    }
+
+    @Managed
+    public synchronized void reset()
+    {
+        buckets.clear();
+        totalCount = 0;
+    }
+
+    @Managed
+    public synchronized long getTotalCount()
+    {
+        return totalCount;
+    }
+
+    @Managed
+    @Nested
+    public Window getOneMinute()
+    {
+        return oneMinute;
+    }
+
+    @Managed
+    @Nested
+    public Window getFiveMinute()
+    {
+        return fiveMinute;
+    }
+
+    @Managed
+    @Nested
+    public Window getFifteenMinute()
+    {
+        return fifteenMinute;
+    }
+
+    public CounterStatSnapshot snapshot()
+    {
+        return new CounterStatSnapshot(getTotalCount(), oneMinute.snapshot(), fiveMinute.snapshot(), fifteenMinute.snapshot());
+    }
+
+    private synchronized long sumRecent(int bucketCount)
+    {
+        long sum = 0;
+        for (Bucket bucket : buckets.recent(bucketCount)) {
+            sum += bucket.count;
+        }
+        return sum;
+    }
+
+    public class Window
+    {
+        private final int bucketCount;
+        private final double seconds;
+
+        private Window(int minutes)
+        {
+            this.bucketCount = (int) (MINUTES.toSeconds(minutes) / BUCKET_SECONDS);
+            this.seconds = MINUTES.toSeconds(minutes);
+        }
+
+        @Managed
+        public double getCount()
+        {
+            return sumRecent(bucketCount);
+        }
+
+        /**
+         * Returns the average number of events per second over the window.
+         */
+        @Managed
+        public double getRate()
+        {
+            return getCount() / seconds;
+        }
+
+        public DecayCounterSnapshot snapshot()
+        {
+            double count = getCount();
+            return new DecayCounterSnapshot(count, count / seconds);
+        }
+    }
+
+    private static class Bucket
+    {
+        private long count;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import io.airlift.stats.TimeDistribution.TimeDistributionSnapshot;
+import io.airlift.stats.TimeStat.TimeDistributionStatSnapshot;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Iterables.getFirst;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Timing statistics over sliding windows of one, five and fifteen minutes, and over all time.
+ * <p>
+ * Unlike {@link TimeStat}, which feeds every sample to a decaying distribution per window, this
+ * stat records each sample once into a ring of {@value #BUCKET_SECONDS}-second buckets, each
+ * holding a {@link TDigest}. The windows are computed on read by merging the digests of the
+ * buckets they cover. The window getters expose the same attributes as {@link TimeDistribution},
+ * so the two stats can be used interchangeably for monitoring.
+ */
+@ThreadSafe
+public class WindowedTimeStat
+{
+    @VisibleForTesting
+    static final int BUCKET_SECONDS = 15;
+    // buckets hold few samples and are merged into a default digest on read, so they can be small
+    private static final double BUCKET_COMPRESSION = 25;
+    private static final double[] SNAPSHOT_QUANTILES = new double[] {0.5, 0.75, 0.9, 0.95, 0.99};
+
+    @GuardedBy("this")
+    private final SlidingWindow<Bucket> buckets;
+    // incremented whenever a sample is recorded, to invalidate the cached window snapshots
+    @GuardedBy("this")
+    private long version;
+
+    private final Window oneMinute = new Window(1);
+    private final Window fiveMinutes = new Window(5);
+    private final Window fifteenMinutes = new Window(15);
+    private final TimeDistribution allTime;
+    private final Ticker ticker;
+    private final TimeUnit unit;
+
+    public WindowedTimeStat()
+    {
+        this(Ticker.systemTicker(), SECONDS);
+    }
+
+    public WindowedTimeStat(Ticker ticker)
+    {
+        this(ticker, SECONDS);
+    }
+
+    public WindowedTimeStat(TimeUnit unit)
+    {
+        this(Ticker.systemTicker(), unit);
+    }
+
+    public WindowedTimeStat(Ticker ticker, TimeUnit unit)
+    {
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        this.unit = requireNonNull(unit, "unit is null");
+        buckets = new SlidingWindow<>((int) (MINUTES.toSeconds(15) / BUCKET_SECONDS), SECONDS.toNanos(BUCKET_SECONDS), Bucket::new, ticker);
+        allTime = new TimeDistribution(unit);
+    }
+
+    public void add(double value, TimeUnit timeUnit)
+    {
+        requireNonNull(timeUnit, "timeUnit is null");
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("value is not finite: " + value);
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("value is negative: " + value);
+        }
+        addNanos((long) Math.floor((value * timeUnit.toNanos(1)) + 0.5d));
+    }
+
+    public void add(Duration duration)
+    {
+        addNanos((long) duration.getValue(TimeUnit.NANOSECONDS));
+    }
+
+    public void addNanos(long nanos)
+    {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("value is negative: " + nanos);
+        }
+        synchronized (this) {
+            Bucket bucket = buckets.current();
+            bucket.digest.add(nanos);
+            bucket.totalNanos += nanos;
+            version++;
+        }
+        allTime.add(nanos);
+    }
+
+    public <T> T time(Callable<T> callable)
+            throws Exception
+    {
+        long start = ticker.read();
+        try {
+            return callable.call();
+        }
+        finally {
+            addNanos(ticker.read() - start);
+        }
+    }
+
+    public BlockTimer time()
+    {
+        return new BlockTimer();
+    }
+
+    public class BlockTimer
+            implements AutoCloseable
+    {
+        private final long start = ticker.read();
+
+        @Override
+        public void close()
+        {
+            addNanos(ticker.read() - start);
+        }
+    }
+
+    @Managed
+    @Nested
+    public Window getOneMinute()
+    {
+        return oneMinute;
+    }
+
+    @Managed
+    @Nested
+    public Window getFiveMinutes()
+    {
+        return fiveMinutes;
+    }
+
+    @Managed
+    @Nested
+    public Window getFifteenMinutes()
+    {
+        return fifteenMinutes;
+    }
+
+    @Managed
+    @Nested
+    public TimeDistribution getAllTime()
+    {
+        return allTime;
+    }
+
+    public TimeDistributionStatSnapshot snapshot()
+    {
+        return new TimeDistributionStatSnapshot(
+                oneMinute.snapshot(),
+                fiveMinutes.snapshot(),
+                fifteenMinutes.snapshot(),
+                allTime.snapshot());
+    }
+
+    @Managed
+    public void reset()
+    {
+        synchronized (this) {
+            buckets.clear();
+            version++;
+        }
+        allTime.reset();
+    }
+
+    public class Window
+    {
+        private final int bucketCount;
+
+        @GuardedBy("WindowedTimeStat.this")
+        private TimeDistributionSnapshot cachedSnapshot;
+        @GuardedBy("WindowedTimeStat.this")
+        private long cachedSnapshotVersion;
+        @GuardedBy("WindowedTimeStat.this")
+        private long cachedSnapshotBucket;
+
+        private Window(int minutes)
+        {
+            this.bucketCount = (int) (MINUTES.toSeconds(minutes) / BUCKET_SECONDS);
+        }
+
+        @Managed
+        public double getCount()
+        {
+            return snapshot().getCount();
+        }
+
+        @Managed
+        public double getP50()
+        {
+            return snapshot().getP50();
+        }
+
+        @Managed
+        public double getP75()
+        {
+            return snapshot().getP75();
+        }
+
+        @Managed
+        public double getP90()
+        {
+            return snapshot().getP90();
+        }
+
+        @Managed
+        public double getP95()
+        {
+            return snapshot().getP95();
+        }
+
+        @Managed
+        public double getP99()
+        {
+            return snapshot().getP99();
+        }
+
+        @Managed
+        public double getMin()
+        {
+            return snapshot().getMin();
+        }
+
+        @Managed
+        public double getMax()
+        {
+            return snapshot().getMax();
+        }
+
+        @Managed
+        public double getAvg()
+        {
+            return snapshot().getAvg();
+        }
+
+        @Managed
+        public TimeUnit getUnit()
+        {
+            return unit;
+        }
+
+        /**
+         * Returns all the summary values of this window. The buckets are merged once and the result
+         * is reused until a new sample is recorded or the window slides. The merge is done without
+         * holding the lock, so reading the window does not block writers.
+         */
+        public TimeDistributionSnapshot snapshot()
+        {
+            long currentBucket = ticker.read() / buckets.getBucketNanos();
+            List<TDigest> digests;
+            double totalNanos = 0;
+            long snapshotVersion;
+            synchronized (WindowedTimeStat.this) {
+                if (cachedSnapshot != null && cachedSnapshotVersion == version && cachedSnapshotBucket == currentBucket) {
+                    return cachedSnapshot;
+                }
+                // only the current bucket is written to, so the digests of older buckets can be merged without copying them
+                Bucket current = getFirst(buckets.recent(1), null);
+                List<Bucket> recent = buckets.recent(bucketCount);
+                digests = new ArrayList<>(recent.size());
+                for (Bucket bucket : recent) {
+                    digests.add(bucket == current ? TDigest.copyOf(bucket.digest) : bucket.digest);
+                    totalNanos += bucket.totalNanos;
+                }
+                snapshotVersion = version;
+            }
+
+            TimeDistributionSnapshot snapshot = computeSnapshot(digests, totalNanos);
+            synchronized (WindowedTimeStat.this) {
+                if (snapshotVersion == version) {
+                    cachedSnapshot = snapshot;
+                    cachedSnapshotVersion = snapshotVersion;
+                    cachedSnapshotBucket = currentBucket;
+                }
+            }
+            return snapshot;
+        }
+
+        private TimeDistributionSnapshot computeSnapshot(List<TDigest> digests, double totalNanos)
+        {
+            TDigest merged = new TDigest();
+            merged.mergeWith(digests);
+
+            double count = merged.getCount();
+            double[] quantiles = merged.valuesAt(SNAPSHOT_QUANTILES);
+            double unitNanos = (double) unit.toNanos(1);
+            return new TimeDistributionSnapshot(
+                    count,
+                    quantiles[0] / unitNanos, // p50
+                    quantiles[1] / unitNanos, // p75
+                    quantiles[2] / unitNanos, // p90
+                    quantiles[3] / unitNanos, // p95
+                    quantiles[4] / unitNanos, // p99
+                    merged.getMin() / unitNanos,
+                    merged.getMax() / unitNanos,
+                    totalNanos / unitNanos / count,
+                    unit);
+        }
+    }
+
+    private static class Bucket
+    {
+        private final TDigest digest = new TDigest(BUCKET_COMPRESSION);
+        private double totalNanos;
+    }
+}
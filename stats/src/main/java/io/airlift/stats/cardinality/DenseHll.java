@@ -16,11 +16,14 @@ package io.airlift.stats.cardinality;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.primitives.Bytes;
 import com.google.common.primitives.Ints;
-import io.airlift.slice.BasicSliceInput;
 import io.airlift.slice.DynamicSliceOutput;
 import io.airlift.slice.SizeOf;
 import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -43,12 +46,17 @@ final class DenseHll
     private static final double LINEAR_COUNTING_MIN_EMPTY_BUCKETS = 0.4;
 
     private static final int BITS_PER_BUCKET = 4;
-    private static final int MAX_DELTA = (1 << BITS_PER_BUCKET) - 1;
-    private static final int BUCKET_MASK = (1 << BITS_PER_BUCKET) - 1;
+    static final int MAX_DELTA = (1 << BITS_PER_BUCKET) - 1;
+    static final int BUCKET_MASK = (1 << BITS_PER_BUCKET) - 1;
 
     private static final int DENSE_INSTANCE_SIZE = instanceSize(DenseHll.class);
     private static final int OVERFLOW_GROW_INCREMENT = 5;
 
+    private static final VarHandle LONG_HANDLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long LOW_NIBBLES = 0x0F0F_0F0F_0F0F_0F0FL;
+    private static final long LOW_LANE_BITS = 0x0101_0101_0101_0101L;
+    private static final long LANE_GUARD_BITS = 0x1010_1010_1010_1010L;
+
     private final byte indexBitLength;
     private byte baseline;
     private int baselineCount;
@@ -73,64 +81,21 @@ final class DenseHll
 
     public DenseHll(Slice serialized)
     {
-        BasicSliceInput input = serialized.getInput();
-
-        byte formatTag = input.readByte();
-        checkArgument(formatTag == Format.DENSE_V1.getTag() || formatTag == Format.DENSE_V2.getTag(), "Invalid format tag");
+        DenseHllView view = DenseHllView.wrap(serialized);
 
-        indexBitLength = input.readByte();
-        validatePrefixLength(indexBitLength);
-        int numberOfBuckets = numberOfBuckets(indexBitLength);
+        indexBitLength = view.getIndexBitLength();
+        baseline = view.getBaseline();
+        deltas = view.getDeltas().getBytes();
 
-        baseline = input.readByte();
-        deltas = new byte[numberOfBuckets / 2];
-        input.readBytes(deltas);
-
-        if (formatTag == Format.DENSE_V1.getTag()) {
-            // for backward compatibility
-            int bucket = input.readShort();
-            byte value = input.readByte();
-            if (bucket >= 0 && value > 0) {
-                checkArgument(bucket <= numberOfBuckets, "Overflow bucket index is out of range");
-                overflows = 1;
-                overflowBuckets = new int[] {bucket};
-                overflowValues = new byte[] {value};
-            }
-            else {
-                overflows = 0;
-                overflowBuckets = new int[0];
-                overflowValues = new byte[0];
-            }
-        }
-        else if (formatTag == Format.DENSE_V2.getTag()) {
-            overflows = input.readUnsignedShort();
-            checkArgument(overflows <= numberOfBuckets, "Overflow entries is greater than actual number of buckets (possibly corrupt input)");
-
-            overflowBuckets = new int[overflows];
-            overflowValues = new byte[overflows];
-
-            for (int i = 0; i < overflows; i++) {
-                overflowBuckets[i] = input.readUnsignedShort();
-                checkArgument(overflowBuckets[i] <= numberOfBuckets, "Overflow bucket index is out of range");
-            }
-
-            for (int i = 0; i < overflows; i++) {
-                overflowValues[i] = input.readByte();
-                checkArgument(overflowValues[i] > 0, "Overflow bucket value must be > 0");
-            }
-        }
-        else {
-            throw new IllegalArgumentException(String.format("Invalid format tag: %d", formatTag));
-        }
-
-        baselineCount = 0;
-        for (int i = 0; i < numberOfBuckets; i++) {
-            if (getDelta(i) == 0) {
-                baselineCount++;
-            }
+        overflows = view.getOverflows();
+        overflowBuckets = new int[overflows];
+        overflowValues = new byte[overflows];
+        for (int i = 0; i < overflows; i++) {
+            overflowBuckets[i] = view.getOverflowBucket(i);
+            overflowValues[i] = view.getOverflowValue(i);
         }
 
-        checkArgument(!input.isReadable(), "input is too big");
+        baselineCount = countZeroDeltas(view.getDeltas());
     }
 
     public static boolean canDeserialize(Slice serialized)
@@ -164,6 +129,11 @@ final class DenseHll
 
     @Override
     public long cardinality()
+    {
+        return cardinality(indexBitLength, baseline, baselineCount, Slices.wrappedBuffer(deltas), overflows, overflowValues);
+    }
+
+    static long cardinality(int indexBitLength, int baseline, int baselineCount, Slice deltas, int overflows, byte[] overflowValues)
     {
         int numberOfBuckets = numberOfBuckets(indexBitLength);
 
@@ -172,19 +142,47 @@ final class DenseHll
             return Math.round(linearCounting(baselineCount, numberOfBuckets));
         }
 
-        double sum = 0;
-        for (int i = 0; i < numberOfBuckets; i++) {
-            int value = getValue(i);
-            sum += 1.0 / (1L << value);
-        }
+        double sum = harmonicSum(baseline, deltas, overflows, overflowValues);
 
         double estimate = (alpha(indexBitLength) * numberOfBuckets * numberOfBuckets) / sum;
-        estimate = correctBias(estimate);
+        estimate = correctBias(indexBitLength, estimate);
 
         return Math.round(estimate);
     }
 
-    private double correctBias(double rawEstimate)
+    @VisibleForTesting
+    double harmonicSum()
+    {
+        return harmonicSum(baseline, Slices.wrappedBuffer(deltas), overflows, overflowValues);
+    }
+
+    /**
+     * Returns the sum of 2^-value over all buckets.
+     */
+    private static double harmonicSum(int baseline, Slice deltas, int overflows, byte[] overflowValues)
+    {
+        // Bucket values are baseline + delta, so instead of visiting every bucket, count how many buckets
+        // have each of the 16 possible deltas and add the terms of the harmonic mean per delta. Buckets with
+        // an overflow entry are accounted for separately.
+        int[] deltaCounts = new int[MAX_DELTA + 1];
+        for (int i = 0; i < deltas.length(); i++) {
+            byte slot = deltas.getByte(i);
+            deltaCounts[(slot >>> BITS_PER_BUCKET) & BUCKET_MASK]++;
+            deltaCounts[slot & BUCKET_MASK]++;
+        }
+        deltaCounts[MAX_DELTA] -= overflows;
+
+        double sum = 0;
+        for (int delta = 0; delta <= MAX_DELTA; delta++) {
+            sum += deltaCounts[delta] * (1.0 / (1L << (baseline + delta)));
+        }
+        for (int i = 0; i < overflows; i++) {
+            sum += 1.0 / (1L << (baseline + MAX_DELTA + overflowValues[i]));
+        }
+        return sum;
+    }
+
+    private static double correctBias(int indexBitLength, double rawEstimate)
     {
         double[] estimates = BiasCorrection.RAW_ESTIMATES[indexBitLength - 4];
         if (rawEstimate < estimates[0] || rawEstimate > estimates[estimates.length - 1]) {
@@ -214,7 +212,7 @@ final class DenseHll
         return rawEstimate - bias;
     }
 
-    private int search(double rawEstimate, double[] estimateCurve)
+    private static int search(double rawEstimate, double[] estimateCurve)
     {
         int low = 0;
         int high = estimateCurve.length - 1;
@@ -415,59 +413,59 @@ final class DenseHll
      */
     public DenseHll mergeWith(DenseHll other)
     {
-        if (indexBitLength != other.indexBitLength) {
+        return mergeWith(DenseHllView.wrap(other.indexBitLength, other.baseline, other.deltas, other.overflows, other.overflowBuckets, other.overflowValues));
+    }
+
+    /**
+     * Returns "this" for chaining
+     */
+    public DenseHll mergeWith(DenseHllView other)
+    {
+        if (indexBitLength != other.getIndexBitLength()) {
             throw new IllegalArgumentException(String.format(
                     "Cannot merge HLLs with different number of buckets: %s vs %s",
                     numberOfBuckets(indexBitLength),
-                    numberOfBuckets(other.indexBitLength)));
+                    numberOfBuckets(other.getIndexBitLength())));
         }
 
-        int newBaseline = Math.max(this.baseline, other.baseline);
-        int baselineCount = 0;
-
-        int bucket = 0;
-        for (int i = 0; i < deltas.length; i++) {
-            int newSlot = 0;
-
-            byte slot1 = deltas[i];
-            byte slot2 = other.deltas[i];
-
-            for (int shift = 4; shift >= 0; shift -= 4) {
-                int delta1 = (slot1 >>> shift) & 0b1111;
-                int delta2 = (slot2 >>> shift) & 0b1111;
-
-                int value1 = this.baseline + delta1;
-                int value2 = other.baseline + delta2;
-
-                int overflowEntry = -1;
-                if (delta1 == MAX_DELTA) {
-                    overflowEntry = findOverflowEntry(bucket);
-                    if (overflowEntry != -1) {
-                        value1 += overflowValues[overflowEntry];
-                    }
-                }
-
-                if (delta2 == MAX_DELTA) {
-                    value2 += other.getOverflow(bucket);
-                }
-
-                int newValue = Math.max(value1, value2);
-                int newDelta = newValue - newBaseline;
+        int newBaseline = Math.max(this.baseline, other.getBaseline());
 
-                if (newDelta == 0) {
-                    baselineCount++;
-                }
+        // Buckets with an overflow entry in either HLL cannot be merged from their deltas alone,
+        // so compute their merged values up front and patch them in after the bulk merge below
+        int[] overflowedBuckets = new int[overflows + other.getOverflows()];
+        int[] overflowedValues = new int[overflowedBuckets.length];
+        int overflowed = 0;
+        for (int i = 0; i < overflows; i++) {
+            int bucket = overflowBuckets[i];
+            overflowedBuckets[overflowed] = bucket;
+            overflowedValues[overflowed] = Math.max(getValue(bucket), other.getValue(bucket));
+            overflowed++;
+        }
+        for (int i = 0; i < other.getOverflows(); i++) {
+            int bucket = other.getOverflowBucket(i);
+            if (findOverflowEntry(bucket) == -1) {
+                overflowedBuckets[overflowed] = bucket;
+                overflowedValues[overflowed] = Math.max(getValue(bucket), other.getValue(bucket));
+                overflowed++;
+            }
+        }
 
-                newDelta = updateOverflow(bucket, overflowEntry, newDelta);
+        // rebase both sets of deltas to the new baseline, saturating at zero, and take the larger one
+        mergeDeltas(deltas, newBaseline - this.baseline, other.getDeltas(), newBaseline - other.getBaseline());
 
-                newSlot <<= 4;
-                newSlot |= newDelta;
-                bucket++;
+        overflows = 0;
+        for (int i = 0; i < overflowed; i++) {
+            int bucket = overflowedBuckets[i];
+            int delta = overflowedValues[i] - newBaseline;
+            if (delta > MAX_DELTA) {
+                addOverflow(bucket, (byte) (delta - MAX_DELTA));
+                delta = MAX_DELTA;
             }
-
-            this.deltas[i] = (byte) newSlot;
+            setDelta(bucket, delta);
         }
 
+        int baselineCount = countZeroDeltas(Slices.wrappedBuffer(deltas));
+
         this.baseline = (byte) newBaseline;
         this.baselineCount = baselineCount;
 
@@ -495,6 +493,85 @@ final class DenseHll
         return this;
     }
 
+    /**
+     * Sets each 4-bit delta in {@code target} to {@code max(target - targetShift, source - sourceShift)},
+     * where subtraction saturates at zero. Deltas are processed 16 at a time as nibbles of a long.
+     */
+    @VisibleForTesting
+    static void mergeDeltas(byte[] target, int targetShift, Slice source, int sourceShift)
+    {
+        int i = 0;
+        for (; i + Long.BYTES <= target.length; i += Long.BYTES) {
+            long targetWord = (long) LONG_HANDLE.get(target, i);
+            long sourceWord = source.getLong(i);
+
+            long low = maxLanes(subtractLanes(targetWord & LOW_NIBBLES, targetShift), subtractLanes(sourceWord & LOW_NIBBLES, sourceShift));
+            long high = maxLanes(subtractLanes((targetWord >>> 4) & LOW_NIBBLES, targetShift), subtractLanes((sourceWord >>> 4) & LOW_NIBBLES, sourceShift));
+
+            LONG_HANDLE.set(target, i, low | (high << 4));
+        }
+
+        for (; i < target.length; i++) {
+            byte sourceSlot = source.getByte(i);
+            int low = Math.max(Math.max((target[i] & BUCKET_MASK) - targetShift, 0), Math.max((sourceSlot & BUCKET_MASK) - sourceShift, 0));
+            int high = Math.max(Math.max(((target[i] >>> 4) & BUCKET_MASK) - targetShift, 0), Math.max(((sourceSlot >>> 4) & BUCKET_MASK) - sourceShift, 0));
+            target[i] = (byte) (low | (high << 4));
+        }
+    }
+
+    @VisibleForTesting
+    static int countZeroDeltas(Slice deltas)
+    {
+        int count = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= deltas.length(); i += Long.BYTES) {
+            long word = deltas.getLong(i);
+            count += countZeroLanes(word & LOW_NIBBLES);
+            count += countZeroLanes((word >>> 4) & LOW_NIBBLES);
+        }
+
+        for (; i < deltas.length(); i++) {
+            byte slot = deltas.getByte(i);
+            if ((slot & BUCKET_MASK) == 0) {
+                count++;
+            }
+            if (((slot >>> 4) & BUCKET_MASK) == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The helpers below operate on 8 lanes of one byte each, where every lane holds a value in [0, 15].
+    // Setting bit 4 of each lane before subtracting guarantees that no borrow crosses into the next lane,
+    // and bit 4 of the result tells whether the subtraction went below zero.
+
+    private static long subtractLanes(long lanes, int amount)
+    {
+        if (amount == 0) {
+            return lanes;
+        }
+        if (amount > MAX_DELTA) {
+            return 0;
+        }
+        long difference = (lanes | LANE_GUARD_BITS) - (amount * LOW_LANE_BITS);
+        long nonNegative = ((difference >>> 4) & LOW_LANE_BITS) * BUCKET_MASK;
+        return difference & nonNegative;
+    }
+
+    private static long maxLanes(long first, long second)
+    {
+        long difference = (first | LANE_GUARD_BITS) - second;
+        long firstIsGreaterOrEqual = ((difference >>> 4) & LOW_LANE_BITS) * BUCKET_MASK;
+        return (first & firstIsGreaterOrEqual) | (second & ~firstIsGreaterOrEqual);
+    }
+
+    private static int countZeroLanes(long lanes)
+    {
+        long difference = (lanes | LANE_GUARD_BITS) - LOW_LANE_BITS;
+        return Long.bitCount(~difference & LANE_GUARD_BITS);
+    }
+
     private int findOverflowEntry(int bucket)
     {
         for (int i = 0; i < overflows; i++) {
@@ -515,38 +592,11 @@ final class DenseHll
         return 0;
     }
 
-    private int updateOverflow(int bucket, int overflowEntry, int delta)
-    {
-        if (delta > MAX_DELTA) {
-            if (overflowEntry != -1) {
-                // update existing overflow
-                setOverflow(overflowEntry, (byte) (delta - MAX_DELTA));
-            }
-            else {
-                addOverflow(bucket, (byte) (delta - MAX_DELTA));
-            }
-            delta = MAX_DELTA;
-        }
-        else if (overflowEntry != -1) {
-            removeOverflow(overflowEntry);
-        }
-
-        return delta;
-    }
-
     private void setOverflow(int overflowEntry, byte overflow)
     {
         overflowValues[overflowEntry] = overflow;
     }
 
-    private void removeOverflow(int overflowEntry)
-    {
-        // remove existing overflow
-        overflowBuckets[overflowEntry] = overflowBuckets[overflows - 1];
-        overflowValues[overflowEntry] = overflowValues[overflows - 1];
-        overflows--;
-    }
-
     private void addOverflow(int bucket, byte overflow)
     {
         // add new delta
@@ -565,18 +615,18 @@ final class DenseHll
         return (int) (DENSE_INSTANCE_SIZE + SizeOf.sizeOfByteArray(numberOfBuckets(indexBitLength) / 2));
     }
 
-    private static int bucketToSlot(int bucket)
+    static int bucketToSlot(int bucket)
     {
         return bucket >> 1;
     }
 
-    private static int shiftForBucket(int bucket)
+    static int shiftForBucket(int bucket)
     {
         // ((1 - bucket) % 2) * BITS_PER_BUCKET
         return ((~bucket) & 1) << 2;
     }
 
-    private static void validatePrefixLength(int indexBitLength)
+    static void validatePrefixLength(int indexBitLength)
     {
         checkArgument(indexBitLength >= 1 && indexBitLength <= 16, "indexBitLength is out of range");
     }
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats.cardinality;
+
+import io.airlift.slice.BasicSliceInput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.stats.cardinality.Utils.numberOfBuckets;
+
+/**
+ * Read-only view of the registers of a dense HLL. The deltas are not copied, so a view
+ * over a serialized HLL shares its memory with the serialized form.
+ */
+final class DenseHllView
+{
+    private final byte indexBitLength;
+    private final byte baseline;
+    private final Slice deltas;
+    private final int overflows;
+    private final int[] overflowBuckets;
+    private final byte[] overflowValues;
+
+    DenseHllView(byte indexBitLength, byte baseline, Slice deltas, int overflows, int[] overflowBuckets, byte[] overflowValues)
+    {
+        this.indexBitLength = indexBitLength;
+        this.baseline = baseline;
+        this.deltas = deltas;
+        this.overflows = overflows;
+        this.overflowBuckets = overflowBuckets;
+        this.overflowValues = overflowValues;
+    }
+
+    public static DenseHllView wrap(Slice serialized)
+    {
+        BasicSliceInput input = serialized.getInput();
+
+        byte formatTag = input.readByte();
+        checkArgument(formatTag == Format.DENSE_V1.getTag() || formatTag == Format.DENSE_V2.getTag(), "Invalid format tag");
+
+        byte indexBitLength = input.readByte();
+        DenseHll.validatePrefixLength(indexBitLength);
+        int numberOfBuckets = numberOfBuckets(indexBitLength);
+
+        byte baseline = input.readByte();
+        int deltasOffset = (int) input.position();
+        checkArgument(serialized.length() >= deltasOffset + numberOfBuckets / 2, "input is too small");
+        Slice deltas = serialized.slice(deltasOffset, numberOfBuckets / 2);
+        input.setPosition(deltasOffset + numberOfBuckets / 2);
+
+        int overflows;
+        int[] overflowBuckets;
+        byte[] overflowValues;
+        if (formatTag == Format.DENSE_V1.getTag()) {
+            // for backward compatibility
+            int bucket = input.readShort();
+            byte value = input.readByte();
+            if (bucket >= 0 && value > 0) {
+                checkArgument(bucket <= numberOfBuckets, "Overflow bucket index is out of range");
+                overflows = 1;
+                overflowBuckets = new int[] {bucket};
+                overflowValues = new byte[] {value};
+            }
+            else {
+                overflows = 0;
+                overflowBuckets = new int[0];
+                overflowValues = new byte[0];
+            }
+        }
+        else {
+            overflows = input.readUnsignedShort();
+            checkArgument(overflows <= numberOfBuckets, "Overflow entries is greater than actual number of buckets (possibly corrupt input)");
+
+            overflowBuckets = new int[overflows];
+            overflowValues = new byte[overflows];
+
+            for (int i = 0; i < overflows; i++) {
+                overflowBuckets[i] = input.readUnsignedShort();
+                checkArgument(overflowBuckets[i] <= numberOfBuckets, "Overflow bucket index is out of range");
+            }
+
+            for (int i = 0; i < overflows; i++) {
+                overflowValues[i] = input.readByte();
+                checkArgument(overflowValues[i] > 0, "Overflow bucket value must be > 0");
+            }
+        }
+
+        checkArgument(!input.isReadable(), "input is too big");
+
+        return new DenseHllView(indexBitLength, baseline, deltas, overflows, overflowBuckets, overflowValues);
+    }
+
+    public static DenseHllView wrap(byte indexBitLength, byte baseline, byte[] deltas, int overflows, int[] overflowBuckets, byte[] overflowValues)
+    {
+        return new DenseHllView(indexBitLength, baseline, Slices.wrappedBuffer(deltas), overflows, overflowBuckets, overflowValues);
+    }
+
+    public byte getIndexBitLength()
+    {
+        return indexBitLength;
+    }
+
+    public byte getBaseline()
+    {
+        return baseline;
+    }
+
+    public Slice getDeltas()
+    {
+        return deltas;
+    }
+
+    public int getOverflows()
+    {
+        return overflows;
+    }
+
+    public int getOverflowBucket(int entry)
+    {
+        return overflowBuckets[entry];
+    }
+
+    public byte getOverflowValue(int entry)
+    {
+        return overflowValues[entry];
+    }
+
+    public int getValue(int bucket)
+    {
+        int delta = (deltas.getByte(DenseHll.bucketToSlot(bucket)) >> DenseHll.shiftForBucket(bucket)) & DenseHll.BUCKET_MASK;
+
+        if (delta == DenseHll.MAX_DELTA) {
+            for (int i = 0; i < overflows; i++) {
+                if (overflowBuckets[i] == bucket) {
+                    delta += overflowValues[i];
+                    break;
+                }
+            }
+        }
+
+        return baseline + delta;
+    }
+
+    public long cardinality()
+    {
+        return DenseHll.cardinality(indexBitLength, baseline, DenseHll.countZeroDeltas(deltas), deltas, overflows, overflowValues);
+    }
+}
@@ -95,6 +95,24 @@ public class HyperLogLog
         }
     }
 
+    /**
+     * Merges a serialized HyperLogLog into this one. The registers of a dense source are
+     * merged directly from its serialized form.
+     */
+    public void mergeWith(SerializedHyperLogLog other)
+    {
+        if (!other.isDense()) {
+            // sparse instances are small, so going through the regular path is cheap
+            mergeWith(newInstance(other.getSerialized()));
+            return;
+        }
+
+        DenseHll dense = instance.toDense();
+        dense.mergeWith(other.getDenseView());
+
+        instance = dense;
+    }
+
     public long cardinality()
     {
         return instance.cardinality();
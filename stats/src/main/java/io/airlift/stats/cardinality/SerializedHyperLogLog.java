@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats.cardinality;
+
+import io.airlift.slice.SizeOf;
+import io.airlift.slice.Slice;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A read-only view of a HyperLogLog produced by {@link HyperLogLog#serialize()}. The cardinality
+ * is estimated directly from the serialized registers, without materializing a {@link HyperLogLog}.
+ * Use {@link HyperLogLog#mergeWith(SerializedHyperLogLog)} to fold the view into a mutable instance.
+ * <p>
+ * The view shares memory with the slice it wraps, so the slice must not be modified while the
+ * view is in use.
+ */
+public final class SerializedHyperLogLog
+{
+    private static final int SPARSE_ENTRIES_OFFSET = SizeOf.SIZE_OF_BYTE + SizeOf.SIZE_OF_BYTE;
+    private static final int SPARSE_HEADER_SIZE = SPARSE_ENTRIES_OFFSET + SizeOf.SIZE_OF_SHORT;
+
+    private final Slice serialized;
+    // null if the serialized HLL is sparse
+    private final DenseHllView dense;
+
+    private SerializedHyperLogLog(Slice serialized, DenseHllView dense)
+    {
+        this.serialized = serialized;
+        this.dense = dense;
+    }
+
+    public static SerializedHyperLogLog wrap(Slice serialized)
+    {
+        requireNonNull(serialized, "serialized is null");
+        checkArgument(serialized.length() > 0, "serialized is empty");
+        checkArgument(serialized.getByte(0) != Format.SPARSE_V1.getTag(), "Sparse v1 encoding no longer supported");
+
+        if (SparseHll.canDeserialize(serialized)) {
+            checkArgument(serialized.length() >= SPARSE_HEADER_SIZE, "input is too small");
+            DenseHll.validatePrefixLength(serialized.getByte(1));
+            int numberOfEntries = serialized.getShort(SPARSE_ENTRIES_OFFSET);
+            checkArgument(numberOfEntries >= 0, "Invalid number of entries: %s", numberOfEntries);
+            checkArgument(serialized.length() == SPARSE_HEADER_SIZE + SizeOf.SIZE_OF_INT * numberOfEntries, "input size does not match the number of entries");
+            return new SerializedHyperLogLog(serialized, null);
+        }
+        if (DenseHll.canDeserialize(serialized)) {
+            return new SerializedHyperLogLog(serialized, DenseHllView.wrap(serialized));
+        }
+
+        throw new IllegalArgumentException("Cannot deserialize HyperLogLog");
+    }
+
+    public long cardinality()
+    {
+        if (dense == null) {
+            return SparseHll.cardinality(serialized.getShort(SPARSE_ENTRIES_OFFSET));
+        }
+        return dense.cardinality();
+    }
+
+    Slice getSerialized()
+    {
+        return serialized;
+    }
+
+    boolean isDense()
+    {
+        return dense != null;
+    }
+
+    DenseHllView getDenseView()
+    {
+        return dense;
+    }
+}
@@ -181,6 +181,11 @@ final class SparseHll
 
     @Override
     public long cardinality()
+    {
+        return cardinality(numberOfEntries);
+    }
+
+    static long cardinality(int numberOfEntries)
     {
         // Estimate the cardinality using linear counting over the theoretical 2^EXTENDED_BITS_LENGTH buckets available due
         // to the fact that we're recording the raw leading EXTENDED_BITS_LENGTH of the hash. This produces much better precision
@@ -0,0 +1,93 @@
+package io.airlift.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(3)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkDecayCounter
+{
+    private final DecayCounter counter = new DecayCounter(ExponentialDecay.oneMinute());
+    private final CounterStat counterStat = new CounterStat();
+    private final WindowedCounterStat windowedCounterStat = new WindowedCounterStat();
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkAdd()
+    {
+        counter.add(1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkAddContended()
+    {
+        counter.add(1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkCounterStatUpdate()
+    {
+        counterStat.update(1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkCounterStatUpdateContended()
+    {
+        counterStat.update(1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkWindowedCounterStatUpdate()
+    {
+        windowedCounterStat.update(1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkWindowedCounterStatUpdateContended()
+    {
+        windowedCounterStat.update(1);
+    }
+
+    @Benchmark
+    public double benchmarkGetCount()
+    {
+        return counter.getCount();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*\\." + BenchmarkDecayCounter.class.getSimpleName() + "\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
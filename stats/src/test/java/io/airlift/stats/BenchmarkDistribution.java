@@ -0,0 +1,136 @@
+package io.airlift.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(3)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkDistribution
+{
+    @State(Scope.Benchmark)
+    public static class Stats
+    {
+        private final Distribution distribution = new Distribution(ExponentialDecay.oneMinute());
+        private final DistributionStat distributionStat = new DistributionStat();
+        private final TimeStat timeStat = new TimeStat();
+
+        @Setup
+        public void setup()
+        {
+            for (int i = 0; i < 10_000; i++) {
+                long value = nextValue();
+                distribution.add(value);
+                distributionStat.add(value);
+                timeStat.addNanos(value);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkDistributionAdd(Stats data)
+    {
+        data.distribution.add(nextValue());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkDistributionAddContended(Stats data)
+    {
+        data.distribution.add(nextValue());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkDistributionStatAdd(Stats data)
+    {
+        data.distributionStat.add(nextValue());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkDistributionStatAddContended(Stats data)
+    {
+        data.distributionStat.add(nextValue());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkTimeStatAdd(Stats data)
+    {
+        data.timeStat.addNanos(nextValue());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkTimeStatAddContended(Stats data)
+    {
+        data.timeStat.addNanos(nextValue());
+    }
+
+    @Benchmark
+    public Distribution.DistributionSnapshot benchmarkSnapshot(Stats data)
+    {
+        return data.distribution.snapshot();
+    }
+
+    @Benchmark
+    public void benchmarkScrape(Stats data, Blackhole blackhole)
+    {
+        // read every attribute, the way a JMX scrape does
+        Distribution distribution = data.distribution;
+        blackhole.consume(distribution.getCount());
+        blackhole.consume(distribution.getTotal());
+        blackhole.consume(distribution.getP01());
+        blackhole.consume(distribution.getP05());
+        blackhole.consume(distribution.getP10());
+        blackhole.consume(distribution.getP25());
+        blackhole.consume(distribution.getP50());
+        blackhole.consume(distribution.getP75());
+        blackhole.consume(distribution.getP90());
+        blackhole.consume(distribution.getP95());
+        blackhole.consume(distribution.getP99());
+        blackhole.consume(distribution.getMin());
+        blackhole.consume(distribution.getMax());
+        blackhole.consume(distribution.getAvg());
+    }
+
+    private static long nextValue()
+    {
+        return ThreadLocalRandom.current().nextLong(1_000_000_000);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*\\." + BenchmarkDistribution.class.getSimpleName() + "\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,109 @@
+package io.airlift.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("deprecation")
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(3)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkExponentiallyDecayingSample
+{
+    @State(Scope.Benchmark)
+    public static class Sample
+    {
+        // same parameters as MeterStat
+        private final ExponentiallyDecayingSample sample = new ExponentiallyDecayingSample(1028, 0.015);
+        private final MeterStat meterStat = new MeterStat();
+
+        @Setup
+        public void setup()
+        {
+            for (int i = 0; i < 10_000; i++) {
+                long value = ThreadLocalRandom.current().nextLong(1_000_000);
+                sample.update(value);
+                meterStat.update(value);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkUpdate(Sample data)
+    {
+        data.sample.update(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void benchmarkUpdateTwoThreads(Sample data)
+    {
+        data.sample.update(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void benchmarkUpdateFourThreads(Sample data)
+    {
+        data.sample.update(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkUpdateContended(Sample data)
+    {
+        data.sample.update(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void benchmarkMeterStatUpdate(Sample data)
+    {
+        data.meterStat.update(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void benchmarkMeterStatUpdateContended(Sample data)
+    {
+        data.meterStat.update(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    public double[] benchmarkPercentiles(Sample data)
+    {
+        return data.sample.percentiles(0.5, 0.9, 0.99, 0.999);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*\\." + BenchmarkExponentiallyDecayingSample.class.getSimpleName() + "\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
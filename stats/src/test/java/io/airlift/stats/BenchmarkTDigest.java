@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
@@ -39,12 +40,14 @@ public class BenchmarkTDigest
     {
         private long[] values1;
         private long[] values2;
+        private double[] doubleValues1;
 
         @Setup
         public void setup()
         {
             values1 = makeValues(NUMBER_OF_ENTRIES);
             values2 = makeValues(NUMBER_OF_ENTRIES);
+            doubleValues1 = Arrays.stream(values1).asDoubleStream().toArray();
         }
 
         private long[] makeValues(int size)
@@ -65,6 +68,7 @@ public class BenchmarkTDigest
     {
         private TDigest digest1;
         private TDigest digest2;
+        private List<TDigest> partialDigests;
         private Slice serializedDigest;
         @Param("100")
         private int quantileCount;
@@ -77,6 +81,9 @@ public class BenchmarkTDigest
             digest1 = makeDigest(data.values1);
             digest2 = makeDigest(data.values2);
             serializedDigest = digest1.serialize();
+            partialDigests = IntStream.range(0, 100)
+                    .mapToObj(i -> makeDigest(Arrays.copyOfRange(data.values1, i * 1000, (i + 1) * 1000)))
+                    .collect(toImmutableList());
             quantilesArray = makeQuantiles(quantileCount);
             quantilesList = Arrays.stream(quantilesArray).boxed()
                     .collect(toImmutableList());
@@ -115,6 +122,15 @@ public class BenchmarkTDigest
         return digest;
     }
 
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_ENTRIES)
+    public TDigest benchmarkBulkInserts(Data data)
+    {
+        TDigest digest = new TDigest();
+        digest.add(data.doubleValues1, 0, data.doubleValues1.length);
+        return digest;
+    }
+
     @Benchmark
     public TDigest benchmarkCopy(Digest data)
     {
@@ -129,6 +145,24 @@ public class BenchmarkTDigest
         return merged;
     }
 
+    @Benchmark
+    public TDigest benchmarkMergeMany(Digest data)
+    {
+        TDigest merged = new TDigest();
+        merged.mergeWith(data.partialDigests);
+        return merged;
+    }
+
+    @Benchmark
+    public TDigest benchmarkMergeManyPairwise(Digest data)
+    {
+        TDigest merged = new TDigest();
+        for (TDigest partial : data.partialDigests) {
+            merged.mergeWith(TDigest.copyOf(partial));
+        }
+        return merged;
+    }
+
     @Benchmark
     public TDigest benchmarkDeserialize(Digest data)
     {
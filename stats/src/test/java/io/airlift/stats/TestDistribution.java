@@ -1,8 +1,21 @@
 package io.airlift.stats;
 
+import io.airlift.testing.TestingTicker;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.airlift.stats.Distribution.SNAPSHOT_TTL_NANOS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 public class TestDistribution
 {
@@ -33,4 +46,95 @@ public class TestDistribution
         assertEquals(copy.getCount(), distribution.getCount());
         assertEquals(copy.getTotal(), distribution.getTotal());
     }
+
+    @Test
+    public void testConcurrentAdd()
+            throws Exception
+    {
+        int threads = 8;
+        int samplesPerThread = 10_000;
+
+        Distribution distribution = new Distribution();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 1; i <= samplesPerThread; i++) {
+                        distribution.add(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(distribution.getCount(), (double) threads * samplesPerThread);
+        assertEquals(distribution.getTotal(), (double) threads * samplesPerThread * (samplesPerThread + 1) / 2);
+        assertEquals(distribution.getMin(), 1D);
+        assertEquals(distribution.getMax(), (double) samplesPerThread);
+    }
+
+    @Test
+    public void testAddWithCount()
+    {
+        Distribution distribution = new Distribution();
+        distribution.add(10, 3);
+        distribution.add(20);
+
+        assertEquals(distribution.getCount(), 4D);
+        assertEquals(distribution.getTotal(), 50D);
+        assertEquals(distribution.snapshot().getCount(), 4D);
+    }
+
+    @Test
+    public void testSnapshotCachedUntilNewData()
+    {
+        Distribution distribution = new Distribution();
+        distribution.add(10);
+
+        Distribution.DistributionSnapshot snapshot = distribution.snapshot();
+        assertSame(distribution.snapshot(), snapshot);
+        assertEquals(distribution.getP50(), snapshot.getP50());
+        assertEquals(distribution.getAvg(), snapshot.getAvg());
+
+        distribution.add(20);
+        Distribution.DistributionSnapshot updated = distribution.snapshot();
+        assertNotSame(updated, snapshot);
+        assertEquals(updated.getCount(), 2D);
+        assertEquals(distribution.getMax(), 20D);
+
+        // each getter sees the samples recorded before it is called
+        distribution.add(30);
+        assertEquals(distribution.getCount(), 3D);
+        distribution.add(40);
+        assertEquals(distribution.getMax(), 40D);
+
+        distribution.reset();
+        assertEquals(distribution.getCount(), 0D);
+    }
+
+    @Test
+    public void testDecayingSnapshotExpires()
+    {
+        TestingTicker ticker = new TestingTicker();
+        Distribution distribution = new Distribution(ExponentialDecay.oneMinute(), ticker);
+        distribution.add(10);
+
+        Distribution.DistributionSnapshot snapshot = distribution.snapshot();
+        assertEquals(snapshot.getCount(), 1D);
+
+        ticker.increment(SNAPSHOT_TTL_NANOS - 1, NANOSECONDS);
+        assertSame(distribution.snapshot(), snapshot);
+
+        // the count decays even though no new data arrived
+        ticker.increment(1, NANOSECONDS);
+        assertNotSame(distribution.snapshot(), snapshot);
+        ticker.increment(1, MINUTES);
+        assertTrue(distribution.getCount() < 1);
+    }
 }
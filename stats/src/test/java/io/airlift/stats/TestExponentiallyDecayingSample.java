@@ -0,0 +1,86 @@
+package io.airlift.stats;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.lang.Math.floor;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestExponentiallyDecayingSample
+{
+    @Test
+    public void testPercentilesMatchSortedValues()
+    {
+        ExponentiallyDecayingSample sample = new ExponentiallyDecayingSample(1028, 0.015);
+        for (int i = 0; i < 10_000; i++) {
+            sample.update(ThreadLocalRandom.current().nextLong(100));
+        }
+
+        double[] percentiles = {0.0, 0.001, 0.1, 0.5, 0.75, 0.9, 0.99, 0.999, 1.0};
+
+        List<Long> values = sample.values();
+        Collections.sort(values);
+        double[] actual = sample.percentiles(percentiles);
+        for (int i = 0; i < percentiles.length; i++) {
+            assertEquals(actual[i], sortedPercentile(values, percentiles[i]), "percentile " + percentiles[i]);
+        }
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        ExponentiallyDecayingSample sample = new ExponentiallyDecayingSample(1028, 0.015);
+        assertEquals(sample.percentiles(0.5, 0.9), new double[] {Double.NaN, Double.NaN});
+        assertEquals(sample.size(), 0);
+    }
+
+    @Test
+    public void testConcurrentUpdates()
+            throws Exception
+    {
+        ExponentiallyDecayingSample sample = new ExponentiallyDecayingSample(100, 0.015);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        sample.update(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(sample.size(), 100);
+        assertTrue(sample.values().size() <= 100);
+        assertTrue(sample.values().size() >= 90);
+    }
+
+    private static double sortedPercentile(List<Long> values, double p)
+    {
+        double pos = p * (values.size() + 1);
+        if (pos < 1) {
+            return values.get(0);
+        }
+        if (pos >= values.size()) {
+            return values.get(values.size() - 1);
+        }
+        double lower = values.get((int) pos - 1);
+        double upper = values.get((int) pos);
+        return lower + (pos - floor(pos)) * (upper - lower);
+    }
+}
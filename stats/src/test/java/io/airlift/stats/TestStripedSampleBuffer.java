@@ -0,0 +1,111 @@
+package io.airlift.stats;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.airlift.stats.StripedSampleBuffer.STRIPE_CAPACITY;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestStripedSampleBuffer
+{
+    @Test
+    public void testDrainInInsertionOrder()
+    {
+        StripedSampleBuffer buffer = new StripedSampleBuffer();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.add(i, i * 10, i * 100));
+        }
+
+        List<long[]> samples = new ArrayList<>();
+        buffer.drain((value, weight, timestampInSeconds) -> samples.add(new long[] {value, weight, timestampInSeconds}));
+
+        assertEquals(samples.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(samples.get(i), new long[] {i, i * 10, i * 100});
+        }
+
+        // drained samples are removed
+        buffer.drain((value, weight, timestampInSeconds) -> samples.add(null));
+        assertEquals(samples.size(), 10);
+    }
+
+    @Test
+    public void testFull()
+    {
+        StripedSampleBuffer buffer = new StripedSampleBuffer();
+        for (int i = 0; i < STRIPE_CAPACITY; i++) {
+            assertTrue(buffer.add(i, 1, 0));
+        }
+        assertFalse(buffer.add(STRIPE_CAPACITY, 1, 0));
+
+        AtomicLong sum = new AtomicLong();
+        buffer.drain((value, weight, timestampInSeconds) -> sum.addAndGet(value));
+        assertEquals(sum.get(), (long) STRIPE_CAPACITY * (STRIPE_CAPACITY - 1) / 2);
+
+        // space is reclaimed after draining
+        assertTrue(buffer.add(42, 1, 0));
+    }
+
+    @Test
+    public void testClear()
+    {
+        StripedSampleBuffer buffer = new StripedSampleBuffer();
+        buffer.add(1, 1, 0);
+        buffer.add(2, 1, 0);
+        buffer.clear();
+
+        AtomicLong count = new AtomicLong();
+        buffer.drain((value, weight, timestampInSeconds) -> count.incrementAndGet());
+        assertEquals(count.get(), 0);
+    }
+
+    @Test
+    public void testConcurrentWriters()
+            throws Exception
+    {
+        int threads = 8;
+        int samplesPerThread = 100_000;
+
+        StripedSampleBuffer buffer = new StripedSampleBuffer();
+        AtomicLong drainedWeight = new AtomicLong();
+        AtomicLong directWeight = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < samplesPerThread; i++) {
+                        if (!buffer.add(i, 1, 0)) {
+                            // emulate the fallback path of the callers: drain under a lock, then record directly
+                            synchronized (buffer) {
+                                buffer.drain((value, weight, timestampInSeconds) -> drainedWeight.addAndGet(weight));
+                                directWeight.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        synchronized (buffer) {
+            buffer.drain((value, weight, timestampInSeconds) -> drainedWeight.addAndGet(weight));
+        }
+        assertEquals(drainedWeight.get() + directWeight.get(), (long) threads * samplesPerThread);
+        assertTrue(buffer.getStripeCount() >= 1);
+    }
+}
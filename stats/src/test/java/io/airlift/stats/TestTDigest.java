@@ -17,6 +17,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.io.Resources;
 import com.google.common.primitives.Doubles;
+import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.testng.annotations.Test;
 
@@ -299,6 +300,141 @@ public class TestTDigest
         assertEquals(merged.valueAt(1), 8.0);
     }
 
+    @Test
+    public void testBulkAddMatchesIndividualAdds()
+    {
+        double[] values = new double[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ThreadLocalRandom.current().nextGaussian();
+        }
+
+        TDigest expected = new TDigest();
+        expected.add(42);
+        for (double value : values) {
+            expected.add(value);
+        }
+
+        TDigest actual = new TDigest();
+        actual.add(42);
+        // uneven batch sizes, so batches straddle merges
+        int offset = 0;
+        for (int batch : new int[] {1, 7, 1000, 12_345, values.length - 13_353}) {
+            actual.add(values, offset, batch);
+            offset += batch;
+        }
+        assertEquals(offset, values.length);
+
+        assertEquals(actual.serialize(), expected.serialize());
+    }
+
+    @Test
+    public void testBulkAddInvalid()
+    {
+        TDigest digest = new TDigest();
+        assertThrows(IllegalArgumentException.class, () -> digest.add(new double[] {1, Double.NaN}, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> digest.add(new double[] {1, Double.POSITIVE_INFINITY}, 0, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> digest.add(new double[] {1, 2}, 1, 2));
+
+        // a rejected batch leaves the digest untouched
+        assertEquals(digest.getCount(), 0.0);
+    }
+
+    @Test
+    public void testMergeMany()
+    {
+        List<TDigest> digests = new ArrayList<>();
+        TDigest expected = new TDigest();
+        for (int i = 0; i < 100; i++) {
+            TDigest digest = new TDigest();
+            for (int j = 0; j < 1000; j++) {
+                double value = i * 1000 + j;
+                digest.add(value);
+                expected.add(value);
+            }
+            digests.add(digest);
+        }
+        List<Slice> serialized = digests.stream()
+                .map(TDigest::serialize)
+                .collect(toImmutableList());
+
+        TDigest merged = new TDigest();
+        merged.mergeWith(digests);
+
+        assertSimilar(merged, expected);
+        for (double quantile = 0.01; quantile < 1; quantile += 0.01) {
+            assertEquals(merged.valueAt(quantile), expected.valueAt(quantile), 1000);
+        }
+
+        // the merged digests are not modified
+        for (int i = 0; i < digests.size(); i++) {
+            assertEquals(digests.get(i).serialize(), serialized.get(i));
+        }
+    }
+
+    @Test
+    public void testSerializedView()
+    {
+        TDigest digest = new TDigest();
+        for (int i = 0; i < 10_000; i++) {
+            digest.add(ThreadLocalRandom.current().nextGaussian());
+        }
+
+        Slice serialized = digest.serialize();
+        SerializedTDigest view = SerializedTDigest.wrap(serialized);
+        TDigest deserialized = TDigest.deserialize(serialized);
+
+        assertEquals(view.getMin(), deserialized.getMin());
+        assertEquals(view.getMax(), deserialized.getMax());
+        assertEquals(view.getCount(), deserialized.getCount());
+
+        double[] quantiles = IntStream.rangeClosed(0, 100)
+                .mapToDouble(i -> i / 100.0)
+                .toArray();
+        assertEquals(view.valuesAt(quantiles), deserialized.valuesAt(quantiles));
+        assertEquals(view.valueAt(0.5), deserialized.valueAt(0.5));
+    }
+
+    @Test
+    public void testSerializedViewEmpty()
+    {
+        SerializedTDigest view = SerializedTDigest.wrap(new TDigest().serialize());
+
+        assertEquals(view.getMin(), Double.NaN);
+        assertEquals(view.getMax(), Double.NaN);
+        assertEquals(view.getCount(), 0.0);
+        assertEquals(view.valueAt(0.5), Double.NaN);
+    }
+
+    @Test
+    public void testSerializedViewInvalid()
+    {
+        Slice serialized = new TDigest().serialize();
+        assertThrows(IllegalArgumentException.class, () -> SerializedTDigest.wrap(serialized.slice(0, serialized.length() - 1)));
+
+        Slice invalidTag = serialized.copy();
+        invalidTag.setByte(0, 1);
+        assertThrows(IllegalArgumentException.class, () -> SerializedTDigest.wrap(invalidTag));
+    }
+
+    @Test
+    public void testMergeSerialized()
+    {
+        TDigest expected = new TDigest();
+        TDigest actual = new TDigest();
+        for (int i = 0; i < 10; i++) {
+            TDigest digest = new TDigest();
+            for (int j = 0; j < 1000; j++) {
+                digest.add(ThreadLocalRandom.current().nextDouble());
+            }
+            Slice serialized = digest.serialize();
+
+            expected.mergeWith(ImmutableList.of(TDigest.deserialize(serialized)));
+            actual.mergeWith(SerializedTDigest.wrap(serialized));
+        }
+
+        assertEquals(actual.serialize(), expected.serialize());
+    }
+
     @Test
     public void testUnmergeable()
             throws IOException
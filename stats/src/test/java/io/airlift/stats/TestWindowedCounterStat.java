@@ -0,0 +1,93 @@
+package io.airlift.stats;
+
+import io.airlift.stats.CounterStat.CounterStatSnapshot;
+import io.airlift.testing.TestingTicker;
+import org.testng.annotations.Test;
+
+import static io.airlift.stats.WindowedCounterStat.BUCKET_SECONDS;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+
+public class TestWindowedCounterStat
+{
+    @Test
+    public void testWindows()
+    {
+        TestingTicker ticker = new TestingTicker();
+        WindowedCounterStat stat = new WindowedCounterStat(ticker);
+
+        stat.update(60);
+        assertCounts(stat, 60, 60, 60);
+        assertEquals(stat.getOneMinute().getRate(), 1.0);
+        assertEquals(stat.getTotalCount(), 60);
+
+        // the event counts fully until its bucket leaves the window
+        ticker.increment(60 - BUCKET_SECONDS, SECONDS);
+        assertCounts(stat, 60, 60, 60);
+        ticker.increment(BUCKET_SECONDS - 1, SECONDS);
+        assertCounts(stat, 60, 60, 60);
+
+        ticker.increment(1, SECONDS);
+        assertCounts(stat, 0, 60, 60);
+
+        stat.update(10);
+        assertCounts(stat, 10, 70, 70);
+
+        ticker.increment(4, MINUTES);
+        assertCounts(stat, 0, 10, 70);
+
+        ticker.increment(10, MINUTES);
+        assertCounts(stat, 0, 0, 10);
+
+        ticker.increment(1, MINUTES);
+        assertCounts(stat, 0, 0, 0);
+        assertEquals(stat.getTotalCount(), 70);
+    }
+
+    @Test
+    public void testIdleLongerThanRing()
+    {
+        TestingTicker ticker = new TestingTicker();
+        WindowedCounterStat stat = new WindowedCounterStat(ticker);
+
+        stat.update(5);
+        ticker.increment(1, DAYS);
+        stat.update(3);
+        assertCounts(stat, 3, 3, 3);
+    }
+
+    @Test
+    public void testReset()
+    {
+        TestingTicker ticker = new TestingTicker();
+        WindowedCounterStat stat = new WindowedCounterStat(ticker);
+
+        stat.update(5);
+        stat.reset();
+        assertCounts(stat, 0, 0, 0);
+        assertEquals(stat.getTotalCount(), 0);
+    }
+
+    @Test
+    public void testSnapshot()
+    {
+        TestingTicker ticker = new TestingTicker();
+        WindowedCounterStat stat = new WindowedCounterStat(ticker);
+
+        stat.update(120);
+        CounterStatSnapshot snapshot = stat.snapshot();
+        assertEquals(snapshot.getTotalCount(), 120);
+        assertEquals(snapshot.getOneMinute().getCount(), 120.0);
+        assertEquals(snapshot.getOneMinute().getRate(), 2.0);
+        assertEquals(snapshot.getFifteenMinute().getRate(), 120.0 / 900);
+    }
+
+    private static void assertCounts(WindowedCounterStat stat, double oneMinute, double fiveMinute, double fifteenMinute)
+    {
+        assertEquals(stat.getOneMinute().getCount(), oneMinute);
+        assertEquals(stat.getFiveMinute().getCount(), fiveMinute);
+        assertEquals(stat.getFifteenMinute().getCount(), fifteenMinute);
+    }
+}
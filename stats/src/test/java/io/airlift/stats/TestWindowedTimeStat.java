@@ -0,0 +1,99 @@
+package io.airlift.stats;
+
+import io.airlift.stats.TimeDistribution.TimeDistributionSnapshot;
+import io.airlift.stats.TimeStat.TimeDistributionStatSnapshot;
+import io.airlift.testing.TestingTicker;
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertThrows;
+
+public class TestWindowedTimeStat
+{
+    @Test
+    public void testWindows()
+    {
+        TestingTicker ticker = new TestingTicker();
+        WindowedTimeStat stat = new WindowedTimeStat(ticker, MILLISECONDS);
+
+        for (int i = 1; i <= 100; i++) {
+            stat.add(i, MILLISECONDS);
+        }
+        assertWindow(stat.getOneMinute().snapshot(), 100, 1, 100);
+        assertWindow(stat.getFifteenMinutes().snapshot(), 100, 1, 100);
+
+        ticker.increment(1, MINUTES);
+        stat.add(1000, MILLISECONDS);
+        assertWindow(stat.getOneMinute().snapshot(), 1, 1000, 1000);
+        assertWindow(stat.getFiveMinutes().snapshot(), 101, 1, 1000);
+        assertWindow(stat.getAllTime().snapshot(), 101, 1, 1000);
+
+        ticker.increment(15, MINUTES);
+        assertEquals(stat.getFifteenMinutes().getCount(), 0.0);
+        assertEquals(stat.getAllTime().getCount(), 101.0);
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        WindowedTimeStat stat = new WindowedTimeStat(new TestingTicker(), MILLISECONDS);
+        for (int i = 0; i < 1000; i++) {
+            stat.add(i, MILLISECONDS);
+        }
+
+        TimeDistributionSnapshot snapshot = stat.getFiveMinutes().snapshot();
+        assertEquals(snapshot.getP50(), 500, 10);
+        assertEquals(snapshot.getP90(), 900, 10);
+        assertEquals(snapshot.getP99(), 990, 10);
+        assertEquals(snapshot.getAvg(), 499.5, 0.001);
+        assertEquals(stat.getFiveMinutes().getUnit(), MILLISECONDS);
+    }
+
+    @Test
+    public void testSnapshotCachedUntilNewDataOrSlide()
+    {
+        TestingTicker ticker = new TestingTicker();
+        WindowedTimeStat stat = new WindowedTimeStat(ticker, MILLISECONDS);
+        stat.add(1, MILLISECONDS);
+
+        TimeDistributionSnapshot snapshot = stat.getOneMinute().snapshot();
+        assertSame(stat.getOneMinute().snapshot(), snapshot);
+
+        stat.add(2, MILLISECONDS);
+        TimeDistributionSnapshot updated = stat.getOneMinute().snapshot();
+        assertEquals(updated.getCount(), 2.0);
+        assertSame(stat.getOneMinute().snapshot(), updated);
+
+        ticker.increment(WindowedTimeStat.BUCKET_SECONDS, SECONDS);
+        assertNotSame(stat.getOneMinute().snapshot(), updated);
+    }
+
+    @Test
+    public void testResetAndSnapshot()
+    {
+        WindowedTimeStat stat = new WindowedTimeStat(new TestingTicker(), MILLISECONDS);
+        stat.add(10, MILLISECONDS);
+
+        TimeDistributionStatSnapshot snapshot = stat.snapshot();
+        assertEquals(snapshot.getOneMinute().getCount(), 1.0);
+        assertEquals(snapshot.getAllTime().getCount(), 1.0);
+
+        stat.reset();
+        assertEquals(stat.getOneMinute().getCount(), 0.0);
+        assertEquals(stat.getAllTime().getCount(), 0.0);
+
+        assertThrows(IllegalArgumentException.class, () -> stat.addNanos(-1));
+    }
+
+    private static void assertWindow(TimeDistributionSnapshot snapshot, double count, double min, double max)
+    {
+        assertEquals(snapshot.getCount(), count);
+        assertEquals(snapshot.getMin(), min);
+        assertEquals(snapshot.getMax(), max);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats.cardinality;
+
+import io.airlift.slice.Slice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(3)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkHyperLogLog
+{
+    private static final int NUMBER_OF_BUCKETS = 4096;
+
+    @State(Scope.Thread)
+    public static class Data
+    {
+        // small cardinalities stay in the sparse representation, large ones are converted to dense
+        @Param({"100", "100000"})
+        private int cardinality;
+
+        private HyperLogLog hll;
+        private HyperLogLog other;
+        private Slice serialized;
+        private long[] values;
+
+        @Setup(Level.Iteration)
+        public void setup()
+        {
+            hll = makeHll(cardinality);
+            other = makeHll(cardinality);
+            serialized = hll.serialize();
+            values = new long[500];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = ThreadLocalRandom.current().nextLong();
+            }
+        }
+
+        private static HyperLogLog makeHll(int cardinality)
+        {
+            HyperLogLog hll = HyperLogLog.newInstance(NUMBER_OF_BUCKETS);
+            for (int i = 0; i < cardinality; i++) {
+                hll.add(ThreadLocalRandom.current().nextLong());
+            }
+            return hll;
+        }
+    }
+
+    @Benchmark
+    public HyperLogLog benchmarkAdd(Data data)
+    {
+        for (long value : data.values) {
+            data.hll.add(value);
+        }
+        return data.hll;
+    }
+
+    @Benchmark
+    public HyperLogLog benchmarkMerge(Data data)
+    {
+        HyperLogLog merged = HyperLogLog.newInstance(data.serialized);
+        merged.mergeWith(data.other);
+        return merged;
+    }
+
+    @Benchmark
+    public long benchmarkCardinality(Data data)
+    {
+        return data.hll.cardinality();
+    }
+
+    @Benchmark
+    public Slice benchmarkSerialize(Data data)
+    {
+        return data.hll.serialize();
+    }
+
+    @Benchmark
+    public HyperLogLog benchmarkDeserialize(Data data)
+    {
+        return HyperLogLog.newInstance(data.serialized);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*\\." + BenchmarkHyperLogLog.class.getSimpleName() + "\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
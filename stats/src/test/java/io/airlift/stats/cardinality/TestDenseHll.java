@@ -13,11 +13,13 @@
  */
 package io.airlift.stats.cardinality;
 
+import io.airlift.slice.Slices;
 import io.airlift.slice.XxHash64;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static io.airlift.slice.testing.SliceAssertions.assertSlicesEqual;
 import static io.airlift.stats.cardinality.TestUtils.sequence;
@@ -139,6 +141,87 @@ public class TestDenseHll
         verifyMerge(prefixBitLength, sequence(0, 2_000_000), sequence(0, 2_000_000));
     }
 
+    @Test
+    public void testMergeSmallPrefixes()
+    {
+        // fewer than 16 buckets, so the merge does not fill a whole word of deltas
+        for (int prefixBitLength = 1; prefixBitLength <= 4; prefixBitLength++) {
+            DenseHll hll1 = new DenseHll(prefixBitLength);
+            DenseHll hll2 = new DenseHll(prefixBitLength);
+            DenseHll expected = new DenseHll(prefixBitLength);
+            for (int i = 0; i < 20000; i++) {
+                long hash = XxHash64.hash(i);
+                (i % 3 == 0 ? hll1 : hll2).insertHash(hash);
+                expected.insertHash(hash);
+            }
+
+            hll1.mergeWith(hll2);
+            hll1.verify();
+            assertSlicesEqual(hll1.serialize(), expected.serialize());
+        }
+    }
+
+    @Test(dataProvider = "bits")
+    public void testMergeDifferentBaselines(int prefixBitLength)
+    {
+        // the first HLL has a much higher baseline than the second, and both have overflows
+        verifyMerge(prefixBitLength, sequence(0, 3_000_000), sequence(3_000_000, 3_000_100));
+        verifyMerge(prefixBitLength, sequence(3_000_000, 3_000_100), sequence(0, 3_000_000));
+    }
+
+    @Test(dataProvider = "bits")
+    public void testHarmonicSumMatchesBucketByBucketSum(int prefixBitLength)
+    {
+        DenseHll hll = new DenseHll(prefixBitLength);
+        for (int i = 0; i < 1_000_000; i++) {
+            hll.insertHash(XxHash64.hash(i));
+            if (i % 99_991 == 0) {
+                assertEquals(hll.harmonicSum(), bucketByBucketSum(hll, prefixBitLength));
+            }
+        }
+        assertEquals(hll.harmonicSum(), bucketByBucketSum(hll, prefixBitLength));
+    }
+
+    @Test
+    public void testMergeDeltas()
+    {
+        byte[] target = new byte[19];
+        byte[] source = new byte[19];
+        ThreadLocalRandom.current().nextBytes(target);
+        ThreadLocalRandom.current().nextBytes(source);
+
+        for (int targetShift = 0; targetShift <= 16; targetShift++) {
+            for (int sourceShift : new int[] {0, 1, 15, 16}) {
+                byte[] merged = target.clone();
+                DenseHll.mergeDeltas(merged, targetShift, Slices.wrappedBuffer(source), sourceShift);
+
+                int zeros = 0;
+                for (int i = 0; i < target.length; i++) {
+                    for (int shift : new int[] {0, 4}) {
+                        int expected = Math.max(
+                                Math.max(((target[i] >>> shift) & 0xF) - targetShift, 0),
+                                Math.max(((source[i] >>> shift) & 0xF) - sourceShift, 0));
+                        int actual = (merged[i] >>> shift) & 0xF;
+                        assertEquals(actual, expected);
+                        if (actual == 0) {
+                            zeros++;
+                        }
+                    }
+                }
+                assertEquals(DenseHll.countZeroDeltas(Slices.wrappedBuffer(merged)), zeros);
+            }
+        }
+    }
+
+    private static double bucketByBucketSum(DenseHll hll, int prefixBitLength)
+    {
+        double sum = 0;
+        for (int i = 0; i < numberOfBuckets(prefixBitLength); i++) {
+            sum += 1.0 / (1L << hll.getValue(i));
+        }
+        return sum;
+    }
+
     private static void verifyMerge(int prefixBitLength, List<Long> one, List<Long> two)
     {
         DenseHll hll1 = new DenseHll(prefixBitLength);
@@ -128,6 +128,48 @@ public class TestHyperLogLog
         assertEquals(hll1.serialize(), expected.serialize());
     }
 
+    @Test
+    public void testSerializedView()
+    {
+        // sparse
+        verifySerializedView(sequence(0, 100), sequence(50, 150));
+
+        // dense into sparse
+        verifySerializedView(sequence(0, 100), sequence(50, 5000));
+
+        // sparse into dense
+        verifySerializedView(sequence(50, 5000), sequence(0, 100));
+
+        // dense
+        verifySerializedView(sequence(0, 5000), sequence(3000, 8000));
+    }
+
+    private void verifySerializedView(List<Long> one, List<Long> two)
+    {
+        HyperLogLog hll1 = HyperLogLog.newInstance(2048);
+        HyperLogLog hll2 = HyperLogLog.newInstance(2048);
+        HyperLogLog expected = HyperLogLog.newInstance(2048);
+
+        for (long value : one) {
+            hll1.add(value);
+            expected.add(value);
+        }
+
+        for (long value : two) {
+            hll2.add(value);
+        }
+
+        SerializedHyperLogLog view = SerializedHyperLogLog.wrap(hll2.serialize());
+        assertEquals(view.cardinality(), hll2.cardinality());
+
+        expected.mergeWith(HyperLogLog.newInstance(hll2.serialize()));
+        hll1.mergeWith(view);
+        hll1.verify();
+
+        assertEquals(hll1.cardinality(), expected.cardinality());
+        assertEquals(hll1.serialize(), expected.serialize());
+    }
+
     @Test
     public void testRoundtrip()
             throws Exception